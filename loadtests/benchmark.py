@@ -0,0 +1,154 @@
+# Compares the memory and the throughput of the platform threads and virtual threads modes.
+#
+# Run the app on JDK 21+ once per mode, then run this script against it with the same parameters:
+#   VIRTUAL_THREADS_ENABLED=false java -jar compiler.jar
+#   python3 benchmark.py --label platform --pid <pid of the app>
+#   VIRTUAL_THREADS_ENABLED=true java -jar compiler.jar
+#   python3 benchmark.py --label virtual --pid <pid of the app>
+#
+# The memory is read from the actuator metrics (heap, non heap, live threads) and, when the pid is given,
+# from the resident set size of the process which includes the stacks of the platform threads.
+# Set a high ADMISSION_QUEUE_CAPACITY so that the requests wait in the app instead of being throttled.
+
+import argparse
+import threading
+import time
+
+import requests
+
+# Python
+pythonInput = open("inputs/makeEven-1.txt", "r").read()
+pythonExpectedOutput = open("expected-outputs/makeEven-1.txt", "r").read()
+pythonSourceCode = open("source-code/MakeEven.py", "r").read()
+
+pythonData = {
+    "testCases": {
+        "test1": {
+            "expectedOutput": pythonExpectedOutput,
+            "input": pythonInput,
+        }
+    },
+    "language": "PYTHON",
+    "memoryLimit": 500,
+    "sourcecode": pythonSourceCode,
+    "timeLimit": 15
+}
+
+headers = {'Content-type': 'application/json', 'Accept': 'application/json'}
+
+
+def get_metric(base_url, name, tag=None):
+    url = base_url + "/actuator/metrics/" + name
+    if tag is not None:
+        url += "?tag=" + tag
+    try:
+        measurements = requests.get(url).json()["measurements"]
+        return next(m["value"] for m in measurements if m["statistic"] == "VALUE")
+    except Exception:
+        return float("nan")
+
+
+def get_rss(pid):
+    if pid is None:
+        return float("nan")
+    with open("/proc/" + str(pid) + "/status") as status:
+        for line in status:
+            if line.startswith("VmRSS:"):
+                return int(line.split()[1]) * 1024
+    return float("nan")
+
+
+class Sampler(threading.Thread):
+    def __init__(self, base_url, pid, interval):
+        threading.Thread.__init__(self, daemon=True)
+        self.base_url = base_url
+        self.pid = pid
+        self.interval = interval
+        self.stopped = threading.Event()
+        self.peaks = {"threads": 0, "heap": 0, "nonheap": 0, "rss": 0}
+
+    def sample(self):
+        values = {
+            "threads": get_metric(self.base_url, "jvm.threads.live"),
+            "heap": get_metric(self.base_url, "jvm.memory.used", "area:heap"),
+            "nonheap": get_metric(self.base_url, "jvm.memory.used", "area:nonheap"),
+            "rss": get_rss(self.pid),
+        }
+        for key, value in values.items():
+            if value == value and value > self.peaks[key]:
+                self.peaks[key] = value
+
+    def run(self):
+        while not self.stopped.is_set():
+            self.sample()
+            self.stopped.wait(self.interval)
+
+
+class Client(threading.Thread):
+    def __init__(self, url, count, latencies, statuses, lock):
+        threading.Thread.__init__(self)
+        self.url = url
+        self.count = count
+        self.latencies = latencies
+        self.statuses = statuses
+        self.lock = lock
+
+    def run(self):
+        for _ in range(self.count):
+            start = time.time()
+            try:
+                status = requests.post(url=self.url, json=pythonData, headers=headers).status_code
+            except Exception:
+                status = "error"
+            latency = time.time() - start
+            with self.lock:
+                self.latencies.append(latency)
+                self.statuses[status] = self.statuses.get(status, 0) + 1
+
+
+def percentile(values, p):
+    values = sorted(values)
+    return values[min(len(values) - 1, int(len(values) * p))] if values else float("nan")
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("--base-url", default="http://localhost:8082")
+    parser.add_argument("--concurrency", type=int, default=1000, help="concurrent clients")
+    parser.add_argument("--requests", type=int, default=2, help="requests sent by each client")
+    parser.add_argument("--pid", type=int, default=None, help="pid of the app, to read its resident memory")
+    parser.add_argument("--label", default="run")
+    args = parser.parse_args()
+
+    sampler = Sampler(args.base_url, args.pid, 0.5)
+    sampler.sample()
+    idle = dict(sampler.peaks)
+    sampler.start()
+
+    latencies = []
+    statuses = {}
+    lock = threading.Lock()
+    clients = [Client(args.base_url + "/api/compile/json", args.requests, latencies, statuses, lock)
+               for _ in range(args.concurrency)]
+    start = time.time()
+    for client in clients:
+        client.start()
+    for client in clients:
+        client.join()
+    duration = time.time() - start
+    sampler.stopped.set()
+    sampler.join()
+
+    mb = 1024 * 1024
+    print("label: %s" % args.label)
+    print("requests: %d in %.1f s, throughput: %.1f req/s" % (len(latencies), duration, len(latencies) / duration))
+    print("statuses: %s" % statuses)
+    print("latency p50: %.2f s, p99: %.2f s" % (percentile(latencies, 0.5), percentile(latencies, 0.99)))
+    print("live threads: idle %d, peak %d" % (idle["threads"], sampler.peaks["threads"]))
+    print("heap: idle %.0f MB, peak %.0f MB" % (idle["heap"] / mb, sampler.peaks["heap"] / mb))
+    print("non heap: idle %.0f MB, peak %.0f MB" % (idle["nonheap"] / mb, sampler.peaks["nonheap"] / mb))
+    print("rss: idle %.0f MB, peak %.0f MB" % (idle["rss"] / mb, sampler.peaks["rss"] / mb))
+
+
+if __name__ == "__main__":
+    main()
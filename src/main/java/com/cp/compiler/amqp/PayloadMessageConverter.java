@@ -0,0 +1,83 @@
+package com.cp.compiler.amqp;
+
+import com.cp.compiler.utils.payloads.PayloadEncoding;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The type Payload message converter.
+ * Decodes the payloads of the consumed messages into JSON with the encoding given by their content type
+ * and content encoding (see {@link PayloadEncoding}), the messages without them are plain JSON as before.
+ * The compressed payloads are decompressed up to a max size.
+ * The messages are sent as text, the ones encoded like their request are re-encoded by {@link #encoder}.
+ *
+ * @author Zakaria Maaraki
+ */
+public class PayloadMessageConverter implements MessageConverter {
+    
+    private final SimpleMessageConverter simpleMessageConverter = new SimpleMessageConverter();
+    
+    private final long maxDecompressedSize;
+    
+    /**
+     * Instantiates a new Payload message converter, decompressing the payloads up to the default max size.
+     */
+    public PayloadMessageConverter() {
+        this(PayloadEncoding.DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+    
+    /**
+     * Instantiates a new Payload message converter.
+     *
+     * @param maxDecompressedSize the max size of a decompressed payload in bytes
+     */
+    public PayloadMessageConverter(long maxDecompressedSize) {
+        this.maxDecompressedSize = maxDecompressedSize;
+    }
+    
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        return simpleMessageConverter.toMessage(object, messageProperties);
+    }
+    
+    @Override
+    public Object fromMessage(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        try {
+            return getEncoding(properties).decode(message.getBody(), maxDecompressedSize);
+        } catch (IllegalArgumentException exception) {
+            throw new MessageConversionException("Could not decode the payload of the message", exception);
+        }
+    }
+    
+    /**
+     * Gets the encoding of a message.
+     *
+     * @param properties the properties of the message
+     * @return the payload encoding
+     */
+    public static PayloadEncoding getEncoding(MessageProperties properties) {
+        return PayloadEncoding.of(properties.getContentType(), properties.getContentEncoding());
+    }
+    
+    /**
+     * Re-encodes a text message with an encoding, and sets its content type and content encoding.
+     *
+     * @param encoding the payload encoding
+     * @return the message post processor
+     */
+    public static MessagePostProcessor encoder(PayloadEncoding encoding) {
+        return message -> {
+            MessageProperties properties = message.getMessageProperties();
+            properties.setContentType(encoding.getContentType());
+            properties.setContentEncoding(encoding.getContentEncoding());
+            return new Message(encoding.encode(new String(message.getBody(), StandardCharsets.UTF_8)), properties);
+        };
+    }
+}
@@ -0,0 +1,166 @@
+package com.cp.compiler.amqp;
+
+import com.cp.compiler.services.resources.Resources;
+import com.cp.compiler.utils.retries.RetryTiers;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The type Rabbit config.
+ * The number of consumers follows the max number of requests the compiler can execute at once (the adaptive limit
+ * when it is enabled), capped by the number of executions the cpus can run at once and by the channel max of the
+ * broker, as each consumer holds a channel. The container starts that many consumers and adds consumers
+ * up to the cap while they are busy, so that it follows the adaptive limit as it grows.
+ * Each consumer holds at most prefetch unacknowledged messages, so the messages that can't be executed
+ * stay in the broker where the other instances can consume them.
+ * The messages are acknowledged manually once their response is sent.
+ * The payloads are decoded by the {@link PayloadMessageConverter} (json, binary formats, compression),
+ * decompressed up to compiler.payloads.max-decompressed-size.
+ * A throttled message is parked in a retry queue, its messages expire after the throttling duration
+ * and are dead lettered back to the input queue.
+ * A failed message goes through the retry queues (retry-1 to retry-n, one per delay of spring.rabbitmq.retry.delays)
+ * in the same way, and ends up in the dead letter queue.
+ *
+ * @author Zakaria Maaraki
+ */
+@Profile("rabbitmq")
+@Slf4j
+@Configuration
+public class RabbitConfig {
+
+    /**
+     * The default channel max of a RabbitMQ connection, each consumer holds a channel.
+     */
+    public static final int CHANNEL_MAX = 2047;
+
+    @Value("${spring.rabbitmq.queues.input}")
+    private String inputQueue;
+
+    @Value("${spring.rabbitmq.queues.retry:rabbit.queue.retry}")
+    private String retryQueue;
+
+    @Value("${spring.rabbitmq.queues.dead-letter:rabbit.queue.dlq}")
+    private String deadLetterQueue;
+
+    @Value("${spring.rabbitmq.throttling-duration:1000}")
+    private long throttlingDuration;
+
+    @Value("${spring.rabbitmq.retry.delays:10000,60000,300000}")
+    private String retryDelays;
+
+    // 0 to follow the max requests
+    @Value("${spring.rabbitmq.consumers:0}")
+    private int consumers;
+
+    @Value("${spring.rabbitmq.prefetch:1}")
+    private int prefetch;
+
+    @Value("${compiler.payloads.max-decompressed-size:67108864}")
+    private long maxDecompressedSize;
+
+    /**
+     * Rabbit listener container factory.
+     *
+     * @param configurer        the configurer
+     * @param connectionFactory the connection factory
+     * @param resources         the resources
+     * @return the simple rabbit listener container factory
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            Resources resources) {
+        var factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        int concurrentConsumers = getConsumers(resources);
+        int maxConcurrentConsumers = Math.max(concurrentConsumers, getMaxConsumers(resources));
+        log.info("RabbitMQ consumers: {} (up to {}), prefetch: {}",
+                concurrentConsumers, maxConcurrentConsumers, prefetch);
+        factory.setConcurrentConsumers(concurrentConsumers);
+        factory.setMaxConcurrentConsumers(maxConcurrentConsumers);
+        factory.setPrefetchCount(Math.max(1, prefetch));
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        // The messages that can't be decoded are rejected without being requeued
+        factory.setMessageConverter(new PayloadMessageConverter(maxDecompressedSize));
+        return factory;
+    }
+
+    /**
+     * The queue where the throttled messages wait before being consumed again.
+     *
+     * @return the queue
+     */
+    @Bean
+    public Queue retryQueue() {
+        return QueueBuilder
+                .durable(retryQueue)
+                .ttl((int) throttlingDuration)
+                .deadLetterExchange("")
+                .deadLetterRoutingKey(inputQueue)
+                .build();
+    }
+
+    /**
+     * The queues of the retry tiers, where the failed messages wait before being consumed again,
+     * and the dead letter queue.
+     *
+     * @return the declarables
+     */
+    @Bean
+    public Declarables retryTiersQueues() {
+        RetryTiers retryTiers = RetryTiers.parse(retryDelays);
+        List<Declarable> queues = new ArrayList<>();
+        for (int tier = 1; tier <= retryTiers.size(); tier++) {
+            queues.add(QueueBuilder
+                    .durable(RabbitConsumer.getRetryQueue(retryQueue, tier))
+                    .ttl((int) retryTiers.getDelay(tier))
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(inputQueue)
+                    .build());
+        }
+        queues.add(QueueBuilder.durable(deadLetterQueue).build());
+        return new Declarables(queues);
+    }
+
+    /**
+     * Gets the number of consumers started.
+     *
+     * @param resources the resources
+     * @return the configured number of consumers, or the max number of requests capped by the max consumers
+     */
+    int getConsumers(Resources resources) {
+        if (consumers > 0) {
+            return Math.min(consumers, CHANNEL_MAX);
+        }
+        return Math.max(1, Math.min(resources.getMaxRequests(), getMaxConsumers(resources)));
+    }
+
+    /**
+     * Gets the max number of consumers.
+     *
+     * @param resources the resources
+     * @return the configured number of consumers, or the number of executions the cpus can run at once,
+     * capped by the channel max
+     */
+    int getMaxConsumers(Resources resources) {
+        if (consumers > 0) {
+            return Math.min(consumers, CHANNEL_MAX);
+        }
+        return Math.max(1, Math.min(resources.getCpuSlots(), CHANNEL_MAX));
+    }
+}
@@ -1,24 +1,49 @@
 package com.cp.compiler.amqp;
 
 import com.cp.compiler.exceptions.CompilerThrottlingException;
+import com.cp.compiler.mappers.ClaimCheck;
 import com.cp.compiler.mappers.JsonMapper;
+import com.cp.compiler.mappers.ParsedRequest;
+import com.cp.compiler.repositories.ResultsRepository;
+import com.cp.compiler.utils.payloads.PayloadEncoding;
+import com.cp.compiler.utils.retries.RetryTiers;
+import com.cp.compiler.wellknownconstants.WellKnownHeaders;
 import com.cp.compiler.wellknownconstants.WellKnownMetrics;
 import com.cp.compiler.services.businesslogic.CompilerService;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import com.rabbitmq.client.Channel;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.context.annotation.Profile;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
 
 /**
  * The type Rabbit consumer.
+ * The messages are acknowledged manually once their response is sent (see {@link RabbitConfig}),
+ * a throttled message is parked in the retry queue instead of holding the consumer while waiting: its execution
+ * does not wait in the admission queue, it's throttled as soon as it can't run.
+ * A failed message is sent to the next retry queue, or to the dead letter queue when its error is not retryable
+ * or its retries are exhausted, the retry attempt and the error travel in its headers.
+ * The results are stored by idempotency key (see {@link ResultsRepository}), a redelivered or duplicate message
+ * gets the stored result instead of being executed again.
+ * When the result events are enabled, an event is sent to the output queue for each completed test case
+ * then a summary event instead of the whole response, with the execution id in the x-compiler-execution-id header.
+ * The responses and the events keep the correlation id of their request, the execution id is the correlation id
+ * of the requests without one. The retried messages keep the correlation id of their request as well.
+ * The messages are decoded by the {@link PayloadMessageConverter}, the responses and the retried messages
+ * are sent with the content type and content encoding of their request.
+ * The large test data are exchanged by blob references (see {@link ClaimCheck}).
  *
  * @author Zakaria Maaraki
  */
@@ -37,53 +62,229 @@ public class RabbitConsumer {
     @Autowired
     private MeterRegistry meterRegistry;
     
+    @Autowired
+    private ResultsRepository resultsRepository;
+    
+    @Autowired
+    private ClaimCheck claimCheck;
+    
     @Value("${spring.rabbitmq.queues.output:output}")
     private String outputQueue;
     
+    @Value("${spring.rabbitmq.queues.retry:rabbit.queue.retry}")
+    private String retryQueue;
+    
+    @Value("${spring.rabbitmq.queues.dead-letter:rabbit.queue.dlq}")
+    private String deadLetterQueue;
+    
     @Value("${spring.rabbitmq.throttling-duration:1000}")
     private long throttlingDuration;
     
+    @Value("${spring.rabbitmq.retry.delays:10000,60000,300000}")
+    private String retryDelays;
+    
+    @Value("${spring.rabbitmq.result-events.enabled:false}")
+    private boolean resultEventsEnabled;
+    
+    private RetryTiers retryTiers;
+    
     private Counter throttlingRetriesCounter;
     
+    private Counter failureRetriesCounter;
+    
+    private Counter deadLettersCounter;
+    
+    private Counter duplicatesCounter;
+    
     /**
      * Init.
      */
     @PostConstruct
     public void init() {
+        retryTiers = RetryTiers.parse(retryDelays);
         throttlingRetriesCounter = meterRegistry.counter(WellKnownMetrics.AMQP_THROTTLING_RETRIES, "broker", "rabbitmq");
+        failureRetriesCounter = meterRegistry.counter(WellKnownMetrics.AMQP_FAILURE_RETRIES, "broker", "rabbitmq");
+        deadLettersCounter = meterRegistry.counter(WellKnownMetrics.AMQP_DEAD_LETTERS, "broker", "rabbitmq");
+        duplicatesCounter = meterRegistry.counter(WellKnownMetrics.AMQP_DUPLICATE_REQUESTS, "broker", "rabbitmq");
+    }
+    
+    /**
+     * Gets the name of the queue of a retry tier.
+     *
+     * @param retryQueue the retry queue prefix
+     * @param attempt    the retry attempt
+     * @return the queue name
+     */
+    public static String getRetryQueue(String retryQueue, int attempt) {
+        return retryQueue + "-" + attempt;
     }
     
     /**
      * Listen.
      *
      * @param jsonRequest the json request
-     * @throws Exception the exception
+     * @param channel     the channel
+     * @param deliveryTag  the delivery tag
+     * @param retryAttempt the retry attempt, null for the first consumption of the message
+     * @param contentType     the content type of the message, null for json
+     * @param contentEncoding the content encoding of the message, null for no compression
+     * @param correlationId   the correlation id of the message, null if it has none
+     * @throws IOException the io exception
      */
     @RabbitListener(queues = "${spring.rabbitmq.queues.input}")
-    public void listen(String jsonRequest) {
+    public void listen(String jsonRequest,
+                       Channel channel,
+                       @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag,
+                       @Header(name = WellKnownHeaders.RETRY_ATTEMPT, required = false) Integer retryAttempt,
+                       @Header(name = AmqpHeaders.CONTENT_TYPE, required = false) String contentType,
+                       @Header(name = AmqpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+                       @Header(name = AmqpHeaders.CORRELATION_ID, required = false) String correlationId)
+            throws IOException {
+        int attempt = retryAttempt == null ? 0 : retryAttempt;
+        // Already decoded by the message converter, the responses are encoded the same way
+        PayloadEncoding encoding = PayloadEncoding.of(contentType, contentEncoding);
+        // Parsed once for the idempotency key and the execution
+        ParsedRequest parsedRequest = JsonMapper.parse(jsonRequest);
+        String idempotencyKey = JsonMapper.getIdempotencyKey(parsedRequest);
+        // Only the requests carrying an idempotency key are deduplicated
+        String jsonResult = idempotencyKey == null ? null : resultsRepository.get(idempotencyKey);
+        if (jsonResult != null) {
+            log.info("Duplicate request {}, sending the stored result", idempotencyKey);
+            if (duplicatesCounter != null) {
+                duplicatesCounter.increment();
+            }
+            // A stored summary event is sent with the headers of the events
+            String executionId = resultEventsEnabled ? JsonMapper.getExecutionId(jsonResult) : null;
+            sendResult(jsonResult, executionId, correlationId, encoding, channel, deliveryTag);
+            return;
+        }
         try {
-            String jsonResult = transform(jsonRequest);
-            rabbitTemplate.convertAndSend(outputQueue, jsonResult);
+            jsonResult = resultEventsEnabled
+                    // The events are sent as the test cases complete, the summary event is the last one
+                    ? JsonMapper.transform(parsedRequest, compilerService,
+                            (executionId, jsonEvent) -> sendEvent(executionId, correlationId, jsonEvent, encoding),
+                            claimCheck)
+                    : JsonMapper.transform(parsedRequest, compilerService, null, claimCheck);
+            if (idempotencyKey != null) {
+                resultsRepository.put(idempotencyKey, jsonResult);
+            }
+        } catch (CompilerThrottlingException throttlingException) {
+            log.info("Request throttled {}, retrying after {}", throttlingException, throttlingDuration);
+            if (throttlingRetriesCounter != null) {
+                throttlingRetriesCounter.increment();
+            }
+            // Expires after the throttling duration and goes back to the input queue
+            publish(retryQueue, jsonRequest, attempt, null, correlationId, encoding, channel, deliveryTag);
+            return;
+        } catch (Exception e) {
+            retryOrDeadLetter(jsonRequest, attempt, e, correlationId, encoding, channel, deliveryTag);
+            return;
+        }
+        if (resultEventsEnabled) {
+            channel.basicAck(deliveryTag, false);
+            return;
+        }
+        sendResult(jsonResult, null, correlationId, encoding, channel, deliveryTag);
+    }
+    
+    private void sendEvent(String executionId, String correlationId, String jsonEvent, PayloadEncoding encoding) {
+        rabbitTemplate.convertAndSend(outputQueue, jsonEvent, message -> {
+            setCorrelation(message, executionId, correlationId);
+            return encode(message, encoding);
+        });
+    }
+    
+    private void sendResult(String jsonResult,
+                            String executionId,
+                            String correlationId,
+                            PayloadEncoding encoding,
+                            Channel channel,
+                            long deliveryTag) throws IOException {
+        try {
+            if (encoding.isDefault() && executionId == null && correlationId == null) {
+                rabbitTemplate.convertAndSend(outputQueue, jsonResult);
+            } else {
+                rabbitTemplate.convertAndSend(outputQueue, (Object) jsonResult, message -> {
+                    setCorrelation(message, executionId, correlationId);
+                    return encode(message, encoding);
+                });
+            }
         } catch (Exception e) {
             log.error("Error : {}", e);
+            // The message is consumed again, by this consumer or another one
+            channel.basicNack(deliveryTag, false, true);
+            return;
         }
+        channel.basicAck(deliveryTag, false);
     }
     
-    private String transform(String jsonRequest) throws Exception {
+    private void retryOrDeadLetter(String jsonRequest,
+                                   int attempt,
+                                   Exception exception,
+                                   String correlationId,
+                                   PayloadEncoding encoding,
+                                   Channel channel,
+                                   long deliveryTag) throws IOException {
+        int nextAttempt = attempt + 1;
+        if (retryTiers.shouldRetry(nextAttempt, exception)) {
+            log.warn("Error : {}, retry {} after {}", exception, nextAttempt, retryTiers.getDelay(nextAttempt));
+            if (failureRetriesCounter != null) {
+                failureRetriesCounter.increment();
+            }
+            // Expires after the delay of the tier and goes back to the input queue
+            publish(getRetryQueue(retryQueue, nextAttempt), jsonRequest, nextAttempt, exception, correlationId,
+                    encoding, channel, deliveryTag);
+        } else {
+            log.error("Error : {} after {} retries, sending it to the dead letter queue", exception, attempt);
+            if (deadLettersCounter != null) {
+                deadLettersCounter.increment();
+            }
+            publish(deadLetterQueue, jsonRequest, attempt, exception, correlationId, encoding, channel, deliveryTag);
+        }
+    }
+    
+    private void publish(String queue,
+                         String jsonRequest,
+                         int attempt,
+                         Exception exception,
+                         String correlationId,
+                         PayloadEncoding encoding,
+                         Channel channel,
+                         long deliveryTag) throws IOException {
         try {
-            return JsonMapper.transform(jsonRequest, compilerService);
-        } catch (CompilerThrottlingException throttlingException) {
-            log.info("Request throttled {}, retrying after {}", throttlingException, throttlingDuration);
-            return retryAfter(jsonRequest);
+            rabbitTemplate.convertAndSend(queue, jsonRequest, message -> {
+                if (attempt > 0) {
+                    message.getMessageProperties().setHeader(WellKnownHeaders.RETRY_ATTEMPT, attempt);
+                }
+                if (exception != null) {
+                    message.getMessageProperties().setHeader(WellKnownHeaders.RETRY_ERROR,
+                            exception.getClass().getSimpleName() + ": " + exception.getMessage());
+                }
+                if (correlationId != null) {
+                    message.getMessageProperties().setCorrelationId(correlationId);
+                }
+                return encode(message, encoding);
+            });
+        } catch (Exception e) {
+            log.error("Error : {}", e);
+            channel.basicNack(deliveryTag, false, true);
+            return;
         }
+        channel.basicAck(deliveryTag, false);
     }
     
-    private String retryAfter(String jsonRequest) throws Exception {
-        if (throttlingRetriesCounter != null) {
-            throttlingRetriesCounter.increment();
+    // The correlation id of the request is kept, the execution id is the correlation id of the requests without one
+    private static void setCorrelation(Message message, String executionId, String correlationId) {
+        message.getMessageProperties().setCorrelationId(correlationId == null ? executionId : correlationId);
+        if (executionId != null) {
+            message.getMessageProperties().setHeader(WellKnownHeaders.EXECUTION_ID, executionId);
         }
-        Thread.sleep(throttlingDuration);
-        return transform(jsonRequest);
     }
     
+    private static Message encode(Message message, PayloadEncoding encoding) {
+        if (encoding.isDefault()) {
+            return message;
+        }
+        return PayloadMessageConverter.encoder(encoding).postProcessMessage(message);
+    }
 }
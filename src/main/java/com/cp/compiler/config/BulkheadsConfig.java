@@ -0,0 +1,53 @@
+package com.cp.compiler.config;
+
+import com.cp.compiler.models.Language;
+import com.cp.compiler.services.resources.Bulkhead;
+import com.cp.compiler.services.resources.Bulkheads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The type Bulkheads config.
+ * The limits of a language are read from compiler.bulkheads.[language].max-executions and
+ * compiler.bulkheads.[language].queue-capacity (ex: compiler.bulkheads.scala.max-executions),
+ * falling back to compiler.bulkheads.max-executions and compiler.bulkheads.queue-capacity.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Configuration
+public class BulkheadsConfig {
+    
+    private static final String PREFIX = "compiler.bulkheads.";
+    
+    /**
+     * Bulkheads of the languages.
+     *
+     * @param environment the environment
+     * @return the bulkheads
+     */
+    @Bean
+    public Bulkheads bulkheads(Environment environment) {
+        int defaultMaxExecutions = environment.getProperty(PREFIX + "max-executions", Integer.class, 0);
+        int defaultQueueCapacity = environment.getProperty(PREFIX + "queue-capacity", Integer.class, 0);
+        List<Bulkhead> bulkheads = new ArrayList<>();
+        for (Language language : Language.values()) {
+            String languagePrefix = PREFIX + language.name().toLowerCase() + ".";
+            int maxExecutions =
+                    environment.getProperty(languagePrefix + "max-executions", Integer.class, defaultMaxExecutions);
+            int queueCapacity =
+                    environment.getProperty(languagePrefix + "queue-capacity", Integer.class, defaultQueueCapacity);
+            if (maxExecutions > 0 || queueCapacity > 0) {
+                log.info("Bulkhead of {}: max executions: {}, queue capacity: {}",
+                        language, maxExecutions, queueCapacity);
+            }
+            bulkheads.add(new Bulkhead(language, maxExecutions, queueCapacity));
+        }
+        return new Bulkheads(bulkheads);
+    }
+}
@@ -0,0 +1,153 @@
+package com.cp.compiler.config;
+
+import com.cp.compiler.utils.CmdUtils;
+import com.cp.compiler.utils.ExecutorUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * The type Executors config.
+ * The bounded thread pools of the app, one per purpose, so that a burst of requests
+ * does not create an unbounded number of threads (and of docker rm / rmi processes).
+ * When compiler.virtual-threads.enabled is set and the JDK supports it, their threads are virtual threads.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Configuration
+public class ExecutorsConfig {
+
+    @Value("${compiler.virtual-threads.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * Deletes the containers, images and directories of the finished executions.
+     * When saturated the caller deletes them itself, slowing down the executions.
+     *
+     * @param meterRegistry the meter registry
+     * @param poolSize      the pool size
+     * @param queueCapacity the queue capacity
+     * @return the executor service
+     */
+    @Bean
+    public ExecutorService cleanupExecutor(MeterRegistry meterRegistry,
+                                           @Value("${compiler.executors.cleanup.pool-size:4}") int poolSize,
+                                           @Value("${compiler.executors.cleanup.queue-capacity:1000}")
+                                                   int queueCapacity) {
+        return newExecutor("cleanup", poolSize, queueCapacity, new ThreadPoolExecutor.CallerRunsPolicy(),
+                meterRegistry);
+    }
+
+    /**
+     * Runs the test cases of an execution in parallel.
+     * When saturated the test case is rejected, the execution goes on with fewer concurrent test cases.
+     *
+     * @param meterRegistry the meter registry
+     * @param poolSize      the pool size
+     * @return the executor service
+     */
+    @Bean
+    public ExecutorService testCasesExecutor(MeterRegistry meterRegistry,
+                                             @Value("${compiler.executors.test-cases.pool-size:64}") int poolSize) {
+        return newExecutor("test-cases", poolSize, 0, new ThreadPoolExecutor.AbortPolicy(), meterRegistry);
+    }
+
+    /**
+     * Runs the long running executions (push notification).
+     * When saturated the executions are rejected and the requests throttled.
+     *
+     * @param meterRegistry the meter registry
+     * @param poolSize      the pool size
+     * @param queueCapacity the queue capacity
+     * @return the executor service
+     */
+    @Bean
+    public ExecutorService longRunningExecutor(MeterRegistry meterRegistry,
+                                               @Value("${compiler.executors.long-running.pool-size:50}") int poolSize,
+                                               @Value("${compiler.executors.long-running.queue-capacity:100}")
+                                                       int queueCapacity) {
+        return newExecutor("long-running", poolSize, queueCapacity, new ThreadPoolExecutor.AbortPolicy(),
+                meterRegistry);
+    }
+
+    /**
+     * Delivers the responses of the long running executions to their webhooks.
+     * When saturated the caller delivers the response itself.
+     *
+     * @param meterRegistry the meter registry
+     * @param poolSize      the pool size
+     * @param queueCapacity the queue capacity
+     * @return the executor service
+     */
+    @Bean
+    public ExecutorService webhookExecutor(MeterRegistry meterRegistry,
+                                           @Value("${compiler.executors.webhook.pool-size:8}") int poolSize,
+                                           @Value("${compiler.executors.webhook.queue-capacity:1000}")
+                                                   int queueCapacity) {
+        return newExecutor("webhook", poolSize, queueCapacity, new ThreadPoolExecutor.CallerRunsPolicy(),
+                meterRegistry);
+    }
+
+    /**
+     * Runs the executions of the Kafka records in async mode, shared by all the stream tasks.
+     * When saturated the records wait in their task and are retried after the throttling duration.
+     *
+     * @param meterRegistry the meter registry
+     * @param poolSize      the pool size
+     * @return the executor service
+     */
+    @Bean
+    public ExecutorService kafkaExecutionsExecutor(MeterRegistry meterRegistry,
+                                                   @Value("${compiler.executors.kafka-executions.pool-size:256}")
+                                                           int poolSize) {
+        return newExecutor("kafka-executions", poolSize, 0, new ThreadPoolExecutor.AbortPolicy(), meterRegistry);
+    }
+
+    /**
+     * Reads the standard and error outputs of the processes run by the app, two tasks per running process.
+     * When saturated the process is destroyed, its output could not be read.
+     *
+     * @param meterRegistry the meter registry
+     * @param poolSize      the pool size
+     * @param queueCapacity the queue capacity
+     * @return the executor service
+     */
+    @Bean
+    public ExecutorService processOutputExecutor(MeterRegistry meterRegistry,
+                                                 @Value("${compiler.executors.process-output.pool-size:256}")
+                                                         int poolSize,
+                                                 @Value("${compiler.executors.process-output.queue-capacity:1000}")
+                                                         int queueCapacity) {
+        var executor = newExecutor("process-output", poolSize, queueCapacity, new ThreadPoolExecutor.AbortPolicy(),
+                meterRegistry);
+        CmdUtils.setOutputDrainers(executor);
+        return executor;
+    }
+
+    /**
+     * Restores the default process output executor, the configured one is shut down with the context.
+     */
+    @PreDestroy
+    public void restoreProcessOutputExecutor() {
+        CmdUtils.setOutputDrainers(null);
+    }
+
+    private ExecutorService newExecutor(String name,
+                                        int poolSize,
+                                        int queueCapacity,
+                                        RejectedExecutionHandler rejectionHandler,
+                                        MeterRegistry meterRegistry) {
+        log.info("Executor {}: pool size: {}, queue capacity: {}, virtual threads: {}",
+                name, poolSize, queueCapacity, virtualThreads);
+        return ExecutorUtils.newBoundedExecutor(
+                name, poolSize, queueCapacity, rejectionHandler, meterRegistry, virtualThreads);
+    }
+}
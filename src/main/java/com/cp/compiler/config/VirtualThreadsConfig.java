@@ -0,0 +1,47 @@
+package com.cp.compiler.config;
+
+import com.cp.compiler.utils.ExecutorUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The type Virtual threads config.
+ * Handles each http request on its own virtual thread instead of the bounded pool of Tomcat,
+ * a request blocked on a docker process then no longer holds a platform thread and its stack.
+ * Requires a JDK supporting virtual threads (21+), otherwise the requests are handled by the pool of Tomcat.
+ * The executions themselves are still bounded by the admission queue.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "compiler.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    /**
+     * Runs the http requests on virtual threads.
+     *
+     * @param meterRegistry the meter registry
+     * @return the tomcat protocol handler customizer
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer(MeterRegistry meterRegistry) {
+        return protocolHandler -> {
+            ExecutorService executor = ExecutorUtils.newVirtualThreadPerTaskExecutor("http", meterRegistry)
+                    .orElse(null);
+            if (executor == null) {
+                log.warn("Virtual threads are not supported by this JDK ({}), "
+                        + "the requests are handled by platform threads", Runtime.version());
+                return;
+            }
+            protocolHandler.setExecutor(executor);
+            log.info("The http requests are handled by virtual threads");
+        };
+    }
+}
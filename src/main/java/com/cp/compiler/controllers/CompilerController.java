@@ -49,6 +49,8 @@ public class CompilerController {
      * @param userId  the user id
      * @param prefer  the prefer operation (currently there is only prefer-push which is optional)
      * @param url     if the prefer is set to prefer-push the url where the response should be sent should be specified
+     * @param priority the priority class, takes precedence over the priority of the request
+     * @param deadline the time in epoch millis after which the result is no longer needed, takes precedence over the deadline of the request
      * @return The statusResponse of the execution (Accepted, Wrong Answer, Time Limit Exceeded, Memory Limit Exceeded, Compilation Error, RunTime Error)
      * @throws IOException the io exception
      */
@@ -61,7 +63,9 @@ public class CompilerController {
     public ResponseEntity<Object> compile(@ApiParam(value = "request") @RequestBody Request request,
                                           @RequestHeader(value = WellKnownParams.USER_ID, required = false) String userId,
                                           @RequestHeader(value = WellKnownParams.PREFER, required = false) String prefer,
-                                          @RequestHeader(value = WellKnownParams.URL, required = false) String url)
+                                          @RequestHeader(value = WellKnownParams.URL, required = false) String url,
+                                          @RequestHeader(value = WellKnownParams.PRIORITY, required = false) Priority priority,
+                                          @RequestHeader(value = WellKnownParams.DEADLINE, required = false) Long deadline)
             throws IOException {
         
         Execution execution = ExecutionFactory.createExecution(
@@ -71,6 +75,15 @@ public class CompilerController {
                 request.getMemoryLimit(),
                 request.getLanguage());
         
+        // The header takes precedence over the priority of the request body
+        if (priority == null) {
+            priority = request.getPriority();
+        }
+        if (priority != null) {
+            execution.setPriority(priority);
+        }
+        execution.setDeadline(deadline == null ? request.getDeadline() : deadline);
+        
         // Free memory space, the request could take so much time
         request = null;
         
@@ -91,6 +104,8 @@ public class CompilerController {
      * @param prefer          the prefer push
      * @param url             the url
      * @param userId          the user id
+     * @param priority        the priority class
+     * @param deadline        the time in epoch millis after which the result is no longer needed
      * @return The statusResponse of the execution (Accepted, Wrong Answer, Time Limit Exceeded, Memory Limit Exceeded, Compilation Error, RunTime Error)
      * @throws IOException the io exception
      */
@@ -124,7 +139,11 @@ public class CompilerController {
             
             @RequestHeader(value = WellKnownParams.URL, required = false) String url,
 
-            @RequestHeader(value = WellKnownParams.USER_ID, required = false) String userId)
+            @RequestHeader(value = WellKnownParams.USER_ID, required = false) String userId,
+            
+            @RequestHeader(value = WellKnownParams.PRIORITY, required = false) Priority priority,
+            
+            @RequestHeader(value = WellKnownParams.DEADLINE, required = false) Long deadline)
             
             throws IOException {
         
@@ -138,6 +157,11 @@ public class CompilerController {
                 memoryLimit,
                 language);
         
+        if (priority != null) {
+            execution.setPriority(priority);
+        }
+        execution.setDeadline(deadline);
+        
         boolean isLongRunning = WellKnownHeaders.PREFER_PUSH.equals(prefer);
     
         return compiler.compile(execution, isLongRunning, url, userId);
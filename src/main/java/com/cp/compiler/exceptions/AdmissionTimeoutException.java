@@ -0,0 +1,23 @@
+package com.cp.compiler.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The type Admission timeout exception.
+ * Thrown when a queued request waited too long for resources, it's a throttling so the request can be retried.
+ *
+ * @author Zakaria Maaraki
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AdmissionTimeoutException extends CompilerThrottlingException {
+    
+    /**
+     * Instantiates a new Admission timeout exception.
+     *
+     * @param message the message
+     */
+    public AdmissionTimeoutException(String message) {
+        super(message, ErrorCode.ADMISSION_TIMEOUT_ERROR);
+    }
+}
@@ -20,6 +20,16 @@ public class CompilerThrottlingException extends MonitoredException {
      * @param message the message
      */
     public CompilerThrottlingException(String message) {
-        super(message, ErrorCode.THROTTLING_ERROR, ErrorType.WARNING, true, RETRY_IN);
+        this(message, ErrorCode.THROTTLING_ERROR);
+    }
+    
+    /**
+     * Instantiates a new Throttling exception with a specific error code.
+     *
+     * @param message   the message
+     * @param errorCode the error code
+     */
+    protected CompilerThrottlingException(String message, ErrorCode errorCode) {
+        super(message, errorCode, ErrorType.WARNING, true, RETRY_IN);
     }
 }
\ No newline at end of file
@@ -19,4 +19,13 @@ public class ContainerOperationTimeoutException extends ProcessExecutionTimeoutE
     public ContainerOperationTimeoutException(String message) {
         super(message);
     }
+    
+    /**
+     * Instantiates a new Container operation timeout exception, keeping the partial output of the process.
+     *
+     * @param exception the timeout of the process
+     */
+    public ContainerOperationTimeoutException(ProcessExecutionTimeoutException exception) {
+        super(exception.getMessage(), exception.getPartialOutput());
+    }
 }
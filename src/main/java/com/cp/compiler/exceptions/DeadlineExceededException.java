@@ -0,0 +1,24 @@
+package com.cp.compiler.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The type Deadline exceeded exception.
+ * Thrown when the deadline of a request passed before its execution ended, the caller is no longer waiting for it,
+ * so it's not a retryable error.
+ *
+ * @author Zakaria Maaraki
+ */
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class DeadlineExceededException extends MonitoredException {
+    
+    /**
+     * Instantiates a new Deadline exceeded exception.
+     *
+     * @param message the message
+     */
+    public DeadlineExceededException(String message) {
+        super(message, ErrorCode.DEADLINE_EXCEEDED_ERROR, ErrorType.WARNING);
+    }
+}
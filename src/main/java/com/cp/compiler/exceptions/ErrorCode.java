@@ -13,5 +13,7 @@ public enum ErrorCode {
     COMPILATION_TIMEOUT_ERROR, // Occurs when the compilation exceed the timeout
     RESOURCE_LIMIT_REACHED_ERROR, // Occurs when memory used during compilation exceed the threshold
     THROTTLING_ERROR, // Occurs when a request should be throttled
+    ADMISSION_TIMEOUT_ERROR, // Occurs when a queued request waited too long for resources
+    DEADLINE_EXCEEDED_ERROR, // Occurs when the deadline of a request passed before the end of its execution
     BAD_REQUEST // Occurs when a user send a bad request
 }
@@ -1,5 +1,6 @@
 package com.cp.compiler.exceptions;
 
+import com.cp.compiler.models.processes.ProcessOutput;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
@@ -11,11 +12,27 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
 public class ProcessExecutionTimeoutException extends RuntimeException {
     
+    /**
+     * The output read before the process has been killed, null if unknown.
+     */
+    private final ProcessOutput partialOutput;
+    
     /**
      * Instantiates a new Process execution timeout exception.
      */
     public ProcessExecutionTimeoutException(long timeout) {
+        this(timeout, null);
+    }
+    
+    /**
+     * Instantiates a new Process execution timeout exception.
+     *
+     * @param timeout       the timeout
+     * @param partialOutput the output read before the process has been killed, to be closed by the catcher
+     */
+    public ProcessExecutionTimeoutException(long timeout, ProcessOutput partialOutput) {
         super("The process execution exceeded the maximum time allowed for its execution " + timeout + " seconds");
+        this.partialOutput = partialOutput;
     }
     
     /**
@@ -24,6 +41,26 @@ public class ProcessExecutionTimeoutException extends RuntimeException {
      * @param message the message
      */
     public ProcessExecutionTimeoutException(String message) {
+        this(message, null);
+    }
+    
+    /**
+     * Instantiates a new Process execution timeout exception.
+     *
+     * @param message       the message
+     * @param partialOutput the output read before the process has been killed
+     */
+    protected ProcessExecutionTimeoutException(String message, ProcessOutput partialOutput) {
         super(message);
+        this.partialOutput = partialOutput;
+    }
+    
+    /**
+     * Gets the output read before the process has been killed.
+     *
+     * @return the partial output, null if unknown
+     */
+    public ProcessOutput getPartialOutput() {
+        return partialOutput;
     }
 }
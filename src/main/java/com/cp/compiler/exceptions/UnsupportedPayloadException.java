@@ -0,0 +1,30 @@
+package com.cp.compiler.exceptions;
+
+/**
+ * The type Unsupported payload exception.
+ * Thrown when the content type or the content encoding of a payload is not supported, or when the payload
+ * can't be decoded with them.
+ *
+ * @author Zakaria Maaraki
+ */
+public class UnsupportedPayloadException extends IllegalArgumentException {
+    
+    /**
+     * Instantiates a new Unsupported payload exception.
+     *
+     * @param message the message
+     */
+    public UnsupportedPayloadException(String message) {
+        super(message);
+    }
+    
+    /**
+     * Instantiates a new Unsupported payload exception.
+     *
+     * @param message the message
+     * @param cause   the cause
+     */
+    public UnsupportedPayloadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -2,7 +2,9 @@ package com.cp.compiler.executions;
 
 import com.cp.compiler.models.testcases.ConvertedTestCase;
 import com.cp.compiler.models.Language;
+import com.cp.compiler.models.Priority;
 import com.cp.compiler.templates.EntrypointFileGenerator;
+import com.cp.compiler.utils.BatchUtils;
 import com.cp.compiler.utils.FileUtils;
 import com.cp.compiler.wellknownconstants.WellKnownFiles;
 import com.cp.compiler.wellknownconstants.WellKnownTemplates;
@@ -12,6 +14,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.FileSystemUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -20,6 +23,7 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * The abstract type Execution.
@@ -60,6 +64,38 @@ public abstract class Execution {
      */
     private String path;
     
+    /**
+     * The priority class used when waiting for resources
+     */
+    @Setter
+    @NonNull
+    private Priority priority = Priority.INTERACTIVE;
+    
+    /**
+     * The user that submitted the execution, the resources are shared fairly between users
+     */
+    @Setter
+    private String userId;
+    
+    /**
+     * The time in epoch millis after which the caller no longer waits for the result, null if there is none
+     */
+    @Setter
+    private Long deadline;
+    
+    /**
+     * Whether the execution waits in the admission queue for resources, or is throttled right away
+     */
+    @Setter
+    private boolean waitForResources = true;
+    
+    /**
+     * Notified with the result of each test case as soon as it's known, null if there is none
+     */
+    @Setter
+    @EqualsAndHashCode.Exclude
+    private TestCaseResultListener testCaseResultListener;
+    
     
     /**
      * Instantiates a new Execution.
@@ -145,6 +181,15 @@ public abstract class Execution {
         return EXECUTION_FOLDER_PREFIX_NAME + id;
     }
     
+    /**
+     * Is expired boolean.
+     *
+     * @return true if the deadline of the execution passed
+     */
+    public boolean isExpired() {
+        return deadline != null && System.currentTimeMillis() >= deadline;
+    }
+    
     /**
      * Copy docker file to execution directory.
      *
@@ -181,6 +226,9 @@ public abstract class Execution {
         try(OutputStream os = new FileOutputStream(path)) {
             os.write(content.getBytes(), 0, content.length());
         }
+        
+        // Needed when the entrypoint is executed in a container that was not built from the execution Dockerfile
+        new File(path).setExecutable(true, false);
     }
     
     /**
@@ -197,6 +245,56 @@ public abstract class Execution {
         });
     }
     
+    /**
+     * Create the batch entrypoint file, a harness running the entrypoints of all test cases in one container,
+     * along with the ordered list of the test cases it runs and their expected outputs.
+     * The outputs of each test case are bounded by the harness, so that its whole output grows with the test cases.
+     * The harness does not start new test cases once the deadline of the execution passed,
+     * nor after the first test case whose output does not match its expected output.
+     *
+     * @param maxOutputSize the max number of bytes of the standard output of a test case
+     * @param maxErrorSize  the max number of bytes of the standard error of a test case
+     */
+    @SneakyThrows
+    public void createBatchEntrypointFile(long maxOutputSize, long maxErrorSize) {
+        
+        String content = getEntrypointFileGenerator()
+                .createEntrypointFile(WellKnownTemplates.BATCH_ENTRYPOINT_TEMPLATE, Map.of(
+                        "testCasesFileName", WellKnownFiles.BATCH_TEST_CASES_FILE_NAME,
+                        "resultPrefix", BatchUtils.RESULT_PREFIX,
+                        "expectedOutputFileSuffix", "-" + WellKnownFiles.EXPECTED_OUTPUT_FILE_NAME,
+                        "maxOutputSize", String.valueOf(maxOutputSize),
+                        "maxErrorSize", String.valueOf(maxErrorSize),
+                        "deadline", String.valueOf(deadline == null ? 0 : deadline)));
+        
+        String path = getPath()
+                + "/"
+                + WellKnownFiles.ENTRYPOINT_FILE_NAME_PREFIX
+                + WellKnownFiles.BATCH_ENTRYPOINT_ID
+                + WellKnownFiles.ENTRYPOINT_FILE_EXTENSION;
+        
+        Files.writeString(Path.of(path), content);
+        new File(path).setExecutable(true, false);
+        
+        String testCasesIds = testCases
+                .stream()
+                .map(ConvertedTestCase::getTestCaseId)
+                .collect(Collectors.joining("\n", "", "\n"));
+        
+        Files.writeString(Path.of(getPath() + "/" + WellKnownFiles.BATCH_TEST_CASES_FILE_NAME), testCasesIds);
+        
+        for (ConvertedTestCase testCase : testCases) {
+            String expectedOutput = testCase.getExpectedOutput() == null ? "" : testCase.getExpectedOutput();
+            Files.writeString(
+                    Path.of(getPath()
+                            + "/"
+                            + testCase.getTestCaseId()
+                            + "-"
+                            + WellKnownFiles.EXPECTED_OUTPUT_FILE_NAME),
+                    expectedOutput);
+        }
+    }
+    
     /**
      * Gets counter.
      *
@@ -0,0 +1,23 @@
+package com.cp.compiler.executions;
+
+import com.cp.compiler.models.testcases.TestCaseResult;
+
+/**
+ * The interface Test case result listener.
+ * Notified with the result of each test case of an execution as soon as it's known, in the test cases order,
+ * from the thread running the execution.
+ *
+ * @author Zakaria Maaraki
+ */
+@FunctionalInterface
+public interface TestCaseResultListener {
+    
+    /**
+     * On test case result.
+     *
+     * @param execution      the execution
+     * @param testCaseId     the test case id
+     * @param testCaseResult the test case result
+     */
+    void onTestCaseResult(Execution execution, String testCaseId, TestCaseResult testCaseResult);
+}
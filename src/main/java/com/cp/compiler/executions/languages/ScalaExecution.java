@@ -14,6 +14,7 @@ import lombok.SneakyThrows;
 import lombok.val;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -93,6 +94,9 @@ public class ScalaExecution extends Execution {
         try(OutputStream os = new FileOutputStream(path)) {
             os.write(content.getBytes(), 0, content.length());
         }
+        
+        // Needed when the entrypoint is executed in a container that was not built from the execution Dockerfile
+        new File(path).setExecutable(true, false);
     }
 
     @Override
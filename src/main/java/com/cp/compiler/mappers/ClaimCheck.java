@@ -0,0 +1,118 @@
+package com.cp.compiler.mappers;
+
+import com.cp.compiler.repositories.BlobRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The type Claim check.
+ * The large test data of the messaging systems are stored in a blob repository, the messages carry their references:
+ * a test case of a request can give an inputReference and an expectedOutputReference instead of its input
+ * and expected output, they are replaced by the content of the blobs before the execution.
+ * The outputs, errors and expected outputs of the results of at least threshold characters are stored in the blob
+ * repository and replaced by an outputReference, an errorReference and an expectedOutputReference. The threshold
+ * is 0 by default: the results stay inline until the consumers of the results resolve the references.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Component
+public class ClaimCheck {
+    
+    /**
+     * The suffix of the fields holding a blob reference.
+     */
+    public static final String REFERENCE_SUFFIX = "Reference";
+    
+    private static final List<String> REQUEST_FIELDS = List.of("input", "expectedOutput");
+    
+    private static final List<String> RESULT_FIELDS = List.of("output", "error", "expectedOutput");
+    
+    private final BlobRepository blobRepository;
+    
+    private final int threshold;
+    
+    /**
+     * Instantiates a new Claim check.
+     *
+     * @param blobRepository the blob repository
+     * @param threshold      the length in characters from which the results are stored in the blob repository,
+     *                       0 to never store them
+     */
+    public ClaimCheck(BlobRepository blobRepository,
+                      @Value("${compiler.blobs.threshold:0}") int threshold) {
+        this.blobRepository = blobRepository;
+        this.threshold = threshold;
+    }
+    
+    /**
+     * Replaces the blob references of the test cases of a request by the content of the blobs.
+     *
+     * @param request the json request
+     * @throws IllegalArgumentException if a blob reference is not valid or if the blob does not exist
+     */
+    public void checkOut(JsonNode request) {
+        JsonNode testCases = request == null ? null : request.get("testCases");
+        if (testCases == null || !testCases.isObject()) {
+            return;
+        }
+        Iterator<String> testCaseIds = testCases.fieldNames();
+        while (testCaseIds.hasNext()) {
+            String testCaseId = testCaseIds.next();
+            JsonNode testCase = testCases.get(testCaseId);
+            if (!testCase.isObject()) {
+                continue;
+            }
+            for (String field : REQUEST_FIELDS) {
+                JsonNode reference = ((ObjectNode) testCase).remove(field + REFERENCE_SUFFIX);
+                if (reference == null || reference.isNull()) {
+                    continue;
+                }
+                String content = blobRepository.get(reference.asText());
+                if (content == null) {
+                    throw new IllegalArgumentException("The blob " + reference.asText() + " of the " + field
+                            + " of the test case " + testCaseId + " does not exist");
+                }
+                ((ObjectNode) testCase).put(field, content);
+            }
+        }
+    }
+    
+    /**
+     * Replaces the large outputs of the test cases of a response by blob references.
+     * An output that can't be stored is kept in the response.
+     *
+     * @param response the json response
+     */
+    public void checkIn(JsonNode response) {
+        JsonNode testCasesResult = response == null ? null : response.get("testCasesResult");
+        if (threshold <= 0 || testCasesResult == null || !testCasesResult.isObject()) {
+            return;
+        }
+        for (JsonNode testCaseResult : testCasesResult) {
+            if (!testCaseResult.isObject()) {
+                continue;
+            }
+            for (String field : RESULT_FIELDS) {
+                JsonNode value = testCaseResult.get(field);
+                if (value == null || !value.isTextual() || value.asText().length() < threshold) {
+                    continue;
+                }
+                try {
+                    ((ObjectNode) testCaseResult).put(field + REFERENCE_SUFFIX, blobRepository.put(value.asText()));
+                    ((ObjectNode) testCaseResult).remove(field);
+                } catch (UncheckedIOException exception) {
+                    log.warn("Could not store the {} of a test case in the blob repository, keeping it inline",
+                            field, exception);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.cp.compiler.mappers;
+
+import com.cp.compiler.models.Response;
+import com.cp.compiler.models.events.EventType;
+import com.cp.compiler.models.events.ExecutionEvent;
+import com.cp.compiler.models.testcases.TestCaseResult;
+
+/**
+ * The type Execution event mapper.
+ * The events are kept compact, the output and the error of a test case are truncated
+ * and the expected output is left out.
+ *
+ * @author Zakaria Maaraki
+ */
+public abstract class ExecutionEventMapper {
+    
+    /**
+     * The max number of characters of the output and the error of a test case event.
+     */
+    public static final int MAX_OUTPUT_LENGTH = 1024;
+    
+    private ExecutionEventMapper() {}
+    
+    /**
+     * Converts the result of a test case into a test case event.
+     *
+     * @param executionId    the execution id
+     * @param idempotencyKey the idempotency key of the request
+     * @param testCaseId     the test case id
+     * @param testCaseResult the test case result
+     * @return the test case event
+     */
+    public static ExecutionEvent toTestCaseEvent(String executionId,
+                                                 String idempotencyKey,
+                                                 String testCaseId,
+                                                 TestCaseResult testCaseResult) {
+        String output = testCaseResult.getOutput();
+        String error = testCaseResult.getError();
+        return ExecutionEvent
+                .builder()
+                .type(EventType.TEST_CASE)
+                .executionId(executionId)
+                .idempotencyKey(idempotencyKey)
+                .testCaseId(testCaseId)
+                .verdict(testCaseResult.getStatusResponse())
+                .statusCode(testCaseResult.getVerdictStatusCode())
+                .executionDuration(testCaseResult.getExecutionDuration())
+                .output(truncate(output))
+                .error(truncate(error))
+                .truncated(isTooLong(output) || isTooLong(error))
+                .build();
+    }
+    
+    /**
+     * Converts the response of an execution into a summary event.
+     *
+     * @param executionId    the execution id
+     * @param idempotencyKey the idempotency key of the request
+     * @param response       the response
+     * @return the summary event
+     */
+    public static ExecutionEvent toSummaryEvent(String executionId, String idempotencyKey, Response response) {
+        int testCases = response.getTestCasesResult() == null ? 0 : response.getTestCasesResult().size();
+        return ExecutionEvent
+                .builder()
+                .type(EventType.SUMMARY)
+                .executionId(executionId)
+                .idempotencyKey(idempotencyKey)
+                .verdict(response.getVerdict())
+                .statusCode(response.getStatusCode())
+                .error(truncate(response.getError()))
+                .compilationDuration(response.getCompilationDuration())
+                .averageExecutionDuration(testCases == 0 ? null : response.getAverageExecutionDuration())
+                .testCases(testCases)
+                .build();
+    }
+    
+    /**
+     * Converts the failure of an execution into an aborted event.
+     *
+     * @param executionId    the execution id
+     * @param idempotencyKey the idempotency key of the request
+     * @param exception      the exception
+     * @return the aborted event
+     */
+    public static ExecutionEvent toAbortedEvent(String executionId, String idempotencyKey, Exception exception) {
+        return ExecutionEvent
+                .builder()
+                .type(EventType.ABORTED)
+                .executionId(executionId)
+                .idempotencyKey(idempotencyKey)
+                .error(truncate(exception.getClass().getSimpleName() + ": " + exception.getMessage()))
+                .build();
+    }
+    
+    private static String truncate(String value) {
+        return isTooLong(value) ? value.substring(0, MAX_OUTPUT_LENGTH) : value;
+    }
+    
+    private static boolean isTooLong(String value) {
+        return value != null && value.length() > MAX_OUTPUT_LENGTH;
+    }
+}
@@ -3,16 +3,22 @@ package com.cp.compiler.mappers;
 import com.cp.compiler.exceptions.CompilerThrottlingException;
 import com.cp.compiler.executions.Execution;
 import com.cp.compiler.executions.ExecutionFactory;
+import com.cp.compiler.models.Priority;
 import com.cp.compiler.models.Request;
 import com.cp.compiler.models.Response;
+import com.cp.compiler.models.events.ExecutionEvent;
 import com.cp.compiler.services.businesslogic.CompilerService;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.MDC;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 /**
  * The type Json mapper.
@@ -40,6 +46,34 @@ public abstract class JsonMapper {
         return objectMapper.writeValueAsString(response);
     }
     
+    /**
+     * To json string, the large outputs of the test cases are replaced by blob references.
+     *
+     * @param response   the response
+     * @param claimCheck the claim check, null to keep the outputs inline
+     * @return the string
+     * @throws JsonProcessingException the json processing exception
+     */
+    public static String toJson(Response response, ClaimCheck claimCheck) throws JsonProcessingException {
+        if (claimCheck == null) {
+            return toJson(response);
+        }
+        JsonNode jsonResponse = objectMapper.valueToTree(response);
+        claimCheck.checkIn(jsonResponse);
+        return objectMapper.writeValueAsString(jsonResponse);
+    }
+    
+    /**
+     * To json string.
+     *
+     * @param event the execution event
+     * @return the string
+     * @throws JsonProcessingException the json processing exception
+     */
+    public static String toJson(ExecutionEvent event) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(event);
+    }
+    
     /**
      * To request request.
      *
@@ -51,6 +85,100 @@ public abstract class JsonMapper {
         return objectMapper.readValue(jsonValue, Request.class);
     }
     
+    /**
+     * To request request, the blob references of the test cases are replaced by the content of the blobs.
+     *
+     * @param jsonValue  the json value
+     * @param claimCheck the claim check, null if the test cases are inline
+     * @return the request
+     * @throws IOException the io exception
+     */
+    public static Request toRequest(String jsonValue, ClaimCheck claimCheck) throws IOException {
+        if (claimCheck == null) {
+            return toRequest(jsonValue);
+        }
+        JsonNode jsonRequest = objectMapper.readTree(jsonValue);
+        claimCheck.checkOut(jsonRequest);
+        return objectMapper.treeToValue(jsonRequest, Request.class);
+    }
+    
+    /**
+     * To request request, from a parsed request whose tree is consumed (the blob references are replaced in place).
+     *
+     * @param parsedRequest the parsed request
+     * @param claimCheck    the claim check, null if the test cases are inline
+     * @return the request
+     * @throws IOException the io exception, if the request is not a valid json
+     */
+    public static Request toRequest(ParsedRequest parsedRequest, ClaimCheck claimCheck) throws IOException {
+        if (parsedRequest.getParsingException() != null) {
+            throw parsedRequest.getParsingException();
+        }
+        if (claimCheck != null) {
+            claimCheck.checkOut(parsedRequest.getTree());
+        }
+        return objectMapper.treeToValue(parsedRequest.getTree(), Request.class);
+    }
+    
+    /**
+     * Parses a request consumed from the messaging systems, once for its idempotency key and its execution.
+     *
+     * @param jsonRequest the json request
+     * @return the parsed request, holding the parsing exception if it's not a valid json
+     */
+    public static ParsedRequest parse(String jsonRequest) {
+        try {
+            JsonNode tree = objectMapper.readTree(jsonRequest);
+            return new ParsedRequest(jsonRequest, tree, null, getIdempotencyKey(tree));
+        } catch (IOException exception) {
+            return new ParsedRequest(jsonRequest, null, exception, null);
+        }
+    }
+    
+    /**
+     * Gets the idempotency key of a request consumed from the messaging systems.
+     * Only the requests carrying an idempotency key are deduplicated, two identical requests without key
+     * are distinct submissions and are both executed.
+     *
+     * @param jsonRequest the json request
+     * @return the idempotency key of the request, null if it has none
+     */
+    public static String getIdempotencyKey(String jsonRequest) {
+        return getIdempotencyKey(parse(jsonRequest));
+    }
+    
+    /**
+     * Gets the idempotency key of a parsed request.
+     *
+     * @param parsedRequest the parsed request
+     * @return the idempotency key of the request, null if it has none (or if it's not a valid json)
+     */
+    public static String getIdempotencyKey(ParsedRequest parsedRequest) {
+        return parsedRequest.getIdempotencyKey();
+    }
+    
+    private static String getIdempotencyKey(JsonNode tree) {
+        JsonNode idempotencyKey = tree == null ? null : tree.get("idempotencyKey");
+        if (idempotencyKey != null && idempotencyKey.isTextual() && !idempotencyKey.asText().isBlank()) {
+            return idempotencyKey.asText();
+        }
+        return null;
+    }
+    
+    /**
+     * Gets the execution id of a stored json event, to send it with the same key and headers as the events.
+     *
+     * @param jsonEvent the json event
+     * @return the execution id, null if it's not an event (stored while the result events were disabled)
+     */
+    public static String getExecutionId(String jsonEvent) {
+        try {
+            return objectMapper.readTree(jsonEvent).path("executionId").textValue();
+        } catch (IOException exception) {
+            return null;
+        }
+    }
+    
     /**
      * Transform string.
      *
@@ -60,17 +188,104 @@ public abstract class JsonMapper {
      * @throws Exception the exception
      */
     public static String transform(String jsonRequest, CompilerService compilerService) throws Exception {
-        Request request = JsonMapper.toRequest(jsonRequest);
+        return transform(jsonRequest, compilerService, null, null);
+    }
+    
+    /**
+     * Transform string, publishing the result of each test case as soon as it's known.
+     *
+     * @param jsonRequest     the json request
+     * @param compilerService the compiler service
+     * @param eventPublisher  the publisher of the events taking the execution id and the json event,
+     *                        null to only return the response
+     * @return the json summary event (already published), or the json response if there is no event publisher
+     * @throws Exception the exception
+     */
+    public static String transform(String jsonRequest,
+                                   CompilerService compilerService,
+                                   BiConsumer<String, String> eventPublisher) throws Exception {
+        return transform(jsonRequest, compilerService, eventPublisher, null);
+    }
+    
+    /**
+     * Transform string, publishing the result of each test case as soon as it's known.
+     * The test case events then the summary event are published with the execution id, from the calling thread.
+     * If the execution fails after some test case events, an aborted event is published as its last event.
+     * The events carry the idempotency key of the request, shared by the executions of its retries.
+     * The large test data are exchanged by blob references through the claim check.
+     *
+     * @param jsonRequest     the json request
+     * @param compilerService the compiler service
+     * @param eventPublisher  the publisher of the events taking the execution id and the json event,
+     *                        null to only return the response
+     * @param claimCheck      the claim check, null to exchange the test data inline
+     * @return the json summary event (already published), or the json response if there is no event publisher
+     * @throws Exception the exception
+     */
+    public static String transform(String jsonRequest,
+                                   CompilerService compilerService,
+                                   BiConsumer<String, String> eventPublisher,
+                                   ClaimCheck claimCheck) throws Exception {
+        return transform(parse(jsonRequest), compilerService, eventPublisher, claimCheck);
+    }
+    
+    /**
+     * Transform string, from a request already parsed to get its idempotency key.
+     *
+     * @param parsedRequest   the parsed request, its tree is consumed
+     * @param compilerService the compiler service
+     * @param eventPublisher  the publisher of the events taking the execution id and the json event,
+     *                        null to only return the response
+     * @param claimCheck      the claim check, null to exchange the test data inline
+     * @return the json summary event (already published), or the json response if there is no event publisher
+     * @throws Exception the exception
+     * @see #transform(String, CompilerService, BiConsumer, ClaimCheck)
+     */
+    public static String transform(ParsedRequest parsedRequest,
+                                   CompilerService compilerService,
+                                   BiConsumer<String, String> eventPublisher,
+                                   ClaimCheck claimCheck) throws Exception {
+        Request request = JsonMapper.toRequest(parsedRequest, claimCheck);
         
         Execution execution = ExecutionFactory.createExecution(request.getSourcecodeFile(),
                                                                 request.getConvertedTestCases(),
                                                                 request.getTimeLimit(),
                                                                 request.getMemoryLimit(),
                                                                 request.getLanguage());
+        
+        // Requests consumed from the messaging systems are considered as judging by default
+        execution.setPriority(request.getPriority() == null ? Priority.BATCH : request.getPriority());
+        // Requests waiting in the messaging systems after their deadline are dropped
+        execution.setDeadline(request.getDeadline());
+        // Throttled right away, the request is retried later instead of holding the consumer
+        execution.setWaitForResources(false);
+        String idempotencyKey = eventPublisher == null ? null : getIdempotencyKey(parsedRequest);
+        var testCaseEventsPublished = new AtomicBoolean();
+        if (eventPublisher != null) {
+            execution.setTestCaseResultListener((currentExecution, testCaseId, testCaseResult) -> {
+                try {
+                    eventPublisher.accept(currentExecution.getId(), toJson(ExecutionEventMapper.toTestCaseEvent(
+                            currentExecution.getId(), idempotencyKey, testCaseId, testCaseResult)));
+                    testCaseEventsPublished.set(true);
+                } catch (JsonProcessingException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
     
         try(MDC.MDCCloseable mdc = MDC.putCloseable("compiler.language", execution.getLanguage().toString())) {
             
-            ResponseEntity<Object> responseEntity = compilerService.execute(execution);
+            ResponseEntity<Object> responseEntity;
+            try {
+                responseEntity = compilerService.execute(execution);
+            } catch (Exception exception) {
+                // Closes the test case events of this execution, the retry is executed under a new execution id
+                if (testCaseEventsPublished.get()) {
+                    eventPublisher.accept(execution.getId(), toJson(
+                            ExecutionEventMapper.toAbortedEvent(execution.getId(), idempotencyKey, exception)));
+                }
+                throw exception;
+            }
     
             // Throw an exception if the request has been throttled, to keep the request for retries
             if (responseEntity.getStatusCode().equals(HttpStatus.TOO_MANY_REQUESTS)) {
@@ -78,7 +293,16 @@ public abstract class JsonMapper {
             }
     
             Object body = responseEntity.getBody();
-            return body instanceof Response ? JsonMapper.toJson((Response) body) : null;
+            if (!(body instanceof Response)) {
+                return null;
+            }
+            if (eventPublisher == null) {
+                return JsonMapper.toJson((Response) body, claimCheck);
+            }
+            String summary = toJson(
+                    ExecutionEventMapper.toSummaryEvent(execution.getId(), idempotencyKey, (Response) body));
+            eventPublisher.accept(execution.getId(), summary);
+            return summary;
         }
     }
 }
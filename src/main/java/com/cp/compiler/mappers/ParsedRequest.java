@@ -0,0 +1,41 @@
+package com.cp.compiler.mappers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * The type Parsed request.
+ * A json request consumed from the messaging systems, parsed once to get its idempotency key and to execute it.
+ *
+ * @author Zakaria Maaraki
+ */
+@Getter
+public class ParsedRequest {
+
+    private final String json;
+
+    // Null if the request is not a valid json
+    private final JsonNode tree;
+
+    private final IOException parsingException;
+
+    // Null if the request has no idempotency key, see JsonMapper#getIdempotencyKey
+    private final String idempotencyKey;
+
+    /**
+     * Instantiates a new Parsed request.
+     *
+     * @param json             the json request
+     * @param tree             the parsed json request, null if it's not a valid json
+     * @param parsingException the parsing exception, null if it's a valid json
+     * @param idempotencyKey   the idempotency key of the request, null if it has none
+     */
+    ParsedRequest(String json, JsonNode tree, IOException parsingException, String idempotencyKey) {
+        this.json = json;
+        this.tree = tree;
+        this.parsingException = parsingException;
+        this.idempotencyKey = idempotencyKey;
+    }
+}
@@ -3,6 +3,7 @@ package com.cp.compiler.models;
 import com.cp.compiler.wellknownconstants.WellKnownCommands;
 import com.cp.compiler.wellknownconstants.WellKnownFiles;
 import com.cp.compiler.wellknownconstants.WellKnownFolders;
+import com.cp.compiler.wellknownconstants.WellKnownImages;
 import com.cp.compiler.wellknownconstants.WellKnownMetrics;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -24,7 +25,9 @@ public enum Language {
             WellKnownCommands.PYTHON_COMMAND_LINE,
             WellKnownMetrics.PYTHON_COUNTER_NAME,
             ".py",
-            false),
+            false,
+            WellKnownImages.PYTHON_RUNTIME_IMAGE,
+            32),
     /**
      * C language.
      */
@@ -33,7 +36,9 @@ public enum Language {
             WellKnownCommands.C_COMMAND_LINE,
             WellKnownMetrics.C_COUNTER_NAME,
             ".c",
-            true),
+            true,
+            WellKnownImages.C_RUNTIME_IMAGE,
+            8),
     /**
      * Cpp language.
      */
@@ -42,7 +47,9 @@ public enum Language {
             WellKnownCommands.CPP_COMMAND_LINE,
             WellKnownMetrics.CPP_COUNTER_NAME,
             ".cpp",
-            true),
+            true,
+            WellKnownImages.CPP_RUNTIME_IMAGE,
+            8),
     /**
      * Java language.
      */
@@ -51,7 +58,9 @@ public enum Language {
             WellKnownCommands.JAVA_COMMAND_LINE,
             WellKnownMetrics.JAVA_COUNTER_NAME,
             ".java",
-            true),
+            true,
+            WellKnownImages.JAVA_RUNTIME_IMAGE,
+            256),
     /**
      * Golang language.
      */
@@ -60,7 +69,9 @@ public enum Language {
             WellKnownCommands.GO_COMMAND_LINE,
             WellKnownMetrics.GO_COUNTER_NAME,
             ".go",
-            true),
+            true,
+            WellKnownImages.GO_RUNTIME_IMAGE,
+            16),
     /**
      * Cs language.
      */
@@ -69,7 +80,9 @@ public enum Language {
             WellKnownCommands.CS_COMMAND_LINE,
             WellKnownMetrics.CS_COUNTER_NAME,
             ".cs",
-            true),
+            true,
+            WellKnownImages.CS_RUNTIME_IMAGE,
+            128),
     /**
      * Kotlin language.
      */
@@ -78,7 +91,9 @@ public enum Language {
             WellKnownCommands.KOTLIN_COMMAND_LINE,
             WellKnownMetrics.KOTLIN_COUNTER_NAME,
             ".kt",
-            true),
+            true,
+            WellKnownImages.KOTLIN_RUNTIME_IMAGE,
+            256),
     
     /**
      * Scala language.
@@ -88,7 +103,9 @@ public enum Language {
             WellKnownCommands.SCALA_COMMAND_LINE,
             WellKnownMetrics.SCALA_COUNTER_NAME,
             ".scala",
-            true),
+            true,
+            WellKnownImages.SCALA_RUNTIME_IMAGE,
+            256),
     
     /**
      * Rust language.
@@ -98,7 +115,9 @@ public enum Language {
             WellKnownCommands.RUST_COMMAND_LINE,
             WellKnownMetrics.RUST_COUNTER_NAME,
             ".rs",
-            true),
+            true,
+            WellKnownImages.RUST_RUNTIME_IMAGE,
+            8),
     
     /**
      * Ruby language.
@@ -108,7 +127,9 @@ public enum Language {
             WellKnownCommands.RUBY_COMMAND_LINE,
             WellKnownMetrics.RUBY_COUNTER_NAME,
             ".rb",
-            false),
+            false,
+            WellKnownImages.RUBY_RUNTIME_IMAGE,
+            32),
     
     /**
      * Haskell language.
@@ -118,7 +139,9 @@ public enum Language {
             WellKnownCommands.HASKELL_COMMAND_LINE,
             WellKnownMetrics.HASKELL_COUNTER_NAME,
             ".hs",
-            true);
+            true,
+            WellKnownImages.HASKELL_RUNTIME_IMAGE,
+            64);
     
     /**
      * The execution folder name.
@@ -149,4 +172,14 @@ public enum Language {
      * Is the language compiled or interpreted
      */
     private boolean isCompiled;
+    
+    /**
+     * The stock runtime image used to execute the programs
+     */
+    private String runtimeImage;
+    
+    /**
+     * The memory used by the runtime itself (vm, interpreter...) in MB, in addition to the memory limit of a program
+     */
+    private int runtimeMemoryOverhead;
 }
\ No newline at end of file
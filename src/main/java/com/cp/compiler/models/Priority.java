@@ -0,0 +1,19 @@
+package com.cp.compiler.models;
+
+/**
+ * The enum Priority.
+ * The priority class of an execution waiting for resources, executions of a higher class are admitted first.
+ *
+ * @author Zakaria Maaraki
+ */
+public enum Priority {
+    
+    /**
+     * A user waiting for the result (ex: a run from an editor), default of the http api.
+     */
+    INTERACTIVE,
+    /**
+     * Judging of submissions, default of the messaging consumers (kafka, rabbitmq).
+     */
+    BATCH
+}
@@ -65,6 +65,45 @@ public class Request {
     @JsonProperty("testCases")
     protected LinkedHashMap<String, TestCase> testCases; // Note: test cases should be given in order
     
+    /**
+     * The Priority, optional.
+     */
+    @ApiModelProperty(notes = "The priority class (INTERACTIVE or BATCH), optional")
+    @JsonProperty("priority")
+    protected Priority priority;
+    
+    /**
+     * The Deadline, optional.
+     */
+    @ApiModelProperty(notes = "The time in epoch millis after which the result is no longer needed, optional")
+    @JsonProperty("deadline")
+    protected Long deadline;
+    
+    /**
+     * The Idempotency key, optional.
+     */
+    @ApiModelProperty(notes = "Identifies a submission, the messaging consumers execute a submission once and return "
+            + "the stored result to its duplicates, optional (the requests without key are not deduplicated)")
+    @JsonProperty("idempotencyKey")
+    protected String idempotencyKey;
+    
+    /**
+     * Instantiates a new Request without priority.
+     *
+     * @param sourcecode  the source code
+     * @param language    the language
+     * @param timeLimit   the time limit
+     * @param memoryLimit the memory limit
+     * @param testCases   the test cases
+     */
+    public Request(String sourcecode,
+                   Language language,
+                   int timeLimit,
+                   int memoryLimit,
+                   LinkedHashMap<String, TestCase> testCases) {
+        this(sourcecode, language, timeLimit, memoryLimit, testCases, null, null, null);
+    }
+    
     /**
      * Gets source code.
      *
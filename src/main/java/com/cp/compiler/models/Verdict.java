@@ -37,7 +37,11 @@ public enum Verdict {
     /**
      * Runtime error statusResponse.
      */
-    RUNTIME_ERROR("Runtime Error", 600, WellKnownMetrics.RUNTIME_ERROR_VERDICT_COUNTER);
+    RUNTIME_ERROR("Runtime Error", 600, WellKnownMetrics.RUNTIME_ERROR_VERDICT_COUNTER),
+    /**
+     * Output limit exceeded statusResponse.
+     */
+    OUTPUT_LIMIT_EXCEEDED("Output Limit Exceeded", 700, WellKnownMetrics.OUTPUT_LIMIT_EXCEEDED_VERDICT_COUNTER);
     
     @Getter
     private String statusResponse;
@@ -0,0 +1,25 @@
+package com.cp.compiler.models.events;
+
+/**
+ * The enum Event type.
+ *
+ * @author Zakaria Maaraki
+ */
+public enum EventType {
+    
+    /**
+     * The result of a test case.
+     */
+    TEST_CASE,
+    
+    /**
+     * The result of the whole execution, it's the last event of an execution.
+     */
+    SUMMARY,
+    
+    /**
+     * The execution failed after some test case events, it's the last event of the execution.
+     * The request is retried under a new execution id, the events of its executions share its idempotency key.
+     */
+    ABORTED
+}
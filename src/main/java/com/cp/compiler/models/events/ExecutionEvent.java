@@ -0,0 +1,65 @@
+package com.cp.compiler.models.events;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The type Execution event.
+ * A compact result published to the messaging systems while an execution is running: one event per completed
+ * test case then a summary event, all of them keyed by the execution id. They carry the idempotency key
+ * of the request, shared by the executions of its retries.
+ *
+ * @author Zakaria Maaraki
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@ApiModel(description = "An event of an execution")
+public class ExecutionEvent {
+    
+    @ApiModelProperty(notes = "The type of the event, TEST_CASE, SUMMARY or ABORTED")
+    private EventType type;
+    
+    @ApiModelProperty(notes = "The execution id")
+    private String executionId;
+    
+    @ApiModelProperty(notes = "The idempotency key of the request, null if it has none")
+    private String idempotencyKey;
+    
+    @ApiModelProperty(notes = "The test case id, for the test case events")
+    private String testCaseId;
+    
+    @ApiModelProperty(notes = "The verdict")
+    private String verdict;
+    
+    @ApiModelProperty(notes = "The corresponding status code of the verdict")
+    private int statusCode;
+    
+    @ApiModelProperty(notes = "The execution duration of the test case in ms, for the test case events")
+    private Integer executionDuration;
+    
+    @ApiModelProperty(notes = "The output of the test case, truncated")
+    private String output;
+    
+    @ApiModelProperty(notes = "The error if it occurs, truncated")
+    private String error;
+    
+    @ApiModelProperty(notes = "Whether the output or the error have been truncated")
+    private Boolean truncated;
+    
+    @ApiModelProperty(notes = "The compilation duration in ms, for the summary event")
+    private Integer compilationDuration;
+    
+    @ApiModelProperty(notes = "The average execution duration in ms, for the summary event")
+    private Float averageExecutionDuration;
+    
+    @ApiModelProperty(notes = "The number of the test cases results, for the summary event")
+    private Integer testCases;
+}
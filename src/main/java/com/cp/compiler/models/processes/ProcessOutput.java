@@ -1,24 +1,71 @@
 package com.cp.compiler.models.processes;
 
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
 /**
  * The type Process output.
+ * When built from a process output buffer, the standard output string is cut to the spill threshold of the buffer
+ * and the whole output is read through {@link #openStdOut()} until the process output is closed.
  *
  * @author Zakaria Maaraki
  */
 @Builder
 @Getter
-public class ProcessOutput {
+public class ProcessOutput implements Closeable {
     
     private String stdOut;
     
     @Setter
     private String stdErr;
 
+    @Setter
     private int executionDuration;
     
     private int status;
+    
+    /**
+     * True if the process has been stopped because it exceeded the allowed output size.
+     */
+    private boolean outputLimitExceeded;
+    
+    /**
+     * The whole standard output, null if it is not larger than the stdOut string.
+     */
+    @Getter(AccessLevel.NONE)
+    private ProcessOutputBuffer stdOutBuffer;
+    
+    /**
+     * Opens the standard output, to read it without copying it.
+     *
+     * @return the reader of the standard output, to be closed
+     */
+    public Reader openStdOut() {
+        if (stdOutBuffer == null) {
+            return new StringReader(stdOut);
+        }
+        try {
+            return stdOutBuffer.openReader();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+    
+    /**
+     * Releases the standard output buffer, if any.
+     */
+    @Override
+    public void close() {
+        if (stdOutBuffer != null) {
+            stdOutBuffer.close();
+        }
+    }
 }
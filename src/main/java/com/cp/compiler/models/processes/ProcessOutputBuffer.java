@@ -0,0 +1,190 @@
+package com.cp.compiler.models.processes;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.ref.Cleaner;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The type Process output buffer.
+ * A bounded buffer that keeps the output of a process in memory up to the spill threshold, then in a temporary file.
+ * The bytes beyond the max size are dropped and the buffer is marked as exceeding its limit.
+ * Only the first spill threshold bytes are ever loaded in memory as a string, the whole content is read through
+ * a reader. The temporary file is deleted once the buffer is closed, or once it is no longer reachable.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+public class ProcessOutputBuffer extends OutputStream {
+
+    private static final String SPILL_FILE_PREFIX = "process-output-";
+
+    // Deletes the spill files of the buffers that have not been closed
+    private static final Cleaner cleaner = Cleaner.create();
+
+    private final long maxSize;
+
+    private final int spillThreshold;
+
+    private final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+
+    private SpillFile spillFile;
+
+    private Cleaner.Cleanable cleanable;
+
+    private long size;
+
+    private volatile boolean limitExceeded;
+
+    /**
+     * Instantiates a new Process output buffer.
+     *
+     * @param maxSize        the max number of bytes kept
+     * @param spillThreshold the number of bytes kept in memory before spilling to disk
+     */
+    public ProcessOutputBuffer(long maxSize, int spillThreshold) {
+        this.maxSize = maxSize;
+        this.spillThreshold = spillThreshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length > maxSize - size) {
+            limitExceeded = true;
+            length = (int) (maxSize - size);
+        }
+        if (length <= 0) {
+            return;
+        }
+        if (spillFile == null && size + length > spillThreshold) {
+            Path path = Files.createTempFile(SPILL_FILE_PREFIX, ".out");
+            spillFile = new SpillFile(path, new BufferedOutputStream(Files.newOutputStream(path)));
+            cleanable = cleaner.register(this, spillFile);
+            memory.writeTo(spillFile.stream);
+            memory.reset();
+        }
+        if (spillFile != null) {
+            spillFile.stream.write(bytes, offset, length);
+        } else {
+            memory.write(bytes, offset, length);
+        }
+        size += length;
+    }
+
+    /**
+     * Reads the content of the stream until its end or until the limit is exceeded.
+     *
+     * @param inputStream the input stream
+     * @throws IOException the io exception
+     */
+    public void drain(InputStream inputStream) throws IOException {
+        byte[] chunk = new byte[8192];
+        int read;
+        while (!limitExceeded && (read = inputStream.read(chunk)) != -1) {
+            write(chunk, 0, read);
+        }
+    }
+
+    /**
+     * Is limit exceeded.
+     *
+     * @return true if some bytes have been dropped
+     */
+    public boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    /**
+     * Gets the number of bytes kept.
+     *
+     * @return the size
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Opens a reader on the whole content of the buffer, decoded as UTF-8.
+     *
+     * @return the reader, to be closed
+     * @throws IOException the io exception
+     */
+    public synchronized Reader openReader() throws IOException {
+        if (spillFile == null) {
+            return new InputStreamReader(new ByteArrayInputStream(memory.toByteArray()), StandardCharsets.UTF_8);
+        }
+        spillFile.stream.flush();
+        return new InputStreamReader(Files.newInputStream(spillFile.path), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the first spill threshold bytes of the buffer as an UTF-8 string.
+     *
+     * @return the content, cut to the spill threshold
+     */
+    @Override
+    public synchronized String toString() {
+        if (spillFile == null) {
+            return memory.toString(StandardCharsets.UTF_8);
+        }
+        try (var input = Files.newInputStream(spillFile.path)) {
+            spillFile.stream.flush();
+            // Not readString, the last character may have been cut
+            return new String(input.readNBytes(spillThreshold), StandardCharsets.UTF_8);
+        } catch (IOException exception) {
+            throw new IllegalStateException("Could not read the spilled output", exception);
+        }
+    }
+
+    /**
+     * Deletes the spill file, if any.
+     */
+    @Override
+    public synchronized void close() {
+        if (spillFile != null) {
+            cleanable.clean();
+            spillFile = null;
+            cleanable = null;
+        }
+    }
+
+    /**
+     * The temporary file of a spilled buffer, it does not refer to the buffer so that the buffer can be cleaned.
+     */
+    private static class SpillFile implements Runnable {
+
+        private final Path path;
+
+        private final OutputStream stream;
+
+        private SpillFile(Path path, OutputStream stream) {
+            this.path = path;
+            this.stream = stream;
+        }
+
+        @Override
+        public void run() {
+            try {
+                stream.close();
+                Files.deleteIfExists(path);
+            } catch (IOException exception) {
+                log.warn("Could not delete the spilled output {}: {}", path, exception.getMessage());
+            }
+        }
+    }
+}
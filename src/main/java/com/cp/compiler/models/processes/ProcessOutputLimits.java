@@ -0,0 +1,45 @@
+package com.cp.compiler.models.processes;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The type Process output limits.
+ * Bounds the number of bytes read from the standard output and error streams of a process.
+ *
+ * @author Zakaria Maaraki
+ */
+@Getter
+@AllArgsConstructor
+public class ProcessOutputLimits {
+
+    /**
+     * The default limits, used for the commands that are not running user code.
+     */
+    public static final ProcessOutputLimits DEFAULT = new ProcessOutputLimits(16 * 1024 * 1024, 1024 * 1024, 1024 * 1024);
+
+    /**
+     * The max number of bytes read from the standard output.
+     */
+    private long maxStdOutSize;
+
+    /**
+     * The max number of bytes read from the standard error.
+     */
+    private long maxStdErrSize;
+
+    /**
+     * The number of bytes kept in memory, beyond it the output is spilled to a temporary file.
+     */
+    private int spillThreshold;
+
+    /**
+     * Gets the same limits with another max size of the standard output.
+     *
+     * @param maxStdOutSize the max number of bytes read from the standard output
+     * @return the limits
+     */
+    public ProcessOutputLimits withMaxStdOutSize(long maxStdOutSize) {
+        return new ProcessOutputLimits(maxStdOutSize, maxStdErrSize, spillThreshold);
+    }
+}
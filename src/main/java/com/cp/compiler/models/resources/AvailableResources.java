@@ -8,7 +8,7 @@ import lombok.Getter;
 
 /**
  * The type Available resources.
- * Used to know how much CPUs and allowed incoming requests available.
+ * Used to know how much CPUs, memory and allowed incoming requests available.
  *
  * @author Zakaria Maaraki
  */
@@ -28,4 +28,20 @@ public class AvailableResources {
     @ApiModelProperty(notes = "The current number of executions")
     @JsonProperty("currentExecutions")
     private int currentExecutions;
+    
+    @ApiModelProperty(notes = "Cpus reserved by the current executions")
+    @JsonProperty("reservedCpus")
+    private float reservedCpus;
+    
+    @ApiModelProperty(notes = "Memory available for executions in MB")
+    @JsonProperty("totalMemory")
+    private long totalMemory;
+    
+    @ApiModelProperty(notes = "Memory reserved by the current executions in MB")
+    @JsonProperty("reservedMemory")
+    private long reservedMemory;
+    
+    @ApiModelProperty(notes = "Available memory in MB")
+    @JsonProperty("availableMemory")
+    private long availableMemory;
 }
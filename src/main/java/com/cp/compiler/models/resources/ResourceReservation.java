@@ -0,0 +1,30 @@
+package com.cp.compiler.models.resources;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The type Resource reservation.
+ * The resources held by an execution from its admission until its end.
+ *
+ * @author Zakaria Maaraki
+ */
+@Getter
+@AllArgsConstructor
+public class ResourceReservation {
+    
+    /**
+     * The number of containers the execution may run at the same time (concurrent test cases).
+     */
+    private int containers;
+    
+    /**
+     * The reserved cpus.
+     */
+    private float cpus;
+    
+    /**
+     * The reserved memory in MB.
+     */
+    private long memory;
+}
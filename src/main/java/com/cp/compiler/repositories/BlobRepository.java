@@ -0,0 +1,29 @@
+package com.cp.compiler.repositories;
+
+/**
+ * The interface Blob repository.
+ * This class is used to store the large payloads of the messaging systems (test case inputs and outputs)
+ * by content hash, the messages carry the references of the blobs instead of the payloads (claim check).
+ * A blob is immutable, storing the same content twice gives the same reference.
+ *
+ * @author Zakaria Maaraki
+ */
+public interface BlobRepository {
+    
+    /**
+     * Get the content of a blob.
+     *
+     * @param reference the reference of the blob
+     * @return the content, null if there is no such blob
+     * @throws IllegalArgumentException if the reference is not valid
+     */
+    String get(String reference);
+    
+    /**
+     * Store a blob.
+     *
+     * @param content the content
+     * @return the reference of the blob
+     */
+    String put(String content);
+}
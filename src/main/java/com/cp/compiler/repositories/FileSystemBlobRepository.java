@@ -0,0 +1,104 @@
+package com.cp.compiler.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+/**
+ * The type File system blob repository.
+ * Stores the blobs in a local directory (or a shared volume mounted by the producers and all the instances),
+ * a blob is a file named after the SHA-256 of its content: sha256:{hash} is stored at {path}/{hash[0..2]}/{hash}.
+ * The blobs are written to a temporary file then moved, so a blob is never read partially written.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Repository
+public class FileSystemBlobRepository implements BlobRepository {
+    
+    private static final String REFERENCE_PREFIX = "sha256:";
+    
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("sha256:[0-9a-f]{64}");
+    
+    private final Path path;
+    
+    /**
+     * Instantiates a new File system blob repository.
+     *
+     * @param path the path of the blobs directory
+     */
+    public FileSystemBlobRepository(@Value("${compiler.blobs.path:blob-store}") String path) {
+        this.path = Path.of(path);
+    }
+    
+    @Override
+    public String get(String reference) {
+        try {
+            return Files.readString(getBlobPath(reference), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException exception) {
+            return null;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Could not read the blob " + reference, exception);
+        }
+    }
+    
+    @Override
+    public String put(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String reference = REFERENCE_PREFIX + sha256(bytes);
+        Path blobPath = getBlobPath(reference);
+        if (Files.exists(blobPath)) {
+            // Same hash, same content
+            return reference;
+        }
+        try {
+            Files.createDirectories(blobPath.getParent());
+            Path temporaryPath = Files.createTempFile(blobPath.getParent(), blobPath.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temporaryPath, bytes);
+                Files.move(temporaryPath, blobPath, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryPath);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Could not write the blob " + reference, exception);
+        }
+        log.debug("Blob {} stored, {} bytes", reference, bytes.length);
+        return reference;
+    }
+    
+    private Path getBlobPath(String reference) {
+        // The references come from the messages, they should not point outside of the blobs directory
+        if (reference == null || !REFERENCE_PATTERN.matcher(reference).matches()) {
+            throw new IllegalArgumentException("Invalid blob reference " + reference
+                    + ", expected sha256: followed by the hex SHA-256 of the content");
+        }
+        String hash = reference.substring(REFERENCE_PREFIX.length());
+        return path.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+    
+    private static String sha256(byte[] content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+        var hash = new StringBuilder();
+        for (byte b : digest.digest(content)) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+}
@@ -0,0 +1,35 @@
+package com.cp.compiler.repositories;
+
+/**
+ * The interface Results repository.
+ * This class is used to store the results of the requests consumed from the messaging systems by idempotency key,
+ * so that a redelivered or a duplicate request is not executed again.
+ * The results expire after a time to live.
+ *
+ * @author Zakaria Maaraki
+ */
+public interface ResultsRepository {
+    
+    /**
+     * Get the result of a request.
+     *
+     * @param idempotencyKey the idempotency key
+     * @return the result, null if there is none or if it expired
+     */
+    String get(String idempotencyKey);
+    
+    /**
+     * Store the result of a request.
+     *
+     * @param idempotencyKey the idempotency key
+     * @param result         the result
+     */
+    void put(String idempotencyKey, String result);
+    
+    /**
+     * Remove the expired results.
+     *
+     * @return the number of removed results
+     */
+    int evictExpired();
+}
@@ -0,0 +1,177 @@
+package com.cp.compiler.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type RocksDB results repository.
+ * Stores the results of the requests consumed from RabbitMQ in an embedded RocksDB database on the local disk,
+ * so that they survive a restart of the app (the messages that were not acknowledged are redelivered).
+ * A value is the expiry time of the result (8 bytes) followed by the result, the expired results are removed
+ * periodically and are ignored until then.
+ * A time to live of 0 disables the repository.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Profile("rabbitmq")
+@Repository
+public class RocksDbResultsRepository implements ResultsRepository {
+
+    // in ms
+    private static final long MAX_EVICTION_INTERVAL = 60000;
+
+    private final Path path;
+
+    private final long timeToLive;
+
+    private Options options;
+
+    private RocksDB db;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Instantiates a new RocksDB results repository.
+     *
+     * @param path       the path of the database
+     * @param timeToLive the time to live of the results in ms, 0 to disable the repository
+     */
+    public RocksDbResultsRepository(@Value("${spring.rabbitmq.dedup.path:results-store}") String path,
+                                    @Value("${spring.rabbitmq.dedup.time-to-live:3600000}") long timeToLive) {
+        this.path = Path.of(path);
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Init, opens the database.
+     *
+     * @throws IOException      the io exception
+     * @throws RocksDBException the rocks db exception
+     */
+    @PostConstruct
+    public void init() throws IOException, RocksDBException {
+        if (timeToLive <= 0) {
+            log.info("The results repository is disabled, duplicate requests are executed again");
+            return;
+        }
+        RocksDB.loadLibrary();
+        Files.createDirectories(path);
+        options = new Options().setCreateIfMissing(true);
+        db = RocksDB.open(options, path.toString());
+
+        long interval = Math.min(timeToLive, MAX_EVICTION_INTERVAL);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "results-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                evictExpired();
+            } catch (RuntimeException exception) {
+                log.warn("Could not evict the expired results", exception);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Results repository opened at {}, time to live: {} ms", path, timeToLive);
+    }
+
+    /**
+     * Stop, closes the database.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (db != null) {
+            db.close();
+            db = null;
+        }
+        if (options != null) {
+            options.close();
+        }
+    }
+
+    @Override
+    public String get(String idempotencyKey) {
+        if (db == null) {
+            return null;
+        }
+        try {
+            byte[] value = db.get(bytes(idempotencyKey));
+            if (value == null || isExpired(value, System.currentTimeMillis())) {
+                return null;
+            }
+            return new String(value, Long.BYTES, value.length - Long.BYTES, StandardCharsets.UTF_8);
+        } catch (RocksDBException exception) {
+            log.warn("Could not read the result of {}", idempotencyKey, exception);
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String idempotencyKey, String result) {
+        if (db == null || result == null) {
+            return;
+        }
+        byte[] resultBytes = bytes(result);
+        byte[] value = ByteBuffer.allocate(Long.BYTES + resultBytes.length)
+                .putLong(System.currentTimeMillis() + timeToLive)
+                .put(resultBytes)
+                .array();
+        try {
+            db.put(bytes(idempotencyKey), value);
+        } catch (RocksDBException exception) {
+            log.warn("Could not store the result of {}", idempotencyKey, exception);
+        }
+    }
+
+    @Override
+    public int evictExpired() {
+        if (db == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        try (RocksIterator iterator = db.newIterator()) {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                if (isExpired(iterator.value(), now)) {
+                    db.delete(iterator.key());
+                    evicted++;
+                }
+            }
+        } catch (RocksDBException exception) {
+            log.warn("Could not evict the expired results", exception);
+        }
+        if (evicted > 0) {
+            log.debug("{} expired results evicted", evicted);
+        }
+        return evicted;
+    }
+
+    private static boolean isExpired(byte[] value, long now) {
+        return value.length < Long.BYTES || ByteBuffer.wrap(value).getLong() <= now;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
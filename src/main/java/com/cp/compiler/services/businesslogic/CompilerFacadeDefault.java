@@ -82,6 +82,7 @@ public class CompilerFacadeDefault implements CompilerFacade {
                 userId = userId.substring(MAX_USER_ID_LENGTH);
             }
     
+            execution.setUserId(userId);
             closer.register(MDC.putCloseable(WellKnownLoggingKeys.USER_ID, userId));
             closer.register(MDC.putCloseable(WellKnownLoggingKeys.IS_LONG_RUNNING, String.valueOf(isLongRunning)));
             closer.register(MDC.putCloseable(WellKnownLoggingKeys.PROGRAMMING_LANGUAGE, execution.getLanguage().toString()));
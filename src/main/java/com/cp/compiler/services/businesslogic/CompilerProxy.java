@@ -1,14 +1,14 @@
 package com.cp.compiler.services.businesslogic;
 
 import com.cp.compiler.exceptions.CompilerBadRequestException;
-import com.cp.compiler.exceptions.CompilerThrottlingException;
 import com.cp.compiler.executions.Execution;
 import com.cp.compiler.models.Language;
+import com.cp.compiler.services.resources.AdmissionQueue;
+import com.cp.compiler.services.resources.DeadlineShedder;
 import com.cp.compiler.services.resources.Resources;
 import com.cp.compiler.wellknownconstants.WellKnownFiles;
 import com.cp.compiler.wellknownconstants.WellKnownMetrics;
 import com.cp.compiler.repositories.HooksRepository;
-import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
@@ -69,7 +69,11 @@ public class CompilerProxy implements CompilerService {
     @Autowired
     private Resources resources;
     
-    private Counter throttlingCounterMetric;
+    @Autowired
+    private AdmissionQueue admissionQueue;
+    
+    @Autowired
+    private DeadlineShedder deadlineShedder;
     
     private static final String EXECUTIONS_GAUGE_DESCRIPTION = "Current number of executions";
     
@@ -80,7 +84,6 @@ public class CompilerProxy implements CompilerService {
      */
     @PostConstruct
     public void init() {
-        throttlingCounterMetric = meterRegistry.counter(WellKnownMetrics.THROTTLING_COUNTER_NAME);
         Gauge.builder(WellKnownMetrics.EXECUTIONS_GAUGE, () -> resources.getNumberOfExecutions())
                 .description(EXECUTIONS_GAUGE_DESCRIPTION)
                 .register(meterRegistry);
@@ -94,34 +97,27 @@ public class CompilerProxy implements CompilerService {
             log.info("Invalid input data: '{}'", requestValidationError.get().getBody());
             return requestValidationError.get();
         }
-        if (resources.allowNewExecution()) {
-            int counter = resources.reserveResources();
-            log.info("New request, total: {}, maxRequests: {}", counter, resources.getMaxRequests());
-            
-            ResponseEntity<Object> response;
-            
-            try {
-                response = compileAndExecute(execution);
-            } finally {
-                resources.cleanup();
+        // The caller is no longer waiting for the result
+        deadlineShedder.checkDeadline(execution, DeadlineShedder.ADMISSION_STAGE, execution.getTestCases().size());
+        // Waits for resources, throttled if the admission queue is full
+        admissionQueue.acquire(execution);
+        boolean releasedByLongRunningExecution = false;
+        try {
+            // If the storage contains the id, it means we registered the url before and the client wants a push notification.
+            if (hooksRepository.contains(execution.getId())) {
+                log.info("Start long running execution, the result will be pushed to : {}", hooksRepository.get(execution.getId()));
+                ResponseEntity response = longRunningCompilerService.execute(execution);
+                // The execution is still running, its admission is released once it's done
+                releasedByLongRunningExecution = true;
+                return response;
+            }
+            log.info("Start short running execution");
+            return compilerService.execute(execution);
+        } finally {
+            if (!releasedByLongRunningExecution) {
+                admissionQueue.release(execution);
             }
-            return response;
-        }
-        // The request has been throttled
-        throttlingCounterMetric.increment();
-        String errorMessage = "Request has been throttled, service reached maximum resources usage";
-        log.warn(errorMessage);
-        throw new CompilerThrottlingException(errorMessage);
-    }
-    
-    private ResponseEntity<Object> compileAndExecute(Execution execution) {
-        // If the storage contains the id, it means we registered the url before and the client wants a push notification.
-        if (hooksRepository.contains(execution.getId())) {
-            log.info("Start long running execution, the result will be pushed to : {}", hooksRepository.get(execution.getId()));
-            return longRunningCompilerService.execute(execution);
         }
-        log.info("Start short running execution");
-        return compilerService.execute(execution);
     }
     
     private Optional<ResponseEntity<Object>> validateRequest(Execution execution) {
@@ -15,7 +15,6 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Compiler Service Class, this class provides compilation utilities for several programing languages
@@ -33,19 +32,21 @@ public class CompilerServiceDefault implements CompilerService {
     @Value("${compiler.docker.image.delete:true}")
     private boolean deleteDockerImage;
     
-    private final ExecutorService threadPool;
+    private final ExecutorService cleanupExecutor;
     
     /**
      * Instantiates a new Compiler service.
      *
      * @param compiledLanguagesExecutionStrategy    the compiled languages execution strategy
      * @param interpretedLanguagesExecutionStrategy the interpreted languages execution strategy
+     * @param cleanupExecutor                       the executor deleting the execution directories
      */
     public CompilerServiceDefault(@Qualifier("compiled") ExecutionStrategy compiledLanguagesExecutionStrategy,
-                                  @Qualifier("interpreted") ExecutionStrategy interpretedLanguagesExecutionStrategy) {
+                                  @Qualifier("interpreted") ExecutionStrategy interpretedLanguagesExecutionStrategy,
+                                  @Qualifier("cleanupExecutor") ExecutorService cleanupExecutor) {
         this.compiledLanguagesExecutionStrategy = compiledLanguagesExecutionStrategy;
         this.interpretedLanguagesExecutionStrategy = interpretedLanguagesExecutionStrategy;
-        this.threadPool = Executors.newCachedThreadPool();
+        this.cleanupExecutor = cleanupExecutor;
     }
     
     /**
@@ -108,7 +109,7 @@ public class CompilerServiceDefault implements CompilerService {
                     .body(response);
         } finally {
             // Clean up asynchronously
-            threadPool.execute(() -> deleteExecutionEnvironment(execution));
+            cleanupExecutor.execute(() -> deleteExecutionEnvironment(execution));
         }
     }
     
@@ -1,7 +1,9 @@
 package com.cp.compiler.services.businesslogic;
 
+import com.cp.compiler.exceptions.CompilerThrottlingException;
 import com.cp.compiler.executions.Execution;
 import com.cp.compiler.repositories.HooksRepository;
+import com.cp.compiler.services.resources.AdmissionQueue;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
@@ -11,6 +13,8 @@ import org.springframework.web.client.RestTemplate;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * The type Long running compiler service.
@@ -26,33 +30,61 @@ public class LongRunningCompilerService extends CompilerServiceDecorator {
 
     private final HooksRepository hooksRepository;
     
+    private final ExecutorService longRunningExecutor;
+    
+    private final ExecutorService webhookExecutor;
+    
+    private final AdmissionQueue admissionQueue;
+    
     /**
      * Instantiates a new Long running compiler service.
      *
-     * @param compilerService the compiler service
-     * @param restTemplate    the rest template
-     * @param hooksRepository the hooks storage
+     * @param compilerService     the compiler service
+     * @param restTemplate        the rest template
+     * @param hooksRepository     the hooks storage
+     * @param longRunningExecutor the executor running the executions
+     * @param webhookExecutor     the executor sending the responses
+     * @param admissionQueue      the admission queue, released once the execution is done
      */
     public LongRunningCompilerService(@Qualifier("client") CompilerService compilerService,
                                       RestTemplate restTemplate,
-                                      HooksRepository hooksRepository) {
+                                      HooksRepository hooksRepository,
+                                      @Qualifier("longRunningExecutor") ExecutorService longRunningExecutor,
+                                      @Qualifier("webhookExecutor") ExecutorService webhookExecutor,
+                                      AdmissionQueue admissionQueue) {
         super(compilerService);
         this.restTemplate = restTemplate;
         this.hooksRepository = hooksRepository;
+        this.longRunningExecutor = longRunningExecutor;
+        this.webhookExecutor = webhookExecutor;
+        this.admissionQueue = admissionQueue;
     }
     
+    /**
+     * {@inheritDoc}
+     *
+     * @throws CompilerThrottlingException if too many long running executions are already waiting
+     */
     @Override
     public ResponseEntity execute(Execution execution) {
         String url = hooksRepository.get(execution.getId());
-        new Thread(() -> {
-            try {
-                run(execution, url);
-            } catch (Exception exception) {
-                // Unexpected error
-                // In this case the error will not be returned to the client
-                log.error("Error : {}", exception);
-            }
-        }).start();
+        try {
+            longRunningExecutor.execute(() -> {
+                try {
+                    run(execution, url);
+                } catch (Exception exception) {
+                    // Unexpected error
+                    // In this case the error will not be returned to the client
+                    log.error("Error : {}", exception);
+                } finally {
+                    // The resources of the execution are held until it's done, not until it's accepted
+                    admissionQueue.release(execution);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            log.warn("Too many long running executions, the request has been throttled");
+            throw new CompilerThrottlingException("Too many long running executions, please try again later");
+        }
         return ResponseEntity
                 .status(HttpStatus.ACCEPTED)
                 .body("Executing the request, you'll get the response in the following url : " + url);
@@ -63,9 +95,15 @@ public class LongRunningCompilerService extends CompilerServiceDecorator {
         restTemplate.postForEntity(new URI(url), responseEntity, Object.class);
     }
     
-    private void run(Execution execution, String url) throws URISyntaxException {
+    private void run(Execution execution, String url) {
         ResponseEntity<Object> response = getCompilerService().execute(execution);
-        log.info("Sending response to {}", url);
-        sendResponse(url, response);
+        webhookExecutor.execute(() -> {
+            try {
+                log.info("Sending response to {}", url);
+                sendResponse(url, response);
+            } catch (Exception exception) {
+                log.error("Could not send the response to {}: {}", url, exception);
+            }
+        });
     }
 }
@@ -0,0 +1,26 @@
+package com.cp.compiler.services.cache;
+
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.CompilationResponse;
+
+import java.util.function.Supplier;
+
+/**
+ * The interface Compilation cache.
+ *
+ * @author Zakaria Maaraki
+ */
+public interface CompilationCache {
+
+    /**
+     * Compile the execution or restore the result of a previous compilation of the same source code.
+     *
+     * @param execution            the execution
+     * @param compilationImageName the image used to compile the source code
+     * @param compilation          the compilation, called when the result is not cached
+     * @return the compilation response
+     */
+    CompilationResponse compile(Execution execution,
+                                String compilationImageName,
+                                Supplier<CompilationResponse> compilation);
+}
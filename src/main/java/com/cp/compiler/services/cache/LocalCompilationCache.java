@@ -0,0 +1,380 @@
+package com.cp.compiler.services.cache;
+
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.CompilationResponse;
+import com.cp.compiler.models.Verdict;
+import com.cp.compiler.services.containers.ContainerService;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The type Local compilation cache.
+ * Stores the files produced by a compilation (binaries, class files, ...) or the compilation error, in a local
+ * directory, keyed by the language, the hash of the source code and the id of the compilation image.
+ * The size of the store is bounded, the least recently used entries are evicted first.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "compiler.compilation-cache.enabled", havingValue = "true")
+public class LocalCompilationCache implements CompilationCache {
+
+    private static final String METADATA_FILE_NAME = "metadata.json";
+
+    private static final String ARTIFACTS_FOLDER_NAME = "artifacts";
+
+    private static final String TEMPORARY_ENTRY_SUFFIX = ".tmp-";
+
+    private static final long IMAGE_ID_TIME_TO_LIVE = 60000; // in ms
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ContainerService containerService;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Path root;
+
+    private final long maxSize;
+
+    // Key -> size of the entry in bytes, in access order (LRU)
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long size;
+
+    // Image name -> image id, the id is only looked up again once expired
+    private final Map<String, ImageId> imageIds = new ConcurrentHashMap<>();
+
+    private Counter hitCounter;
+
+    private Counter missCounter;
+
+    private Counter evictionCounter;
+
+    /**
+     * Instantiates a new Local compilation cache.
+     *
+     * @param containerService the container service
+     * @param meterRegistry    the meter registry
+     * @param path             the path of the store
+     * @param maxSize          the max size of the store in bytes
+     */
+    public LocalCompilationCache(ContainerService containerService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${compiler.compilation-cache.path:compilation-cache}") String path,
+                                 @Value("${compiler.compilation-cache.max-size:268435456}") long maxSize) {
+        this.containerService = containerService;
+        this.meterRegistry = meterRegistry;
+        this.root = Path.of(path);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Init, loads the entries already in the store.
+     *
+     * @throws IOException the io exception
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        hitCounter = meterRegistry.counter(WellKnownMetrics.COMPILATION_CACHE_HIT_COUNTER);
+        missCounter = meterRegistry.counter(WellKnownMetrics.COMPILATION_CACHE_MISS_COUNTER);
+        evictionCounter = meterRegistry.counter(WellKnownMetrics.COMPILATION_CACHE_EVICTION_COUNTER);
+        meterRegistry.gauge(WellKnownMetrics.COMPILATION_CACHE_SIZE_GAUGE, this, LocalCompilationCache::getSize);
+
+        Files.createDirectories(root);
+
+        List<Path> entriesPaths;
+        try (Stream<Path> stream = Files.list(root)) {
+            entriesPaths = stream.collect(Collectors.toList());
+        }
+
+        // Oldest first, so the LRU order is kept between restarts
+        entriesPaths.sort(Comparator.comparingLong(entryPath -> entryPath.toFile().lastModified()));
+        for (Path entryPath : entriesPaths) {
+            boolean isTemporary = entryPath.getFileName().toString().contains(TEMPORARY_ENTRY_SUFFIX);
+            if (!isTemporary && Files.exists(entryPath.resolve(METADATA_FILE_NAME))) {
+                addEntry(entryPath.getFileName().toString(), sizeOf(entryPath));
+            } else {
+                // Incomplete entry, left by a crash while storing it
+                FileSystemUtils.deleteRecursively(entryPath);
+            }
+        }
+        log.info("Compilation cache loaded {} entries ({} bytes) from {}", entries.size(), size, root);
+    }
+
+    @Override
+    public CompilationResponse compile(Execution execution,
+                                       String compilationImageName,
+                                       Supplier<CompilationResponse> compilation) {
+        String key;
+        try {
+            key = getKey(execution, compilationImageName);
+        } catch (RuntimeException | IOException exception) {
+            log.warn("Could not compute the compilation cache key, the cache is skipped: {}", exception.getMessage());
+            return compilation.get();
+        }
+
+        CompilationResponse cachedResponse = restore(key, Path.of(execution.getPath()));
+        if (cachedResponse != null) {
+            log.info("Compilation cache hit for execution id = {}", execution.getId());
+            hitCounter.increment();
+            return cachedResponse;
+        }
+        missCounter.increment();
+
+        Set<Path> filesBeforeCompilation;
+        try {
+            filesBeforeCompilation = listFiles(Path.of(execution.getPath()));
+        } catch (IOException exception) {
+            log.warn("Could not list the execution files, the compilation won't be cached: {}", exception.getMessage());
+            return compilation.get();
+        }
+
+        CompilationResponse compilationResponse = compilation.get();
+
+        // Other verdicts are transient failures (timeouts, ...) and should not be cached
+        if (compilationResponse.getVerdict() == Verdict.ACCEPTED
+                || compilationResponse.getVerdict() == Verdict.COMPILATION_ERROR) {
+            try {
+                store(key, Path.of(execution.getPath()), filesBeforeCompilation, compilationResponse);
+            } catch (IOException exception) {
+                log.warn("Could not store the compilation in the cache: {}", exception.getMessage());
+            }
+        }
+
+        return compilationResponse;
+    }
+
+    /**
+     * Gets the size of the store in bytes.
+     *
+     * @return the size
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return the number of entries
+     */
+    public synchronized int getNumberOfEntries() {
+        return entries.size();
+    }
+
+    private CompilationResponse restore(String key, Path executionPath) {
+        synchronized (this) {
+            // Also updates the access order
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        Path entryPath = root.resolve(key);
+        try {
+            CachedCompilation cachedCompilation =
+                    objectMapper.readValue(entryPath.resolve(METADATA_FILE_NAME).toFile(), CachedCompilation.class);
+
+            Path artifactsPath = entryPath.resolve(ARTIFACTS_FOLDER_NAME);
+            for (Path artifact : listFiles(artifactsPath)) {
+                Path destination = executionPath.resolve(artifact);
+                Files.createDirectories(destination.getParent());
+                Files.copy(artifactsPath.resolve(artifact), destination, StandardCopyOption.REPLACE_EXISTING);
+                destination.toFile().setExecutable(artifactsPath.resolve(artifact).toFile().canExecute(), false);
+            }
+            for (String deletedFile : cachedCompilation.getDeletedFiles()) {
+                Files.deleteIfExists(executionPath.resolve(deletedFile));
+            }
+
+            return CompilationResponse
+                    .builder()
+                    .verdict(Verdict.valueOf(cachedCompilation.getVerdict()))
+                    .error(cachedCompilation.getError())
+                    .compilationDuration((int) (System.currentTimeMillis() - start))
+                    .build();
+
+        } catch (IOException | RuntimeException exception) {
+            // Can happen if the entry has been evicted meanwhile
+            log.warn("Could not restore the compilation from the cache: {}", exception.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key,
+                       Path executionPath,
+                       Set<Path> filesBeforeCompilation,
+                       CompilationResponse compilationResponse) throws IOException {
+
+        Path temporaryPath = root.resolve(key + TEMPORARY_ENTRY_SUFFIX + UUID.randomUUID());
+        try {
+            Set<Path> filesAfterCompilation = listFiles(executionPath);
+
+            Path artifactsPath = temporaryPath.resolve(ARTIFACTS_FOLDER_NAME);
+            Files.createDirectories(artifactsPath);
+            for (Path file : filesAfterCompilation) {
+                if (!filesBeforeCompilation.contains(file)) {
+                    Path destination = artifactsPath.resolve(file);
+                    Files.createDirectories(destination.getParent());
+                    Files.copy(executionPath.resolve(file), destination, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+
+            var deletedFiles = filesBeforeCompilation
+                    .stream()
+                    .filter(file -> !filesAfterCompilation.contains(file))
+                    .map(Path::toString)
+                    .collect(Collectors.toList());
+
+            var cachedCompilation = new CachedCompilation(
+                    compilationResponse.getVerdict().name(),
+                    compilationResponse.getError(),
+                    deletedFiles);
+            objectMapper.writeValue(temporaryPath.resolve(METADATA_FILE_NAME).toFile(), cachedCompilation);
+
+            long entrySize = sizeOf(temporaryPath);
+
+            synchronized (this) {
+                if (entries.containsKey(key)) {
+                    return; // Already stored by a concurrent compilation
+                }
+                Files.move(temporaryPath, root.resolve(key));
+                addEntry(key, entrySize);
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(temporaryPath);
+        }
+    }
+
+    private synchronized void addEntry(String key, long entrySize) throws IOException {
+        entries.put(key, entrySize);
+        size += entrySize;
+
+        var iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            var eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue();
+            FileSystemUtils.deleteRecursively(root.resolve(eldest.getKey()));
+            evictionCounter.increment();
+            log.info("Compilation cache entry {} evicted", eldest.getKey());
+        }
+    }
+
+    private String getKey(Execution execution, String compilationImageName)
+            throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+
+        String sourceCodeFileName = execution.getSourceCodeFile().getOriginalFilename();
+        String header = execution.getLanguage().name()
+                + "\n" + getImageId(compilationImageName)
+                + "\n" + sourceCodeFileName
+                + "\n";
+        digest.update(header.getBytes(StandardCharsets.UTF_8));
+
+        // The source code file is hashed as it is saved in the execution directory
+        try (InputStream inputStream = new DigestInputStream(
+                Files.newInputStream(Path.of(execution.getPath(), sourceCodeFileName)), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+
+        var key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    private String getImageId(String imageName) {
+        ImageId imageId = imageIds.get(imageName);
+        if (imageId == null || imageId.getExpiry() < System.currentTimeMillis()) {
+            imageId = new ImageId(
+                    containerService.getImageId(imageName),
+                    System.currentTimeMillis() + IMAGE_ID_TIME_TO_LIVE);
+            imageIds.put(imageName, imageId);
+        }
+        return imageId.getId();
+    }
+
+    private static Set<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.walk(directory)) {
+            return stream
+                    .filter(Files::isRegularFile)
+                    .map(directory::relativize)
+                    .collect(Collectors.toCollection(HashSet::new));
+        }
+    }
+
+    private static long sizeOf(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.walk(directory)) {
+            return stream
+                    .filter(Files::isRegularFile)
+                    .mapToLong(path -> path.toFile().length())
+                    .sum();
+        }
+    }
+
+    /**
+     * The metadata of a cache entry.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    private static class CachedCompilation {
+
+        private String verdict;
+
+        private String error;
+
+        private List<String> deletedFiles;
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class ImageId {
+
+        private String id;
+
+        private long expiry;
+    }
+}
@@ -0,0 +1,25 @@
+package com.cp.compiler.services.cache;
+
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.CompilationResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * The type Noop compilation cache, used when the compilation cache is disabled.
+ *
+ * @author Zakaria Maaraki
+ */
+@Component
+@ConditionalOnProperty(name = "compiler.compilation-cache.enabled", havingValue = "false", matchIfMissing = true)
+public class NoopCompilationCache implements CompilationCache {
+
+    @Override
+    public CompilationResponse compile(Execution execution,
+                                       String compilationImageName,
+                                       Supplier<CompilationResponse> compilation) {
+        return compilation.get();
+    }
+}
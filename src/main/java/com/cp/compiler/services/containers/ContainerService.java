@@ -41,6 +41,24 @@ public interface ContainerService {
                                float maxCpus,
                                Map<String, String> envVariables);
     
+    /**
+     * Run container container output, reading at most the given size of its standard output.
+     *
+     * @param imageName     the image name
+     * @param containerName the container name
+     * @param timeout       the timeout
+     * @param maxCpus       the max cpus
+     * @param maxOutputSize the max number of bytes read from the standard output, instead of the configured one
+     * @param envVariables  the env variables
+     * @return the container output
+     */
+    ProcessOutput runContainer(String imageName,
+                               String containerName,
+                               long timeout,
+                               float maxCpus,
+                               long maxOutputSize,
+                               Map<String, String> envVariables);
+    
     /**
      * Inspect a container.
      *
@@ -74,6 +92,100 @@ public interface ContainerService {
                                String executionPath,
                                String sourceCodeFileName);
     
+    /**
+     * Run a sandboxed container from a stock image, with a read only volume and the given command as entrypoint.
+     *
+     * @param imageName        the image name
+     * @param containerName    the container name
+     * @param timeout          the timeout
+     * @param maxCpus          the max cpus
+     * @param volumeMounting   the volume mounting, mounted read only
+     * @param workingDirectory the working directory inside the container
+     * @param envVariables     the env variables
+     * @param command          the command
+     * @return the process output
+     */
+    ProcessOutput runSandboxedContainer(String imageName,
+                                        String containerName,
+                                        long timeout,
+                                        float maxCpus,
+                                        String volumeMounting,
+                                        String workingDirectory,
+                                        Map<String, String> envVariables,
+                                        String... command);
+    
+    /**
+     * Run a sandboxed container, reading at most the given size of its standard output.
+     *
+     * @param imageName        the image name
+     * @param containerName    the container name
+     * @param timeout          the timeout
+     * @param maxCpus          the max cpus
+     * @param maxOutputSize    the max number of bytes read from the standard output, instead of the configured one
+     * @param volumeMounting   the volume mounting, mounted read only
+     * @param workingDirectory the working directory inside the container
+     * @param envVariables     the env variables
+     * @param command          the command
+     * @return the process output
+     */
+    ProcessOutput runSandboxedContainer(String imageName,
+                                        String containerName,
+                                        long timeout,
+                                        float maxCpus,
+                                        long maxOutputSize,
+                                        String volumeMounting,
+                                        String workingDirectory,
+                                        Map<String, String> envVariables,
+                                        String... command);
+    
+    /**
+     * Start a sandboxed container in the background, it stays idle until commands are executed inside it.
+     *
+     * @param imageName     the image name
+     * @param containerName the container name
+     * @param maxCpus       the max cpus
+     */
+    void runDetachedContainer(String imageName, String containerName, float maxCpus);
+
+    /**
+     * Copy the content of a local directory inside a running container.
+     *
+     * @param sourcePath      the local directory path
+     * @param containerName   the container name
+     * @param destinationPath the destination path inside the container
+     */
+    void copyToContainer(String sourcePath, String containerName, String destinationPath);
+
+    /**
+     * Execute a command inside a running container.
+     *
+     * @param containerName the container name
+     * @param timeout       the timeout
+     * @param envVariables  the env variables
+     * @param command       the command
+     * @return the process output
+     */
+    ProcessOutput execInContainer(String containerName,
+                                  long timeout,
+                                  Map<String, String> envVariables,
+                                  String... command);
+
+    /**
+     * Execute a command inside a running container, reading at most the given size of its standard output.
+     *
+     * @param containerName the container name
+     * @param timeout       the timeout
+     * @param maxOutputSize the max number of bytes read from the standard output, instead of the configured one
+     * @param envVariables  the env variables
+     * @param command       the command
+     * @return the process output
+     */
+    ProcessOutput execInContainer(String containerName,
+                                  long timeout,
+                                  long maxOutputSize,
+                                  Map<String, String> envVariables,
+                                  String... command);
+
     /**
      * Gets running containers.
      *
@@ -106,6 +218,14 @@ public interface ContainerService {
      */
     String getAllContainersStats();
     
+    /**
+     * Gets the id of an image (the digest of its content).
+     *
+     * @param imageName the image name
+     * @return the image id
+     */
+    String getImageId(String imageName);
+    
     /**
      * Delete image string.
      *
@@ -49,6 +49,11 @@ public abstract class ContainerServiceDecorator implements ContainerService {
         return containerService.getImages();
     }
     
+    @Override
+    public String getImageId(String imageName) {
+        return containerService.getImageId(imageName);
+    }
+    
     @Override
     public String getContainersStats() {
         return containerService.getContainersStats();
@@ -84,7 +89,144 @@ public abstract class ContainerServiceDecorator implements ContainerService {
         } catch(Exception processExecutionException) {
             if (processExecutionException instanceof ProcessExecutionTimeoutException) {
                 // TLE
-                throw new ContainerOperationTimeoutException(processExecutionException.getMessage());
+                throw new ContainerOperationTimeoutException(
+                        (ProcessExecutionTimeoutException) processExecutionException);
+            }
+            log.error("Error: {}", processExecutionException);
+            throw new ContainerFailedDependencyException(processExecutionException.getMessage());
+        }
+    }
+    
+    @Override
+    public ProcessOutput runContainer(String imageName,
+                                      String containerName,
+                                      long timeout,
+                                      float maxCpus,
+                                      long maxOutputSize,
+                                      Map<String, String> envVariables) {
+        try {
+            return containerService.runContainer(
+                    imageName,
+                    containerName,
+                    timeout,
+                    maxCpus,
+                    maxOutputSize,
+                    envVariables);
+        } catch(Exception processExecutionException) {
+            if (processExecutionException instanceof ProcessExecutionTimeoutException) {
+                // TLE
+                throw new ContainerOperationTimeoutException(
+                        (ProcessExecutionTimeoutException) processExecutionException);
+            }
+            log.error("Error: {}", processExecutionException);
+            throw new ContainerFailedDependencyException(processExecutionException.getMessage());
+        }
+    }
+    
+    @Override
+    public ProcessOutput runSandboxedContainer(String imageName,
+                                               String containerName,
+                                               long timeout,
+                                               float maxCpus,
+                                               String volumeMounting,
+                                               String workingDirectory,
+                                               Map<String, String> envVariables,
+                                               String... command) {
+        try {
+            return containerService.runSandboxedContainer(
+                    imageName,
+                    containerName,
+                    timeout,
+                    maxCpus,
+                    volumeMounting,
+                    workingDirectory,
+                    envVariables,
+                    command);
+        } catch(Exception processExecutionException) {
+            if (processExecutionException instanceof ProcessExecutionTimeoutException) {
+                // TLE
+                throw new ContainerOperationTimeoutException(
+                        (ProcessExecutionTimeoutException) processExecutionException);
+            }
+            log.error("Error: {}", processExecutionException);
+            throw new ContainerFailedDependencyException(processExecutionException.getMessage());
+        }
+    }
+    
+    @Override
+    public ProcessOutput runSandboxedContainer(String imageName,
+                                               String containerName,
+                                               long timeout,
+                                               float maxCpus,
+                                               long maxOutputSize,
+                                               String volumeMounting,
+                                               String workingDirectory,
+                                               Map<String, String> envVariables,
+                                               String... command) {
+        try {
+            return containerService.runSandboxedContainer(
+                    imageName,
+                    containerName,
+                    timeout,
+                    maxCpus,
+                    maxOutputSize,
+                    volumeMounting,
+                    workingDirectory,
+                    envVariables,
+                    command);
+        } catch(Exception processExecutionException) {
+            if (processExecutionException instanceof ProcessExecutionTimeoutException) {
+                // TLE
+                throw new ContainerOperationTimeoutException(
+                        (ProcessExecutionTimeoutException) processExecutionException);
+            }
+            log.error("Error: {}", processExecutionException);
+            throw new ContainerFailedDependencyException(processExecutionException.getMessage());
+        }
+    }
+    
+    @Override
+    public void runDetachedContainer(String imageName, String containerName, float maxCpus) {
+        containerService.runDetachedContainer(imageName, containerName, maxCpus);
+        log.info("Container {} has been started in the background", containerName);
+    }
+    
+    @Override
+    public void copyToContainer(String sourcePath, String containerName, String destinationPath) {
+        containerService.copyToContainer(sourcePath, containerName, destinationPath);
+    }
+    
+    @Override
+    public ProcessOutput execInContainer(String containerName,
+                                         long timeout,
+                                         Map<String, String> envVariables,
+                                         String... command) {
+        try {
+            return containerService.execInContainer(containerName, timeout, envVariables, command);
+        } catch(Exception processExecutionException) {
+            if (processExecutionException instanceof ProcessExecutionTimeoutException) {
+                // TLE
+                throw new ContainerOperationTimeoutException(
+                        (ProcessExecutionTimeoutException) processExecutionException);
+            }
+            log.error("Error: {}", processExecutionException);
+            throw new ContainerFailedDependencyException(processExecutionException.getMessage());
+        }
+    }
+    
+    @Override
+    public ProcessOutput execInContainer(String containerName,
+                                         long timeout,
+                                         long maxOutputSize,
+                                         Map<String, String> envVariables,
+                                         String... command) {
+        try {
+            return containerService.execInContainer(containerName, timeout, maxOutputSize, envVariables, command);
+        } catch(Exception processExecutionException) {
+            if (processExecutionException instanceof ProcessExecutionTimeoutException) {
+                // TLE
+                throw new ContainerOperationTimeoutException(
+                        (ProcessExecutionTimeoutException) processExecutionException);
             }
             log.error("Error: {}", processExecutionException);
             throw new ContainerFailedDependencyException(processExecutionException.getMessage());
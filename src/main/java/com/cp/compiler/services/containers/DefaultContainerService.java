@@ -89,7 +89,105 @@ public class DefaultContainerService extends ContainerServiceDecorator {
         } catch(Exception processExecutionException) {
             log.error("Error: {}", processExecutionException);
             if (processExecutionException instanceof ProcessExecutionTimeoutException) {
-                throw new ContainerOperationTimeoutException(processExecutionException.getMessage());
+                throw new ContainerOperationTimeoutException(
+                        (ProcessExecutionTimeoutException) processExecutionException);
+            }
+            throw new ContainerFailedDependencyException(processExecutionException.getMessage());
+        }
+    }
+    
+    @Override
+    public ProcessOutput runSandboxedContainer(String imageName,
+                                               String containerName,
+                                               long timeout,
+                                               float maxCpus,
+                                               String volumeMounting,
+                                               String workingDirectory,
+                                               Map<String, String> envVariables,
+                                               String... command) {
+        try {
+            return RetryHelper.executeWithRetries(
+                    () -> getContainerService().runSandboxedContainer(
+                            imageName,
+                            containerName,
+                            timeout,
+                            maxCpus,
+                            volumeMounting,
+                            workingDirectory,
+                            envVariables,
+                            command),
+                    Set.of(ProcessExecutionTimeoutException.class.getName()), // do not retry on timeout
+                    MAX_RETRIES,
+                    DURATION_BETWEEN_EACH_RETRY);
+        } catch(Exception processExecutionException) {
+            log.error("Error: {}", processExecutionException);
+            if (processExecutionException instanceof ProcessExecutionTimeoutException) {
+                throw new ContainerOperationTimeoutException(
+                        (ProcessExecutionTimeoutException) processExecutionException);
+            }
+            throw new ContainerFailedDependencyException(processExecutionException.getMessage());
+        }
+    }
+    
+    @Override
+    public ProcessOutput runContainer(String imageName,
+                                      String containerName,
+                                      long timeout,
+                                      float maxCpus,
+                                      long maxOutputSize,
+                                      Map<String, String> envVariables) {
+        try {
+            return RetryHelper.executeWithRetries(
+                    () -> getContainerService().runContainer(
+                            imageName,
+                            containerName,
+                            timeout,
+                            maxCpus,
+                            maxOutputSize,
+                            envVariables),
+                    Set.of(ProcessExecutionTimeoutException.class.getName()), // do not retry on timeout
+                    MAX_RETRIES,
+                    DURATION_BETWEEN_EACH_RETRY);
+        } catch(Exception processExecutionException) {
+            log.error("Error: {}", processExecutionException);
+            if (processExecutionException instanceof ProcessExecutionTimeoutException) {
+                throw new ContainerOperationTimeoutException(
+                        (ProcessExecutionTimeoutException) processExecutionException);
+            }
+            throw new ContainerFailedDependencyException(processExecutionException.getMessage());
+        }
+    }
+    
+    @Override
+    public ProcessOutput runSandboxedContainer(String imageName,
+                                               String containerName,
+                                               long timeout,
+                                               float maxCpus,
+                                               long maxOutputSize,
+                                               String volumeMounting,
+                                               String workingDirectory,
+                                               Map<String, String> envVariables,
+                                               String... command) {
+        try {
+            return RetryHelper.executeWithRetries(
+                    () -> getContainerService().runSandboxedContainer(
+                            imageName,
+                            containerName,
+                            timeout,
+                            maxCpus,
+                            maxOutputSize,
+                            volumeMounting,
+                            workingDirectory,
+                            envVariables,
+                            command),
+                    Set.of(ProcessExecutionTimeoutException.class.getName()), // do not retry on timeout
+                    MAX_RETRIES,
+                    DURATION_BETWEEN_EACH_RETRY);
+        } catch(Exception processExecutionException) {
+            log.error("Error: {}", processExecutionException);
+            if (processExecutionException instanceof ProcessExecutionTimeoutException) {
+                throw new ContainerOperationTimeoutException(
+                        (ProcessExecutionTimeoutException) processExecutionException);
             }
             throw new ContainerFailedDependencyException(processExecutionException.getMessage());
         }
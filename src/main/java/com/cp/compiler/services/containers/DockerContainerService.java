@@ -4,12 +4,15 @@ import com.cp.compiler.exceptions.*;
 import com.cp.compiler.mappers.ContainerInfoMapper;
 import com.cp.compiler.models.containers.ContainerInfo;
 import com.cp.compiler.models.processes.ProcessOutput;
+import com.cp.compiler.models.processes.ProcessOutputLimits;
 import com.cp.compiler.wellknownconstants.WellKnownMetrics;
 import com.cp.compiler.utils.CmdUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
@@ -19,12 +22,14 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * This class provides Docker utilities
+ * This class provides Docker utilities by forking the docker cli.
+ * It's the default container service, set compiler.docker.client to api to use the Docker Engine API instead.
  *
  * @author Zakaria Maaraki
  */
 @Slf4j
 @Service("docker")
+@ConditionalOnProperty(name = "compiler.docker.client", havingValue = "cli", matchIfMissing = true)
 public class DockerContainerService implements ContainerService {
     
     /**
@@ -58,8 +63,30 @@ public class DockerContainerService implements ContainerService {
      * The constant SOURCE_CODE_ENV_VARIABLE.
      */
     public static final String SOURCE_CODE_FILE_NAME_ENV_VARIABLE = "SOURCE_CODE_FILE_NAME";
+    
+    /**
+     * The user running the programs inside detached containers (same uid as the one used in execution Dockerfiles).
+     */
+    public static final String SANDBOX_USER = "111:111";
+    
+    /**
+     * The working directory of detached containers.
+     */
+    public static final String SANDBOX_WORKING_DIRECTORY = "/app";
 
     private final MeterRegistry meterRegistry;
+    
+    @Value("${compiler.execution.output.max-size:16777216}")
+    private long maxOutputSize;
+    
+    @Value("${compiler.execution.output.max-error-size:1048576}")
+    private long maxErrorSize;
+    
+    @Value("${compiler.execution.output.spill-threshold:1048576}")
+    private int outputSpillThreshold;
+    
+    // Limits of the outputs of the containers running user code
+    private ProcessOutputLimits outputLimits;
 
     private Timer buildTimer;
 
@@ -81,6 +108,7 @@ public class DockerContainerService implements ContainerService {
     public void init() {
         buildTimer = meterRegistry.timer(WellKnownMetrics.CONTAINER_BUILD_TIMER, "container", "docker");
         runTimer = meterRegistry.timer(WellKnownMetrics.CONTAINER_RUN_TIMER, "container", "docker");
+        outputLimits = new ProcessOutputLimits(maxOutputSize, maxErrorSize, outputSpillThreshold);
     }
     
     /**
@@ -108,9 +136,19 @@ public class DockerContainerService implements ContainerService {
                                       long timeout,
                                       float maxCpus,
                                       Map<String, String> envVariables) {
+        return runContainer(imageName, containerName, timeout, maxCpus, outputLimits.getMaxStdOutSize(), envVariables);
+    }
+    
+    @Override
+    public ProcessOutput runContainer(String imageName,
+                                      String containerName,
+                                      long timeout,
+                                      float maxCpus,
+                                      long maxOutputSize,
+                                      Map<String, String> envVariables) {
         return runTimer.record(() -> {
             String[] dockerCommand = buildDockerCommand(containerName, envVariables, maxCpus, imageName);
-            return CmdUtils.executeProcess(dockerCommand, timeout);
+            return CmdUtils.executeProcess(dockerCommand, timeout, outputLimits.withMaxStdOutSize(maxOutputSize));
         });
     }
     
@@ -171,7 +209,127 @@ public class DockerContainerService implements ContainerService {
                             "-e", SOURCE_CODE_FILE_NAME_ENV_VARIABLE + "=" + sourceCodeFileName,
                             imageName};
     
-            return CmdUtils.executeProcess(dockerCommand, timeout);
+            return CmdUtils.executeProcess(dockerCommand, timeout, outputLimits);
+        });
+    }
+    
+    @Override
+    public ProcessOutput runSandboxedContainer(String imageName,
+                                               String containerName,
+                                               long timeout,
+                                               float maxCpus,
+                                               String volumeMounting,
+                                               String workingDirectory,
+                                               Map<String, String> envVariables,
+                                               String... command) {
+        return runSandboxedContainer(
+                imageName,
+                containerName,
+                timeout,
+                maxCpus,
+                outputLimits.getMaxStdOutSize(),
+                volumeMounting,
+                workingDirectory,
+                envVariables,
+                command);
+    }
+    
+    @Override
+    public ProcessOutput runSandboxedContainer(String imageName,
+                                               String containerName,
+                                               long timeout,
+                                               float maxCpus,
+                                               long maxOutputSize,
+                                               String volumeMounting,
+                                               String workingDirectory,
+                                               Map<String, String> envVariables,
+                                               String... command) {
+        return runTimer.record(() -> {
+            /**
+             * docker run --name [containerName] -v [volume]:ro --network none --user [user] --workdir [dir]
+             *            (-e [envKey=envValue])* --cpus=[cpu] --entrypoint [command] [imageName] [args]
+             */
+            List<String> dockerCommandList = new ArrayList<>(Arrays.asList(
+                    "docker",
+                    "run",
+                    "--name", containerName,
+                    "-v", volumeMounting + ":ro",
+                    "--network", "none",
+                    "--user", SANDBOX_USER,
+                    "--workdir", workingDirectory));
+            for (String key : envVariables.keySet()) {
+                dockerCommandList.add("-e");
+                dockerCommandList.add(key + "=" + envVariables.get(key));
+            }
+            dockerCommandList.add("--cpus=" + maxCpus);
+            dockerCommandList.add("--entrypoint");
+            dockerCommandList.add(command[0]);
+            dockerCommandList.add(imageName);
+            dockerCommandList.addAll(Arrays.asList(command).subList(1, command.length));
+            return CmdUtils.executeProcess(
+                    dockerCommandList.toArray(new String[0]),
+                    timeout,
+                    outputLimits.withMaxStdOutSize(maxOutputSize));
+        });
+    }
+    
+    @Override
+    public void runDetachedContainer(String imageName, String containerName, float maxCpus) {
+        /**
+         * docker run -d --name [containerName] --cpus=[cpu] --network none --user [user] --workdir [dir]
+         *            --entrypoint sleep [imageName] infinity
+         */
+        String[] command = {
+                "docker",
+                "run",
+                "-d",
+                "--name", containerName,
+                "--cpus=" + maxCpus,
+                "--network", "none",
+                "--user", SANDBOX_USER,
+                "--workdir", SANDBOX_WORKING_DIRECTORY,
+                "--entrypoint", "sleep",
+                imageName,
+                "infinity"};
+        executeContainerCommandAndCheckStatus(command, COMMAND_TIMEOUT);
+    }
+    
+    @Override
+    public void copyToContainer(String sourcePath, String containerName, String destinationPath) {
+        // The trailing "/." copies the content of the directory and not the directory itself
+        String[] command = {"docker", "cp", sourcePath + "/.", containerName + ":" + destinationPath};
+        executeContainerCommandAndCheckStatus(command, COMMAND_TIMEOUT);
+    }
+    
+    @Override
+    public ProcessOutput execInContainer(String containerName,
+                                         long timeout,
+                                         Map<String, String> envVariables,
+                                         String... command) {
+        return execInContainer(containerName, timeout, outputLimits.getMaxStdOutSize(), envVariables, command);
+    }
+    
+    @Override
+    public ProcessOutput execInContainer(String containerName,
+                                         long timeout,
+                                         long maxOutputSize,
+                                         Map<String, String> envVariables,
+                                         String... command) {
+        return runTimer.record(() -> {
+            /**
+             * docker exec (-e [envKey=envValue])* [containerName] [command]
+             */
+            List<String> dockerCommandList = new ArrayList<>(Arrays.asList("docker", "exec"));
+            for (String key : envVariables.keySet()) {
+                dockerCommandList.add("-e");
+                dockerCommandList.add(key + "=" + envVariables.get(key));
+            }
+            dockerCommandList.add(containerName);
+            dockerCommandList.addAll(Arrays.asList(command));
+            return CmdUtils.executeProcess(
+                    dockerCommandList.toArray(new String[0]),
+                    timeout,
+                    outputLimits.withMaxStdOutSize(maxOutputSize));
         });
     }
     
@@ -205,6 +363,12 @@ public class DockerContainerService implements ContainerService {
         return executeContainerCommand(command, COMMAND_TIMEOUT);
     }
     
+    @Override
+    public String getImageId(String imageName) {
+        String[] command = {"docker", "image", "inspect", "--format", "{{.Id}}", imageName};
+        return executeContainerCommand(command, COMMAND_TIMEOUT).trim();
+    }
+    
     @Override
     public void deleteImage(String imageName) {
         String[] command = {"docker", "rmi", "-f", imageName};
@@ -233,7 +397,22 @@ public class DockerContainerService implements ContainerService {
         } catch (ProcessExecutionException e) {
             throw new ContainerFailedDependencyException(e.getMessage());
         } catch (ProcessExecutionTimeoutException e) {
-            throw new ContainerOperationTimeoutException(e.getMessage());
+            throw new ContainerOperationTimeoutException(e);
+        }
+    }
+    
+    // Some commands (ex: docker run -d) write progress messages to stderr, so only the exit status is reliable.
+    private String executeContainerCommandAndCheckStatus(String[] command, long timeout) {
+        try {
+            ProcessOutput processOutput = CmdUtils.executeProcess(command, timeout);
+            if (processOutput.getStatus() != 0) {
+                throw new ContainerFailedDependencyException("Error: " + processOutput.getStdErr());
+            }
+            return processOutput.getStdOut();
+        } catch (ProcessExecutionException e) {
+            throw new ContainerFailedDependencyException(e.getMessage());
+        } catch (ProcessExecutionTimeoutException e) {
+            throw new ContainerOperationTimeoutException(e);
         }
     }
 }
@@ -0,0 +1,617 @@
+package com.cp.compiler.services.containers;
+
+import com.cp.compiler.exceptions.ContainerFailedDependencyException;
+import com.cp.compiler.exceptions.ProcessExecutionException;
+import com.cp.compiler.exceptions.ProcessExecutionTimeoutException;
+import com.cp.compiler.models.containers.ContainerInfo;
+import com.cp.compiler.models.processes.ProcessOutput;
+import com.cp.compiler.models.processes.ProcessOutputBuffer;
+import com.cp.compiler.models.processes.ProcessOutputLimits;
+import com.cp.compiler.utils.CmdUtils;
+import com.cp.compiler.utils.DockerTableUtils;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.BuildImageResultCallback;
+import com.github.dockerjava.api.command.CreateContainerCmd;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.command.WaitContainerResultCallback;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.BuildResponseItem;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Statistics;
+import com.github.dockerjava.api.model.StreamType;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientConfig;
+import com.github.dockerjava.core.DockerClientImpl;
+import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * This class talks to the Docker Engine REST API directly (through the unix socket by default)
+ * instead of forking a docker cli process for each operation.
+ * The http connections to the daemon are pooled and reused between operations.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Qualifier("docker")
+@Service("dockerEngineApi")
+@ConditionalOnProperty(name = "compiler.docker.client", havingValue = "api")
+public class DockerEngineContainerService implements ContainerService {
+
+    /**
+     * The constant BUILD_TIMEOUT.
+     */
+    public static final int BUILD_TIMEOUT = 60000; // 1 minute
+
+    /**
+     * The constant COMMAND_TIMEOUT.
+     */
+    public static final int COMMAND_TIMEOUT = 10000; // 10 sec
+
+    /**
+     * Container engine used
+     */
+    private static final String CONTAINERIZATION_NAME = "Docker";
+
+    private static final long NANO_CPUS_PER_CPU = 1_000_000_000L;
+
+    private final MeterRegistry meterRegistry;
+
+    private final String dockerHost;
+
+    private final int maxConnections;
+
+    private DockerClient dockerClient;
+
+    @Value("${compiler.execution.output.max-size:16777216}")
+    private long maxOutputSize;
+
+    @Value("${compiler.execution.output.max-error-size:1048576}")
+    private long maxErrorSize;
+
+    @Value("${compiler.execution.output.spill-threshold:1048576}")
+    private int outputSpillThreshold;
+
+    // Limits of the outputs of the containers running user code
+    private ProcessOutputLimits outputLimits;
+
+    private Timer buildTimer;
+
+    private Timer runTimer;
+
+    /**
+     * Instantiates a new Docker engine container service.
+     *
+     * @param meterRegistry  the meter registry
+     * @param dockerHost     the docker host, ex: unix:///var/run/docker.sock
+     * @param maxConnections the max number of pooled connections to the docker daemon
+     */
+    public DockerEngineContainerService(MeterRegistry meterRegistry,
+                                        @Value("${compiler.docker.host:unix:///var/run/docker.sock}") String dockerHost,
+                                        @Value("${compiler.docker.max-connections:100}") int maxConnections) {
+        this.meterRegistry = meterRegistry;
+        this.dockerHost = dockerHost;
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Init.
+     */
+    @PostConstruct
+    public void init() {
+        buildTimer = meterRegistry.timer(WellKnownMetrics.CONTAINER_BUILD_TIMER, "container", "docker-api");
+        runTimer = meterRegistry.timer(WellKnownMetrics.CONTAINER_RUN_TIMER, "container", "docker-api");
+        outputLimits = new ProcessOutputLimits(maxOutputSize, maxErrorSize, outputSpillThreshold);
+
+        DockerClientConfig config = DefaultDockerClientConfig
+                .createDefaultConfigBuilder()
+                .withDockerHost(dockerHost)
+                .build();
+
+        var httpClient = new ApacheDockerHttpClient.Builder()
+                .dockerHost(config.getDockerHost())
+                .sslConfig(config.getSSLConfig())
+                .maxConnections(maxConnections)
+                .connectionTimeout(Duration.ofMillis(COMMAND_TIMEOUT))
+                .build();
+
+        dockerClient = DockerClientImpl.getInstance(config, httpClient);
+        log.info("Docker Engine API client configured on {} with {} pooled connections", dockerHost, maxConnections);
+    }
+
+    /**
+     * Close the docker client and its connection pool.
+     */
+    @PreDestroy
+    public void close() {
+        try {
+            dockerClient.close();
+        } catch (IOException e) {
+            log.warn("Error while closing the docker client: {}", e);
+        }
+    }
+
+    @Override
+    public String buildImage(String contextPath, String imageName, String dockerfileName) {
+        return buildTimer.record(() -> {
+            var buildLogs = new StringBuilder();
+            try {
+                dockerClient.buildImageCmd()
+                        .withDockerfile(new File(contextPath, dockerfileName))
+                        .withBaseDirectory(new File(contextPath))
+                        .withTags(Set.of(imageName))
+                        .exec(new BuildImageResultCallback() {
+                            @Override
+                            public void onNext(BuildResponseItem item) {
+                                if (item.getStream() != null) {
+                                    buildLogs.append(item.getStream());
+                                }
+                                super.onNext(item);
+                            }
+                        })
+                        .awaitImageId(BUILD_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                throw new ContainerFailedDependencyException("Error: " + e.getMessage());
+            }
+            return buildLogs.toString();
+        });
+    }
+
+    @Override
+    public ProcessOutput runContainer(String imageName,
+                                      String containerName,
+                                      long timeout,
+                                      float maxCpus,
+                                      Map<String, String> envVariables) {
+        return runContainer(imageName, containerName, timeout, maxCpus, outputLimits.getMaxStdOutSize(), envVariables);
+    }
+
+    @Override
+    public ProcessOutput runContainer(String imageName,
+                                      String containerName,
+                                      long timeout,
+                                      float maxCpus,
+                                      long maxOutputSize,
+                                      Map<String, String> envVariables) {
+        return runTimer.record(() -> {
+            List<String> env = envVariables
+                    .entrySet()
+                    .stream()
+                    .map(entry -> entry.getKey() + "=" + entry.getValue())
+                    .collect(Collectors.toList());
+
+            HostConfig hostConfig = HostConfig
+                    .newHostConfig()
+                    .withNanoCPUs((long) (maxCpus * NANO_CPUS_PER_CPU));
+
+            return createAndRunContainer(
+                    dockerClient.createContainerCmd(imageName)
+                            .withName(containerName)
+                            .withEnv(env)
+                            .withHostConfig(hostConfig),
+                    containerName,
+                    timeout,
+                    outputLimits.withMaxStdOutSize(maxOutputSize));
+        });
+    }
+
+    @Override
+    public ProcessOutput runContainer(String imageName,
+                                      String containerName,
+                                      long timeout,
+                                      String volumeMounting,
+                                      String executionPath,
+                                      String sourceCodeFileName) {
+        return runTimer.record(() -> {
+            List<String> env = List.of(
+                    DockerContainerService.EXECUTION_PATH_ENV_VARIABLE + "=" + executionPath,
+                    DockerContainerService.SOURCE_CODE_FILE_NAME_ENV_VARIABLE + "=" + sourceCodeFileName);
+
+            HostConfig hostConfig = HostConfig
+                    .newHostConfig()
+                    .withBinds(Bind.parse(volumeMounting));
+
+            return createAndRunContainer(
+                    dockerClient.createContainerCmd(imageName)
+                            .withName(containerName)
+                            .withEnv(env)
+                            .withHostConfig(hostConfig),
+                    containerName,
+                    timeout,
+                    outputLimits);
+        });
+    }
+
+    // Collects the output frames, the stream is closed once one of the outputs exceeds its limit
+    private static ProcessOutput partialOutput(ProcessOutputBuffer stdOut) {
+        return ProcessOutput
+                .builder()
+                .stdOut(stdOut.toString())
+                .stdOutBuffer(stdOut)
+                .build();
+    }
+
+    private static ResultCallback.Adapter<Frame> outputCallback(ProcessOutputBuffer stdOut, ProcessOutputBuffer stdErr) {
+        return new ResultCallback.Adapter<>() {
+            @Override
+            public void onNext(Frame frame) {
+                ProcessOutputBuffer buffer = frame.getStreamType() == StreamType.STDERR ? stdErr : stdOut;
+                try {
+                    buffer.write(frame.getPayload());
+                    if (buffer.isLimitExceeded()) {
+                        close();
+                    }
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            }
+        };
+    }
+
+    private ProcessOutput createAndRunContainer(CreateContainerCmd createContainerCmd,
+                                                String containerName,
+                                                long timeout,
+                                                ProcessOutputLimits limits) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout should be a positive value");
+        }
+
+        // The standard output buffer is handed to the returned process output, which releases it
+        var stdOut = new ProcessOutputBuffer(limits.getMaxStdOutSize(), limits.getSpillThreshold());
+        try (var stdErr = new ProcessOutputBuffer(limits.getMaxStdErrSize(), limits.getSpillThreshold())) {
+
+            createContainerCmd.exec();
+
+            long executionStartTime = System.currentTimeMillis();
+            dockerClient.startContainerCmd(containerName).exec();
+
+            // Do not let the container exceed the timeout
+            var waitCallback = dockerClient
+                    .waitContainerCmd(containerName)
+                    .exec(new WaitContainerResultCallback());
+
+            boolean exited = waitCallback.awaitCompletion(timeout, TimeUnit.MILLISECONDS);
+            long executionEndTime = System.currentTimeMillis();
+            if (!exited) {
+                log.info("The container exceeded the {} Millis allowed for its execution", timeout);
+                waitCallback.close();
+            }
+
+            // Once timed out, reads the logs written so far
+            dockerClient.logContainerCmd(containerName)
+                    .withStdOut(true)
+                    .withStdErr(true)
+                    .exec(outputCallback(stdOut, stdErr))
+                    .awaitCompletion(COMMAND_TIMEOUT, TimeUnit.MILLISECONDS);
+
+            if (!exited) {
+                throw new ProcessExecutionTimeoutException(timeout, partialOutput(stdOut));
+            }
+
+            return ProcessOutput
+                    .builder()
+                    .stdOut(stdOut.toString())
+                    .stdOutBuffer(stdOut)
+                    .stdErr(CmdUtils.buildErrorOutput(stdErr.toString()))
+                    .status(waitCallback.awaitStatusCode())
+                    .executionDuration((int) (executionEndTime - executionStartTime))
+                    .outputLimitExceeded(stdOut.isLimitExceeded() || stdErr.isLimitExceeded())
+                    .build();
+
+        } catch (RuntimeException | InterruptedException | IOException exception) {
+            if (exception instanceof ProcessExecutionTimeoutException) {
+                throw (ProcessExecutionTimeoutException) exception;
+            }
+            stdOut.close();
+            if (exception instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("Unexpected error: {}", exception);
+            throw new ProcessExecutionException("Fatal error for container " + containerName + " : " + exception.getMessage());
+        }
+    }
+
+    @Override
+    public ProcessOutput runSandboxedContainer(String imageName,
+                                               String containerName,
+                                               long timeout,
+                                               float maxCpus,
+                                               String volumeMounting,
+                                               String workingDirectory,
+                                               Map<String, String> envVariables,
+                                               String... command) {
+        return runSandboxedContainer(
+                imageName,
+                containerName,
+                timeout,
+                maxCpus,
+                outputLimits.getMaxStdOutSize(),
+                volumeMounting,
+                workingDirectory,
+                envVariables,
+                command);
+    }
+
+    @Override
+    public ProcessOutput runSandboxedContainer(String imageName,
+                                               String containerName,
+                                               long timeout,
+                                               float maxCpus,
+                                               long maxOutputSize,
+                                               String volumeMounting,
+                                               String workingDirectory,
+                                               Map<String, String> envVariables,
+                                               String... command) {
+        return runTimer.record(() -> {
+            List<String> env = envVariables
+                    .entrySet()
+                    .stream()
+                    .map(entry -> entry.getKey() + "=" + entry.getValue())
+                    .collect(Collectors.toList());
+
+            HostConfig hostConfig = HostConfig
+                    .newHostConfig()
+                    .withNanoCPUs((long) (maxCpus * NANO_CPUS_PER_CPU))
+                    .withNetworkMode("none")
+                    .withBinds(Bind.parse(volumeMounting + ":ro"));
+
+            return createAndRunContainer(
+                    dockerClient.createContainerCmd(imageName)
+                            .withName(containerName)
+                            .withUser(DockerContainerService.SANDBOX_USER)
+                            .withWorkingDir(workingDirectory)
+                            .withEnv(env)
+                            .withEntrypoint(command)
+                            .withHostConfig(hostConfig),
+                    containerName,
+                    timeout,
+                    outputLimits.withMaxStdOutSize(maxOutputSize));
+        });
+    }
+
+    @Override
+    public void runDetachedContainer(String imageName, String containerName, float maxCpus) {
+        HostConfig hostConfig = HostConfig
+                .newHostConfig()
+                .withNanoCPUs((long) (maxCpus * NANO_CPUS_PER_CPU))
+                .withNetworkMode("none");
+
+        executeContainerCommand(() -> dockerClient.createContainerCmd(imageName)
+                .withName(containerName)
+                .withUser(DockerContainerService.SANDBOX_USER)
+                .withWorkingDir(DockerContainerService.SANDBOX_WORKING_DIRECTORY)
+                .withEntrypoint("sleep")
+                .withCmd("infinity")
+                .withHostConfig(hostConfig)
+                .exec());
+
+        executeContainerCommand(() -> dockerClient.startContainerCmd(containerName).exec());
+    }
+
+    @Override
+    public void copyToContainer(String sourcePath, String containerName, String destinationPath) {
+        executeContainerCommand(() -> dockerClient.copyArchiveToContainerCmd(containerName)
+                .withHostResource(sourcePath)
+                .withDirChildrenOnly(true)
+                .withRemotePath(destinationPath)
+                .exec());
+    }
+
+    @Override
+    public ProcessOutput execInContainer(String containerName,
+                                         long timeout,
+                                         Map<String, String> envVariables,
+                                         String... command) {
+        return execInContainer(containerName, timeout, outputLimits.getMaxStdOutSize(), envVariables, command);
+    }
+
+    @Override
+    public ProcessOutput execInContainer(String containerName,
+                                         long timeout,
+                                         long maxOutputSize,
+                                         Map<String, String> envVariables,
+                                         String... command) {
+        return runTimer.record(() -> {
+            if (timeout <= 0) {
+                throw new IllegalArgumentException("timeout should be a positive value");
+            }
+
+            List<String> env = envVariables
+                    .entrySet()
+                    .stream()
+                    .map(entry -> entry.getKey() + "=" + entry.getValue())
+                    .collect(Collectors.toList());
+
+            // The standard output buffer is handed to the returned process output, which releases it
+            var stdOut = new ProcessOutputBuffer(maxOutputSize, outputLimits.getSpillThreshold());
+            var stdErr = new ProcessOutputBuffer(outputLimits.getMaxStdErrSize(), outputLimits.getSpillThreshold());
+            try (stdErr) {
+
+                String execId = dockerClient.execCreateCmd(containerName)
+                        .withEnv(env)
+                        .withCmd(command)
+                        .withAttachStdout(true)
+                        .withAttachStderr(true)
+                        .exec()
+                        .getId();
+
+                long executionStartTime = System.currentTimeMillis();
+
+                var execCallback = dockerClient.execStartCmd(execId).exec(outputCallback(stdOut, stdErr));
+
+                // Do not let the command exceed the timeout
+                if (!execCallback.awaitCompletion(timeout, TimeUnit.MILLISECONDS)) {
+                    log.info("The command exceeded the {} Millis allowed for its execution", timeout);
+                    execCallback.close();
+                    throw new ProcessExecutionTimeoutException(timeout, partialOutput(stdOut));
+                }
+                long executionEndTime = System.currentTimeMillis();
+
+                Long exitCode = dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+
+                return ProcessOutput
+                        .builder()
+                        .stdOut(stdOut.toString())
+                        .stdOutBuffer(stdOut)
+                        .stdErr(CmdUtils.buildErrorOutput(stdErr.toString()))
+                        .status(exitCode == null ? 0 : exitCode.intValue())
+                        .executionDuration((int) (executionEndTime - executionStartTime))
+                        .outputLimitExceeded(stdOut.isLimitExceeded() || stdErr.isLimitExceeded())
+                        .build();
+
+            } catch (RuntimeException | InterruptedException | IOException exception) {
+                if (exception instanceof ProcessExecutionTimeoutException) {
+                    throw (ProcessExecutionTimeoutException) exception;
+                }
+                stdOut.close();
+                if (exception instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                log.error("Unexpected error: {}", exception);
+                throw new ProcessExecutionException(
+                        "Fatal error for container " + containerName + " : " + exception.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public ContainerInfo inspect(String containerName) {
+        InspectContainerResponse response = executeContainerCommand(
+                () -> dockerClient.inspectContainerCmd(containerName).exec());
+        InspectContainerResponse.ContainerState state = response.getState();
+        return new ContainerInfo(
+                state.getStatus(),
+                toLocalDateTime(response.getCreated()),
+                state.getError(),
+                state.getExitCodeLong() == null ? 0 : state.getExitCodeLong().intValue(),
+                toLocalDateTime(state.getStartedAt()),
+                toLocalDateTime(state.getFinishedAt()));
+    }
+
+    // Docker returns UTC timestamps (ex: 2021-05-01T10:00:00.123456789Z), same as the cli inspect format
+    private LocalDateTime toLocalDateTime(String dateTime) {
+        if (dateTime == null || dateTime.isEmpty()) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.parse(dateTime), ZoneOffset.UTC);
+    }
+
+    @Override
+    public void deleteContainer(String containerName) {
+        executeContainerCommand(() -> dockerClient.removeContainerCmd(containerName).withForce(true).exec());
+    }
+
+    @Override
+    public String getRunningContainers() {
+        return DockerTableUtils.formatContainers(
+                executeContainerCommand(() -> dockerClient.listContainersCmd().exec()), Instant.now());
+    }
+
+    @Override
+    public String getImages() {
+        return DockerTableUtils.formatImages(
+                executeContainerCommand(() -> dockerClient.listImagesCmd().exec()), Instant.now());
+    }
+
+    @Override
+    public String getImageId(String imageName) {
+        return executeContainerCommand(() -> dockerClient.inspectImageCmd(imageName).exec()).getId();
+    }
+
+    @Override
+    public String getContainersStats() {
+        return DockerTableUtils.formatStats(getStats(false));
+    }
+
+    @Override
+    public String getAllContainersStats() {
+        return DockerTableUtils.formatStats(getStats(true));
+    }
+
+    private Map<Container, Statistics> getStats(boolean showAll) {
+        List<Container> containers = executeContainerCommand(
+                () -> dockerClient.listContainersCmd().withShowAll(showAll).exec());
+        Map<Container, Statistics> stats = new LinkedHashMap<>();
+        for (Container container : containers) {
+            executeContainerCommand(() -> {
+                try {
+                    return dockerClient.statsCmd(container.getId())
+                            .withNoStream(true)
+                            .exec(new ResultCallback.Adapter<Statistics>() {
+                                @Override
+                                public void onNext(Statistics statistics) {
+                                    stats.put(container, statistics);
+                                }
+                            })
+                            .awaitCompletion(COMMAND_TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ContainerFailedDependencyException(e.getMessage());
+                }
+            });
+        }
+        return stats;
+    }
+
+    @Override
+    public void deleteImage(String imageName) {
+        executeContainerCommand(() -> dockerClient.removeImageCmd(imageName).withForce(true).exec());
+    }
+
+    @Override
+    public boolean isUp() {
+        try {
+            dockerClient.pingCmd().exec();
+            return true;
+        } catch (Exception e) {
+            log.warn("Docker engine is not reachable on {}: {}", dockerHost, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public String getContainerizationName() {
+        return CONTAINERIZATION_NAME;
+    }
+
+    private <T> T executeContainerCommand(DockerCommand<T> command) {
+        try {
+            return command.execute();
+        } catch (ContainerFailedDependencyException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new ContainerFailedDependencyException("Error: " + e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface DockerCommand<T> {
+        T execute();
+    }
+}
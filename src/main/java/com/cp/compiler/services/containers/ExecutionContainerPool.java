@@ -0,0 +1,283 @@
+package com.cp.compiler.services.containers;
+
+import com.cp.compiler.exceptions.CompilerThrottlingException;
+import com.cp.compiler.models.Language;
+import com.cp.compiler.services.resources.Resources;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The type Execution container pool.
+ * Keeps, for each language, a set of pre-warmed sandboxed containers started from the stock runtime image
+ * so executions don't pay the cost of building an image and creating a container.
+ * A container is used by one and only one execution, it is destroyed once released and a new one takes its place.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "compiler.execution.mode", havingValue = "pool")
+public class ExecutionContainerPool {
+
+    private static final String POOLED_CONTAINER_NAME_PREFIX = "pooled-";
+
+    private final ContainerService containerService;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Resources resources;
+
+    private final int minIdle;
+
+    private final int maxSize;
+
+    private final long acquireTimeout;
+
+    private final Map<Language, LanguagePool> pools = new EnumMap<>(Language.class);
+
+    // Starts and deletes the containers
+    private final ExecutorService cleanupExecutor;
+
+    // No container is started once the pool is destroyed
+    private volatile boolean destroyed;
+
+    /**
+     * Instantiates a new Execution container pool.
+     *
+     * @param containerService the container service
+     * @param meterRegistry    the meter registry
+     * @param resources        the resources
+     * @param cleanupExecutor  the executor starting and deleting the containers
+     * @param minIdle          the min number of idle containers to keep per language
+     * @param maxSize          the max number of containers per language
+     * @param acquireTimeout   the max time to wait for a container in ms
+     */
+    public ExecutionContainerPool(ContainerService containerService,
+                                  MeterRegistry meterRegistry,
+                                  Resources resources,
+                                  @Qualifier("cleanupExecutor") ExecutorService cleanupExecutor,
+                                  @Value("${compiler.execution.pool.min-idle:2}") int minIdle,
+                                  @Value("${compiler.execution.pool.max-size:10}") int maxSize,
+                                  @Value("${compiler.execution.pool.acquire-timeout:30000}") long acquireTimeout) {
+        if (minIdle < 0 || maxSize <= 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException(
+                    "The pool size should verify 0 <= min-idle <= max-size and max-size > 0");
+        }
+        this.containerService = containerService;
+        this.meterRegistry = meterRegistry;
+        this.resources = resources;
+        this.cleanupExecutor = cleanupExecutor;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.acquireTimeout = acquireTimeout;
+        for (Language language : Language.values()) {
+            pools.put(language, new LanguagePool());
+        }
+    }
+
+    /**
+     * Init, registers the gauges and warms up the pools.
+     */
+    @PostConstruct
+    public void init() {
+        pools.forEach((language, pool) -> {
+            meterRegistry.gauge(
+                    WellKnownMetrics.EXECUTION_POOL_IDLE_GAUGE,
+                    Tags.of("language", language.name().toLowerCase()),
+                    pool.idle,
+                    BlockingDeque::size);
+            meterRegistry.gauge(
+                    WellKnownMetrics.EXECUTION_POOL_SIZE_GAUGE,
+                    Tags.of("language", language.name().toLowerCase()),
+                    pool.size,
+                    AtomicInteger::get);
+            cleanupExecutor.execute(() -> replenish(language));
+        });
+        log.info("Execution container pool configured with min-idle = {} and max-size = {}", minIdle, maxSize);
+    }
+
+    /**
+     * Destroy all idle containers.
+     */
+    @PreDestroy
+    public void destroy() {
+        destroyed = true;
+        pools.values().forEach(pool -> {
+            String containerName;
+            while ((containerName = pool.idle.poll()) != null) {
+                deleteContainer(containerName);
+            }
+        });
+    }
+
+    /**
+     * Acquire a running container for the given language.
+     * If no container is idle and the pool is full, waits for a container to be released.
+     *
+     * @param language the language
+     * @return the container name
+     * @throws CompilerThrottlingException if no container becomes available before the acquire timeout
+     */
+    public String acquire(Language language) {
+        LanguagePool pool = pools.get(language);
+
+        String containerName = pool.idle.poll();
+        if (containerName != null) {
+            cleanupExecutor.execute(() -> replenish(language));
+            return containerName;
+        }
+
+        if (pool.tryReserve(maxSize)) {
+            try {
+                return startContainer(language);
+            } catch (RuntimeException exception) {
+                pool.size.decrementAndGet();
+                throw exception;
+            }
+        }
+
+        pool.waiters.incrementAndGet();
+        try {
+            containerName = pool.idle.poll(acquireTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.waiters.decrementAndGet();
+        }
+
+        if (containerName == null) {
+            log.warn("No {} execution container became available in {} ms", language, acquireTimeout);
+            throw new CompilerThrottlingException("No execution container is available, please try again");
+        }
+        return containerName;
+    }
+
+    /**
+     * Release a container, the container is destroyed asynchronously and replaced by a fresh one.
+     *
+     * @param language      the language
+     * @param containerName the container name
+     */
+    public void release(Language language, String containerName) {
+        LanguagePool pool = pools.get(language);
+        cleanupExecutor.execute(() -> {
+            try {
+                deleteContainer(containerName);
+            } finally {
+                pool.size.decrementAndGet();
+                replenish(language);
+            }
+        });
+    }
+
+    /**
+     * Discard a container that may still be running a process (ex: an exec that timed out),
+     * the container is destroyed right away so the process is killed, and replaced asynchronously by a fresh one.
+     *
+     * @param language      the language
+     * @param containerName the container name
+     */
+    public void discard(Language language, String containerName) {
+        LanguagePool pool = pools.get(language);
+        try {
+            deleteContainer(containerName);
+        } finally {
+            pool.size.decrementAndGet();
+            cleanupExecutor.execute(() -> replenish(language));
+        }
+    }
+
+    /**
+     * Gets the number of idle containers for the given language.
+     *
+     * @param language the language
+     * @return the number of idle containers
+     */
+    public int getIdleContainers(Language language) {
+        return pools.get(language).idle.size();
+    }
+
+    /**
+     * Gets the number of containers (idle or in use) for the given language.
+     *
+     * @param language the language
+     * @return the number of containers
+     */
+    public int getSize(Language language) {
+        return pools.get(language).size.get();
+    }
+
+    /**
+     * Start containers until the min number of idle containers (or the number of waiting executions) is reached.
+     *
+     * @param language the language
+     */
+    protected void replenish(Language language) {
+        LanguagePool pool = pools.get(language);
+        while (!destroyed
+                && pool.idle.size() < Math.max(minIdle, pool.waiters.get())
+                && pool.tryReserve(maxSize)) {
+            try {
+                pool.idle.offer(startContainer(language));
+            } catch (RuntimeException exception) {
+                pool.size.decrementAndGet();
+                log.warn("Could not start a new {} execution container: {}", language, exception.getMessage());
+                return;
+            }
+        }
+    }
+
+    private String startContainer(Language language) {
+        String containerName = POOLED_CONTAINER_NAME_PREFIX
+                + language.name().toLowerCase()
+                + "-"
+                + UUID.randomUUID();
+        containerService.runDetachedContainer(language.getRuntimeImage(), containerName, resources.getMaxCpus());
+        return containerName;
+    }
+
+    private void deleteContainer(String containerName) {
+        try {
+            containerService.deleteContainer(containerName);
+        } catch (RuntimeException exception) {
+            log.warn("Could not delete the execution container {}: {}", containerName, exception.getMessage());
+        }
+    }
+
+    private static class LanguagePool {
+
+        private final BlockingDeque<String> idle = new LinkedBlockingDeque<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        private boolean tryReserve(int maxSize) {
+            int current;
+            do {
+                current = size.get();
+                if (current >= maxSize) {
+                    return false;
+                }
+            } while (!size.compareAndSet(current, current + 1));
+            return true;
+        }
+    }
+}
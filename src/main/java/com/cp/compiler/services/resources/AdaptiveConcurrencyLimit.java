@@ -0,0 +1,203 @@
+package com.cp.compiler.services.resources;
+
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Adaptive concurrency limit.
+ * Adjusts the max number of executions running concurrently from the latencies of the containers and the executions
+ * (gradient algorithm). The latency of each interval is compared to a slowly moving baseline:
+ * while it stays within the tolerance the limit grows by sqrt(limit), beyond it the limit shrinks
+ * proportionally to the latency increase, down to half of it per interval.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "compiler.adaptive-limit.enabled", havingValue = "true")
+public class AdaptiveConcurrencyLimit implements ConcurrencyLimit {
+
+    // The timers observed
+    private static final List<String> LATENCY_TIMERS =
+            List.of(WellKnownMetrics.CONTAINER_RUN_TIMER, WellKnownMetrics.EXECUTION_TIMER);
+
+    // Latency increase tolerated before shrinking the limit
+    private static final double TOLERANCE = 1.5;
+
+    // Weight of a new limit
+    private static final double SMOOTHING = 0.2;
+
+    // Weight of a new latency in the baseline
+    private static final double BASELINE_SMOOTHING = 0.01;
+
+    // The limit shrinks at most by half per interval
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long interval;
+
+    private final Map<String, LatencySignal> signals = new HashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "adaptive-limit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile double limit;
+
+    /**
+     * Instantiates a new Adaptive concurrency limit.
+     *
+     * @param meterRegistry the meter registry
+     * @param initialLimit  the initial limit
+     * @param minLimit      the min limit
+     * @param maxLimit      the max limit
+     * @param interval      the interval between two adjustments in ms
+     */
+    public AdaptiveConcurrencyLimit(MeterRegistry meterRegistry,
+                                    @Value("${compiler.adaptive-limit.initial:10}") int initialLimit,
+                                    @Value("${compiler.adaptive-limit.min:1}") int minLimit,
+                                    @Value("${compiler.adaptive-limit.max:${compiler.max-requests}}") int maxLimit,
+                                    @Value("${compiler.adaptive-limit.interval:1000}") long interval) {
+        this.meterRegistry = meterRegistry;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.interval = interval;
+        this.limit = clamp(initialLimit);
+        LATENCY_TIMERS.forEach(timerName -> signals.put(timerName, new LatencySignal()));
+    }
+
+    /**
+     * Init.
+     */
+    @PostConstruct
+    public void init() {
+        Gauge.builder(WellKnownMetrics.CONCURRENCY_LIMIT_GAUGE, this::getLimit)
+                .description("Current max number of executions running concurrently")
+                .register(meterRegistry);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                update();
+            } catch (RuntimeException exception) {
+                log.warn("Could not update the concurrency limit", exception);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Adaptive concurrency limit: initial: {}, min: {}, max: {}", getLimit(), minLimit, maxLimit);
+    }
+
+    /**
+     * Stop.
+     */
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Adjusts the limit from the latencies observed since the last update.
+     */
+    synchronized void update() {
+        double gradient = Double.NaN;
+        for (String timerName : LATENCY_TIMERS) {
+            long count = 0;
+            double totalTime = 0;
+            for (Timer timer : meterRegistry.find(timerName).timers()) {
+                count += timer.count();
+                totalTime += timer.totalTime(TimeUnit.NANOSECONDS);
+            }
+            double signalGradient = signals.get(timerName).sample(count, totalTime);
+            // The most congested signal drives the limit
+            if (!Double.isNaN(signalGradient) && (Double.isNaN(gradient) || signalGradient < gradient)) {
+                gradient = signalGradient;
+            }
+        }
+        if (Double.isNaN(gradient)) {
+            // Nothing ran during the interval
+            return;
+        }
+
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        // Do not grow the limit if it's not used
+        if (newLimit > limit && getExecutions() * 2 < limit) {
+            newLimit = limit;
+        }
+        double previousLimit = limit;
+        limit = clamp(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+        if ((int) previousLimit != (int) limit) {
+            log.debug("Concurrency limit: {} -> {}, gradient: {}", (int) previousLimit, (int) limit, gradient);
+        }
+    }
+
+    private double getExecutions() {
+        var executionsGauge = meterRegistry.find(WellKnownMetrics.EXECUTIONS_GAUGE).gauge();
+        return executionsGauge == null ? 0 : executionsGauge.value();
+    }
+
+    private double clamp(double value) {
+        return Math.min(maxLimit, Math.max(minLimit, value));
+    }
+
+    /**
+     * The latency of a timer between two updates.
+     */
+    private static class LatencySignal {
+
+        private long previousCount;
+
+        private double previousTotalTime;
+
+        // in ns, 0 until the first sample
+        private double baseline;
+
+        /**
+         * Records a sample of the timer.
+         *
+         * @param count     the count of the timer
+         * @param totalTime the total time of the timer
+         * @return the gradient, the ratio between the tolerated latency and the latency, NaN if there is no sample
+         */
+        private double sample(long count, double totalTime) {
+            long deltaCount = count - previousCount;
+            double deltaTotalTime = totalTime - previousTotalTime;
+            previousCount = count;
+            previousTotalTime = totalTime;
+            if (deltaCount <= 0 || deltaTotalTime <= 0) {
+                return Double.NaN;
+            }
+
+            double latency = deltaTotalTime / deltaCount;
+            if (baseline == 0) {
+                baseline = latency;
+            } else {
+                baseline = baseline * (1 - BASELINE_SMOOTHING) + latency * BASELINE_SMOOTHING;
+            }
+            return Math.max(MIN_GRADIENT, Math.min(1.0, baseline * TOLERANCE / latency));
+        }
+    }
+}
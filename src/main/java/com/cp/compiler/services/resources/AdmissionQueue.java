@@ -0,0 +1,421 @@
+package com.cp.compiler.services.resources;
+
+import com.cp.compiler.exceptions.AdmissionTimeoutException;
+import com.cp.compiler.exceptions.CompilerThrottlingException;
+import com.cp.compiler.exceptions.DeadlineExceededException;
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.Priority;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * The type Admission queue.
+ * Executions wait here for resources instead of being throttled right away. Waiting executions are admitted
+ * by priority class, then fairly between users (the user holding the fewest containers first), then in arrival
+ * order. A user can also be limited to a max number of containers, and each language to a max number of
+ * executions (bulkheads). A request is throttled only when the queue, or the queue of its language bulkhead,
+ * is full, and fails once it waited more than the max wait. The executions that do not wait for resources
+ * (consumed from the messaging systems, see {@link Execution#isWaitForResources()}) are throttled right away,
+ * their messages are retried later instead of holding the consumers.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Component
+public class AdmissionQueue {
+
+    // Waiters also check the resources periodically in case a release signal is missed
+    private static final long RESOURCES_CHECK_INTERVAL = 100; // in ms
+
+    private final Resources resources;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int capacity;
+
+    private final long maxWait;
+
+    private final int maxContainersPerUser;
+
+    private final Bulkheads bulkheads;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition resourcesChanged = lock.newCondition();
+
+    private final Comparator<Waiter> order = Comparator.comparing(Waiter::getPriority)
+            .thenComparingInt(waiter -> waiter.getUser().getContainers())
+            .thenComparingLong(Waiter::getSequence);
+
+    private final List<Waiter> waiters = new ArrayList<>();
+
+    // User id -> share, only the users having waiting or running executions are kept.
+    // The executions without user id share the null key, the meters are not tagged by user to stay bounded
+    private final Map<String, UserShare> users = new HashMap<>();
+
+    // Execution id -> admission
+    private final Map<String, Admission> admissions = new HashMap<>();
+
+    private final Map<Priority, Integer> depthByPriority = new EnumMap<>(Priority.class);
+
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+
+    private long sequence;
+
+    private Counter throttlingCounter;
+
+    private Counter timeoutCounter;
+
+    private Timer userServiceTimer;
+
+    private final DeadlineShedder deadlineShedder;
+
+    private final Map<Bulkhead, Counter> bulkheadRejectionCounters = new HashMap<>();
+
+    /**
+     * Instantiates a new Admission queue.
+     *
+     * @param resources     the resources
+     * @param meterRegistry the meter registry
+     * @param capacity      the max number of waiting executions
+     * @param maxWait       the max time an execution waits for resources in ms
+     * @param maxContainersPerUser the max number of containers held by the executions of a user, 0 for unlimited
+     * @param bulkheads     the bulkheads of the languages
+     * @param deadlineShedder the deadline shedder
+     */
+    public AdmissionQueue(Resources resources,
+                          MeterRegistry meterRegistry,
+                          @Value("${compiler.admission.queue-capacity:100}") int capacity,
+                          @Value("${compiler.admission.max-wait:30000}") long maxWait,
+                          @Value("${compiler.admission.max-containers-per-user:0}") int maxContainersPerUser,
+                          Bulkheads bulkheads,
+                          DeadlineShedder deadlineShedder) {
+        this.resources = resources;
+        this.meterRegistry = meterRegistry;
+        this.capacity = capacity;
+        this.maxWait = maxWait;
+        this.maxContainersPerUser = maxContainersPerUser;
+        this.bulkheads = bulkheads;
+        this.deadlineShedder = deadlineShedder;
+    }
+
+    /**
+     * Init.
+     */
+    @PostConstruct
+    public void init() {
+        throttlingCounter = meterRegistry.counter(WellKnownMetrics.THROTTLING_COUNTER_NAME);
+        timeoutCounter = meterRegistry.counter(WellKnownMetrics.ADMISSION_QUEUE_TIMEOUT_COUNTER);
+        userServiceTimer = meterRegistry.timer(WellKnownMetrics.ADMISSION_QUEUE_USER_SERVICE_TIMER);
+        Gauge.builder(WellKnownMetrics.ADMISSION_QUEUE_USERS_GAUGE, () -> read(users::size))
+                .description("Current number of users having waiting or running executions")
+                .register(meterRegistry);
+        Gauge.builder(WellKnownMetrics.ADMISSION_QUEUE_USER_MAX_DEPTH_GAUGE,
+                        () -> read(() -> max(UserShare::getWaiting)))
+                .description("Largest number of executions of a single user waiting for resources")
+                .register(meterRegistry);
+        Gauge.builder(WellKnownMetrics.ADMISSION_QUEUE_USER_MAX_IN_FLIGHT_GAUGE,
+                        () -> read(() -> max(UserShare::getContainers)))
+                .description("Largest number of containers held by the executions of a single user")
+                .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            depthByPriority.put(priority, 0);
+            waitTimers.put(priority, meterRegistry.timer(
+                    WellKnownMetrics.ADMISSION_QUEUE_WAIT_TIMER, "priority", priority.name().toLowerCase()));
+            Gauge.builder(WellKnownMetrics.ADMISSION_QUEUE_DEPTH_GAUGE, () -> getDepth(priority))
+                    .tag("priority", priority.name().toLowerCase())
+                    .description("Current number of executions waiting for resources")
+                    .register(meterRegistry);
+        }
+        for (Bulkhead bulkhead : bulkheads.getAll()) {
+            String language = bulkhead.getLanguage().name().toLowerCase();
+            bulkheadRejectionCounters.put(bulkhead,
+                    meterRegistry.counter(WellKnownMetrics.BULKHEAD_REJECTION_COUNTER, "language", language));
+            Gauge.builder(WellKnownMetrics.BULKHEAD_RUNNING_GAUGE, () -> read(bulkhead::getRunning))
+                    .tag("language", language)
+                    .description("Current number of running executions of a language")
+                    .register(meterRegistry);
+            Gauge.builder(WellKnownMetrics.BULKHEAD_WAITING_GAUGE, () -> read(bulkhead::getWaiting))
+                    .tag("language", language)
+                    .description("Current number of executions of a language waiting for resources")
+                    .register(meterRegistry);
+            Gauge.builder(WellKnownMetrics.BULKHEAD_SATURATION_GAUGE, () -> read(() -> saturation(bulkhead)))
+                    .tag("language", language)
+                    .description("Running executions of a language in percent of its limit, 0 when it's unlimited")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Waits until the execution can run and reserves its resources.
+     *
+     * @param execution the execution
+     * @throws CompilerThrottlingException if the queue is full, or if the execution can't run right away
+     *                                     and does not wait for resources
+     * @throws AdmissionTimeoutException   if the execution waited more than the max wait
+     * @throws DeadlineExceededException    if the deadline of the execution passed while waiting
+     */
+    public void acquire(Execution execution) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            UserShare user = users.computeIfAbsent(execution.getUserId(), UserShare::new);
+            Bulkhead bulkhead = bulkheads.get(execution.getLanguage());
+            var waiter = new Waiter(execution.getPriority(), sequence++, user, bulkhead);
+
+            // Do not overtake the executions already waiting, unless their users hold more containers
+            if (canRun(waiter, execution)) {
+                admit(execution, user, bulkhead, start);
+                return;
+            }
+
+            if (!execution.isWaitForResources() || waiters.size() >= capacity || bulkhead.isQueueFull()) {
+                removeIfIdle(user);
+                throttlingCounter.increment();
+                String errorMessage = "Request has been throttled, service reached maximum resources usage";
+                if (execution.isWaitForResources() && bulkhead.isQueueFull()) {
+                    bulkheadRejectionCounters.get(bulkhead).increment();
+                    errorMessage = "Request has been throttled, too many " + bulkhead.getLanguage() + " executions";
+                }
+                log.warn(errorMessage);
+                throw new CompilerThrottlingException(errorMessage);
+            }
+
+            waiters.add(waiter);
+            user.waiting++;
+            bulkhead.onWait();
+            depthByPriority.merge(waiter.getPriority(), 1, Integer::sum);
+            log.info("Waiting for resources, priority: {}, queue depth: {}, user queue depth: {}, user containers: {}",
+                    waiter.getPriority(), waiters.size(), user.getWaiting(), user.getContainers());
+
+            try {
+                long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWait);
+                while (!canRun(waiter, execution)) {
+                    if (execution.isExpired()) {
+                        throw deadlineShedder.shed(
+                                execution, DeadlineShedder.QUEUE_STAGE, execution.getTestCases().size());
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCounter.increment();
+                        String errorMessage = "Request has been throttled, no resources became available after "
+                                + maxWait + " ms";
+                        log.warn(errorMessage);
+                        throw new AdmissionTimeoutException(errorMessage);
+                    }
+                    resourcesChanged.await(
+                            Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(RESOURCES_CHECK_INTERVAL)),
+                            TimeUnit.NANOSECONDS);
+                }
+                admit(execution, user, bulkhead, start);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new AdmissionTimeoutException("Interrupted while waiting for resources");
+            } finally {
+                waiters.remove(waiter);
+                user.waiting--;
+                bulkhead.onWaitEnd();
+                removeIfIdle(user);
+                depthByPriority.merge(waiter.getPriority(), -1, Integer::sum);
+                // The next waiter may be able to run
+                resourcesChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the resources of an execution and wakes up the waiting executions.
+     *
+     * @param execution the execution
+     */
+    public void release(Execution execution) {
+        resources.cleanup(execution);
+        lock.lock();
+        try {
+            Admission admission = admissions.remove(execution.getId());
+            if (admission != null) {
+                UserShare user = admission.getUser();
+                user.containers -= admission.getContainers();
+                admission.getBulkhead().onEnd();
+                userServiceTimer.record(System.nanoTime() - admission.getStart(), TimeUnit.NANOSECONDS);
+                removeIfIdle(user);
+            }
+            resourcesChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of waiting executions.
+     *
+     * @return the depth
+     */
+    public int getDepth() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int getDepth(Priority priority) {
+        lock.lock();
+        try {
+            return depthByPriority.get(priority);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of waiting executions of a user.
+     *
+     * @param userId the user id, null for the executions without user id
+     * @return the depth
+     */
+    public int getDepth(String userId) {
+        lock.lock();
+        try {
+            UserShare user = users.get(userId);
+            return user == null ? 0 : user.getWaiting();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of containers held by the running executions of a user.
+     *
+     * @param userId the user id, null for the executions without user id
+     * @return the number of containers
+     */
+    public int getContainers(String userId) {
+        lock.lock();
+        try {
+            UserShare user = users.get(userId);
+            return user == null ? 0 : user.getContainers();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must be called with the lock held
+    private boolean canRun(Waiter waiter, Execution execution) {
+        if (!isUnderTheLimits(waiter)) {
+            return false;
+        }
+        // The waiters blocked by their own limits do not block the others
+        for (Waiter other : waiters) {
+            if (other != waiter && isUnderTheLimits(other) && order.compare(other, waiter) < 0) {
+                return false;
+            }
+        }
+        return resources.allowNewExecution(execution);
+    }
+
+    private boolean isUnderTheLimits(Waiter waiter) {
+        boolean userIsUnderTheLimit = maxContainersPerUser <= 0
+                || waiter.getUser().getContainers() < maxContainersPerUser;
+        return userIsUnderTheLimit && !waiter.getBulkhead().isFull();
+    }
+
+    private void admit(Execution execution, UserShare user, Bulkhead bulkhead, long start) {
+        int counter = resources.reserveResources(execution);
+        int containers = Math.max(1, resources.getTestCaseSlots(execution));
+        user.containers += containers;
+        bulkhead.onStart();
+        admissions.put(execution.getId(), new Admission(user, bulkhead, containers, System.nanoTime()));
+        waitTimers.get(execution.getPriority()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("New request, total: {}, maxRequests: {}, user containers: {}",
+                counter, resources.getMaxRequests(), user.getContainers());
+    }
+
+    // Must be called with the lock held
+    private int max(ToIntFunction<UserShare> value) {
+        return users.values().stream().mapToInt(value).max().orElse(0);
+    }
+
+    private int read(IntSupplier value) {
+        lock.lock();
+        try {
+            return value.getAsInt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int saturation(Bulkhead bulkhead) {
+        return bulkhead.getMaxExecutions() > 0 ? 100 * bulkhead.getRunning() / bulkhead.getMaxExecutions() : 0;
+    }
+
+    private void removeIfIdle(UserShare user) {
+        if (user.getWaiting() == 0 && user.getContainers() == 0) {
+            users.remove(user.getUserId());
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Waiter {
+
+        private final Priority priority;
+
+        private final long sequence;
+
+        private final UserShare user;
+
+        private final Bulkhead bulkhead;
+    }
+
+    @Getter
+    private static class UserShare {
+
+        private final String userId;
+
+        private int waiting;
+
+        private int containers;
+
+        private UserShare(String userId) {
+            this.userId = userId;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Admission {
+
+        private final UserShare user;
+
+        private final Bulkhead bulkhead;
+
+        private final int containers;
+
+        private final long start;
+    }
+}
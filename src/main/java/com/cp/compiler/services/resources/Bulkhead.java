@@ -0,0 +1,74 @@
+package com.cp.compiler.services.resources;
+
+import com.cp.compiler.models.Language;
+import lombok.Getter;
+
+/**
+ * The type Bulkhead.
+ * Bounds the executions of a language, under the global limits, so that a slow toolchain
+ * cannot take all the resources. It's not thread safe, it's guarded by the admission queue lock.
+ *
+ * @author Zakaria Maaraki
+ */
+@Getter
+public class Bulkhead {
+
+    private final Language language;
+
+    // 0 for unlimited
+    private final int maxExecutions;
+
+    // 0 for unlimited (bounded by the admission queue capacity)
+    private final int queueCapacity;
+
+    private int running;
+
+    private int waiting;
+
+    /**
+     * Instantiates a new Bulkhead.
+     *
+     * @param language      the language, null for the executions of any language
+     * @param maxExecutions the max number of executions of the language running concurrently, 0 for unlimited
+     * @param queueCapacity the max number of executions of the language waiting for resources, 0 for unlimited
+     */
+    public Bulkhead(Language language, int maxExecutions, int queueCapacity) {
+        this.language = language;
+        this.maxExecutions = maxExecutions;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Is full boolean.
+     *
+     * @return true if no more executions of the language can run
+     */
+    public boolean isFull() {
+        return maxExecutions > 0 && running >= maxExecutions;
+    }
+
+    /**
+     * Is queue full boolean.
+     *
+     * @return true if no more executions of the language can wait
+     */
+    public boolean isQueueFull() {
+        return queueCapacity > 0 && waiting >= queueCapacity;
+    }
+
+    void onWait() {
+        waiting++;
+    }
+
+    void onWaitEnd() {
+        waiting--;
+    }
+
+    void onStart() {
+        running++;
+    }
+
+    void onEnd() {
+        running--;
+    }
+}
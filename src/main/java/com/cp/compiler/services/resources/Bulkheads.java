@@ -0,0 +1,52 @@
+package com.cp.compiler.services.resources;
+
+import com.cp.compiler.models.Language;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The type Bulkheads.
+ * The bulkhead of each language, the languages without a configured bulkhead are only bounded by the global limits.
+ *
+ * @author Zakaria Maaraki
+ */
+public class Bulkheads {
+
+    private final Map<Language, Bulkhead> bulkheads = new EnumMap<>(Language.class);
+
+    // Used when the language is unknown
+    private final Bulkhead unbounded = new Bulkhead(null, 0, 0);
+
+    /**
+     * Instantiates a new Bulkheads.
+     *
+     * @param bulkheads the bulkheads
+     */
+    public Bulkheads(Collection<Bulkhead> bulkheads) {
+        for (Language language : Language.values()) {
+            this.bulkheads.put(language, new Bulkhead(language, 0, 0));
+        }
+        bulkheads.forEach(bulkhead -> this.bulkheads.put(bulkhead.getLanguage(), bulkhead));
+    }
+
+    /**
+     * Gets the bulkhead of a language.
+     *
+     * @param language the language
+     * @return the bulkhead
+     */
+    public Bulkhead get(Language language) {
+        return language == null ? unbounded : bulkheads.get(language);
+    }
+
+    /**
+     * Gets all the bulkheads.
+     *
+     * @return the bulkheads
+     */
+    public Collection<Bulkhead> getAll() {
+        return bulkheads.values();
+    }
+}
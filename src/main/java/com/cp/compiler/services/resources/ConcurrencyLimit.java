@@ -0,0 +1,16 @@
+package com.cp.compiler.services.resources;
+
+/**
+ * The interface Concurrency limit.
+ *
+ * @author Zakaria Maaraki
+ */
+public interface ConcurrencyLimit {
+    
+    /**
+     * Gets the max number of executions running concurrently.
+     *
+     * @return the limit
+     */
+    int getLimit();
+}
@@ -0,0 +1,83 @@
+package com.cp.compiler.services.resources;
+
+import com.cp.compiler.exceptions.DeadlineExceededException;
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * The type Deadline shedder.
+ * Drops the executions whose deadline passed, the caller is no longer waiting for them,
+ * and reports the work saved by the stage at which they were dropped.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Component
+public class DeadlineShedder {
+    
+    /**
+     * The stage of an execution arriving after its deadline.
+     */
+    public static final String ADMISSION_STAGE = "admission";
+    
+    /**
+     * The stage of an execution waiting for resources.
+     */
+    public static final String QUEUE_STAGE = "queue";
+    
+    /**
+     * The stage of an execution before its compilation.
+     */
+    public static final String COMPILATION_STAGE = "compilation";
+    
+    /**
+     * The stage of an execution running its test cases.
+     */
+    public static final String EXECUTION_STAGE = "execution";
+    
+    private final MeterRegistry meterRegistry;
+    
+    /**
+     * Instantiates a new Deadline shedder.
+     *
+     * @param meterRegistry the meter registry
+     */
+    public DeadlineShedder(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+    
+    /**
+     * Drops the execution if its deadline passed.
+     *
+     * @param execution          the execution
+     * @param stage              the stage of the execution
+     * @param remainingTestCases the number of test cases that will not run
+     * @throws DeadlineExceededException if the deadline passed
+     */
+    public void checkDeadline(Execution execution, String stage, int remainingTestCases) {
+        if (execution.isExpired()) {
+            throw shed(execution, stage, remainingTestCases);
+        }
+    }
+    
+    /**
+     * Drops the execution.
+     *
+     * @param execution          the execution
+     * @param stage              the stage of the execution
+     * @param remainingTestCases the number of test cases that will not run
+     * @return the exception to throw
+     */
+    public DeadlineExceededException shed(Execution execution, String stage, int remainingTestCases) {
+        meterRegistry.counter(WellKnownMetrics.DEADLINE_SHED_COUNTER, "stage", stage).increment();
+        meterRegistry.counter(WellKnownMetrics.DEADLINE_SHED_TEST_CASES_COUNTER, "stage", stage)
+                .increment(remainingTestCases);
+        String errorMessage = "The deadline of the request passed at the " + stage + " stage, "
+                + remainingTestCases + " test cases skipped";
+        log.warn(errorMessage);
+        return new DeadlineExceededException(errorMessage);
+    }
+}
@@ -0,0 +1,214 @@
+package com.cp.compiler.services.resources;
+
+import com.cp.compiler.utils.SystemUtils;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The type Host pressure monitor.
+ * Samples the pressure stall information of the host (/proc/pressure) and the memory usage of the cgroup
+ * at a fixed rate, so that new executions are held while the host is saturated, whatever the cause
+ * (image builds, other processes...).
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Component
+public class HostPressureMonitor {
+
+    /**
+     * The sampled pressures.
+     */
+    public enum Pressure {
+        /**
+         * Share of time tasks waited for the cpu, in percent.
+         */
+        CPU,
+        /**
+         * Share of time tasks waited for memory, in percent.
+         */
+        MEMORY,
+        /**
+         * Share of time tasks waited for io, in percent.
+         */
+        IO,
+        /**
+         * Memory used by the cgroup, in percent of its limit.
+         */
+        CGROUP_MEMORY
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean enabled;
+
+    private final long interval;
+
+    // 0 for no threshold
+    private final Map<Pressure, Double> thresholds = new EnumMap<>(Pressure.class);
+
+    // NaN when not available
+    private final Map<Pressure, Double> values = new EnumMap<>(Pressure.class);
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean underPressure;
+
+    /**
+     * Instantiates a new Host pressure monitor.
+     *
+     * @param meterRegistry         the meter registry
+     * @param enabled               true to sample the pressure
+     * @param interval              the interval between two samples in ms
+     * @param cpuThreshold          the cpu pressure beyond which new executions are held, 0 for none
+     * @param memoryThreshold       the memory pressure beyond which new executions are held, 0 for none
+     * @param ioThreshold           the io pressure beyond which new executions are held, 0 for none
+     * @param cgroupMemoryThreshold the cgroup memory usage beyond which new executions are held, 0 for none
+     */
+    public HostPressureMonitor(MeterRegistry meterRegistry,
+                               @Value("${compiler.pressure.enabled:false}") boolean enabled,
+                               @Value("${compiler.pressure.interval:5000}") long interval,
+                               @Value("${compiler.pressure.thresholds.cpu:0}") double cpuThreshold,
+                               @Value("${compiler.pressure.thresholds.memory:0}") double memoryThreshold,
+                               @Value("${compiler.pressure.thresholds.io:0}") double ioThreshold,
+                               @Value("${compiler.pressure.thresholds.cgroup-memory:0}") double cgroupMemoryThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.interval = interval;
+        thresholds.put(Pressure.CPU, cpuThreshold);
+        thresholds.put(Pressure.MEMORY, memoryThreshold);
+        thresholds.put(Pressure.IO, ioThreshold);
+        thresholds.put(Pressure.CGROUP_MEMORY, cgroupMemoryThreshold);
+        for (Pressure pressure : Pressure.values()) {
+            values.put(pressure, Double.NaN);
+        }
+    }
+
+    /**
+     * A monitor that never samples, the host is never considered under pressure.
+     *
+     * @return the host pressure monitor
+     */
+    public static HostPressureMonitor disabled() {
+        return new HostPressureMonitor(null, false, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Init.
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        for (Pressure pressure : Pressure.values()) {
+            Gauge.builder(WellKnownMetrics.HOST_PRESSURE_GAUGE, () -> getValue(pressure))
+                    .tag("resource", pressure.name().toLowerCase().replace('_', '-'))
+                    .description("Pressure of the host, in percent")
+                    .register(meterRegistry);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "host-pressure-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                sample();
+            } catch (RuntimeException exception) {
+                log.warn("Could not sample the host pressure", exception);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Sampling the host pressure every {} ms, thresholds: {}", interval, thresholds);
+    }
+
+    /**
+     * Stop.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Is under pressure boolean.
+     *
+     * @return true if a pressure crossed its threshold at the last sample
+     */
+    public boolean isUnderPressure() {
+        return underPressure;
+    }
+
+    /**
+     * Gets the last sampled value of a pressure.
+     *
+     * @param pressure the pressure
+     * @return the value, NaN if it's not available
+     */
+    public synchronized double getValue(Pressure pressure) {
+        return values.get(pressure);
+    }
+
+    /**
+     * Samples the pressures of the host.
+     */
+    void sample() {
+        sample(Pressure.CPU, () -> SystemUtils.getPressure("cpu"));
+        sample(Pressure.MEMORY, () -> SystemUtils.getPressure("memory"));
+        sample(Pressure.IO, () -> SystemUtils.getPressure("io"));
+        sample(Pressure.CGROUP_MEMORY, SystemUtils::getCgroupMemoryUsage);
+        updateUnderPressure();
+    }
+
+    /**
+     * Records a sampled value.
+     *
+     * @param pressure the pressure
+     * @param value    the value
+     */
+    synchronized void record(Pressure pressure, double value) {
+        values.put(pressure, value);
+    }
+
+    /**
+     * Compares the sampled values to the thresholds.
+     */
+    synchronized void updateUnderPressure() {
+        boolean wasUnderPressure = underPressure;
+        boolean isUnderPressure = false;
+        for (Pressure pressure : Pressure.values()) {
+            double threshold = thresholds.get(pressure);
+            double value = values.get(pressure);
+            if (threshold > 0 && !Double.isNaN(value) && value >= threshold) {
+                isUnderPressure = true;
+                if (!wasUnderPressure) {
+                    log.warn("Holding new executions, {} pressure: {}%, threshold: {}%", pressure, value, threshold);
+                }
+            }
+        }
+        if (wasUnderPressure && !isUnderPressure) {
+            log.info("The host is no longer under pressure");
+        }
+        underPressure = isUnderPressure;
+    }
+
+    private void sample(Pressure pressure, Supplier<Optional<Double>> sampler) {
+        record(pressure, sampler.get().orElse(Double.NaN));
+    }
+}
@@ -1,5 +1,6 @@
 package com.cp.compiler.services.resources;
 
+import com.cp.compiler.executions.Execution;
 import com.cp.compiler.models.resources.AvailableResources;
 
 /**
@@ -8,53 +9,78 @@ import com.cp.compiler.models.resources.AvailableResources;
  * @author Zakaria Maaraki
  */
 public interface Resources {
-    
+
     /**
      * Gets max cpus.
      *
      * @return the max cpus
      */
     float getMaxCpus();
-    
+
     /**
      * Allow new execution boolean.
      *
-     * @return the boolean
+     * @param execution the execution
+     * @return true if the resources needed by the execution are available
      */
-    boolean allowNewExecution();
-    
+    boolean allowNewExecution(Execution execution);
+
     /**
-     * Increment number of executions.
+     * Reserve the resources of an execution (cpus and memory, weighted by its memory limit, language
+     * and number of test cases).
      *
+     * @param execution the execution
      * @return the number of current executions
      */
-    int reserveResources();
-    
+    int reserveResources(Execution execution);
+
     /**
-     * Decrement number of executions.
+     * Release the resources of an execution.
      *
+     * @param execution the execution
      * @return the number of current executions
      */
-    int cleanup();
-    
+    int cleanup(Execution execution);
+
+    /**
+     * Gets the number of test cases of an execution that can run concurrently, reserved with the execution.
+     *
+     * @param execution the execution
+     * @return the number of test cases the execution is allowed to run concurrently, at least 1
+     */
+    int getTestCaseSlots(Execution execution);
+
     /**
      * Number of executions int.
      *
      * @return the number of current executions
      */
     int getNumberOfExecutions();
-    
+
     /**
      * Max requests int.
      *
      * @return max parallel allowed requests
      */
     int getMaxRequests();
-    
+
     /**
      * Gets available resources.
      *
      * @return the available resources
      */
     AvailableResources getAvailableResources();
+
+    /**
+     * Gets the number of executions the cpus can run at once.
+     *
+     * @return the cpus of the host divided by the max cpus of a container, the number of processors if it's not set
+     */
+    default int getCpuSlots() {
+        AvailableResources availableResources = getAvailableResources();
+        float totalCpus = availableResources.getAvailableCpus() + availableResources.getReservedCpus();
+        return getMaxCpus() > 0
+                ? (int) (totalCpus / getMaxCpus())
+                : Runtime.getRuntime().availableProcessors();
+    }
 }
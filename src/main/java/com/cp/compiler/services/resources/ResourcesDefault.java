@@ -1,87 +1,194 @@
 package com.cp.compiler.services.resources;
 
+import com.cp.compiler.executions.Execution;
 import com.cp.compiler.models.resources.AvailableResources;
-import lombok.Getter;
+import com.cp.compiler.models.resources.ResourceReservation;
+import com.cp.compiler.utils.SystemUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * The type Resources default.
+ * Each execution reserves cpus and memory against the capacity of the host, weighted by its memory limit,
+ * the memory overhead of its language runtime and the number of its test cases that can run concurrently.
+ * New executions are also held while the host is under pressure.
  *
  * @author Zakaria Maaraki
  */
+@Slf4j
 @Component
 public class ResourcesDefault implements Resources {
-    
 
     private final Float maxCpus;
-    
-    private AtomicInteger executionsCounter = new AtomicInteger(0);
-    
-    @Getter
-    private final int maxRequests;
-    
+
+    private final ConcurrencyLimit concurrencyLimit;
+
+    private final HostPressureMonitor hostPressureMonitor;
+
+    private final int maxParallelTestCases;
+
+    private final boolean batchExecutionEnabled;
+
+    private final float totalCpus;
+
+    // Memory that can be reserved by the executions in MB
+    private final long totalMemory;
+
+    // Execution id -> reservation
+    private final Map<String, ResourceReservation> reservations = new HashMap<>();
+
+    private float reservedCpus;
+
+    private long reservedMemory;
+
     /**
-     * Instantiates a new Resources default.
+     * Instantiates a new Resources default, running the test cases sequentially and detecting the host memory.
      *
      * @param maxCpus     the max cpus
      * @param maxRequests the max requests
      */
-    public ResourcesDefault(@Value("${compiler.execution.max-cpus}")float maxCpus,
-                            @Value("${compiler.max-requests}")int maxRequests) {
+    public ResourcesDefault(float maxCpus, int maxRequests) {
+        this(maxCpus, new StaticConcurrencyLimit(maxRequests), 1, false, 0, 0, HostPressureMonitor.disabled());
+    }
+
+    /**
+     * Instantiates a new Resources default.
+     *
+     * @param maxCpus               the max cpus of a container
+     * @param concurrencyLimit      the max number of executions running concurrently
+     * @param maxParallelTestCases  the max number of test cases of an execution running concurrently
+     * @param batchExecutionEnabled true if all test cases of an execution run in one container
+     * @param maxMemory             the memory of the host in MB, 0 to read it from the cgroup limit or /proc/meminfo
+     * @param systemReservedMemory  the memory in MB that is never reserved by executions (the app, the os...)
+     * @param hostPressureMonitor   the host pressure monitor
+     */
+    @Autowired
+    public ResourcesDefault(@Value("${compiler.execution.max-cpus}") float maxCpus,
+                            ConcurrencyLimit concurrencyLimit,
+                            @Value("${compiler.execution.max-parallel-test-cases:1}") int maxParallelTestCases,
+                            @Value("${compiler.execution.batch.enabled:false}") boolean batchExecutionEnabled,
+                            @Value("${compiler.resources.max-memory:0}") long maxMemory,
+                            @Value("${compiler.resources.system-reserved-memory:512}") long systemReservedMemory,
+                            HostPressureMonitor hostPressureMonitor) {
         this.maxCpus = maxCpus;
-        this.maxRequests = maxRequests;
+        this.concurrencyLimit = concurrencyLimit;
+        this.hostPressureMonitor = hostPressureMonitor;
+        this.maxParallelTestCases = Math.max(1, maxParallelTestCases);
+        this.batchExecutionEnabled = batchExecutionEnabled;
+        this.totalCpus = SystemUtils.getCpus();
+        long hostMemory = maxMemory > 0 ? maxMemory : SystemUtils.getTotalMemory();
+        this.totalMemory = Math.max(0, hostMemory - systemReservedMemory);
+        log.info("Resources available for executions: {} cpus, {} MB", totalCpus, totalMemory);
     }
-    
+
     @Override
     public float getMaxCpus() {
-        return maxCpus == 0f ? getSystemCpus() : maxCpus;
+        return maxCpus == 0f ? SystemUtils.getCpus() : maxCpus;
     }
-    
+
     @Override
-    public boolean allowNewExecution() {
-        return executionsCounter.get() < maxRequests && cpuIsAvailable();
+    public synchronized boolean allowNewExecution(Execution execution) {
+        // The host pressure only limits the additional executions, an execution is always admitted on an idle host
+        return reservations.size() < getMaxRequests()
+                && (reservations.isEmpty() || !hostPressureMonitor.isUnderPressure())
+                && fits(execution, 1);
     }
-    
-    private boolean cpuIsAvailable() {
-        return maxCpus == 0f || maxCpus * executionsCounter.get() < getSystemCpus();
+
+    @Override
+    public int getMaxRequests() {
+        return concurrencyLimit.getLimit();
     }
-    
+
     @Override
-    public int reserveResources() {
-        return executionsCounter.incrementAndGet();
+    public synchronized int reserveResources(Execution execution) {
+        // The test cases of the execution run concurrently only if there are enough resources
+        int containers = getRequestedContainers(execution);
+        while (containers > 1 && !fits(execution, containers)) {
+            containers--;
+        }
+        var reservation = new ResourceReservation(
+                containers,
+                getCpusPerContainer() * containers,
+                getMemoryPerContainer(execution) * containers);
+
+        ResourceReservation previousReservation = reservations.put(execution.getId(), reservation);
+        if (previousReservation != null) {
+            release(previousReservation);
+        }
+        reservedCpus += reservation.getCpus();
+        reservedMemory += reservation.getMemory();
+        return reservations.size();
     }
-    
+
     @Override
-    public int cleanup() {
-        if (executionsCounter.get() == 0) {
-            return 0;
+    public synchronized int cleanup(Execution execution) {
+        ResourceReservation reservation = reservations.remove(execution.getId());
+        if (reservation != null) {
+            release(reservation);
         }
-        return executionsCounter.decrementAndGet();
+        return reservations.size();
     }
-    
+
     @Override
-    public int getNumberOfExecutions() {
-        return executionsCounter.get();
+    public synchronized int getTestCaseSlots(Execution execution) {
+        ResourceReservation reservation = reservations.get(execution.getId());
+        return reservation == null ? 1 : reservation.getContainers();
     }
-    
+
     @Override
-    public AvailableResources getAvailableResources() {
-        
-        int numberOfExecutions = getNumberOfExecutions();
-        float availableCpus = getSystemCpus() - (numberOfExecutions * maxCpus);
-        
+    public synchronized int getNumberOfExecutions() {
+        return reservations.size();
+    }
+
+    @Override
+    public synchronized AvailableResources getAvailableResources() {
         return AvailableResources
                 .builder()
-                .availableCpus(availableCpus)
+                .availableCpus(totalCpus - reservedCpus)
+                .reservedCpus(reservedCpus)
+                .totalMemory(totalMemory)
+                .reservedMemory(reservedMemory)
+                .availableMemory(totalMemory - reservedMemory)
                 .maxNumberOfExecutions(getMaxRequests())
-                .currentExecutions(numberOfExecutions)
+                .currentExecutions(reservations.size())
                 .build();
     }
-    
-    private float getSystemCpus() {
-        return Runtime.getRuntime().availableProcessors();
+
+    private boolean fits(Execution execution, int containers) {
+        // An execution is always admitted on an idle host, even if it asks for more than the capacity
+        if (reservations.isEmpty() && containers == 1) {
+            return true;
+        }
+        boolean memoryIsAvailable = reservedMemory + getMemoryPerContainer(execution) * containers <= totalMemory;
+        // When the cpus of the containers are not limited, only the additional containers are bounded by the cpus
+        boolean cpuIsAvailable = (maxCpus == 0f && containers == 1)
+                || reservedCpus + getCpusPerContainer() * containers <= totalCpus;
+        return memoryIsAvailable && cpuIsAvailable;
+    }
+
+    private void release(ResourceReservation reservation) {
+        reservedCpus -= reservation.getCpus();
+        reservedMemory -= reservation.getMemory();
+    }
+
+    private int getRequestedContainers(Execution execution) {
+        if (batchExecutionEnabled || execution.getTestCases() == null) {
+            return 1;
+        }
+        return Math.max(1, Math.min(maxParallelTestCases, execution.getTestCases().size()));
+    }
+
+    // When the cpus of a container are not limited, a container is considered to use one cpu
+    private float getCpusPerContainer() {
+        return maxCpus == 0f ? 1f : maxCpus;
+    }
+
+    private long getMemoryPerContainer(Execution execution) {
+        return (long) execution.getMemoryLimit() + execution.getLanguage().getRuntimeMemoryOverhead();
     }
 }
@@ -0,0 +1,32 @@
+package com.cp.compiler.services.resources;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * The type Static concurrency limit.
+ * The limit is the configured max number of requests.
+ *
+ * @author Zakaria Maaraki
+ */
+@Component
+@ConditionalOnProperty(name = "compiler.adaptive-limit.enabled", havingValue = "false", matchIfMissing = true)
+public class StaticConcurrencyLimit implements ConcurrencyLimit {
+    
+    private final int maxRequests;
+    
+    /**
+     * Instantiates a new Static concurrency limit.
+     *
+     * @param maxRequests the max requests
+     */
+    public StaticConcurrencyLimit(@Value("${compiler.max-requests}") int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+    
+    @Override
+    public int getLimit() {
+        return maxRequests;
+    }
+}
@@ -0,0 +1,155 @@
+package com.cp.compiler.services.runners;
+
+import com.cp.compiler.exceptions.ContainerOperationTimeoutException;
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.containers.ContainerInfo;
+import com.cp.compiler.models.processes.ProcessOutput;
+import com.cp.compiler.services.businesslogic.ContainerHelper;
+import com.cp.compiler.services.containers.ContainerService;
+import com.cp.compiler.services.resources.Resources;
+import com.cp.compiler.wellknownconstants.WellKnownFiles;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiFunction;
+
+/**
+ * The type Image test case runner.
+ * Builds one container image per execution, then runs one container per test case from that image.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "compiler.execution.mode", havingValue = "image", matchIfMissing = true)
+public class ImageTestCaseRunner implements TestCaseRunner {
+
+    /**
+     * The execution container name prefix
+     */
+    private static final String EXECUTION_CONTAINER_NAME_PREFIX = "execution-";
+
+    private final ContainerService containerService;
+
+    private final Resources resources;
+
+    private final ExecutorService cleanupExecutor;
+
+    /**
+     * Instantiates a new Image test case runner.
+     *
+     * @param containerService the container service
+     * @param resources        the resources
+     * @param cleanupExecutor  the executor deleting the containers and images
+     */
+    public ImageTestCaseRunner(ContainerService containerService,
+                               Resources resources,
+                               @Qualifier("cleanupExecutor") ExecutorService cleanupExecutor) {
+        this.containerService = containerService;
+        this.resources = resources;
+        this.cleanupExecutor = cleanupExecutor;
+    }
+
+    /**
+     * Build execution container image.
+     * Note: We should create one and only one Container image for all test cases to save Memory, Cpu,
+     * and reduce the execution duration.
+     *
+     * @param execution the execution
+     */
+    @Override
+    public void prepare(Execution execution) {
+
+        execution.createEntrypointFiles(); // Creates an entrypoint file for each test case
+
+        containerService.buildImage(
+                execution.getPath(),
+                execution.getImageName(),
+                WellKnownFiles.EXECUTION_DOCKERFILE_NAME);
+    }
+
+    @Override
+    public ProcessOutput run(Execution execution, String testCaseId, long timeout) {
+        return runContainer(execution, testCaseId, (containerName, envVariables) -> containerService.runContainer(
+                execution.getImageName(),
+                containerName,
+                timeout,
+                resources.getMaxCpus(),
+                envVariables));
+    }
+
+    @Override
+    public ProcessOutput runBatch(Execution execution, long timeout, long maxOutputSize) {
+        String testCaseId = WellKnownFiles.BATCH_ENTRYPOINT_ID;
+        return runContainer(execution, testCaseId, (containerName, envVariables) -> containerService.runContainer(
+                execution.getImageName(),
+                containerName,
+                timeout,
+                resources.getMaxCpus(),
+                maxOutputSize,
+                envVariables));
+    }
+
+    private ProcessOutput runContainer(Execution execution,
+                                       String testCaseId,
+                                       BiFunction<String, Map<String, String>, ProcessOutput> containerRun) {
+
+        String containerName = getExecutionContainerName(execution.getImageName(), testCaseId);
+
+        Map<String, String> envVariables = new HashMap<>() {{
+            put(TEST_CASE_ID_ENV_VARIABLE, testCaseId);
+        }};
+
+        try {
+            log.info("Start running the container: {}", containerName);
+            ProcessOutput containerOutput = containerRun.apply(containerName, envVariables);
+
+            // Inspect the container to get info about it
+            ContainerInfo containerInfo =  containerService.inspect(containerName);
+            ContainerHelper.logContainerInfo(containerName, containerInfo);
+
+            containerOutput.setExecutionDuration(ContainerHelper.getExecutionDuration(
+                    containerInfo == null ? null : containerInfo.getStartTime(),
+                    containerInfo == null ? null : containerInfo.getEndTime(),
+                    containerOutput.getExecutionDuration()));
+
+            return containerOutput;
+
+        } catch(ContainerOperationTimeoutException exception) {
+            ContainerInfo containerInfo =  containerService.inspect(containerName);
+            ContainerHelper.logContainerInfo(containerName, containerInfo);
+            throw exception;
+        } finally {
+            ContainerHelper.deleteContainer(containerName, containerService, cleanupExecutor);
+        }
+    }
+
+    @Override
+    public void cancel(Execution execution, String testCaseId) {
+        // Removing the container kills it
+        String containerName = getExecutionContainerName(execution.getImageName(), testCaseId);
+        ContainerHelper.deleteContainer(containerName, containerService, cleanupExecutor);
+    }
+
+    @Override
+    public void release(Execution execution, boolean deleteImageAfterExecution) {
+        // Delete container image asynchronously
+        if (deleteImageAfterExecution) {
+            ContainerHelper.deleteImage(execution.getImageName(), containerService, cleanupExecutor);
+        }
+    }
+
+    @Override
+    public String getExecutionMode() {
+        return "image";
+    }
+
+    private String getExecutionContainerName(String imageName, String testCaseId) {
+        return EXECUTION_CONTAINER_NAME_PREFIX + testCaseId + "-" + imageName;
+    }
+}
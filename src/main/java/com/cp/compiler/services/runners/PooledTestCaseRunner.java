@@ -0,0 +1,185 @@
+package com.cp.compiler.services.runners;
+
+import com.cp.compiler.exceptions.ProcessExecutionTimeoutException;
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.processes.ProcessOutput;
+import com.cp.compiler.services.containers.ContainerService;
+import com.cp.compiler.services.containers.DockerContainerService;
+import com.cp.compiler.services.containers.ExecutionContainerPool;
+import com.cp.compiler.wellknownconstants.WellKnownFiles;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The type Pooled test case runner.
+ * Takes a pre-warmed container from the pool, copies the execution files inside it
+ * and executes the entrypoint of each test case in it, no image is built.
+ * Stopping a docker exec that timed out does not stop its process inside the container, so the container is destroyed
+ * and the next test cases of the execution run in a new one, the test cases that were running in the destroyed
+ * container are run again.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "compiler.execution.mode", havingValue = "pool")
+public class PooledTestCaseRunner implements TestCaseRunner {
+
+    private final ContainerService containerService;
+
+    private final ExecutionContainerPool executionContainerPool;
+
+    private static final String CANCELLED_TEST_CASE_ID_ENV_VARIABLE = "CANCELLED_TEST_CASE_ID";
+
+    // Kills the processes of the cancelled test case, they are the ones that inherited its test case id variable
+    private static final String KILL_TEST_CASE_COMMAND = "for process in /proc/[0-9]*; do "
+            + "tr '\\0' '\\n' 2>/dev/null < \"$process/environ\" "
+            + "| grep -qxF \"" + TEST_CASE_ID_ENV_VARIABLE + "=$" + CANCELLED_TEST_CASE_ID_ENV_VARIABLE + "\" "
+            + "&& kill -9 \"${process#/proc/}\" 2>/dev/null; done; true";
+
+    // Execution id -> container name
+    private final Map<String, String> acquiredContainers = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new Pooled test case runner.
+     *
+     * @param containerService       the container service
+     * @param executionContainerPool the execution container pool
+     */
+    public PooledTestCaseRunner(ContainerService containerService, ExecutionContainerPool executionContainerPool) {
+        this.containerService = containerService;
+        this.executionContainerPool = executionContainerPool;
+    }
+
+    @Override
+    public void prepare(Execution execution) {
+
+        execution.createEntrypointFiles(); // Creates an entrypoint file for each test case
+
+        acquireContainer(execution);
+    }
+
+    @Override
+    public ProcessOutput run(Execution execution, String testCaseId, long timeout) {
+        return execTestCase(execution, testCaseId, containerName -> containerService.execInContainer(
+                containerName,
+                timeout,
+                Map.of(TEST_CASE_ID_ENV_VARIABLE, testCaseId),
+                getEntrypointCommand(testCaseId)));
+    }
+
+    @Override
+    public ProcessOutput runBatch(Execution execution, long timeout, long maxOutputSize) {
+        String testCaseId = WellKnownFiles.BATCH_ENTRYPOINT_ID;
+        return execTestCase(execution, testCaseId, containerName -> containerService.execInContainer(
+                containerName,
+                timeout,
+                maxOutputSize,
+                Map.of(TEST_CASE_ID_ENV_VARIABLE, testCaseId),
+                getEntrypointCommand(testCaseId)));
+    }
+
+    private ProcessOutput execTestCase(Execution execution,
+                                       String testCaseId,
+                                       Function<String, ProcessOutput> containerExec) {
+        String containerName = acquiredContainers.get(execution.getId());
+        if (containerName == null) {
+            // The container has been discarded after a timeout
+            containerName = replaceContainer(execution);
+        }
+        log.info("Start running the test case {} in the container: {}", testCaseId, containerName);
+        ProcessOutput output;
+        try {
+            output = containerExec.apply(containerName);
+        } catch (ProcessExecutionTimeoutException exception) {
+            discardContainer(execution, containerName);
+            throw exception;
+        }
+        if (!containerName.equals(acquiredContainers.get(execution.getId()))) {
+            log.info("The container {} has been discarded while running the test case {}, running it again",
+                    containerName, testCaseId);
+            return execTestCase(execution, testCaseId, containerExec);
+        }
+        return output;
+    }
+
+    private static String[] getEntrypointCommand(String testCaseId) {
+        return new String[] {
+                "/bin/sh",
+                "-c",
+                "./" + WellKnownFiles.ENTRYPOINT_FILE_NAME_PREFIX + testCaseId + WellKnownFiles.ENTRYPOINT_FILE_EXTENSION};
+    }
+
+    @Override
+    public void cancel(Execution execution, String testCaseId) {
+        // The test cases of an execution share the same container, only the processes of this test case are killed.
+        // The test case id is passed as a variable, it is never interpolated in the command.
+        String containerName = acquiredContainers.get(execution.getId());
+        if (containerName == null) {
+            // The container has been discarded, its processes are killed with it
+            return;
+        }
+        log.info("Killing the test case {} in the container: {}", testCaseId, containerName);
+        try {
+            containerService.execInContainer(
+                    containerName,
+                    DockerContainerService.COMMAND_TIMEOUT,
+                    Map.of(CANCELLED_TEST_CASE_ID_ENV_VARIABLE, testCaseId),
+                    "/bin/sh",
+                    "-c",
+                    KILL_TEST_CASE_COMMAND);
+        } catch (RuntimeException exception) {
+            // The container is destroyed on release, which kills the test case anyway
+            log.warn("Could not kill the test case {} in the container {}", testCaseId, containerName, exception);
+        }
+    }
+
+    @Override
+    public void release(Execution execution, boolean deleteImageAfterExecution) {
+        // No image is built in this mode
+        String containerName = acquiredContainers.remove(execution.getId());
+        if (containerName != null) {
+            executionContainerPool.release(execution.getLanguage(), containerName);
+        }
+    }
+
+    @Override
+    public String getExecutionMode() {
+        return "pool";
+    }
+
+    private String acquireContainer(Execution execution) {
+        String containerName = executionContainerPool.acquire(execution.getLanguage());
+        acquiredContainers.put(execution.getId(), containerName);
+        log.info("Container {} acquired for the execution {}", containerName, execution.getId());
+
+        try {
+            containerService.copyToContainer(
+                    execution.getPath(),
+                    containerName,
+                    DockerContainerService.SANDBOX_WORKING_DIRECTORY);
+        } catch (RuntimeException exception) {
+            release(execution, false);
+            throw exception;
+        }
+        return containerName;
+    }
+
+    // Only after a timeout, the concurrent test cases of the execution wait for the same new container
+    private synchronized String replaceContainer(Execution execution) {
+        String containerName = acquiredContainers.get(execution.getId());
+        return containerName != null ? containerName : acquireContainer(execution);
+    }
+
+    private void discardContainer(Execution execution, String containerName) {
+        if (acquiredContainers.remove(execution.getId(), containerName)) {
+            log.info("The container {} timed out, it is destroyed", containerName);
+            executionContainerPool.discard(execution.getLanguage(), containerName);
+        }
+    }
+}
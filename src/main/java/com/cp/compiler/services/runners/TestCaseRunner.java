@@ -0,0 +1,70 @@
+package com.cp.compiler.services.runners;
+
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.processes.ProcessOutput;
+
+/**
+ * The interface Test case runner.
+ * It defines how the test cases of an execution are run inside containers (the execution mode).
+ *
+ * @author Zakaria Maaraki
+ */
+public interface TestCaseRunner {
+
+    /**
+     * The env variable holding the id of the test case to run.
+     */
+    String TEST_CASE_ID_ENV_VARIABLE = "TEST_CASE_ID";
+
+    /**
+     * Prepare the execution environment, called once before running the test cases.
+     *
+     * @param execution the execution
+     */
+    void prepare(Execution execution);
+
+    /**
+     * Run the entrypoint of a test case.
+     *
+     * @param execution  the execution
+     * @param testCaseId the test case id
+     * @param timeout    the timeout
+     * @return the process output, its execution duration is the duration of the program
+     * @throws com.cp.compiler.exceptions.ContainerOperationTimeoutException if the timeout is exceeded
+     */
+    ProcessOutput run(Execution execution, String testCaseId, long timeout);
+
+    /**
+     * Run the batch entrypoint running all test cases of the execution, its output holds the results of each one.
+     *
+     * @param execution     the execution
+     * @param timeout       the timeout
+     * @param maxOutputSize the max number of bytes read from the standard output, it grows with the test cases
+     * @return the process output of the batch harness
+     * @throws com.cp.compiler.exceptions.ContainerOperationTimeoutException if the timeout is exceeded
+     */
+    ProcessOutput runBatch(Execution execution, long timeout, long maxOutputSize);
+
+    /**
+     * Cancel a test case that is still running, once killed the pending call to run returns.
+     *
+     * @param execution  the execution
+     * @param testCaseId the test case id
+     */
+    void cancel(Execution execution, String testCaseId);
+
+    /**
+     * Release the execution environment, called once all test cases are run.
+     *
+     * @param execution                 the execution
+     * @param deleteImageAfterExecution the delete image after execution
+     */
+    void release(Execution execution, boolean deleteImageAfterExecution);
+
+    /**
+     * Gets the execution mode name.
+     *
+     * @return the execution mode name
+     */
+    String getExecutionMode();
+}
@@ -0,0 +1,163 @@
+package com.cp.compiler.services.runners;
+
+import com.cp.compiler.exceptions.ContainerOperationTimeoutException;
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.containers.ContainerInfo;
+import com.cp.compiler.models.processes.ProcessOutput;
+import com.cp.compiler.services.businesslogic.ContainerHelper;
+import com.cp.compiler.services.containers.ContainerService;
+import com.cp.compiler.services.containers.DockerContainerService;
+import com.cp.compiler.services.resources.Resources;
+import com.cp.compiler.wellknownconstants.WellKnownFiles;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiFunction;
+
+/**
+ * The type Volume test case runner.
+ * Runs one container per test case from the stock runtime image of the language, the execution directory
+ * is mounted read only and the entrypoint is passed directly, so no image is built nor deleted.
+ * Only the directory of the execution is mounted, the untrusted code can't read the other executions nor the files
+ * of the app, so when the app runs inside a container its volume should be given as a host path.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "compiler.execution.mode", havingValue = "volume")
+public class VolumeTestCaseRunner implements TestCaseRunner {
+
+    /**
+     * The execution container name prefix
+     */
+    private static final String EXECUTION_CONTAINER_NAME_PREFIX = "execution-";
+
+    private final ContainerService containerService;
+
+    private final Resources resources;
+
+    private final ExecutorService cleanupExecutor;
+
+    // If the app is running inside a container, we should share the same volume (host path) with the execution containers.
+    @Value("${compiler.compilation-container.volume:}")
+    private String executionContainerVolume;
+
+    /**
+     * Instantiates a new Volume test case runner.
+     *
+     * @param containerService the container service
+     * @param resources        the resources
+     * @param cleanupExecutor  the executor deleting the containers and images
+     */
+    public VolumeTestCaseRunner(ContainerService containerService,
+                                Resources resources,
+                                @Qualifier("cleanupExecutor") ExecutorService cleanupExecutor) {
+        this.containerService = containerService;
+        this.resources = resources;
+        this.cleanupExecutor = cleanupExecutor;
+    }
+
+    @Override
+    public void prepare(Execution execution) {
+        execution.createEntrypointFiles(); // Creates an entrypoint file for each test case
+    }
+
+    @Override
+    public ProcessOutput run(Execution execution, String testCaseId, long timeout) {
+        return runContainer(execution, testCaseId, (containerName, volumeMounting) ->
+                containerService.runSandboxedContainer(
+                        execution.getLanguage().getRuntimeImage(),
+                        containerName,
+                        timeout,
+                        resources.getMaxCpus(),
+                        volumeMounting,
+                        DockerContainerService.SANDBOX_WORKING_DIRECTORY,
+                        Map.of(TEST_CASE_ID_ENV_VARIABLE, testCaseId),
+                        getEntrypointCommand(testCaseId)));
+    }
+
+    @Override
+    public ProcessOutput runBatch(Execution execution, long timeout, long maxOutputSize) {
+        String testCaseId = WellKnownFiles.BATCH_ENTRYPOINT_ID;
+        return runContainer(execution, testCaseId, (containerName, volumeMounting) ->
+                containerService.runSandboxedContainer(
+                        execution.getLanguage().getRuntimeImage(),
+                        containerName,
+                        timeout,
+                        resources.getMaxCpus(),
+                        maxOutputSize,
+                        volumeMounting,
+                        DockerContainerService.SANDBOX_WORKING_DIRECTORY,
+                        Map.of(TEST_CASE_ID_ENV_VARIABLE, testCaseId),
+                        getEntrypointCommand(testCaseId)));
+    }
+
+    private static String[] getEntrypointCommand(String testCaseId) {
+        return new String[] {
+                "/bin/sh",
+                "-c",
+                "./" + WellKnownFiles.ENTRYPOINT_FILE_NAME_PREFIX + testCaseId + WellKnownFiles.ENTRYPOINT_FILE_EXTENSION};
+    }
+
+    private ProcessOutput runContainer(Execution execution,
+                                       String testCaseId,
+                                       BiFunction<String, String, ProcessOutput> containerRun) {
+
+        String containerName = getExecutionContainerName(execution, testCaseId);
+
+        final String volume = executionContainerVolume == null || executionContainerVolume.isEmpty()
+                ? System.getProperty("user.dir")
+                : executionContainerVolume;
+
+        String volumeMounting = volume + "/" + execution.getPath() + ":" + DockerContainerService.SANDBOX_WORKING_DIRECTORY;
+
+        try {
+            log.info("Start running the container: {}", containerName);
+            ProcessOutput containerOutput = containerRun.apply(containerName, volumeMounting);
+
+            // Inspect the container to get info about it
+            ContainerInfo containerInfo =  containerService.inspect(containerName);
+            ContainerHelper.logContainerInfo(containerName, containerInfo);
+
+            containerOutput.setExecutionDuration(ContainerHelper.getExecutionDuration(
+                    containerInfo == null ? null : containerInfo.getStartTime(),
+                    containerInfo == null ? null : containerInfo.getEndTime(),
+                    containerOutput.getExecutionDuration()));
+
+            return containerOutput;
+
+        } catch(ContainerOperationTimeoutException exception) {
+            ContainerInfo containerInfo =  containerService.inspect(containerName);
+            ContainerHelper.logContainerInfo(containerName, containerInfo);
+            throw exception;
+        } finally {
+            ContainerHelper.deleteContainer(containerName, containerService, cleanupExecutor);
+        }
+    }
+
+    @Override
+    public void cancel(Execution execution, String testCaseId) {
+        // Removing the container kills it
+        ContainerHelper.deleteContainer(getExecutionContainerName(execution, testCaseId), containerService, cleanupExecutor);
+    }
+
+    @Override
+    public void release(Execution execution, boolean deleteImageAfterExecution) {
+        // No image is built in this mode
+    }
+
+    @Override
+    public String getExecutionMode() {
+        return "volume";
+    }
+
+    private String getExecutionContainerName(Execution execution, String testCaseId) {
+        return EXECUTION_CONTAINER_NAME_PREFIX + testCaseId + "-" + execution.getExecutionFolderName();
+    }
+}
@@ -8,18 +8,23 @@ import com.cp.compiler.models.Verdict;
 import com.cp.compiler.models.containers.ContainerInfo;
 import com.cp.compiler.models.processes.ProcessOutput;
 import com.cp.compiler.services.businesslogic.ContainerHelper;
+import com.cp.compiler.services.cache.CompilationCache;
 import com.cp.compiler.services.containers.ContainerService;
+import com.cp.compiler.services.resources.DeadlineShedder;
 import com.cp.compiler.services.resources.Resources;
+import com.cp.compiler.services.runners.TestCaseRunner;
 import com.cp.compiler.utils.StatusUtils;
 import com.cp.compiler.wellknownconstants.WellKnownMetrics;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -49,6 +54,8 @@ public class CompiledLanguagesExecutionStrategy extends ExecutionStrategy {
     
     private final ContainerService containerService;
     
+    private final CompilationCache compilationCache;
+    
     /**
      * The compilation container name prefix
      */
@@ -57,16 +64,27 @@ public class CompiledLanguagesExecutionStrategy extends ExecutionStrategy {
     /**
      * Instantiates a new Compiled languages execution strategy.
      *
-     * @param containerService the container service
-     * @param meterRegistry    the meter registry
-     * @param resources        the resources
+     * @param containerService  the container service
+     * @param meterRegistry     the meter registry
+     * @param testCaseRunner    the test case runner
+     * @param resources         the resources
+     * @param compilationCache  the compilation cache
+     * @param deadlineShedder   the deadline shedder
+     * @param cleanupExecutor   the executor deleting the containers and images
+     * @param testCasesExecutor the executor running the test cases in parallel
      */
     public CompiledLanguagesExecutionStrategy(ContainerService containerService,
                                               MeterRegistry meterRegistry,
-                                              Resources resources) {
-        super(containerService, meterRegistry, resources);
+                                              TestCaseRunner testCaseRunner,
+                                              Resources resources,
+                                              CompilationCache compilationCache,
+                                              DeadlineShedder deadlineShedder,
+                                              @Qualifier("cleanupExecutor") ExecutorService cleanupExecutor,
+                                              @Qualifier("testCasesExecutor") ExecutorService testCasesExecutor) {
+        super(meterRegistry, testCaseRunner, resources, deadlineShedder, cleanupExecutor, testCasesExecutor);
         this.containerService = containerService;
         this.meterRegistry = meterRegistry;
+        this.compilationCache = compilationCache;
     }
     
     /**
@@ -81,8 +99,18 @@ public class CompiledLanguagesExecutionStrategy extends ExecutionStrategy {
     @Override
     public CompilationResponse compile(Execution execution) {
         
+        deadlineShedder.checkDeadline(execution, DeadlineShedder.COMPILATION_STAGE, execution.getTestCases().size());
+        
         // repository name must be lowercase
         String compilationImageName = IMAGE_PREFIX_NAME + execution.getLanguage().toString().toLowerCase();
+        
+        return compilationCache.compile(
+                execution,
+                compilationImageName,
+                () -> compileInContainer(execution, compilationImageName));
+    }
+    
+    private CompilationResponse compileInContainer(Execution execution, String compilationImageName) {
     
         // If the app is running inside a container, we should share the same volume with the compilation container.
         final String volume = compilationContainerVolume.isEmpty()
@@ -114,7 +142,7 @@ public class CompiledLanguagesExecutionStrategy extends ExecutionStrategy {
                                                     containerInfo == null ? null : containerInfo.getEndTime(),
                                                     compilationDuration);
     
-        ContainerHelper.deleteContainer(containerName, containerService, threadPool);
+        ContainerHelper.deleteContainer(containerName, containerService, cleanupExecutor);
         
         return CompilationResponse
                 .builder()
@@ -5,28 +5,41 @@ import com.cp.compiler.executions.Execution;
 import com.cp.compiler.models.CompilationResponse;
 import com.cp.compiler.models.ExecutionResponse;
 import com.cp.compiler.models.Verdict;
-import com.cp.compiler.models.containers.ContainerInfo;
 import com.cp.compiler.models.processes.ProcessOutput;
 import com.cp.compiler.models.testcases.ConvertedTestCase;
 import com.cp.compiler.models.testcases.TestCaseResult;
 import com.cp.compiler.services.businesslogic.ContainerHelper;
-import com.cp.compiler.services.containers.ContainerService;
+import com.cp.compiler.services.resources.DeadlineShedder;
 import com.cp.compiler.services.resources.Resources;
-import com.cp.compiler.utils.CmdUtils;
+import com.cp.compiler.services.runners.TestCaseRunner;
+import com.cp.compiler.utils.BatchUtils;
+import com.cp.compiler.utils.OutputComparator;
 import com.cp.compiler.utils.StatusUtils;
-import com.cp.compiler.wellknownconstants.WellKnownFiles;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 
+import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
 /**
  * The type Execution strategy.
@@ -43,37 +56,60 @@ public abstract class ExecutionStrategy {
     
     private static final Map<String, Counter> verdictsCounters = new HashMap<>();
     
-    private final ContainerService containerService;
-    
     /**
-     * The Thread pool.
+     * The executor deleting the containers and images asynchronously.
      */
-    protected final ExecutorService threadPool;
+    protected final ExecutorService cleanupExecutor;
+    
+    private final ExecutorService testCasesExecutor;
     
     private static final long EXECUTION_TIME_OUT = 20000; // in ms
     
-    private final Resources resources;
+    // Result line of the batch harness without its outputs: prefix, index, status and duration
+    private static final long BATCH_RESULT_LINE_OVERHEAD = 64;
     
-    private static final String TEST_CASE_ID_ENV_VARIABLE = "TEST_CASE_ID";
+    private final TestCaseRunner testCaseRunner;
+    
+    private final Resources resources;
     
     /**
-     * The execution container name prefix
+     * The Deadline shedder.
      */
-    private static final String EXECUTION_CONTAINER_NAME_PREFIX = "execution-";
+    protected final DeadlineShedder deadlineShedder;
+    
+    @Value("${compiler.execution.max-parallel-test-cases:1}")
+    private int maxParallelTestCases;
+    
+    @Value("${compiler.execution.batch.enabled:false}")
+    private boolean batchExecutionEnabled;
+    
+    @Value("${compiler.execution.output.max-size:16777216}")
+    private long maxOutputSize;
+    
+    @Value("${compiler.execution.output.max-error-size:1048576}")
+    private long maxErrorSize;
     
     /**
      * Instantiates a new Execution strategy.
      *
-     * @param containerService the container service
-     * @param meterRegistry    the meter registry
-     * @param resources        the resources
+     * @param meterRegistry     the meter registry
+     * @param testCaseRunner    the test case runner
+     * @param resources         the resources
+     * @param deadlineShedder   the deadline shedder
+     * @param cleanupExecutor   the executor deleting the containers and images
+     * @param testCasesExecutor the executor running the test cases in parallel
      */
-    protected ExecutionStrategy(ContainerService containerService,
-                                MeterRegistry meterRegistry,
-                                Resources resources) {
-        this.containerService = containerService;
-        this.threadPool = Executors.newCachedThreadPool();
+    protected ExecutionStrategy(MeterRegistry meterRegistry,
+                                TestCaseRunner testCaseRunner,
+                                Resources resources,
+                                DeadlineShedder deadlineShedder,
+                                ExecutorService cleanupExecutor,
+                                ExecutorService testCasesExecutor) {
+        this.cleanupExecutor = cleanupExecutor;
+        this.testCasesExecutor = testCasesExecutor;
+        this.testCaseRunner = testCaseRunner;
         this.resources = resources;
+        this.deadlineShedder = deadlineShedder;
     
         // Init verdict counter
         Arrays.stream(Verdict.values())
@@ -89,23 +125,6 @@ public abstract class ExecutionStrategy {
      */
     public abstract CompilationResponse compile(Execution execution);
     
-    /**
-     * Build execution container image.
-     * Note: We should create one and only one Container image for all test cases to save Memory, Cpu,
-     * and reduce the execution duration.
-     *
-     * @param execution the execution
-     */
-    protected void buildContainerImage(Execution execution) {
-        
-        execution.createEntrypointFiles(); // Creates an entrypoint file for each test case
-
-        containerService.buildImage(
-                execution.getPath(),
-                execution.getImageName(),
-                WellKnownFiles.EXECUTION_DOCKERFILE_NAME);
-    }
-    
     /**
      * Run execution response.
      *
@@ -115,37 +134,35 @@ public abstract class ExecutionStrategy {
      */
     public ExecutionResponse run(Execution execution, boolean deleteImageAfterExecution) {
         
-        buildContainerImage(execution);
+        deadlineShedder.checkDeadline(execution, DeadlineShedder.EXECUTION_STAGE, execution.getTestCases().size());
+        
+        if (batchExecutionEnabled) {
+            // Runs all test cases in one container
+            execution.createBatchEntrypointFile(maxOutputSize, maxErrorSize);
+        }
+        
+        testCaseRunner.prepare(execution);
     
         var testCasesResult = new LinkedHashMap<String, TestCaseResult>();
+    
+        try {
+            if (batchExecutionEnabled) {
+                runTestCasesInBatch(execution, testCasesResult);
+            } else {
+                runTestCases(execution, testCasesResult);
+            }
+        } finally {
+            testCaseRunner.release(execution, deleteImageAfterExecution);
+        }
+        
         Verdict verdict = null;
         String err = "";
-    
-        for (ConvertedTestCase testCase : execution.getTestCases()) {
-    
-            TestCaseResult testCaseResult = executeTestCase(execution, testCase);
-    
-            testCasesResult.put(testCase.getTestCaseId(), testCaseResult);
-            
+        for (TestCaseResult testCaseResult : testCasesResult.values()) {
             verdict = testCaseResult.getVerdict();
-        
-            log.info("Status response for the test case {} is {}", testCase.getTestCaseId(), verdict.getStatusResponse());
-        
-            // Update metrics
-            verdictsCounters.get(verdict.getStatusResponse()).increment();
-        
             if (verdict != Verdict.ACCEPTED) {
-                // Don't continue if the current test case failed
-                log.info("Test case id: {} failed, abort executions", testCase.getTestCaseId());
                 err = testCaseResult.getError();
-                break;
             }
         }
-    
-        // Delete container image asynchronously
-        if (deleteImageAfterExecution) {
-            ContainerHelper.deleteImage(execution.getImageName(), containerService, threadPool);
-        }
         
         return ExecutionResponse
                 .builder()
@@ -155,6 +172,280 @@ public abstract class ExecutionStrategy {
                 .build();
     }
     
+    private void runTestCases(Execution execution, Map<String, TestCaseResult> testCasesResult) {
+        
+        // The containers of the concurrent test cases have been reserved with the execution at admission
+        int requestedSlots = Math.min(maxParallelTestCases, execution.getTestCases().size());
+        int parallelism = requestedSlots > 1 ? Math.min(requestedSlots, resources.getTestCaseSlots(execution)) : 1;
+        if (parallelism > 1) {
+            runTestCasesInParallel(execution, testCasesResult, parallelism);
+            return;
+        }
+        
+        List<ConvertedTestCase> testCases = execution.getTestCases();
+        for (int i = 0; i < testCases.size(); i++) {
+            
+            deadlineShedder.checkDeadline(execution, DeadlineShedder.EXECUTION_STAGE, testCases.size() - i);
+            
+            ConvertedTestCase testCase = testCases.get(i);
+            TestCaseResult testCaseResult = executeTestCase(execution, testCase);
+            
+            if (!addTestCaseResult(execution, testCasesResult, testCase.getTestCaseId(), testCaseResult)) {
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Run the test cases with at most the given number of concurrent containers.
+     * Results are the same as the sequential run: once a test case fails, the running test cases after it are
+     * cancelled, the ones before it are waited for, and the results stop at the first failure in the test cases order.
+     * A result is added as soon as the test cases before it are done.
+     * When the test cases executor is saturated, the parallelism is lowered to the test cases already running,
+     * or the test case runs on the calling thread if none is running.
+     */
+    @SneakyThrows
+    private void runTestCasesInParallel(Execution execution,
+                                        Map<String, TestCaseResult> testCasesResult,
+                                        int parallelism) {
+        
+        List<ConvertedTestCase> testCases = execution.getTestCases();
+        
+        log.info("Start running {} test cases with {} concurrent containers", testCases.size(), parallelism);
+        
+        int slots = parallelism;
+        
+        var results = new TestCaseResult[testCases.size()];
+        var failures = new RuntimeException[testCases.size()];
+        var completed = new boolean[testCases.size()];
+        var completionService = new ExecutorCompletionService<Integer>(testCasesExecutor);
+        var running = new TreeSet<Integer>();
+        int firstFailure = testCases.size();
+        int next = 0;
+        int added = 0;
+        boolean failed = false;
+        
+        try {
+            while (next < testCases.size() || !running.isEmpty()) {
+                
+                if (execution.isExpired()) {
+                    running.forEach(index -> testCaseRunner.cancel(execution, testCases.get(index).getTestCaseId()));
+                    throw deadlineShedder.shed(
+                            execution, DeadlineShedder.EXECUTION_STAGE, testCases.size() - next + running.size());
+                }
+                
+                // Fill the free slots, test cases are started in order
+                Integer ranOnCallerThread = null;
+                while (next < firstFailure && running.size() < slots) {
+                    final int index = next++;
+                    running.add(index);
+                    Callable<Integer> testCaseTask = () -> {
+                        try {
+                            results[index] = executeTestCase(execution, testCases.get(index));
+                        } catch (RuntimeException exception) {
+                            failures[index] = exception;
+                        }
+                        return index;
+                    };
+                    try {
+                        completionService.submit(testCaseTask);
+                    } catch (RejectedExecutionException exception) {
+                        // The executor is shared by the executions, go on with the test cases already running
+                        slots = Math.max(1, running.size() - 1);
+                        log.warn("The test cases executor is saturated, {} concurrent containers", slots);
+                        if (running.size() > 1) {
+                            running.remove(index);
+                            next--;
+                        } else {
+                            ranOnCallerThread = testCaseTask.call();
+                        }
+                        break;
+                    }
+                }
+                
+                if (running.isEmpty()) {
+                    break;
+                }
+                
+                int index = ranOnCallerThread != null ? ranOnCallerThread : completionService.take().get();
+                
+                if (!running.remove(index)) {
+                    continue; // cancelled, its failure is expected
+                }
+                if (failures[index] != null) {
+                    running.forEach(other -> testCaseRunner.cancel(execution, testCases.get(other).getTestCaseId()));
+                    throw failures[index];
+                }
+                completed[index] = true;
+                
+                if (results[index].getVerdict() != Verdict.ACCEPTED && index < firstFailure) {
+                    firstFailure = index;
+                    log.info("Test case id: {} failed, cancel the test cases running after it",
+                            testCases.get(index).getTestCaseId());
+                    for (int cancelled : running.tailSet(index, false)) {
+                        testCaseRunner.cancel(execution, testCases.get(cancelled).getTestCaseId());
+                    }
+                    running.tailSet(index, false).clear();
+                }
+                
+                // Add the results in the test cases order
+                while (!failed && added < testCases.size() && completed[added]) {
+                    String testCaseId = testCases.get(added).getTestCaseId();
+                    failed = !addTestCaseResult(execution, testCasesResult, testCaseId, results[added]);
+                    added++;
+                }
+            }
+        } catch (ExecutionException exception) {
+            running.forEach(index -> testCaseRunner.cancel(execution, testCases.get(index).getTestCaseId()));
+            throw exception.getCause();
+        } catch (InterruptedException exception) {
+            running.forEach(index -> testCaseRunner.cancel(execution, testCases.get(index).getTestCaseId()));
+            Thread.currentThread().interrupt();
+            throw exception;
+        }
+    }
+    
+    private void runTestCasesInBatch(Execution execution, Map<String, TestCaseResult> testCasesResult) {
+        
+        if (execution.getTestCases().isEmpty()) {
+            return;
+        }
+        
+        log.info("Start running {} test cases in batch", execution.getTestCases().size());
+        
+        var expectedOutputs = new ArrayList<String>();
+        for (ConvertedTestCase testCase : execution.getTestCases()) {
+            expectedOutputs.add(testCase.getExpectedOutput());
+            // Free memory space
+            testCase.freeMemorySpace();
+        }
+        
+        // Each test case is bounded by its own time and output limits inside the harness
+        int testCasesCount = execution.getTestCases().size();
+        long timeout = EXECUTION_TIME_OUT + testCasesCount * (execution.getTimeLimit() + 1) * 1000L;
+        long harnessMaxOutputSize = testCasesCount * (BATCH_RESULT_LINE_OVERHEAD
+                + getBase64Size(maxOutputSize + 1)
+                + getBase64Size(maxErrorSize + 1));
+        
+        // Each result is compared and added as soon as it's read, its output is not kept
+        var added = new AtomicInteger();
+        var failed = new AtomicBoolean();
+        Predicate<ProcessOutput> onResult = output -> {
+            int index = added.getAndIncrement();
+            String testCaseId = execution.getTestCases().get(index).getTestCaseId();
+            executionTimer.record(output.getExecutionDuration(), TimeUnit.MILLISECONDS);
+            TestCaseResult testCaseResult =
+                    getTestCaseResult(execution, testCaseId, output, expectedOutputs.set(index, null));
+            failed.set(!addTestCaseResult(execution, testCasesResult, testCaseId, testCaseResult));
+            return !failed.get() && added.get() < testCasesCount;
+        };
+        
+        String harnessError = "";
+        boolean outputLimitExceeded = false;
+        ContainerOperationTimeoutException timeoutException = null;
+        try (ProcessOutput harnessOutput = testCaseRunner.runBatch(execution, timeout, harnessMaxOutputSize)) {
+            outputLimitExceeded = harnessOutput.isOutputLimitExceeded();
+            parseBatchResults(harnessOutput.openStdOut(), onResult);
+            harnessError = harnessOutput.getStdErr();
+        } catch(ContainerOperationTimeoutException exception) {
+            // The test cases completed before the timeout keep their results
+            log.warn("Time limit exceeded during the batch execution: {}", exception);
+            timeoutException = exception;
+            if (exception.getPartialOutput() != null) {
+                try (ProcessOutput partialOutput = exception.getPartialOutput()) {
+                    parseBatchResults(partialOutput.openStdOut(), onResult);
+                }
+            }
+        }
+        
+        if (failed.get()) {
+            return;
+        }
+        
+        // The test cases without result
+        for (int i = added.get(); i < execution.getTestCases().size(); i++) {
+            
+            String testCaseId = execution.getTestCases().get(i).getTestCaseId();
+            
+            TestCaseResult testCaseResult;
+            if (execution.isExpired()) {
+                // The harness does not start new test cases once the deadline passed
+                throw deadlineShedder.shed(
+                        execution, DeadlineShedder.EXECUTION_STAGE, execution.getTestCases().size() - i);
+            } else if (timeoutException != null) {
+                // The test case running when the harness has been killed, or the whole batch when its output is lost
+                testCaseResult = timeoutException.getPartialOutput() == null
+                        ? new TestCaseResult(
+                                Verdict.TIME_LIMIT_EXCEEDED,
+                                "",
+                                "The batch of test cases exceeded its time limit",
+                                expectedOutputs.get(i),
+                                0)
+                        : getTimeLimitExceededResult(execution, expectedOutputs.get(i));
+            } else {
+                // The harness stopped before running this test case, or has been killed while running it
+                log.warn("No batch result for the test case id = {}, error: {}", testCaseId, harnessError);
+                testCaseResult = new TestCaseResult(
+                        outputLimitExceeded ? Verdict.OUTPUT_LIMIT_EXCEEDED : Verdict.RUNTIME_ERROR,
+                        "",
+                        harnessError,
+                        expectedOutputs.get(i),
+                        0);
+            }
+            
+            if (!addTestCaseResult(execution, testCasesResult, testCaseId, testCaseResult)) {
+                break;
+            }
+        }
+    }
+    
+    @SneakyThrows
+    private void parseBatchResults(Reader harnessStdOut, Predicate<ProcessOutput> onResult) {
+        try (harnessStdOut) {
+            BatchUtils.parseResults(harnessStdOut, maxOutputSize, maxErrorSize, onResult);
+        }
+    }
+    
+    private static long getBase64Size(long size) {
+        return (size + 2) / 3 * 4;
+    }
+    
+    /**
+     * Add the result of a test case, update the metrics and notify the listener of the execution.
+     *
+     * @return false if the test case failed and the remaining ones should not be run (fail fast)
+     */
+    private boolean addTestCaseResult(Execution execution,
+                                      Map<String, TestCaseResult> testCasesResult,
+                                      String testCaseId,
+                                      TestCaseResult testCaseResult) {
+        
+        testCasesResult.put(testCaseId, testCaseResult);
+        
+        if (execution.getTestCaseResultListener() != null) {
+            try {
+                execution.getTestCaseResultListener().onTestCaseResult(execution, testCaseId, testCaseResult);
+            } catch (RuntimeException exception) {
+                // The result is still part of the response
+                log.warn("Could not notify the result of the test case id = {}: {}", testCaseId, exception);
+            }
+        }
+        
+        Verdict verdict = testCaseResult.getVerdict();
+        
+        log.info("Status response for the test case {} is {}", testCaseId, verdict.getStatusResponse());
+        
+        // Update metrics
+        verdictsCounters.get(verdict.getStatusResponse()).increment();
+        
+        if (verdict != Verdict.ACCEPTED) {
+            // Don't continue if the current test case failed
+            log.info("Test case id: {} failed, abort executions", testCaseId);
+            return false;
+        }
+        return true;
+    }
+    
     private TestCaseResult executeTestCase(Execution execution,
                                            ConvertedTestCase testCase) {
         
@@ -176,72 +467,65 @@ public abstract class ExecutionStrategy {
     }
     
     private TestCaseResult runContainer(Execution execution, String testCaseId, String expectedOutput) {
-        
-        String containerName = getExecutionContainerName(execution.getImageName(), testCaseId);
-        
-        Map<String, String> envVariables = new HashMap<>() {{
-            put(TEST_CASE_ID_ENV_VARIABLE, testCaseId);
-        }};
-        
-        try {
-            log.info("Start running the container: {}", containerName);
-            ProcessOutput containerOutput = containerService.runContainer(
-                    execution.getImageName(),
-                    containerName,
-                    EXECUTION_TIME_OUT,
-                    resources.getMaxCpus(),
-                    envVariables);
-            
-            if (!containerOutput.getStdErr().isEmpty()) {
-                log.warn("Potential error occurred during execution of test case id = {}, error: {}",
-                        testCaseId,
-                        containerOutput.getStdErr());
-            }
-            
-            Verdict verdict = getVerdict(containerOutput, expectedOutput);
-            
-            ContainerHelper.cleanStdErrOutput(containerOutput, execution);
-            
-            // Inspect the container to get info about it
-            ContainerInfo containerInfo =  containerService.inspect(containerName);
-            ContainerHelper.logContainerInfo(containerName, containerInfo);
-            
-            int executionDuration = ContainerHelper.getExecutionDuration(
-                    containerInfo == null ? null : containerInfo.getStartTime(),
-                    containerInfo == null ? null : containerInfo.getEndTime(),
-                    containerOutput.getExecutionDuration());
-            
-            return new TestCaseResult(
-                    verdict,
-                    containerOutput.getStdOut(),
-                    containerOutput.getStdErr(),
-                    expectedOutput,
-                    executionDuration);
-            
+        try (ProcessOutput containerOutput = testCaseRunner.run(execution, testCaseId, EXECUTION_TIME_OUT)) {
+            return getTestCaseResult(execution, testCaseId, containerOutput, expectedOutput);
         } catch(ContainerOperationTimeoutException exception) {
             // Should be caught inside the container
             log.warn("Tme limit exceeded during the execution: {}", exception);
-            
-            ContainerInfo containerInfo =  containerService.inspect(containerName);
-            ContainerHelper.logContainerInfo(containerName, containerInfo);
-            
-            return new TestCaseResult(
-                    Verdict.TIME_LIMIT_EXCEEDED,
-                    "",
-                    "The execution exceeded the time limit",
-                    expectedOutput,
-                    execution.getTimeLimit() + 1);
-        } finally {
-            ContainerHelper.deleteContainer(containerName, containerService, threadPool);
+            if (exception.getPartialOutput() != null) {
+                exception.getPartialOutput().close();
+            }
+            return getTimeLimitExceededResult(execution, expectedOutput);
+        }
+    }
+    
+    private TestCaseResult getTestCaseResult(Execution execution,
+                                             String testCaseId,
+                                             ProcessOutput containerOutput,
+                                             String expectedOutput) {
+        
+        if (!containerOutput.getStdErr().isEmpty()) {
+            log.warn("Potential error occurred during execution of test case id = {}, error: {}",
+                    testCaseId,
+                    containerOutput.getStdErr());
         }
+        
+        Verdict verdict = getVerdict(containerOutput, expectedOutput);
+        
+        ContainerHelper.cleanStdErrOutput(containerOutput, execution);
+        
+        return new TestCaseResult(
+                verdict,
+                containerOutput.getStdOut(),
+                containerOutput.getStdErr(),
+                expectedOutput,
+                containerOutput.getExecutionDuration());
     }
     
-    private String getExecutionContainerName(String imageName, String testCaseId) {
-        return EXECUTION_CONTAINER_NAME_PREFIX + testCaseId + "-" + imageName;
+    private TestCaseResult getTimeLimitExceededResult(Execution execution, String expectedOutput) {
+        return new TestCaseResult(
+                Verdict.TIME_LIMIT_EXCEEDED,
+                "",
+                "The execution exceeded the time limit",
+                expectedOutput,
+                execution.getTimeLimit() + 1);
     }
     
+    @SneakyThrows
     private Verdict getVerdict(ProcessOutput containerOutput, String expectedOutput) {
-        boolean result = CmdUtils.compareOutput(containerOutput.getStdOut(), expectedOutput);
+        if (containerOutput.isOutputLimitExceeded()) {
+            // The process has been killed, its status and truncated output are meaningless
+            return Verdict.OUTPUT_LIMIT_EXCEEDED;
+        }
+        long mismatchOffset;
+        try (Reader output = containerOutput.openStdOut()) {
+            // Read until the first mismatch
+            mismatchOffset = OutputComparator.findMismatch(output, expectedOutput);
+        }
+        if (mismatchOffset != OutputComparator.NO_MISMATCH) {
+            log.info("The output differs from the expected output at offset {}", mismatchOffset);
+        }
+        boolean result = mismatchOffset == OutputComparator.NO_MISMATCH;
         return StatusUtils.statusResponse(containerOutput.getStatus(), result);
     }
 }
@@ -3,14 +3,17 @@ package com.cp.compiler.services.strategies;
 import com.cp.compiler.executions.Execution;
 import com.cp.compiler.models.CompilationResponse;
 import com.cp.compiler.models.Verdict;
-import com.cp.compiler.services.containers.ContainerService;
+import com.cp.compiler.services.resources.DeadlineShedder;
 import com.cp.compiler.services.resources.Resources;
+import com.cp.compiler.services.runners.TestCaseRunner;
 import com.cp.compiler.wellknownconstants.WellKnownMetrics;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.util.concurrent.ExecutorService;
 
 /**
  * The type Interpreted languages execution strategy.
@@ -26,14 +29,20 @@ public class InterpretedLanguagesExecutionStrategy extends ExecutionStrategy {
     /**
      * Instantiates a new Interpreted languages execution strategy.
      *
-     * @param containerService the container service
-     * @param meterRegistry    the meter registry
-     * @param resources        the resources
+     * @param meterRegistry     the meter registry
+     * @param testCaseRunner    the test case runner
+     * @param resources         the resources
+     * @param deadlineShedder   the deadline shedder
+     * @param cleanupExecutor   the executor deleting the containers and images
+     * @param testCasesExecutor the executor running the test cases in parallel
      */
-    public InterpretedLanguagesExecutionStrategy(ContainerService containerService,
-                                                 MeterRegistry meterRegistry,
-                                                 Resources resources) {
-        super(containerService, meterRegistry, resources);
+    public InterpretedLanguagesExecutionStrategy(MeterRegistry meterRegistry,
+                                                 TestCaseRunner testCaseRunner,
+                                                 Resources resources,
+                                                 DeadlineShedder deadlineShedder,
+                                                 @Qualifier("cleanupExecutor") ExecutorService cleanupExecutor,
+                                                 @Qualifier("testCasesExecutor") ExecutorService testCasesExecutor) {
+        super(meterRegistry, testCaseRunner, resources, deadlineShedder, cleanupExecutor, testCasesExecutor);
         this.meterRegistry = meterRegistry;
     }
     
@@ -1,8 +1,21 @@
 package com.cp.compiler.streams;
 
+import com.cp.compiler.mappers.ClaimCheck;
 import com.cp.compiler.wellknownconstants.WellKnownMetrics;
 import com.cp.compiler.services.businesslogic.CompilerService;
+import com.cp.compiler.services.resources.Resources;
+import com.cp.compiler.streams.serdes.PayloadSerde;
+import com.cp.compiler.streams.transformers.AsyncCompilerTransformer;
 import com.cp.compiler.streams.transformers.CompilerTransformer;
+import com.cp.compiler.streams.transformers.DecodedPayload;
+import com.cp.compiler.streams.transformers.DelayedRecord;
+import com.cp.compiler.streams.transformers.PayloadDecoder;
+import com.cp.compiler.streams.transformers.RecordRouter;
+import com.cp.compiler.streams.transformers.RetryDelayTransformer;
+import com.cp.compiler.streams.transformers.StateStoreResultsRepository;
+import com.cp.compiler.streams.transformers.StoredResult;
+import com.cp.compiler.streams.transformers.ThrottledRecord;
+import com.cp.compiler.utils.retries.RetryTiers;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
@@ -11,8 +24,9 @@ import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.Produced;
-import org.apache.kafka.streams.kstream.ValueTransformerSupplier;
+import org.apache.kafka.streams.state.Stores;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,11 +34,25 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.support.serializer.JsonSerde;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * The type Kafka streams topology config.
+ * The records whose execution failed go through the retry topics (retry-topic-1 to retry-topic-n, one per delay
+ * of spring.kafka.retry.delays) and end up in the dead letter topic, the retry topics must exist.
+ * With spring.kafka.result-events.enabled, the output topic receives an event per completed test case
+ * then a summary event, keyed by the execution id, instead of the whole response keyed by the record key.
+ * The payloads are JSON by default, a record can be encoded in a binary format and compressed with its content type
+ * and content encoding headers (see {@link PayloadSerde}), its results are encoded in the same way.
+ * The records that can't be decoded are sent as is to the dead letter topic (see {@link PayloadDecoder}).
+ * The large test data are exchanged by blob references (see {@link ClaimCheck}).
  *
  * @author Zakaria Maaraki
  */
@@ -36,10 +64,43 @@ public class KafkaStreamsTopologyConfig {
     
     private final Serde<String> stringSerde = Serdes.String();
     
+    // The payloads are encoded according to their content type and content encoding headers
+    private Serde<String> payloadSerde;
+    
     private final MeterRegistry meterRegistry;
     
     private Counter throttlingRetriesCounter;
     
+    @Value("${spring.kafka.async.enabled:false}")
+    private boolean asyncEnabled;
+    
+    @Value("${spring.kafka.async.max-in-flight:0}")
+    private int maxInFlight;
+    
+    @Value("${spring.kafka.async.poll-interval:100}")
+    private long pollInterval;
+    
+    @Value("${spring.kafka.async.close-timeout:30000}")
+    private long closeTimeout;
+    
+    @Value("${spring.kafka.max-waiting-records:1000}")
+    private int maxWaitingRecords;
+    
+    @Value("${spring.kafka.retry.delays:}")
+    private String retryDelays;
+    
+    @Value("${spring.kafka.retry.poll-interval:1000}")
+    private long retryPollInterval;
+    
+    @Value("${spring.kafka.dedup.time-to-live:3600000}")
+    private long resultsTimeToLive;
+    
+    @Value("${spring.kafka.result-events.enabled:false}")
+    private boolean resultEventsEnabled;
+    
+    @Value("${compiler.payloads.max-decompressed-size:67108864}")
+    private long maxDecompressedSize;
+    
     /**
      * Instantiates a new Kafka streams topology config.
      *
@@ -55,6 +116,7 @@ public class KafkaStreamsTopologyConfig {
     @PostConstruct
     public void init() {
         throttlingRetriesCounter = meterRegistry.counter(WellKnownMetrics.KAFKA_THROTTLING_RETRIES, "broker", "kafka");
+        payloadSerde = new PayloadSerde(maxDecompressedSize);
     }
     
     /**
@@ -62,27 +124,107 @@ public class KafkaStreamsTopologyConfig {
      *
      * @param inputTopic         the input topic
      * @param outputTopic        the output topic
+     * @param retryTopic         the prefix of the retry topics
+     * @param deadLetterTopic    the dead letter topic
      * @param throttlingDuration the throttling duration
      * @param builder            the topology builder
      * @param compilerService    the compiler service
+     * @param resources          the resources
+     * @param claimCheck         the claim check of the large test data
+     * @param executionsExecutor the executor running the executions in async mode
      * @return the topology
      */
     @Bean
     public Topology topology(@Value("${spring.kafka.topics.input-topic}") String inputTopic,
                              @Value("${spring.kafka.topics.output-topic}") String outputTopic,
+                             @Value("${spring.kafka.topics.retry-topic:kafka.topic.retry}") String retryTopic,
+                             @Value("${spring.kafka.topics.dead-letter-topic:kafka.topic.dlt}")
+                                     String deadLetterTopic,
                              @Value("${spring.kafka.throttling-duration}") long throttlingDuration,
                              @Autowired StreamsBuilder builder,
-                             @Qualifier("proxy") @Autowired CompilerService compilerService) {
+                             @Qualifier("proxy") @Autowired CompilerService compilerService,
+                             @Autowired Resources resources,
+                             @Autowired ClaimCheck claimCheck,
+                             @Qualifier("kafkaExecutionsExecutor") @Autowired ExecutorService executionsExecutor) {
         
-        builder.stream(inputTopic, Consumed.with(stringSerde, stringSerde))
-                .transformValues((ValueTransformerSupplier) () -> {
-                    return new CompilerTransformer(compilerService, throttlingDuration, throttlingRetriesCounter);
-                })
-                .to(outputTopic, Produced.with(stringSerde, stringSerde));
+        // Records waiting to be executed (throttled, or in flight in async mode)
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(CompilerTransformer.THROTTLED_RECORDS_STORE),
+                Serdes.Long(),
+                new JsonSerde<>(ThrottledRecord.class)));
+        
+        List<String> compilerStores = new ArrayList<>(List.of(CompilerTransformer.THROTTLED_RECORDS_STORE));
+        if (resultsTimeToLive > 0) {
+            // Results of the records by idempotency key, returned to the redelivered and duplicate records
+            builder.addStateStore(Stores.keyValueStoreBuilder(
+                    Stores.persistentKeyValueStore(StateStoreResultsRepository.EXECUTION_RESULTS_STORE),
+                    Serdes.String(),
+                    new JsonSerde<>(StoredResult.class)));
+            compilerStores.add(StateStoreResultsRepository.EXECUTION_RESULTS_STORE);
+        }
+        
+        RetryTiers retryTiers = RetryTiers.parse(retryDelays);
+        RecordRouter recordRouter = new RecordRouter(retryTiers, meterRegistry);
+        
+        KStream<String, String> requests = decode(
+                builder.stream(inputTopic, Consumed.with(stringSerde, Serdes.ByteArray())), deadLetterTopic);
+        
+        if (retryTiers.size() > 0) {
+            // Retried records waiting for their delay
+            builder.addStateStore(Stores.keyValueStoreBuilder(
+                    Stores.persistentKeyValueStore(RetryDelayTransformer.DELAYED_RECORDS_STORE),
+                    Serdes.Long(),
+                    new JsonSerde<>(DelayedRecord.class)));
+            
+            List<String> retryTopics = IntStream.rangeClosed(1, retryTiers.size())
+                    .mapToObj(attempt -> RecordRouter.getRetryTopic(retryTopic, attempt))
+                    .collect(Collectors.toList());
+            
+            KStream<String, String> retries = decode(
+                    builder.stream(retryTopics, Consumed.with(stringSerde, Serdes.ByteArray())), deadLetterTopic)
+                    .transform(() -> new RetryDelayTransformer(retryPollInterval, meterRegistry),
+                            RetryDelayTransformer.DELAYED_RECORDS_STORE);
+            
+            requests = requests.merge(retries);
+        }
+        
+        // The transformers forward the records to one of the sinks below
+        KStream<String, String> results = requests.transform(
+                () -> asyncEnabled
+                        ? new AsyncCompilerTransformer(compilerService, resources, maxInFlight, throttlingDuration,
+                                pollInterval, throttlingRetriesCounter, meterRegistry, recordRouter, resultsTimeToLive,
+                                resultEventsEnabled, claimCheck, executionsExecutor, closeTimeout,
+                                maxWaitingRecords)
+                        : new CompilerTransformer(compilerService, throttlingDuration, throttlingRetriesCounter,
+                                meterRegistry, recordRouter, resultsTimeToLive, resultEventsEnabled, claimCheck,
+                                maxWaitingRecords),
+                compilerStores.toArray(new String[0]));
+        
+        results.to(outputTopic, Produced.with(stringSerde, payloadSerde).withName(RecordRouter.OUTPUT_SINK));
+        results.to(
+                (key, value, recordContext) ->
+                        RecordRouter.getRetryTopic(retryTopic, RecordRouter.getAttempt(recordContext.headers())),
+                Produced.with(stringSerde, payloadSerde).withName(RecordRouter.RETRY_SINK));
+        results.to(deadLetterTopic, Produced.with(stringSerde, payloadSerde).withName(RecordRouter.DEAD_LETTER_SINK));
     
         Topology topology = builder.build();
         log.info("Topology: {}", topology.describe());
         
         return topology;
     }
+    
+    @SuppressWarnings("unchecked")
+    private KStream<String, String> decode(KStream<String, byte[]> records, String deadLetterTopic) {
+        
+        KStream<String, DecodedPayload>[] decodedRecords = records
+                .transformValues(() -> new PayloadDecoder(maxDecompressedSize, meterRegistry))
+                .branch((key, payload) -> payload.isDecoded(), (key, payload) -> true);
+        
+        // The undecodable records are sent as they were consumed
+        decodedRecords[1]
+                .mapValues(DecodedPayload::getRawPayload)
+                .to(deadLetterTopic, Produced.with(stringSerde, Serdes.ByteArray()));
+        
+        return decodedRecords[0].mapValues(DecodedPayload::getPayload);
+    }
 }
@@ -0,0 +1,141 @@
+package com.cp.compiler.streams.serdes;
+
+import com.cp.compiler.utils.payloads.PayloadEncoding;
+import com.cp.compiler.wellknownconstants.WellKnownHeaders;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The type Payload serde.
+ * Serializes the payloads of the records with the encoding given by their content type and content encoding
+ * headers (see {@link PayloadEncoding}), the topology works on JSON strings.
+ * The headers of a record are forwarded with it, so the results are encoded like their request.
+ * A record without these headers is plain JSON, as with the string serde.
+ * The compressed payloads are decompressed up to a max size.
+ *
+ * @author Zakaria Maaraki
+ */
+public class PayloadSerde implements Serde<String> {
+    
+    private final Serializer<String> serializer = new PayloadSerializer();
+    
+    private final Deserializer<String> deserializer;
+    
+    /**
+     * Instantiates a new Payload serde, decompressing the payloads up to the default max size.
+     */
+    public PayloadSerde() {
+        this(PayloadEncoding.DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+    
+    /**
+     * Instantiates a new Payload serde.
+     *
+     * @param maxDecompressedSize the max size of a decompressed payload in bytes
+     */
+    public PayloadSerde(long maxDecompressedSize) {
+        this.deserializer = new PayloadDeserializer(maxDecompressedSize);
+    }
+    
+    @Override
+    public Serializer<String> serializer() {
+        return serializer;
+    }
+    
+    @Override
+    public Deserializer<String> deserializer() {
+        return deserializer;
+    }
+    
+    /**
+     * Gets the encoding of a record.
+     *
+     * @param headers the headers of the record
+     * @return the payload encoding
+     */
+    public static PayloadEncoding getEncoding(Headers headers) {
+        if (headers == null) {
+            return PayloadEncoding.DEFAULT;
+        }
+        return PayloadEncoding.of(
+                getHeader(headers, WellKnownHeaders.CONTENT_TYPE),
+                getHeader(headers, WellKnownHeaders.CONTENT_ENCODING));
+    }
+    
+    /**
+     * Sets the encoding of a record.
+     *
+     * @param headers         the headers
+     * @param contentType     the content type, null for JSON
+     * @param contentEncoding the content encoding, null for no compression
+     */
+    public static void setEncoding(Headers headers, String contentType, String contentEncoding) {
+        setHeader(headers, WellKnownHeaders.CONTENT_TYPE, contentType);
+        setHeader(headers, WellKnownHeaders.CONTENT_ENCODING, contentEncoding);
+    }
+    
+    /**
+     * Gets a header of a record.
+     *
+     * @param headers the headers of the record
+     * @param key     the key of the header
+     * @return the value of the header, null if absent
+     */
+    public static String getHeader(Headers headers, String key) {
+        Header header = headers == null ? null : headers.lastHeader(key);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+    
+    private static void setHeader(Headers headers, String key, String value) {
+        headers.remove(key);
+        if (value != null) {
+            headers.add(key, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    private static class PayloadSerializer implements Serializer<String> {
+        
+        @Override
+        public byte[] serialize(String topic, String data) {
+            return data == null ? null : data.getBytes(StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public byte[] serialize(String topic, Headers headers, String data) {
+            try {
+                return getEncoding(headers).encode(data);
+            } catch (IllegalArgumentException exception) {
+                throw new SerializationException("Could not encode the payload of a record of " + topic, exception);
+            }
+        }
+    }
+    
+    private static class PayloadDeserializer implements Deserializer<String> {
+        
+        private final long maxDecompressedSize;
+        
+        private PayloadDeserializer(long maxDecompressedSize) {
+            this.maxDecompressedSize = maxDecompressedSize;
+        }
+        
+        @Override
+        public String deserialize(String topic, byte[] data) {
+            return data == null ? null : new String(data, StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public String deserialize(String topic, Headers headers, byte[] data) {
+            try {
+                return getEncoding(headers).decode(data, maxDecompressedSize);
+            } catch (IllegalArgumentException exception) {
+                throw new SerializationException("Could not decode the payload of a record of " + topic, exception);
+            }
+        }
+    }
+}
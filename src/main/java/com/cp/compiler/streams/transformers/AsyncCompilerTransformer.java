@@ -0,0 +1,464 @@
+package com.cp.compiler.streams.transformers;
+
+import com.cp.compiler.exceptions.CompilerThrottlingException;
+import com.cp.compiler.mappers.ClaimCheck;
+import com.cp.compiler.mappers.JsonMapper;
+import com.cp.compiler.mappers.ParsedRequest;
+import com.cp.compiler.repositories.ResultsRepository;
+import com.cp.compiler.services.businesslogic.CompilerService;
+import com.cp.compiler.services.resources.Resources;
+import com.cp.compiler.streams.serdes.PayloadSerde;
+import com.cp.compiler.wellknownconstants.WellKnownHeaders;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The type Async compiler transformer.
+ * Keeps up to N executions in flight per stream task instead of executing one record at a time.
+ * A record is stored in the state store (backed by a changelog topic) when it's consumed and deleted once its
+ * result is forwarded, Kafka Streams flushes the store before committing the offsets, so a record whose result
+ * has not been produced is executed again after a rebalance or a restart (at least once).
+ * Results are forwarded by a wall clock punctuation as the executions complete, the records of a key are executed
+ * one after the other to keep their order.
+ * The waiting records are capped, at the cap the stream thread stops consuming (the next records stay in the topic)
+ * until some waiting records are started.
+ * The results and the failed records are forwarded by the {@link RecordRouter}.
+ * The results are stored by idempotency key for a time to live, a redelivered or a duplicate record gets the stored
+ * result instead of being executed again.
+ * When the result events are enabled, the events of the test cases are queued by the executions and forwarded by
+ * the punctuation, keyed by the execution id, the summary event replaces the whole response.
+ * The executions run on an executor shared by all the tasks. Once the task is closed, the executions in flight are
+ * not interrupted, their results are stored by idempotency key for the next owner of the task if they complete
+ * within the close timeout.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+public class AsyncCompilerTransformer implements Transformer<String, String, KeyValue<String, String>> {
+
+    // Upper bound of the executions in flight per task
+    private static final int MAX_IN_FLIGHT = 1024;
+
+    private final CompilerService compilerService;
+
+    private final Resources resources;
+
+    // 0 to size it from the resources
+    private final int maxInFlight;
+
+    private final long throttlingDuration;
+
+    private final long pollInterval;
+
+    private final Counter throttlingRetriesCounter;
+
+    private final MeterRegistry meterRegistry;
+
+    private final RecordRouter recordRouter;
+
+    private final long resultsTimeToLive;
+
+    private final boolean resultEventsEnabled;
+
+    private final ClaimCheck claimCheck;
+
+    private final ExecutorService executor;
+
+    private final long closeTimeout;
+
+    private final int maxWaitingRecords;
+
+    // Events published by the executions, waiting to be forwarded from the stream thread
+    private final Queue<QueuedEvent> events = new ConcurrentLinkedQueue<>();
+
+    private ProcessorContext context;
+
+    // null if the deduplication is disabled
+    private ResultsRepository resultsRepository;
+
+    private Counter duplicatesCounter;
+
+    // Records waiting or in flight, by arrival order
+    private KeyValueStore<Long, ThrottledRecord> records;
+
+    private final Map<Long, InFlightExecution> inFlightExecutions = new LinkedHashMap<>();
+
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    // Removed once the task is closed, the next owner of the task registers its own
+    private final List<Gauge> gauges = new ArrayList<>();
+
+    private long nextSequence;
+
+    // No execution is started before, in epoch ms
+    private long throttledUntil;
+
+    /**
+     * Instantiates a new Async compiler transformer.
+     *
+     * @param compilerService          the compiler service
+     * @param resources                the resources
+     * @param maxInFlight              the max number of executions in flight, 0 to size it from the resources
+     * @param throttlingDuration       the throttling duration
+     * @param pollInterval             the interval between two checks of the completed executions
+     * @param throttlingRetriesCounter the throttling retries counter
+     * @param meterRegistry            the meter registry
+     * @param recordRouter             the record router
+     * @param resultsTimeToLive        the time to live of the stored results in ms, 0 to disable the deduplication
+     * @param resultEventsEnabled      whether the results are forwarded as an event per test case and a summary event
+     * @param claimCheck               the claim check of the large test data, null to exchange them inline
+     * @param executor                 the executor running the executions, shared by all the tasks
+     * @param closeTimeout             the max time in ms waiting for the executions in flight once the task is closed
+     * @param maxWaitingRecords        the max number of records waiting to be executed
+     */
+    public AsyncCompilerTransformer(CompilerService compilerService,
+                                    Resources resources,
+                                    int maxInFlight,
+                                    long throttlingDuration,
+                                    long pollInterval,
+                                    Counter throttlingRetriesCounter,
+                                    MeterRegistry meterRegistry,
+                                    RecordRouter recordRouter,
+                                    long resultsTimeToLive,
+                                    boolean resultEventsEnabled,
+                                    ClaimCheck claimCheck,
+                                    ExecutorService executor,
+                                    long closeTimeout,
+                                    int maxWaitingRecords) {
+        this.compilerService = compilerService;
+        this.resources = resources;
+        this.maxInFlight = maxInFlight;
+        this.throttlingDuration = throttlingDuration;
+        this.pollInterval = pollInterval;
+        this.throttlingRetriesCounter = throttlingRetriesCounter;
+        this.meterRegistry = meterRegistry;
+        this.recordRouter = recordRouter;
+        this.resultsTimeToLive = resultsTimeToLive;
+        this.resultEventsEnabled = resultEventsEnabled;
+        this.claimCheck = claimCheck;
+        this.executor = executor;
+        this.closeTimeout = closeTimeout;
+        this.maxWaitingRecords = maxWaitingRecords;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext processorContext) {
+        this.context = processorContext;
+        this.records = (KeyValueStore<Long, ThrottledRecord>) context.getStateStore(
+                CompilerTransformer.THROTTLED_RECORDS_STORE);
+
+        // The store is restored after a rebalance or a restart, its records are executed again
+        try (KeyValueIterator<Long, ThrottledRecord> iterator = records.all()) {
+            while (iterator.hasNext()) {
+                nextSequence = Math.max(nextSequence, iterator.next().key + 1);
+                waitingCount.incrementAndGet();
+            }
+        }
+
+        Tags tags = Tags.of("broker", "kafka", "task", context.taskId().toString());
+        gauges.add(Gauge.builder(WellKnownMetrics.KAFKA_IN_FLIGHT_EXECUTIONS_GAUGE, inFlightCount, AtomicInteger::get)
+                .tags(tags)
+                .register(meterRegistry));
+        gauges.add(Gauge.builder(WellKnownMetrics.KAFKA_WAITING_RECORDS_GAUGE, waitingCount, AtomicInteger::get)
+                .tags(tags)
+                .register(meterRegistry));
+
+        context.schedule(Duration.ofMillis(pollInterval), PunctuationType.WALL_CLOCK_TIME, timestamp -> poll());
+
+        resultsRepository = StateStoreResultsRepository.create(context, resultsTimeToLive);
+        duplicatesCounter = meterRegistry.counter(WellKnownMetrics.KAFKA_DUPLICATE_REQUESTS, "broker", "kafka");
+    }
+
+    @Override
+    public KeyValue<String, String> transform(String key, String jsonRequest) {
+        var record = new ThrottledRecord(key, jsonRequest, RecordRouter.getAttempt(context.headers()),
+                PayloadSerde.getHeader(context.headers(), WellKnownHeaders.CONTENT_TYPE),
+                PayloadSerde.getHeader(context.headers(), WellKnownHeaders.CONTENT_ENCODING));
+        awaitWaitingRecordsBelowCap();
+        records.put(nextSequence++, record);
+        waitingCount.incrementAndGet();
+        startWaitingRecords();
+        // The result is forwarded once the execution completes
+        return null;
+    }
+
+    /**
+     * Back pressure, the stream thread does not consume the next records while the waiting records are at the cap,
+     * the completed executions are forwarded meanwhile to start the waiting records.
+     */
+    private void awaitWaitingRecordsBelowCap() {
+        if (waitingCount.get() < maxWaitingRecords) {
+            return;
+        }
+        log.info("{} records waiting to be executed, the next records wait in the topic", waitingCount.get());
+        while (true) {
+            poll();
+            if (waitingCount.get() < maxWaitingRecords) {
+                return;
+            }
+            try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forwards the events and the results of the completed executions and starts the waiting records.
+     */
+    void poll() {
+        forwardCompletedExecutions();
+        startWaitingRecords();
+    }
+
+    private void forwardEvents() {
+        QueuedEvent event;
+        while ((event = events.poll()) != null) {
+            // Encoded like the record of the execution
+            Headers headers = RecordRouter.newHeaders(
+                    0, event.record.getContentType(), event.record.getContentEncoding());
+            try (RecordRouter.HeadersScope ignored = RecordRouter.withHeaders(context, headers)) {
+                recordRouter.forwardResult(context, event.executionId, event.event);
+            }
+        }
+    }
+
+    private void forwardCompletedExecutions() {
+        forwardEvents();
+        Iterator<Map.Entry<Long, InFlightExecution>> iterator = inFlightExecutions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, InFlightExecution> entry = iterator.next();
+            InFlightExecution inFlightExecution = entry.getValue();
+            if (!inFlightExecution.future.isDone()) {
+                continue;
+            }
+            iterator.remove();
+            inFlightCount.decrementAndGet();
+            ThrottledRecord record = inFlightExecution.record;
+            // The headers of a punctuation, or of the record being transformed, are not those of the record
+            Headers headers = RecordRouter.newHeaders(
+                    record.getAttempt(), record.getContentType(), record.getContentEncoding());
+            try (RecordRouter.HeadersScope ignored = RecordRouter.withHeaders(context, headers)) {
+                String result = inFlightExecution.future.get();
+                if (inFlightExecution.idempotencyKey != null) {
+                    resultsRepository.put(inFlightExecution.idempotencyKey, result);
+                }
+                if (resultEventsEnabled && !inFlightExecution.duplicate) {
+                    // The summary event has been queued before the completion of the execution
+                    forwardEvents();
+                } else {
+                    // A stored summary event is keyed by its execution id like the events
+                    String executionId = resultEventsEnabled ? JsonMapper.getExecutionId(result) : null;
+                    recordRouter.forwardResult(context, executionId == null ? record.getKey() : executionId, result);
+                }
+            } catch (ExecutionException exception) {
+                if (exception.getCause() instanceof CompilerThrottlingException) {
+                    // The record waits in the store, it's retried after the throttling duration
+                    log.info("Request has been throttled {}, retrying after {}",
+                            exception.getCause(), throttlingDuration);
+                    throttlingRetriesCounter.increment();
+                    throttledUntil = System.currentTimeMillis() + throttlingDuration;
+                    waitingCount.incrementAndGet();
+                    continue;
+                }
+                log.error("Error : {}", exception.getCause());
+                forwardEvents();
+                try (RecordRouter.HeadersScope ignored = RecordRouter.withHeaders(context, headers)) {
+                    recordRouter.forwardFailure(
+                            context, record.getKey(), record.getValue(), record.getAttempt(), exception.getCause());
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            records.delete(entry.getKey());
+        }
+    }
+
+    private void startWaitingRecords() {
+        if (waitingCount.get() == 0 || System.currentTimeMillis() < throttledUntil) {
+            return;
+        }
+        int limit = getMaxInFlight();
+        if (inFlightExecutions.size() >= limit) {
+            // The store is not scanned while no execution can be started
+            return;
+        }
+        // A record is not started while an earlier record of its key is waiting or in flight
+        Set<String> busyKeys = new HashSet<>();
+        inFlightExecutions.values().forEach(inFlightExecution -> busyKeys.add(inFlightExecution.record.getKey()));
+        try (KeyValueIterator<Long, ThrottledRecord> iterator = records.all()) {
+            while (iterator.hasNext() && inFlightExecutions.size() < limit) {
+                KeyValue<Long, ThrottledRecord> entry = iterator.next();
+                if (inFlightExecutions.containsKey(entry.key)) {
+                    continue;
+                }
+                String key = entry.value.getKey();
+                if (key != null && !busyKeys.add(key)) {
+                    continue;
+                }
+                if (!start(entry.key, entry.value)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static ParsedRequest parse(ThrottledRecord record, ParsedRequest parsedRequest) {
+        return parsedRequest == null ? JsonMapper.parse(record.getValue()) : parsedRequest;
+    }
+
+    // Returns false if the shared executor is saturated, the record is retried after the throttling duration
+    private boolean start(long sequence, ThrottledRecord record) {
+        String idempotencyKey = null;
+        Future<String> future = null;
+        boolean duplicate = false;
+        // Parsed once for the idempotency key and the execution, by the executor if there is no results repository
+        ParsedRequest parsedRequest = resultsRepository == null ? null : JsonMapper.parse(record.getValue());
+        if (resultsRepository != null) {
+            // Only the requests carrying an idempotency key are deduplicated
+            idempotencyKey = JsonMapper.getIdempotencyKey(parsedRequest);
+            String result = idempotencyKey == null ? null : resultsRepository.get(idempotencyKey);
+            if (result != null) {
+                // Forwarded at the next poll, in the order of the key
+                log.info("Duplicate request {}, returning its stored result", idempotencyKey);
+                duplicatesCounter.increment();
+                idempotencyKey = null;
+                duplicate = true;
+                future = CompletableFuture.completedFuture(result);
+            }
+        }
+        if (future == null) {
+            try {
+                future = resultEventsEnabled
+                        ? executor.submit(() -> JsonMapper.transform(parse(record, parsedRequest), compilerService,
+                                (executionId, event) -> events.add(new QueuedEvent(executionId, event, record)),
+                                claimCheck))
+                        : executor.submit(() -> JsonMapper.transform(parse(record, parsedRequest), compilerService,
+                                null, claimCheck));
+            } catch (RejectedExecutionException exception) {
+                log.info("The executions executor is saturated, retrying after {}", throttlingDuration);
+                throttlingRetriesCounter.increment();
+                throttledUntil = System.currentTimeMillis() + throttlingDuration;
+                return false;
+            }
+        }
+        inFlightExecutions.put(sequence, new InFlightExecution(record, idempotencyKey, duplicate, future));
+        inFlightCount.incrementAndGet();
+        waitingCount.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Gets the max number of executions in flight.
+     *
+     * @return the configured max, or the number of executions the resources can run at once
+     */
+    int getMaxInFlight() {
+        if (maxInFlight > 0) {
+            return Math.min(maxInFlight, MAX_IN_FLIGHT);
+        }
+        return Math.max(1, Math.min(MAX_IN_FLIGHT, Math.min(resources.getMaxRequests(), resources.getCpuSlots())));
+    }
+
+    @Override
+    public void close() {
+        gauges.forEach(meterRegistry::remove);
+        // The records in flight are still in the store, the next owner of the task gets the stored results
+        // of the executions completed meanwhile, and executes the others again
+        long deadline = System.currentTimeMillis() + closeTimeout;
+        for (InFlightExecution inFlightExecution : inFlightExecutions.values()) {
+            if (inFlightExecution.idempotencyKey == null) {
+                continue;
+            }
+            try {
+                String result = inFlightExecution.future.get(
+                        Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                resultsRepository.put(inFlightExecution.idempotencyKey, result);
+            } catch (TimeoutException exception) {
+                log.info("Closing the task with executions in flight, they are executed again by the next owner");
+                return;
+            } catch (ExecutionException exception) {
+                // Retried or dead lettered by the next owner of the task
+                log.debug("Execution failed while closing the task: {}", exception.getCause().toString());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static class InFlightExecution {
+
+        private final ThrottledRecord record;
+
+        // The key under which the result is stored, null if it's not stored
+        private final String idempotencyKey;
+
+        // Whether the result is the stored result of a duplicate record
+        private final boolean duplicate;
+
+        private final Future<String> future;
+
+        private InFlightExecution(ThrottledRecord record,
+                                  String idempotencyKey,
+                                  boolean duplicate,
+                                  Future<String> future) {
+            this.record = record;
+            this.idempotencyKey = idempotencyKey;
+            this.duplicate = duplicate;
+            this.future = future;
+        }
+    }
+
+    private static class QueuedEvent {
+
+        private final String executionId;
+
+        private final String event;
+
+        // The record of the execution
+        private final ThrottledRecord record;
+
+        private QueuedEvent(String executionId, String event, ThrottledRecord record) {
+            this.executionId = executionId;
+            this.event = event;
+            this.record = record;
+        }
+    }
+}
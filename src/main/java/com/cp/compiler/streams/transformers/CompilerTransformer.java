@@ -1,70 +1,281 @@
 package com.cp.compiler.streams.transformers;
 
 import com.cp.compiler.exceptions.CompilerThrottlingException;
+import com.cp.compiler.mappers.ClaimCheck;
 import com.cp.compiler.mappers.JsonMapper;
+import com.cp.compiler.mappers.ParsedRequest;
+import com.cp.compiler.repositories.ResultsRepository;
 import com.cp.compiler.services.businesslogic.CompilerService;
+import com.cp.compiler.streams.serdes.PayloadSerde;
+import com.cp.compiler.wellknownconstants.WellKnownHeaders;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
 import io.micrometer.core.instrument.Counter;
-import lombok.SneakyThrows;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.kafka.streams.kstream.ValueTransformer;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Transformer;
 import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The type Compiler transformer.
+ * A throttled record is not retried in place, which would block the stream thread and all its partitions,
+ * it is stored in a state store (backed by a changelog topic, so it survives rebalances and restarts)
+ * and retried by a wall clock punctuation every throttling duration.
+ * While records are waiting, the new records are queued behind them so that the records of a key
+ * are executed in order.
+ * The throttled records are capped, at the cap the stream thread stops consuming (the next records stay in the topic)
+ * and retries the throttled records until some of them are executed.
+ * The results and the failed records are forwarded by the {@link RecordRouter}.
+ * The results are stored by idempotency key for a time to live, a redelivered or a duplicate record gets the stored
+ * result instead of being executed again.
+ * When the result events are enabled, an event is forwarded for each completed test case then a summary event,
+ * keyed by the execution id, instead of the whole response.
  *
  * @author Zakaria Maaraki
  */
 @Slf4j
-public class CompilerTransformer implements ValueTransformer<String, String> {
-    
-    private CompilerService compilerService;
-    
-    private long throttlingDuration;
-    
-    private Counter throttlingRetriesCounter;
-    
+public class CompilerTransformer implements Transformer<String, String, KeyValue<String, String>> {
+
+    /**
+     * The name of the state store of the throttled records.
+     */
+    public static final String THROTTLED_RECORDS_STORE = "throttled-records";
+
+    private final CompilerService compilerService;
+
+    private final long throttlingDuration;
+
+    private final Counter throttlingRetriesCounter;
+
+    private final MeterRegistry meterRegistry;
+
+    private final RecordRouter recordRouter;
+
+    private final long resultsTimeToLive;
+
+    private final boolean resultEventsEnabled;
+
+    private final ClaimCheck claimCheck;
+
+    private final int maxThrottledRecords;
+
+    private ProcessorContext context;
+
+    // null if the deduplication is disabled
+    private ResultsRepository resultsRepository;
+
+    private Counter duplicatesCounter;
+
+    // Throttled records by arrival order
+    private KeyValueStore<Long, ThrottledRecord> throttledRecords;
+
+    private final AtomicLong throttledRecordsCount = new AtomicLong();
+
+    // Removed once the task is closed, the next owner of the task registers its own
+    private Gauge throttledRecordsGauge;
+
+    private long nextSequence;
+
     /**
      * Instantiates a new Compiler transformer.
      *
      * @param compilerService          the compiler service
      * @param throttlingDuration       the throttling duration
      * @param throttlingRetriesCounter the throttling retries counter
+     * @param meterRegistry            the meter registry
+     * @param recordRouter             the record router
+     * @param resultsTimeToLive        the time to live of the stored results in ms, 0 to disable the deduplication
+     * @param resultEventsEnabled      whether the results are forwarded as an event per test case and a summary event
+     * @param claimCheck               the claim check of the large test data, null to exchange them inline
+     * @param maxThrottledRecords      the max number of throttled records
      */
     public CompilerTransformer(CompilerService compilerService,
                                long throttlingDuration,
-                               Counter throttlingRetriesCounter) {
+                               Counter throttlingRetriesCounter,
+                               MeterRegistry meterRegistry,
+                               RecordRouter recordRouter,
+                               long resultsTimeToLive,
+                               boolean resultEventsEnabled,
+                               ClaimCheck claimCheck,
+                               int maxThrottledRecords) {
         this.compilerService = compilerService;
         this.throttlingDuration = throttlingDuration;
         this.throttlingRetriesCounter = throttlingRetriesCounter;
+        this.meterRegistry = meterRegistry;
+        this.recordRouter = recordRouter;
+        this.resultsTimeToLive = resultsTimeToLive;
+        this.resultEventsEnabled = resultEventsEnabled;
+        this.claimCheck = claimCheck;
+        this.maxThrottledRecords = maxThrottledRecords;
     }
-    
+
     @Override
+    @SuppressWarnings("unchecked")
     public void init(ProcessorContext processorContext) {
-        // empty
+        this.context = processorContext;
+        this.throttledRecords = (KeyValueStore<Long, ThrottledRecord>) context.getStateStore(THROTTLED_RECORDS_STORE);
+
+        // The store is restored after a rebalance or a restart
+        try (KeyValueIterator<Long, ThrottledRecord> iterator = throttledRecords.all()) {
+            while (iterator.hasNext()) {
+                nextSequence = Math.max(nextSequence, iterator.next().key + 1);
+                throttledRecordsCount.incrementAndGet();
+            }
+        }
+
+        throttledRecordsGauge = Gauge.builder(
+                        WellKnownMetrics.KAFKA_THROTTLED_RECORDS_GAUGE, throttledRecordsCount, AtomicLong::get)
+                .tags(Tags.of("broker", "kafka", "task", context.taskId().toString()))
+                .register(meterRegistry);
+
+        context.schedule(
+                Duration.ofMillis(throttlingDuration),
+                PunctuationType.WALL_CLOCK_TIME,
+                timestamp -> retryThrottledRecords());
+
+        resultsRepository = StateStoreResultsRepository.create(context, resultsTimeToLive);
+        duplicatesCounter = meterRegistry.counter(WellKnownMetrics.KAFKA_DUPLICATE_REQUESTS, "broker", "kafka");
     }
-    
-    @SneakyThrows
+
     @Override
-    public String transform(String jsonRequest) {
+    public KeyValue<String, String> transform(String key, String jsonRequest) {
+        int attempt = RecordRouter.getAttempt(context.headers());
+        if (throttledRecordsCount.get() > 0) {
+            // Keep the order of the records
+            ThrottledRecord record = toThrottledRecord(key, jsonRequest, attempt);
+            awaitThrottledRecordsBelowCap();
+            throttle(record);
+            return null;
+        }
         try {
-            return JsonMapper.transform(jsonRequest, compilerService);
+            execute(key, jsonRequest);
         } catch (CompilerThrottlingException throttlingException) {
             log.info("Request has been throttled {}, retrying after {}", throttlingException, throttlingDuration);
-            return retryAfter(jsonRequest);
+            throttle(toThrottledRecord(key, jsonRequest, attempt));
         } catch (Exception e) {
             log.error("Error : {}", e);
-            return null;
+            recordRouter.forwardFailure(context, key, jsonRequest, attempt, e);
+        }
+        // The records are forwarded by the record router
+        return null;
+    }
+
+    /**
+     * Executes a record and forwards its result, or its events keyed by the execution id
+     * as the test cases complete (the execution runs on the stream thread).
+     */
+    private void execute(String key, String jsonRequest) throws Exception {
+        // Parsed once for the idempotency key and the execution
+        ParsedRequest parsedRequest = JsonMapper.parse(jsonRequest);
+        String idempotencyKey = resultsRepository == null ? null : JsonMapper.getIdempotencyKey(parsedRequest);
+        String result = idempotencyKey == null ? null : resultsRepository.get(idempotencyKey);
+        if (result != null) {
+            log.info("Duplicate request {}, returning its stored result", idempotencyKey);
+            duplicatesCounter.increment();
+            // A stored summary event is keyed by its execution id like the events
+            String executionId = resultEventsEnabled ? JsonMapper.getExecutionId(result) : null;
+            recordRouter.forwardResult(context, executionId == null ? key : executionId, result);
+            return;
+        }
+        if (resultEventsEnabled) {
+            result = JsonMapper.transform(parsedRequest, compilerService,
+                    (executionId, event) -> recordRouter.forwardResult(context, executionId, event), claimCheck);
+        } else {
+            result = JsonMapper.transform(parsedRequest, compilerService, null, claimCheck);
+            recordRouter.forwardResult(context, key, result);
+        }
+        if (idempotencyKey != null) {
+            resultsRepository.put(idempotencyKey, result);
         }
     }
-    
-    private String retryAfter(String jsonRequest) throws InterruptedException {
-        throttlingRetriesCounter.increment();
-        Thread.sleep(throttlingDuration);
-        return transform(jsonRequest);
+
+    private ThrottledRecord toThrottledRecord(String key, String jsonRequest, int attempt) {
+        return new ThrottledRecord(key, jsonRequest, attempt,
+                PayloadSerde.getHeader(context.headers(), WellKnownHeaders.CONTENT_TYPE),
+                PayloadSerde.getHeader(context.headers(), WellKnownHeaders.CONTENT_ENCODING));
+    }
+
+    private void throttle(ThrottledRecord record) {
+        throttledRecords.put(nextSequence++, record);
+        throttledRecordsCount.incrementAndGet();
     }
-    
+
+    /**
+     * Back pressure, the stream thread does not consume the next records while the throttled records are at the cap,
+     * they are retried every throttling duration meanwhile.
+     */
+    private void awaitThrottledRecordsBelowCap() {
+        if (throttledRecordsCount.get() < maxThrottledRecords) {
+            return;
+        }
+        log.info("{} throttled records, the next records wait in the topic", throttledRecordsCount.get());
+        while (true) {
+            retryThrottledRecords();
+            if (throttledRecordsCount.get() < maxThrottledRecords) {
+                return;
+            }
+            try {
+                Thread.sleep(throttlingDuration);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retries the throttled records in order, until a record is throttled again.
+     */
+    private void retryThrottledRecords() {
+        long start = System.currentTimeMillis();
+        List<Long> processedRecords = new ArrayList<>();
+        try (KeyValueIterator<Long, ThrottledRecord> iterator = throttledRecords.all()) {
+            while (iterator.hasNext()) {
+                KeyValue<Long, ThrottledRecord> entry = iterator.next();
+                throttlingRetriesCounter.increment();
+                ThrottledRecord record = entry.value;
+                // The headers of a punctuation, or of the record being transformed, are not those of the record
+                Headers headers = RecordRouter.newHeaders(
+                        record.getAttempt(), record.getContentType(), record.getContentEncoding());
+                try (RecordRouter.HeadersScope ignored = RecordRouter.withHeaders(context, headers)) {
+                    execute(record.getKey(), record.getValue());
+                } catch (CompilerThrottlingException throttlingException) {
+                    log.info("Request is still throttled, {} requests waiting, retrying after {}",
+                            throttledRecordsCount.get() - processedRecords.size(), throttlingDuration);
+                    break;
+                } catch (Exception e) {
+                    log.error("Error : {}", e);
+                    try (RecordRouter.HeadersScope ignored = RecordRouter.withHeaders(context, headers)) {
+                        recordRouter.forwardFailure(
+                                context, record.getKey(), record.getValue(), record.getAttempt(), e);
+                    }
+                }
+                processedRecords.add(entry.key);
+                // Give the stream thread back to poll, the remaining records are retried at the next punctuation
+                if (System.currentTimeMillis() - start >= throttlingDuration) {
+                    break;
+                }
+            }
+        }
+        processedRecords.forEach(throttledRecords::delete);
+        throttledRecordsCount.addAndGet(-processedRecords.size());
+    }
+
     @Override
     public void close() {
-        // empty
+        if (throttledRecordsGauge != null) {
+            meterRegistry.remove(throttledRecordsGauge);
+        }
     }
 }
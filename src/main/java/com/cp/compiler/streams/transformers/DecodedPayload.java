@@ -0,0 +1,23 @@
+package com.cp.compiler.streams.transformers;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The type Decoded payload.
+ * The payload of a consumed record once decoded, or its raw payload if it could not be decoded.
+ *
+ * @author Zakaria Maaraki
+ */
+@Getter
+@AllArgsConstructor
+public class DecodedPayload {
+
+    // The JSON payload, null if the record could not be decoded
+    private final String payload;
+
+    // The payload as consumed, kept only if the record could not be decoded
+    private final byte[] rawPayload;
+
+    private final boolean decoded;
+}
@@ -0,0 +1,34 @@
+package com.cp.compiler.streams.transformers;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The type Delayed record.
+ * A record consumed from a retry topic, waiting in the state store of the retry delay transformer until its delay
+ * is over.
+ *
+ * @author Zakaria Maaraki
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DelayedRecord {
+
+    private String key;
+
+    private String value;
+
+    // The retry attempt of the record
+    private int attempt;
+
+    // The time in epoch millis before which the record is not executed
+    private long notBefore;
+
+    // The content type of the record, null for JSON
+    private String contentType;
+
+    // The content encoding of the record, null if it's not compressed
+    private String contentEncoding;
+}
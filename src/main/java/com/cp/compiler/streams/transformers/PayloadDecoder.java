@@ -0,0 +1,68 @@
+package com.cp.compiler.streams.transformers;
+
+import com.cp.compiler.streams.serdes.PayloadSerde;
+import com.cp.compiler.wellknownconstants.WellKnownHeaders;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.kstream.ValueTransformer;
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The type Payload decoder.
+ * Decodes the payloads of the consumed records according to their content type and content encoding headers
+ * (see {@link PayloadSerde}). A record that can't be decoded (unsupported content type or encoding, or larger than
+ * the max size once decompressed) keeps its raw payload and an error header, to be sent to the dead letter topic
+ * instead of failing the stream thread or being skipped.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+public class PayloadDecoder implements ValueTransformer<byte[], DecodedPayload> {
+
+    private final long maxDecompressedSize;
+
+    private final Counter deadLettersCounter;
+
+    private ProcessorContext context;
+
+    /**
+     * Instantiates a new Payload decoder.
+     *
+     * @param maxDecompressedSize the max size of a decompressed payload in bytes
+     * @param meterRegistry       the meter registry
+     */
+    public PayloadDecoder(long maxDecompressedSize, MeterRegistry meterRegistry) {
+        this.maxDecompressedSize = maxDecompressedSize;
+        this.deadLettersCounter = meterRegistry.counter(WellKnownMetrics.KAFKA_DEAD_LETTERS, "broker", "kafka");
+    }
+
+    @Override
+    public void init(ProcessorContext processorContext) {
+        this.context = processorContext;
+    }
+
+    @Override
+    public DecodedPayload transform(byte[] payload) {
+        try {
+            String decoded = PayloadSerde.getEncoding(context.headers()).decode(payload, maxDecompressedSize);
+            return new DecodedPayload(decoded, null, true);
+        } catch (IllegalArgumentException exception) {
+            log.error("Could not decode a record of {}, sending it to the dead letter topic: {}",
+                    context.topic(), exception.getMessage());
+            context.headers().remove(WellKnownHeaders.RETRY_ERROR);
+            context.headers().add(WellKnownHeaders.RETRY_ERROR, (exception.getClass().getSimpleName()
+                    + ": " + exception.getMessage()).getBytes(StandardCharsets.UTF_8));
+            deadLettersCounter.increment();
+            return new DecodedPayload(null, payload, false);
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing to close
+    }
+}
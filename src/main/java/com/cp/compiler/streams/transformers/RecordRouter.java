@@ -0,0 +1,224 @@
+package com.cp.compiler.streams.transformers;
+
+import com.cp.compiler.streams.serdes.PayloadSerde;
+import com.cp.compiler.utils.retries.RetryTiers;
+import com.cp.compiler.wellknownconstants.WellKnownHeaders;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.To;
+import org.apache.kafka.streams.processor.internals.InternalProcessorContext;
+import org.apache.kafka.streams.processor.internals.ProcessorRecordContext;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The type Record router.
+ * Forwards the results of the compiler transformers to the output topic, and the records whose execution failed
+ * to the next retry topic, or to the dead letter topic when the error is not retryable or the retries are exhausted.
+ * The retry metadata travel in the headers of the records (see {@link WellKnownHeaders}).
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+public class RecordRouter {
+
+    /**
+     * The name of the sink of the output topic.
+     */
+    public static final String OUTPUT_SINK = "output-sink";
+
+    /**
+     * The name of the sink of the retry topics.
+     */
+    public static final String RETRY_SINK = "retry-sink";
+
+    /**
+     * The name of the sink of the dead letter topic.
+     */
+    public static final String DEAD_LETTER_SINK = "dead-letter-sink";
+
+    private final RetryTiers retryTiers;
+
+    private final Counter failureRetriesCounter;
+
+    private final Counter deadLettersCounter;
+
+    /**
+     * Instantiates a new Record router.
+     *
+     * @param retryTiers    the retry tiers
+     * @param meterRegistry the meter registry
+     */
+    public RecordRouter(RetryTiers retryTiers, MeterRegistry meterRegistry) {
+        this.retryTiers = retryTiers;
+        this.failureRetriesCounter = meterRegistry.counter(WellKnownMetrics.KAFKA_FAILURE_RETRIES, "broker", "kafka");
+        this.deadLettersCounter = meterRegistry.counter(WellKnownMetrics.KAFKA_DEAD_LETTERS, "broker", "kafka");
+    }
+
+    /**
+     * Forwards the result of an execution to the output topic.
+     *
+     * @param context the processor context
+     * @param key     the key
+     * @param result  the result
+     */
+    public void forwardResult(ProcessorContext context, String key, String result) {
+        clearRetryHeaders(context.headers());
+        context.forward(key, result, To.child(OUTPUT_SINK));
+    }
+
+    /**
+     * Forwards a failed record to the next retry topic or to the dead letter topic.
+     *
+     * @param context   the processor context
+     * @param key       the key
+     * @param value     the request
+     * @param attempt   the retry attempt of the record, 0 for its first consumption
+     * @param exception the error
+     */
+    public void forwardFailure(ProcessorContext context, String key, String value, int attempt, Throwable exception) {
+        Headers headers = context.headers();
+        clearRetryHeaders(headers);
+        headers.add(WellKnownHeaders.RETRY_ERROR, bytes(exception.getClass().getSimpleName()
+                + ": " + exception.getMessage()));
+        int nextAttempt = attempt + 1;
+        if (retryTiers.shouldRetry(nextAttempt, exception)) {
+            long notBefore = System.currentTimeMillis() + retryTiers.getDelay(nextAttempt);
+            log.warn("Execution failed {}, retry {} after {}", exception, nextAttempt, retryTiers.getDelay(nextAttempt));
+            headers.add(WellKnownHeaders.RETRY_ATTEMPT, bytes(String.valueOf(nextAttempt)));
+            headers.add(WellKnownHeaders.RETRY_NOT_BEFORE, bytes(String.valueOf(notBefore)));
+            failureRetriesCounter.increment();
+            context.forward(key, value, To.child(RETRY_SINK));
+        } else {
+            log.error("Execution failed {} after {} retries, sending it to the dead letter topic", exception, attempt);
+            headers.add(WellKnownHeaders.RETRY_ATTEMPT, bytes(String.valueOf(attempt)));
+            deadLettersCounter.increment();
+            context.forward(key, value, To.child(DEAD_LETTER_SINK));
+        }
+    }
+
+    /**
+     * Gets the name of the topic of a retry tier.
+     *
+     * @param retryTopic the retry topic prefix
+     * @param attempt    the retry attempt
+     * @return the topic name
+     */
+    public static String getRetryTopic(String retryTopic, int attempt) {
+        return retryTopic + "-" + attempt;
+    }
+
+    /**
+     * Gets the retry attempt of a record.
+     *
+     * @param headers the headers of the record
+     * @return the retry attempt, 0 for its first consumption
+     */
+    public static int getAttempt(Headers headers) {
+        return (int) getLongHeader(headers, WellKnownHeaders.RETRY_ATTEMPT);
+    }
+
+    /**
+     * Gets the time before which a retried record is not executed.
+     *
+     * @param headers the headers of the record
+     * @return the time in epoch millis, 0 if the record is not a retry
+     */
+    public static long getNotBefore(Headers headers) {
+        return getLongHeader(headers, WellKnownHeaders.RETRY_NOT_BEFORE);
+    }
+
+    /**
+     * Builds the headers of a record forwarded from a punctuation, see {@link #withHeaders(ProcessorContext, Headers)}.
+     *
+     * @param attempt         the retry attempt of the record, 0 for its first consumption
+     * @param contentType     the content type of the record, null for JSON
+     * @param contentEncoding the content encoding of the record, null for no compression
+     * @return the headers
+     */
+    public static Headers newHeaders(int attempt, String contentType, String contentEncoding) {
+        Headers headers = new RecordHeaders();
+        setAttempt(headers, attempt);
+        PayloadSerde.setEncoding(headers, contentType, contentEncoding);
+        return headers;
+    }
+
+    /**
+     * Forwards the records with the given headers until the returned scope is closed.
+     * A punctuation has no input record, its headers are those of a dummy record shared by all the stream threads
+     * (Kafka Streams 2.5), so they must not be mutated. The record context is replaced by one holding the headers
+     * of the punctuated record instead.
+     *
+     * @param context the processor context
+     * @param headers the headers of the record, see {@link #newHeaders(int, String, String)}
+     * @return the scope, restoring the record context once closed
+     */
+    public static HeadersScope withHeaders(ProcessorContext context, Headers headers) {
+        if (!(context instanceof InternalProcessorContext)) {
+            // Not the context of a stream thread, its headers are not shared
+            Headers contextHeaders = context.headers();
+            if (contextHeaders != null) {
+                for (Header header : contextHeaders.toArray()) {
+                    contextHeaders.remove(header.key());
+                }
+                headers.forEach(contextHeaders::add);
+            }
+            return () -> { };
+        }
+        InternalProcessorContext internalContext = (InternalProcessorContext) context;
+        ProcessorRecordContext recordContext = internalContext.recordContext();
+        internalContext.setRecordContext(new ProcessorRecordContext(
+                recordContext.timestamp(),
+                recordContext.offset(),
+                recordContext.partition(),
+                recordContext.topic(),
+                headers));
+        return () -> internalContext.setRecordContext(recordContext);
+    }
+
+    private static void setAttempt(Headers headers, int attempt) {
+        clearRetryHeaders(headers);
+        if (attempt > 0) {
+            headers.add(WellKnownHeaders.RETRY_ATTEMPT, bytes(String.valueOf(attempt)));
+        }
+    }
+
+    private static void clearRetryHeaders(Headers headers) {
+        headers.remove(WellKnownHeaders.RETRY_ATTEMPT);
+        headers.remove(WellKnownHeaders.RETRY_NOT_BEFORE);
+        headers.remove(WellKnownHeaders.RETRY_ERROR);
+    }
+
+    private static long getLongHeader(Headers headers, String key) {
+        Header header = headers == null ? null : headers.lastHeader(key);
+        if (header == null || header.value() == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+        } catch (NumberFormatException exception) {
+            log.warn("Invalid header {}", key);
+            return 0;
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The type Headers scope.
+     */
+    @FunctionalInterface
+    public interface HeadersScope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
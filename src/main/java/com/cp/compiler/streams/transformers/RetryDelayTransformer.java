@@ -0,0 +1,138 @@
+package com.cp.compiler.streams.transformers;
+
+import com.cp.compiler.streams.serdes.PayloadSerde;
+import com.cp.compiler.wellknownconstants.WellKnownHeaders;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The type Retry delay transformer.
+ * Holds the records consumed from the retry topics until their delay is over (the not before header),
+ * the stream thread is not blocked meanwhile and keeps consuming the input topic.
+ * The waiting records are stored in a state store (backed by a changelog topic) and released by a wall clock
+ * punctuation to the compiler transformer.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+public class RetryDelayTransformer implements Transformer<String, String, KeyValue<String, String>> {
+
+    /**
+     * The name of the state store of the delayed records.
+     */
+    public static final String DELAYED_RECORDS_STORE = "delayed-records";
+
+    private final long pollInterval;
+
+    private final MeterRegistry meterRegistry;
+
+    private ProcessorContext context;
+
+    // Delayed records by arrival order
+    private KeyValueStore<Long, DelayedRecord> delayedRecords;
+
+    private final AtomicLong delayedRecordsCount = new AtomicLong();
+
+    // Removed once the task is closed, the next owner of the task registers its own
+    private Gauge delayedRecordsGauge;
+
+    private long nextSequence;
+
+    /**
+     * Instantiates a new Retry delay transformer.
+     *
+     * @param pollInterval  the interval between two checks of the delayed records
+     * @param meterRegistry the meter registry
+     */
+    public RetryDelayTransformer(long pollInterval, MeterRegistry meterRegistry) {
+        this.pollInterval = pollInterval;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void init(ProcessorContext processorContext) {
+        this.context = processorContext;
+        this.delayedRecords = (KeyValueStore<Long, DelayedRecord>) context.getStateStore(DELAYED_RECORDS_STORE);
+
+        // The store is restored after a rebalance or a restart
+        try (KeyValueIterator<Long, DelayedRecord> iterator = delayedRecords.all()) {
+            while (iterator.hasNext()) {
+                nextSequence = Math.max(nextSequence, iterator.next().key + 1);
+                delayedRecordsCount.incrementAndGet();
+            }
+        }
+
+        delayedRecordsGauge = Gauge.builder(
+                        WellKnownMetrics.KAFKA_DELAYED_RECORDS_GAUGE, delayedRecordsCount, AtomicLong::get)
+                .tags(Tags.of("broker", "kafka", "task", context.taskId().toString()))
+                .register(meterRegistry);
+
+        context.schedule(
+                Duration.ofMillis(pollInterval),
+                PunctuationType.WALL_CLOCK_TIME,
+                timestamp -> releaseDelayedRecords());
+    }
+
+    @Override
+    public KeyValue<String, String> transform(String key, String jsonRequest) {
+        long notBefore = RecordRouter.getNotBefore(context.headers());
+        if (notBefore <= System.currentTimeMillis()) {
+            return KeyValue.pair(key, jsonRequest);
+        }
+        int attempt = RecordRouter.getAttempt(context.headers());
+        delayedRecords.put(nextSequence++, new DelayedRecord(key, jsonRequest, attempt, notBefore,
+                PayloadSerde.getHeader(context.headers(), WellKnownHeaders.CONTENT_TYPE),
+                PayloadSerde.getHeader(context.headers(), WellKnownHeaders.CONTENT_ENCODING)));
+        delayedRecordsCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Forwards the records whose delay is over.
+     */
+    private void releaseDelayedRecords() {
+        long now = System.currentTimeMillis();
+        List<Long> releasedRecords = new ArrayList<>();
+        try (KeyValueIterator<Long, DelayedRecord> iterator = delayedRecords.all()) {
+            while (iterator.hasNext()) {
+                KeyValue<Long, DelayedRecord> entry = iterator.next();
+                DelayedRecord record = entry.value;
+                if (record.getNotBefore() > now) {
+                    continue;
+                }
+                // The headers of a punctuation are not those of the record
+                Headers headers = RecordRouter.newHeaders(
+                        record.getAttempt(), record.getContentType(), record.getContentEncoding());
+                try (RecordRouter.HeadersScope ignored = RecordRouter.withHeaders(context, headers)) {
+                    context.forward(record.getKey(), record.getValue());
+                }
+                releasedRecords.add(entry.key);
+            }
+        }
+        releasedRecords.forEach(delayedRecords::delete);
+        delayedRecordsCount.addAndGet(-releasedRecords.size());
+    }
+
+    @Override
+    public void close() {
+        if (delayedRecordsGauge != null) {
+            meterRegistry.remove(delayedRecordsGauge);
+        }
+    }
+}
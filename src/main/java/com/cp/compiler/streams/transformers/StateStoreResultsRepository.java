@@ -0,0 +1,100 @@
+package com.cp.compiler.streams.transformers;
+
+import com.cp.compiler.repositories.ResultsRepository;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The type State store results repository.
+ * Stores the results of the records in a state store of the stream task (backed by a changelog topic),
+ * a redelivered record is consumed by the task owning its partition, which has the result of its first delivery.
+ * It's only used from the stream thread of the task.
+ *
+ * @author Zakaria Maaraki
+ */
+public class StateStoreResultsRepository implements ResultsRepository {
+
+    /**
+     * The name of the state store of the results.
+     */
+    public static final String EXECUTION_RESULTS_STORE = "execution-results";
+
+    // in ms
+    private static final long MAX_EVICTION_INTERVAL = 60000;
+
+    private final KeyValueStore<String, StoredResult> results;
+
+    private final long timeToLive;
+
+    /**
+     * Instantiates a new State store results repository.
+     *
+     * @param results    the state store
+     * @param timeToLive the time to live of the results in ms
+     */
+    public StateStoreResultsRepository(KeyValueStore<String, StoredResult> results, long timeToLive) {
+        this.results = results;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Creates the results repository of a stream task and schedules the eviction of its expired results.
+     *
+     * @param context    the processor context of the task
+     * @param timeToLive the time to live of the results in ms, 0 to disable the repository
+     * @return the results repository, null if it's disabled
+     */
+    @SuppressWarnings("unchecked")
+    public static ResultsRepository create(ProcessorContext context, long timeToLive) {
+        if (timeToLive <= 0) {
+            return null;
+        }
+        var resultsRepository = new StateStoreResultsRepository(
+                (KeyValueStore<String, StoredResult>) context.getStateStore(EXECUTION_RESULTS_STORE),
+                timeToLive);
+        context.schedule(
+                Duration.ofMillis(Math.min(timeToLive, MAX_EVICTION_INTERVAL)),
+                PunctuationType.WALL_CLOCK_TIME,
+                timestamp -> resultsRepository.evictExpired());
+        return resultsRepository;
+    }
+
+    @Override
+    public String get(String idempotencyKey) {
+        StoredResult storedResult = results.get(idempotencyKey);
+        if (storedResult == null || storedResult.getExpiresAt() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return storedResult.getResult();
+    }
+
+    @Override
+    public void put(String idempotencyKey, String result) {
+        if (result != null) {
+            results.put(idempotencyKey, new StoredResult(result, System.currentTimeMillis() + timeToLive));
+        }
+    }
+
+    @Override
+    public int evictExpired() {
+        long now = System.currentTimeMillis();
+        List<String> expiredResults = new ArrayList<>();
+        try (KeyValueIterator<String, StoredResult> iterator = results.all()) {
+            while (iterator.hasNext()) {
+                KeyValue<String, StoredResult> entry = iterator.next();
+                if (entry.value == null || entry.value.getExpiresAt() <= now) {
+                    expiredResults.add(entry.key);
+                }
+            }
+        }
+        expiredResults.forEach(results::delete);
+        return expiredResults.size();
+    }
+}
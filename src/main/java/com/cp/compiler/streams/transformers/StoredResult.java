@@ -0,0 +1,22 @@
+package com.cp.compiler.streams.transformers;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The type Stored result.
+ * The result of a request, kept in the state store of the results to answer its duplicates.
+ *
+ * @author Zakaria Maaraki
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredResult {
+
+    private String result;
+
+    // The time in epoch millis after which the result is removed
+    private long expiresAt;
+}
@@ -0,0 +1,30 @@
+package com.cp.compiler.streams.transformers;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The type Throttled record.
+ * A record waiting in the state store of the compiler transformer to be retried.
+ *
+ * @author Zakaria Maaraki
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThrottledRecord {
+
+    private String key;
+
+    private String value;
+
+    // The retry attempt of the record, 0 for its first consumption
+    private int attempt;
+
+    // The content type of the record, null for JSON
+    private String contentType;
+
+    // The content encoding of the record, null if it's not compressed
+    private String contentEncoding;
+}
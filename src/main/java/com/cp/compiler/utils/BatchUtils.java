@@ -0,0 +1,133 @@
+package com.cp.compiler.utils;
+
+import com.cp.compiler.models.processes.ProcessOutput;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * The type Batch utils.
+ * Parses the structured results written by the batch harness (see batch-entrypoint-template).
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+public abstract class BatchUtils {
+
+    /**
+     * The prefix of each result line written by the batch harness.
+     */
+    public static final String RESULT_PREFIX = "@@result";
+
+    // prefix, index, status, duration, stdout, stderr
+    private static final int RESULT_FIELDS = 6;
+
+    private BatchUtils() {}
+
+    /**
+     * Parse the results of the batch harness.
+     * Lines that are not result lines are ignored, results are returned in the test cases order,
+     * the list stops at the first missing or malformed result.
+     * A last line without a line break has been cut (by a limit or a timeout), it is ignored.
+     *
+     * @param harnessOutput the output of the batch harness
+     * @return the output of each test case that has been run
+     */
+    public static List<ProcessOutput> parseResults(String harnessOutput) {
+        return parseResults(new StringReader(harnessOutput), Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+    
+    /**
+     * Parse the results of the batch harness, applying the output limits to each test case.
+     * A test case whose outputs exceed their limits is marked as exceeding the output limit, its outputs are cut.
+     *
+     * @param harnessOutput the output of the batch harness, read line by line
+     * @param maxOutputSize the max number of bytes of the standard output of a test case
+     * @param maxErrorSize  the max number of bytes of the standard error of a test case
+     * @return the output of each test case that has been run
+     */
+    public static List<ProcessOutput> parseResults(Reader harnessOutput, long maxOutputSize, long maxErrorSize) {
+        var results = new ArrayList<ProcessOutput>();
+        parseResults(harnessOutput, maxOutputSize, maxErrorSize, results::add);
+        return results;
+    }
+    
+    /**
+     * Parse the results of the batch harness one by one, applying the output limits to each test case.
+     * Each result is handed over as soon as its line is read, so that only one output is held at a time.
+     *
+     * @param harnessOutput the output of the batch harness, read line by line
+     * @param maxOutputSize the max number of bytes of the standard output of a test case
+     * @param maxErrorSize  the max number of bytes of the standard error of a test case
+     * @param onResult      called with the output of each test case in order, returns false to stop the parsing
+     * @return the number of results handed over
+     */
+    public static int parseResults(Reader harnessOutput,
+                                   long maxOutputSize,
+                                   long maxErrorSize,
+                                   Predicate<ProcessOutput> onResult) {
+        var reader = new BufferedReader(harnessOutput);
+        int count = 0;
+        String line;
+        while ((line = readLine(reader)) != null) {
+            if (!line.startsWith(RESULT_PREFIX + " ")) {
+                continue;
+            }
+            String[] fields = line.split(" ", -1);
+            try {
+                if (fields.length != RESULT_FIELDS || Integer.parseInt(fields[1]) != count) {
+                    log.warn("Unexpected batch result line, results parsing stopped");
+                    break;
+                }
+                byte[] stdOut = Base64.getDecoder().decode(fields[4]);
+                byte[] stdErr = Base64.getDecoder().decode(fields[5]);
+                var result = ProcessOutput
+                        .builder()
+                        .status(Integer.parseInt(fields[2]))
+                        .executionDuration(Integer.parseInt(fields[3]))
+                        .stdOut(toString(stdOut, maxOutputSize))
+                        .stdErr(CmdUtils.buildErrorOutput(toString(stdErr, maxErrorSize)))
+                        .outputLimitExceeded(stdOut.length > maxOutputSize || stdErr.length > maxErrorSize)
+                        .build();
+                count++;
+                if (!onResult.test(result)) {
+                    break;
+                }
+            } catch (IllegalArgumentException exception) {
+                log.warn("Malformed batch result line, results parsing stopped: {}", exception.getMessage());
+                break;
+            }
+        }
+        return count;
+    }
+
+    // Null at the end of the output, or if the last line has no line break
+    private static String readLine(BufferedReader reader) {
+        var line = new StringBuilder();
+        try {
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (c == '\n') {
+                    return line.toString();
+                }
+                line.append((char) c);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return null;
+    }
+    
+    private static String toString(byte[] output, long maxSize) {
+        return new String(output, 0, (int) Math.min(output.length, maxSize), StandardCharsets.UTF_8);
+    }
+}
@@ -3,12 +3,24 @@ package com.cp.compiler.utils;
 import com.cp.compiler.exceptions.ProcessExecutionException;
 import com.cp.compiler.exceptions.ProcessExecutionTimeoutException;
 import com.cp.compiler.models.processes.ProcessOutput;
+import com.cp.compiler.models.processes.ProcessOutputBuffer;
+import com.cp.compiler.models.processes.ProcessOutputLimits;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * The type Cmd util.
@@ -24,8 +36,38 @@ public abstract class CmdUtils {
      */
     public static final String LONG_MESSAGE_TRAIL = "...";
 
+    // Time given to read the remaining output once the process exited
+    private static final long DRAIN_TIMEOUT = 1000; // in ms
+    
+    // Max number of output streams read at the same time outside of the application context
+    private static final int MAX_DEFAULT_DRAINERS = 64;
+    
+    private static final ExecutorService defaultDrainers = new ThreadPoolExecutor(
+            0,
+            MAX_DEFAULT_DRAINERS,
+            60L,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            runnable -> {
+                var thread = new Thread(runnable, "process-output-drainer");
+                thread.setDaemon(true);
+                return thread;
+            });
+    
+    // Reads the output streams of the running processes, replaced by the configured executor at startup
+    private static volatile ExecutorService drainers = defaultDrainers;
+
     private CmdUtils() {}
     
+    /**
+     * Sets the executor reading the output streams of the processes.
+     *
+     * @param executor the executor, two tasks are submitted per running process, null to restore the default one
+     */
+    public static void setOutputDrainers(ExecutorService executor) {
+        drainers = executor == null ? defaultDrainers : executor;
+    }
+    
     /**
      * Read output string.
      *
@@ -53,20 +95,18 @@ public abstract class CmdUtils {
      * @return the boolean
      */
     public static boolean compareOutput(String output, String expectedOutput) {
-        return trimText(output).equals(trimText(expectedOutput));
+        return compareOutput(new StringReader(output), expectedOutput);
     }
-
+    
     /**
-     * Remove extra white space and trailing carriage returns
+     * Compare output boolean, the output is read until the first mismatch.
      *
-     * @param text
-     * @return cleaned text
+     * @param output         the output
+     * @param expectedOutput the expected output
+     * @return the boolean
      */
-    private static String trimText(String text) {
-        return text
-          .trim()
-          .replaceAll("\\s+", " ")
-          .replace("/n","");
+    public static boolean compareOutput(Reader output, String expectedOutput) {
+        return OutputComparator.findMismatch(output, expectedOutput) == OutputComparator.NO_MISMATCH;
     }
     
     /**
@@ -84,7 +124,7 @@ public abstract class CmdUtils {
     
     
     /**
-     * Execute process process output.
+     * Execute process process output, with the default output limits.
      *
      * @param commands the commands
      * @param timeout  the timeout
@@ -94,6 +134,23 @@ public abstract class CmdUtils {
      */
     public static ProcessOutput executeProcess(String[] commands, long timeout)
             throws ProcessExecutionException, ProcessExecutionTimeoutException {
+        return executeProcess(commands, timeout, ProcessOutputLimits.DEFAULT);
+    }
+    
+    /**
+     * Execute process process output.
+     * Both output streams are drained while the process is running, so a process writing more than the pipe buffer
+     * does not block. The process is killed as soon as one of its outputs exceeds its limit.
+     *
+     * @param commands     the commands
+     * @param timeout      the timeout
+     * @param outputLimits the output limits
+     * @return the process output
+     * @throws ProcessExecutionException        the process execution exception
+     * @throws ProcessExecutionTimeoutException the process execution timeout exception
+     */
+    public static ProcessOutput executeProcess(String[] commands, long timeout, ProcessOutputLimits outputLimits)
+            throws ProcessExecutionException, ProcessExecutionTimeoutException {
         
         if (timeout <= 0) {
             throw new IllegalArgumentException("timeout should be a positive value");
@@ -103,51 +160,100 @@ public abstract class CmdUtils {
             throw new IllegalArgumentException("commands should have at least one element");
         }
         
-        try {
+        var stdOutBuffer = new ProcessOutputBuffer(outputLimits.getMaxStdOutSize(), outputLimits.getSpillThreshold());
+        var stdErrBuffer = new ProcessOutputBuffer(outputLimits.getMaxStdErrSize(), outputLimits.getSpillThreshold());
+        
+        // The standard output buffer is handed to the returned process output, which releases it
+        try (stdErrBuffer) {
             ProcessBuilder processbuilder = new ProcessBuilder(commands);
             Process process = processbuilder.start();
             long executionStartTime = System.currentTimeMillis();
+            
+            Future<?> stdOutDrainer = drain(process, process.getInputStream(), stdOutBuffer);
+            Future<?> stdErrDrainer = drain(process, process.getErrorStream(), stdErrBuffer);
     
             // Do not let the process exceed the timeout
             process.waitFor(timeout, TimeUnit.MILLISECONDS);
             long executionEndTime = System.currentTimeMillis();
     
-            int status = 0;
-            String stdOut = "";
-            String stdErr = "";
-    
             // Check if the process is alive,
             // if it's so then destroy it and return a timeout status
             if (process.isAlive()) {
                 log.info("The process exceeded the {} Millis allowed for its execution", timeout);
                 process.destroy();
-                throw new ProcessExecutionTimeoutException(timeout);
-            } else {
-                status = process.exitValue();
-        
-                BufferedReader containerOutputReader =
-                        new BufferedReader(new InputStreamReader(process.getInputStream()));
-                stdOut = CmdUtils.readOutput(containerOutputReader);
-        
-                BufferedReader containerErrorReader =
-                        new BufferedReader(new InputStreamReader(process.getErrorStream()));
-                stdErr = CmdUtils.buildErrorOutput(CmdUtils.readOutput(containerErrorReader));
+                // Keeps what the process wrote before being killed
+                awaitDrainer(stdOutDrainer);
+                stdErrDrainer.cancel(true);
+                var partialOutput = ProcessOutput
+                        .builder()
+                        .stdOut(stdOutBuffer.toString())
+                        .stdOutBuffer(stdOutBuffer)
+                        .build();
+                throw new ProcessExecutionTimeoutException(timeout, partialOutput);
+            }
+            
+            int status = process.exitValue();
+            
+            // The streams are closed once the process exits, unless a child process inherited them
+            awaitDrainer(stdOutDrainer);
+            awaitDrainer(stdErrDrainer);
+            
+            boolean outputLimitExceeded = stdOutBuffer.isLimitExceeded() || stdErrBuffer.isLimitExceeded();
+            if (outputLimitExceeded) {
+                log.info("The process exceeded the allowed output size (stdout: {} bytes, stderr: {} bytes)",
+                        outputLimits.getMaxStdOutSize(),
+                        outputLimits.getMaxStdErrSize());
             }
     
             return ProcessOutput
                     .builder()
-                    .stdOut(stdOut)
-                    .stdErr(stdErr)
+                    .stdOut(stdOutBuffer.toString())
+                    .stdOutBuffer(stdOutBuffer)
+                    .stdErr(CmdUtils.buildErrorOutput(stdErrBuffer.toString()))
                     .status(status)
                     .executionDuration((int)(executionEndTime - executionStartTime))
+                    .outputLimitExceeded(outputLimitExceeded)
                     .build();
             
         } catch(RuntimeException | InterruptedException | IOException exception) {
             if (exception instanceof ProcessExecutionTimeoutException) {
                 throw (ProcessExecutionTimeoutException) exception;
             }
+            stdOutBuffer.close();
             log.error("Unexpected error: {}", exception);
             throw new ProcessExecutionException("Fatal error for command " + commands + " : " + exception.getMessage());
         }
     }
+    
+    private static Future<?> drain(Process process, InputStream inputStream, ProcessOutputBuffer buffer) {
+        try {
+            return drainers.submit(() -> {
+                try (inputStream) {
+                    buffer.drain(inputStream);
+                    if (buffer.isLimitExceeded()) {
+                        process.destroyForcibly();
+                    }
+                } catch (IOException exception) {
+                    // The stream is closed when the process is destroyed
+                    log.debug("Stopped reading the process output: {}", exception.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            // A process whose output is not read would block once the pipe buffer is full
+            log.warn("No drainer available to read the process output, destroying the process");
+            process.destroyForcibly();
+            throw exception;
+        }
+    }
+    
+    private static void awaitDrainer(Future<?> drainer) throws InterruptedException {
+        try {
+            drainer.get(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+            log.warn("The process output is still open after its exit, the remaining output is ignored");
+            drainer.cancel(true);
+        } catch (ExecutionException exception) {
+            log.warn("Error while reading the process output: {}", exception.getMessage());
+        }
+    }
 }
@@ -0,0 +1,319 @@
+package com.cp.compiler.utils;
+
+import com.github.dockerjava.api.model.BlkioStatEntry;
+import com.github.dockerjava.api.model.BlkioStatsConfig;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.ContainerPort;
+import com.github.dockerjava.api.model.CpuStatsConfig;
+import com.github.dockerjava.api.model.Image;
+import com.github.dockerjava.api.model.MemoryStatsConfig;
+import com.github.dockerjava.api.model.StatisticNetworksConfig;
+import com.github.dockerjava.api.model.Statistics;
+import com.github.dockerjava.api.model.StatsConfig;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The type Docker table utils.
+ * Renders the responses of the Docker Engine API as the tables printed by the docker cli
+ * (docker ps, docker images and docker stats --no-stream), so the containers info endpoints return
+ * the same output whatever the docker client used.
+ *
+ * @author Zakaria Maaraki
+ */
+public abstract class DockerTableUtils {
+
+    private static final String[] CONTAINERS_HEADER =
+            {"CONTAINER ID", "IMAGE", "COMMAND", "CREATED", "STATUS", "PORTS", "NAMES"};
+
+    private static final String[] IMAGES_HEADER = {"REPOSITORY", "TAG", "IMAGE ID", "CREATED", "SIZE"};
+
+    private static final String[] STATS_HEADER =
+            {"CONTAINER ID", "NAME", "CPU %", "MEM USAGE / LIMIT", "MEM %", "NET I/O", "BLOCK I/O", "PIDS"};
+
+    private static final String[] DECIMAL_UNITS = {"B", "kB", "MB", "GB", "TB", "PB", "EB", "ZB", "YB"};
+
+    private static final String[] BINARY_UNITS = {"B", "KiB", "MiB", "GiB", "TiB", "PiB", "EiB", "ZiB", "YiB"};
+
+    private static final String NONE = "<none>";
+
+    private static final int SHORT_ID_LENGTH = 12;
+
+    private static final int MAX_COMMAND_LENGTH = 20;
+
+    // Same column layout as the docker cli tab writer
+    private static final int MIN_COLUMN_WIDTH = 10;
+
+    private static final int COLUMN_PADDING = 3;
+
+    private DockerTableUtils() {
+    }
+
+    /**
+     * Renders the containers as the docker ps command.
+     *
+     * @param containers the containers
+     * @param now        the current time, used to compute the age of the containers
+     * @return the table
+     */
+    public static String formatContainers(List<Container> containers, Instant now) {
+        List<String[]> rows = new ArrayList<>();
+        rows.add(CONTAINERS_HEADER);
+        for (Container container : containers) {
+            rows.add(new String[] {
+                    shortId(container.getId()),
+                    container.getImage(),
+                    "\"" + ellipsis(container.getCommand(), MAX_COMMAND_LENGTH) + "\"",
+                    humanDuration(container.getCreated(), now) + " ago",
+                    container.getStatus(),
+                    formatPorts(container.getPorts()),
+                    formatNames(container.getNames())});
+        }
+        return formatTable(rows);
+    }
+
+    /**
+     * Renders the images as the docker images command, one row per tag.
+     *
+     * @param images the images
+     * @param now    the current time, used to compute the age of the images
+     * @return the table
+     */
+    public static String formatImages(List<Image> images, Instant now) {
+        List<String[]> rows = new ArrayList<>();
+        rows.add(IMAGES_HEADER);
+        for (Image image : images) {
+            String[] repoTags = image.getRepoTags();
+            if (repoTags == null || repoTags.length == 0) {
+                repoTags = new String[] {NONE + ":" + NONE};
+            }
+            for (String repoTag : repoTags) {
+                int separator = repoTag.lastIndexOf(':');
+                rows.add(new String[] {
+                        separator < 0 ? repoTag : repoTag.substring(0, separator),
+                        separator < 0 ? NONE : repoTag.substring(separator + 1),
+                        shortId(image.getId()),
+                        humanDuration(image.getCreated(), now) + " ago",
+                        decimalSize(valueOf(image.getSize()))});
+            }
+        }
+        return formatTable(rows);
+    }
+
+    /**
+     * Renders the stats of the containers as the docker stats --no-stream command.
+     *
+     * @param stats the stats of each container, in the order of the rows
+     * @return the table
+     */
+    public static String formatStats(Map<Container, Statistics> stats) {
+        List<String[]> rows = new ArrayList<>();
+        rows.add(STATS_HEADER);
+        for (Map.Entry<Container, Statistics> entry : stats.entrySet()) {
+            Container container = entry.getKey();
+            Statistics statistics = entry.getValue();
+            MemoryStatsConfig memoryStats = statistics.getMemoryStats();
+            long memoryLimit = memoryStats == null ? 0 : valueOf(memoryStats.getLimit());
+            long memoryUsage = getMemoryUsage(memoryStats);
+            long[] networkIO = getNetworkIO(statistics.getNetworks());
+            long[] blockIO = getBlockIO(statistics.getBlkioStats());
+            rows.add(new String[] {
+                    shortId(container.getId()),
+                    formatNames(container.getNames()),
+                    String.format(Locale.ROOT, "%.2f%%", getCpuPercentage(statistics)),
+                    binarySize(memoryUsage) + " / " + binarySize(memoryLimit),
+                    String.format(Locale.ROOT, "%.2f%%", memoryLimit == 0 ? 0.0 : 100.0 * memoryUsage / memoryLimit),
+                    decimalSize(networkIO[0]) + " / " + decimalSize(networkIO[1]),
+                    decimalSize(blockIO[0]) + " / " + decimalSize(blockIO[1]),
+                    String.valueOf(statistics.getPidsStats() == null
+                            ? 0 : valueOf(statistics.getPidsStats().getCurrent()))});
+        }
+        return formatTable(rows);
+    }
+
+    // Same rounding as the docker cli, e.g. "About an hour" or "3 days"
+    private static String humanDuration(Long createdSeconds, Instant now) {
+        Duration duration = Duration.between(Instant.ofEpochSecond(valueOf(createdSeconds)), now);
+        long seconds = duration.getSeconds();
+        long minutes = duration.toMinutes();
+        long hours = Math.round(duration.getSeconds() / 3600.0);
+        if (seconds < 1) {
+            return "Less than a second";
+        } else if (seconds == 1) {
+            return "1 second";
+        } else if (seconds < 60) {
+            return seconds + " seconds";
+        } else if (minutes == 1) {
+            return "About a minute";
+        } else if (minutes < 60) {
+            return minutes + " minutes";
+        } else if (hours == 1) {
+            return "About an hour";
+        } else if (hours < 48) {
+            return hours + " hours";
+        } else if (hours < 24 * 7 * 2) {
+            return hours / 24 + " days";
+        } else if (hours < 24 * 30 * 2) {
+            return hours / 24 / 7 + " weeks";
+        } else if (hours < 24 * 365 * 2) {
+            return hours / 24 / 30 + " months";
+        }
+        return duration.toHours() / 24 / 365 + " years";
+    }
+
+    // e.g. 1.23GB
+    private static String decimalSize(long size) {
+        return humanSize(size, DECIMAL_UNITS, 1000.0, 3);
+    }
+
+    // e.g. 100.2MiB
+    private static String binarySize(long size) {
+        return humanSize(size, BINARY_UNITS, 1024.0, 4);
+    }
+
+    private static String humanSize(long size, String[] units, double base, int precision) {
+        double value = size;
+        int unit = 0;
+        while (value >= base && unit < units.length - 1) {
+            value /= base;
+            unit++;
+        }
+        return new BigDecimal(value).round(new MathContext(precision)).stripTrailingZeros().toPlainString()
+                + units[unit];
+    }
+
+    private static String formatTable(List<String[]> rows) {
+        int columns = rows.get(0).length;
+        int[] widths = new int[columns];
+        for (String[] row : rows) {
+            for (int column = 0; column < columns - 1; column++) {
+                int width = Math.max(MIN_COLUMN_WIDTH, row[column].length() + COLUMN_PADDING);
+                widths[column] = Math.max(widths[column], width);
+            }
+        }
+        StringBuilder table = new StringBuilder();
+        for (String[] row : rows) {
+            for (int column = 0; column < columns - 1; column++) {
+                table.append(row[column]);
+                table.append(" ".repeat(widths[column] - row[column].length()));
+            }
+            // The last column is not padded
+            table.append(row[columns - 1]).append('\n');
+        }
+        return table.toString();
+    }
+
+    private static String shortId(String id) {
+        if (id == null) {
+            return "";
+        }
+        String shortId = id.startsWith("sha256:") ? id.substring("sha256:".length()) : id;
+        return shortId.length() > SHORT_ID_LENGTH ? shortId.substring(0, SHORT_ID_LENGTH) : shortId;
+    }
+
+    private static String ellipsis(String value, int maxLength) {
+        if (value == null) {
+            return "";
+        }
+        return value.length() > maxLength ? value.substring(0, maxLength - 1) + "…" : value;
+    }
+
+    private static String formatPorts(ContainerPort[] ports) {
+        if (ports == null) {
+            return "";
+        }
+        return Arrays.stream(ports)
+                .map(port -> {
+                    String privatePort = port.getPrivatePort() + "/" + port.getType();
+                    return port.getPublicPort() == null
+                            ? privatePort
+                            : port.getIp() + ":" + port.getPublicPort() + "->" + privatePort;
+                })
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String formatNames(String[] names) {
+        if (names == null) {
+            return "";
+        }
+        // The names of the links contain another slash, the docker cli does not show them
+        return Arrays.stream(names)
+                .map(name -> name.startsWith("/") ? name.substring(1) : name)
+                .filter(name -> !name.contains("/"))
+                .collect(Collectors.joining(","));
+    }
+
+    private static double getCpuPercentage(Statistics statistics) {
+        CpuStatsConfig cpuStats = statistics.getCpuStats();
+        CpuStatsConfig previousCpuStats = statistics.getPreCpuStats();
+        if (cpuStats == null || cpuStats.getCpuUsage() == null
+                || previousCpuStats == null || previousCpuStats.getCpuUsage() == null) {
+            return 0.0;
+        }
+        long cpuDelta = valueOf(cpuStats.getCpuUsage().getTotalUsage())
+                - valueOf(previousCpuStats.getCpuUsage().getTotalUsage());
+        long systemDelta = valueOf(cpuStats.getSystemCpuUsage()) - valueOf(previousCpuStats.getSystemCpuUsage());
+        long onlineCpus = valueOf(cpuStats.getOnlineCpus());
+        if (onlineCpus == 0 && cpuStats.getCpuUsage().getPercpuUsage() != null) {
+            onlineCpus = cpuStats.getCpuUsage().getPercpuUsage().size();
+        }
+        if (cpuDelta <= 0 || systemDelta <= 0) {
+            return 0.0;
+        }
+        return 100.0 * cpuDelta / systemDelta * onlineCpus;
+    }
+
+    private static long getMemoryUsage(MemoryStatsConfig memoryStats) {
+        if (memoryStats == null) {
+            return 0;
+        }
+        long usage = valueOf(memoryStats.getUsage());
+        StatsConfig stats = memoryStats.getStats();
+        if (stats == null) {
+            return usage;
+        }
+        // As the docker cli, the inactive page cache is not counted (cgroup v1 then v2 stats)
+        long inactiveFile = stats.getTotalInactiveFile() != null
+                ? stats.getTotalInactiveFile()
+                : valueOf(stats.getInactiveFile());
+        return inactiveFile < usage ? usage - inactiveFile : usage;
+    }
+
+    private static long[] getNetworkIO(Map<String, StatisticNetworksConfig> networks) {
+        long[] networkIO = new long[2];
+        if (networks != null) {
+            for (StatisticNetworksConfig network : networks.values()) {
+                networkIO[0] += valueOf(network.getRxBytes());
+                networkIO[1] += valueOf(network.getTxBytes());
+            }
+        }
+        return networkIO;
+    }
+
+    private static long[] getBlockIO(BlkioStatsConfig blkioStats) {
+        long[] blockIO = new long[2];
+        if (blkioStats != null && blkioStats.getIoServiceBytesRecursive() != null) {
+            for (BlkioStatEntry entry : blkioStats.getIoServiceBytesRecursive()) {
+                if ("read".equalsIgnoreCase(entry.getOp())) {
+                    blockIO[0] += valueOf(entry.getValue());
+                } else if ("write".equalsIgnoreCase(entry.getOp())) {
+                    blockIO[1] += valueOf(entry.getValue());
+                }
+            }
+        }
+        return blockIO;
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,147 @@
+package com.cp.compiler.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The type Executor utils.
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+public abstract class ExecutorUtils {
+
+    // Time an idle thread is kept alive
+    private static final long KEEP_ALIVE = 60; // in seconds
+
+    private ExecutorUtils() {}
+
+    /**
+     * Creates a bounded executor, its threads are named [name]-[index] and its metrics are registered
+     * under the executor.* meters tagged with its name.
+     * Once all the threads are busy the tasks wait in the queue, once the queue is full the rejection handler
+     * decides (ex: CallerRunsPolicy to slow down the producers, AbortPolicy to throttle them).
+     *
+     * @param name              the name of the executor
+     * @param poolSize          the max number of threads
+     * @param queueCapacity     the max number of waiting tasks, 0 to hand the tasks directly to the threads
+     * @param rejectionHandler  the handler of the tasks submitted when the executor is saturated
+     * @param meterRegistry     the meter registry
+     * @return the executor service
+     */
+    public static ExecutorService newBoundedExecutor(String name,
+                                                     int poolSize,
+                                                     int queueCapacity,
+                                                     RejectedExecutionHandler rejectionHandler,
+                                                     MeterRegistry meterRegistry) {
+        return newBoundedExecutor(name, poolSize, queueCapacity, rejectionHandler, meterRegistry, false);
+    }
+
+    /**
+     * Creates a bounded executor, see {@link #newBoundedExecutor(String, int, int, RejectedExecutionHandler,
+     * MeterRegistry)}.
+     * With virtual threads the bounds and the metrics stay the same but a blocked thread no longer holds
+     * a platform thread and its stack, it falls back to platform threads if the JDK does not support them.
+     *
+     * @param name              the name of the executor
+     * @param poolSize          the max number of threads
+     * @param queueCapacity     the max number of waiting tasks, 0 to hand the tasks directly to the threads
+     * @param rejectionHandler  the handler of the tasks submitted when the executor is saturated
+     * @param meterRegistry     the meter registry
+     * @param virtualThreads    true to run the tasks on virtual threads
+     * @return the executor service
+     */
+    public static ExecutorService newBoundedExecutor(String name,
+                                                     int poolSize,
+                                                     int queueCapacity,
+                                                     RejectedExecutionHandler rejectionHandler,
+                                                     MeterRegistry meterRegistry,
+                                                     boolean virtualThreads) {
+        if (poolSize <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException(
+                    "The executor " + name + " should have pool-size > 0 and queue-capacity >= 0");
+        }
+        BlockingQueue<Runnable> queue = queueCapacity == 0
+                ? new SynchronousQueue<>()
+                : new LinkedBlockingQueue<>(queueCapacity);
+        ThreadFactory threadFactory = virtualThreads
+                ? newVirtualThreadFactory(name).orElseGet(() -> newPlatformThreadFactory(name))
+                : newPlatformThreadFactory(name);
+        var executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                KEEP_ALIVE,
+                TimeUnit.SECONDS,
+                queue,
+                threadFactory,
+                rejectionHandler);
+        // Threads are only started when needed and stopped once idle
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, name);
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread per task, its threads are named [name]-[index].
+     *
+     * @param name          the name of the executor
+     * @param meterRegistry the meter registry
+     * @return the executor service, empty if the JDK does not support virtual threads
+     */
+    public static Optional<ExecutorService> newVirtualThreadPerTaskExecutor(String name, MeterRegistry meterRegistry) {
+        return newVirtualThreadFactory(name).map(threadFactory -> {
+            try {
+                var executor = (ExecutorService) Executors.class
+                        .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, threadFactory);
+                return ExecutorServiceMetrics.monitor(meterRegistry, executor, name);
+            } catch (ReflectiveOperationException exception) {
+                throw new IllegalStateException("Could not create the virtual thread executor " + name, exception);
+            }
+        });
+    }
+
+    /**
+     * Is virtual threads supported boolean.
+     *
+     * @return true if the JDK running the app supports virtual threads (JDK 21+)
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return newVirtualThreadFactory("virtual").isPresent();
+    }
+
+    // Thread.ofVirtual().name(name + "-", 1).factory(), through reflection as the app is built for JDK 11
+    private static Optional<ThreadFactory> newVirtualThreadFactory(String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+            return Optional.of((ThreadFactory) builderClass.getMethod("factory").invoke(builder));
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            // Before JDK 21, or a preview feature that is not enabled
+            log.debug("Virtual threads are not supported: {}", exception.toString());
+            return Optional.empty();
+        }
+    }
+
+    private static ThreadFactory newPlatformThreadFactory(String name) {
+        var threadIndex = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, name + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
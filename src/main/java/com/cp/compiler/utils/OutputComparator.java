@@ -0,0 +1,219 @@
+package com.cp.compiler.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+/**
+ * The type Output comparator.
+ * Compares the output of a program with the expected output while reading it, without copying any of them.
+ * Both outputs are normalized the same way as before comparing them: trimmed, each sequence of white spaces replaced
+ * by a single space, then each "/n" removed.
+ *
+ * @author Zakaria Maaraki
+ */
+public abstract class OutputComparator {
+
+    /**
+     * The value returned when both outputs match.
+     */
+    public static final long NO_MISMATCH = -1;
+
+    private static final int END = -1;
+
+    private static final int BUFFER_SIZE = 1024; // number of chars
+
+    private OutputComparator() {}
+
+    /**
+     * Find the first mismatch between the output and the expected output.
+     *
+     * @param output         the output
+     * @param expectedOutput the expected output
+     * @return the offset in the output where both outputs diverge, or NO_MISMATCH
+     */
+    public static long findMismatch(String output, String expectedOutput) {
+        return findMismatch(new StringReader(output), expectedOutput);
+    }
+
+    /**
+     * Find the first mismatch between the output and the expected output.
+     * The output is read until the first mismatch.
+     *
+     * @param output         the output
+     * @param expectedOutput the expected output
+     * @return the offset in the output where both outputs diverge, or NO_MISMATCH
+     */
+    public static long findMismatch(Reader output, String expectedOutput) {
+        var outputSource = new OutputSource(output);
+        var expected = new ExpectedCursor(expectedOutput);
+        boolean started = false;
+
+        int c = outputSource.read();
+        while (c != END) {
+
+            if (c <= ' ') {
+                if (!started) {
+                    // Leading white spaces are trimmed
+                    c = outputSource.read();
+                    continue;
+                }
+                // The run is trimmed if it's at the end of the output,
+                // so it's compared speculatively and the expected cursor is restored if so
+                int savedIndex = expected.index;
+                long runMismatch = NO_MISMATCH;
+                while (c != END && c <= ' ') {
+                    long offset = outputSource.offset();
+                    int normalized = c;
+                    if (isWhiteSpace(c)) {
+                        normalized = ' ';
+                        do {
+                            c = outputSource.read();
+                        } while (c != END && isWhiteSpace(c));
+                    } else {
+                        c = outputSource.read();
+                    }
+                    if (runMismatch == NO_MISMATCH && expected.next() != normalized) {
+                        runMismatch = offset;
+                    }
+                }
+                if (c == END) {
+                    expected.index = savedIndex;
+                    break;
+                }
+                if (runMismatch != NO_MISMATCH) {
+                    return runMismatch;
+                }
+            }
+
+            started = true;
+            long offset = outputSource.offset();
+
+            if (c == '/') {
+                int next = outputSource.read();
+                if (next == 'n') {
+                    c = outputSource.read();
+                    continue;
+                }
+                outputSource.unread(next);
+            }
+
+            if (expected.next() != c) {
+                return offset;
+            }
+            c = outputSource.read();
+        }
+
+        return expected.next() == END ? NO_MISMATCH : outputSource.count;
+    }
+
+    // Same characters as the \s regex class
+    private static boolean isWhiteSpace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Reads the output by chunks, counting the chars read.
+     */
+    private static class OutputSource {
+
+        private final Reader reader;
+
+        private final char[] buffer = new char[BUFFER_SIZE];
+
+        private int position;
+
+        private int limit;
+
+        private int unread;
+
+        private boolean unreadPending;
+
+        private long count;
+
+        private OutputSource(Reader reader) {
+            this.reader = reader;
+        }
+
+        private int read() {
+            int c;
+            if (unreadPending) {
+                unreadPending = false;
+                c = unread;
+            } else {
+                if (position == limit) {
+                    try {
+                        limit = Math.max(reader.read(buffer), 0);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                    position = 0;
+                }
+                c = position < limit ? buffer[position++] : END;
+            }
+            if (c != END) {
+                count++;
+            }
+            return c;
+        }
+
+        private void unread(int c) {
+            unread = c;
+            unreadPending = true;
+            if (c != END) {
+                count--;
+            }
+        }
+
+        // The offset of the last char read
+        private long offset() {
+            return count - 1;
+        }
+    }
+
+    /**
+     * Walks the normalized expected output.
+     */
+    private static class ExpectedCursor {
+
+        private final String text;
+
+        private final int end;
+
+        private int index;
+
+        private ExpectedCursor(String text) {
+            this.text = text;
+            int start = 0;
+            int end = text.length();
+            while (start < end && text.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && text.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            this.index = start;
+            this.end = end;
+        }
+
+        private int next() {
+            while (index < end) {
+                char c = text.charAt(index);
+                if (isWhiteSpace(c)) {
+                    while (index < end && isWhiteSpace(text.charAt(index))) {
+                        index++;
+                    }
+                    return ' ';
+                }
+                if (c == '/' && index + 1 < end && text.charAt(index + 1) == 'n') {
+                    index += 2;
+                    continue;
+                }
+                index++;
+                return c;
+            }
+            return END;
+        }
+    }
+}
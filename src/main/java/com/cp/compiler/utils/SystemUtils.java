@@ -0,0 +1,178 @@
+package com.cp.compiler.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The type System utils.
+ * Reads the capacity and the pressure of the host from procfs and cgroups (v2 then v1).
+ *
+ * @author Zakaria Maaraki
+ */
+@Slf4j
+public abstract class SystemUtils {
+
+    private static final Path MEMINFO = Path.of("/proc/meminfo");
+
+    private static final Path CGROUP_V2_MEMORY_MAX = Path.of("/sys/fs/cgroup/memory.max");
+
+    private static final Path CGROUP_V1_MEMORY_LIMIT = Path.of("/sys/fs/cgroup/memory/memory.limit_in_bytes");
+
+    private static final Path CGROUP_V2_MEMORY_CURRENT = Path.of("/sys/fs/cgroup/memory.current");
+
+    private static final Path CGROUP_V1_MEMORY_USAGE = Path.of("/sys/fs/cgroup/memory/memory.usage_in_bytes");
+
+    private static final Path PRESSURE_FOLDER = Path.of("/proc/pressure");
+
+    // cgroup v1 reports a huge value (close to Long.MAX_VALUE) when the memory is not limited
+    private static final long CGROUP_V1_UNLIMITED_THRESHOLD = 1L << 60;
+
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
+    private SystemUtils() {}
+
+    /**
+     * Gets the memory of the host in MB: the cgroup memory limit if any, the total memory of the host otherwise.
+     *
+     * @return the total memory in MB
+     */
+    public static long getTotalMemory() {
+        long hostMemory = readMemTotal().orElse(Runtime.getRuntime().maxMemory()) / BYTES_PER_MB;
+        Optional<Long> cgroupLimit = readCgroupMemoryLimit();
+        return cgroupLimit.map(limit -> Math.min(limit / BYTES_PER_MB, hostMemory)).orElse(hostMemory);
+    }
+
+    /**
+     * Gets the number of cpus, the jvm already takes the cgroup cpu quota into account.
+     *
+     * @return the number of cpus
+     */
+    public static float getCpus() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Gets the pressure stall information of a resource: the share of the last 10 seconds during which
+     * at least one task was stalled waiting for the resource.
+     *
+     * @param resource the resource (cpu, memory or io)
+     * @return the pressure in percent, empty if the kernel does not expose it
+     */
+    public static Optional<Double> getPressure(String resource) {
+        Path path = PRESSURE_FOLDER.resolve(resource);
+        try {
+            return parsePressure(Files.readAllLines(path));
+        } catch (IOException | RuntimeException exception) {
+            log.debug("Could not read {}: {}", path, exception.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Gets the memory used by the cgroup of the current process.
+     *
+     * @return the memory usage in percent of the cgroup memory limit, empty if the memory is not limited
+     */
+    public static Optional<Double> getCgroupMemoryUsage() {
+        Optional<Long> limit = readCgroupMemoryLimit();
+        if (limit.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            Path usagePath = Files.exists(CGROUP_V2_MEMORY_CURRENT) ? CGROUP_V2_MEMORY_CURRENT : CGROUP_V1_MEMORY_USAGE;
+            long usage = Long.parseLong(Files.readString(usagePath).trim());
+            return Optional.of(100.0 * usage / limit.get());
+        } catch (IOException | RuntimeException exception) {
+            log.debug("Could not read the cgroup memory usage: {}", exception.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Parse the "some" avg10 value of /proc/pressure lines (ex: "some avg10=3.35 avg60=12.85 avg300=33.44 total=3005").
+     *
+     * @param lines the lines
+     * @return the pressure in percent
+     */
+    static Optional<Double> parsePressure(List<String> lines) {
+        for (String line : lines) {
+            if (line.startsWith("some ")) {
+                for (String field : line.split("\\s+")) {
+                    if (field.startsWith("avg10=")) {
+                        return Optional.of(Double.parseDouble(field.substring("avg10=".length())));
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Read the total memory from /proc/meminfo.
+     *
+     * @return the total memory in bytes
+     */
+    static Optional<Long> readMemTotal() {
+        try {
+            return parseMemTotal(Files.readAllLines(MEMINFO));
+        } catch (IOException | RuntimeException exception) {
+            log.debug("Could not read {}: {}", MEMINFO, exception.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Parse the total memory of /proc/meminfo lines (ex: "MemTotal:       16318216 kB").
+     *
+     * @param lines the lines
+     * @return the total memory in bytes
+     */
+    static Optional<Long> parseMemTotal(List<String> lines) {
+        for (String line : lines) {
+            if (line.startsWith("MemTotal:")) {
+                String[] fields = line.trim().split("\\s+");
+                return Optional.of(Long.parseLong(fields[1]) * 1024);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Read the memory limit of the cgroup of the current process.
+     *
+     * @return the limit in bytes, empty if the memory is not limited
+     */
+    static Optional<Long> readCgroupMemoryLimit() {
+        try {
+            if (Files.exists(CGROUP_V2_MEMORY_MAX)) {
+                return parseCgroupMemoryLimit(Files.readString(CGROUP_V2_MEMORY_MAX));
+            }
+            if (Files.exists(CGROUP_V1_MEMORY_LIMIT)) {
+                return parseCgroupMemoryLimit(Files.readString(CGROUP_V1_MEMORY_LIMIT));
+            }
+        } catch (IOException | RuntimeException exception) {
+            log.debug("Could not read the cgroup memory limit: {}", exception.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Parse a cgroup memory limit ("max" in cgroup v2 when it's not limited).
+     *
+     * @param value the value
+     * @return the limit in bytes, empty if the memory is not limited
+     */
+    static Optional<Long> parseCgroupMemoryLimit(String value) {
+        String limit = value.trim();
+        if (limit.equals("max")) {
+            return Optional.empty();
+        }
+        long bytes = Long.parseLong(limit);
+        return bytes >= CGROUP_V1_UNLIMITED_THRESHOLD ? Optional.empty() : Optional.of(bytes);
+    }
+}
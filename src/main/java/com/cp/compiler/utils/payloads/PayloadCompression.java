@@ -0,0 +1,169 @@
+package com.cp.compiler.utils.payloads;
+
+import com.cp.compiler.exceptions.UnsupportedPayloadException;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import lombok.Getter;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The enum Payload compression.
+ * The compressions of the payloads of the messaging systems, given by their content encoding,
+ * the payloads are not compressed by default. A payload is decompressed up to a max size, so that a small
+ * compressed message can't fill the memory.
+ *
+ * @author Zakaria Maaraki
+ */
+public enum PayloadCompression {
+    
+    /**
+     * No compression.
+     */
+    IDENTITY(null),
+    
+    /**
+     * Gzip compression.
+     */
+    GZIP("gzip"),
+    
+    /**
+     * Lz4 compression (frame format), fast with a lower ratio.
+     */
+    LZ4("lz4"),
+    
+    /**
+     * Zstd compression, a better ratio for the large test cases.
+     */
+    ZSTD("zstd");
+    
+    // null for no compression
+    @Getter
+    private final String contentEncoding;
+    
+    PayloadCompression(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+    
+    /**
+     * Compresses a payload.
+     *
+     * @param payload the payload
+     * @return the compressed payload
+     */
+    public byte[] compress(byte[] payload) {
+        if (this == IDENTITY) {
+            return payload;
+        }
+        var output = new ByteArrayOutputStream(Math.max(64, payload.length / 4));
+        try (OutputStream compressedOutput = compressedOutputStream(output)) {
+            compressedOutput.write(payload);
+        } catch (IOException exception) {
+            throw new UnsupportedPayloadException("Could not compress the payload with " + contentEncoding, exception);
+        }
+        return output.toByteArray();
+    }
+    
+    /**
+     * Decompresses a payload.
+     *
+     * @param payload the compressed payload
+     * @param maxSize the max size of the decompressed payload in bytes
+     * @return the payload
+     * @throws UnsupportedPayloadException if the payload is not compressed with this compression,
+     *                                     or if it's larger than the max size once decompressed
+     */
+    public byte[] decompress(byte[] payload, long maxSize) {
+        if (this == IDENTITY) {
+            return payload;
+        }
+        try (InputStream input = decompressedInputStream(new ByteArrayInputStream(payload))) {
+            var output = new ByteArrayOutputStream((int) Math.min(maxSize, payload.length * 4L));
+            byte[] chunk = new byte[8192];
+            long size = 0;
+            int read;
+            while ((read = input.read(chunk)) != -1) {
+                size += read;
+                if (size > maxSize) {
+                    throw new UnsupportedPayloadException("The payload is larger than " + maxSize
+                            + " bytes once decompressed with " + contentEncoding);
+                }
+                output.write(chunk, 0, read);
+            }
+            return output.toByteArray();
+        } catch (IOException exception) {
+            throw new UnsupportedPayloadException("Could not decompress the payload with " + contentEncoding, exception);
+        }
+    }
+    
+    private OutputStream compressedOutputStream(OutputStream output) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(output);
+            case LZ4:
+                return new LZ4FrameOutputStream(output);
+            case ZSTD:
+                return new ZstdOutputStream(output);
+            default:
+                return output;
+        }
+    }
+    
+    private InputStream decompressedInputStream(InputStream input) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(input);
+            case LZ4:
+                return new LZ4FrameInputStream(input);
+            case ZSTD:
+                return new ZstdInputStream(input);
+            default:
+                return input;
+        }
+    }
+    
+    /**
+     * Gets the compression of a content encoding.
+     *
+     * @param contentEncoding the content encoding, null, identity or a charset for no compression
+     * @return the payload compression
+     * @throws UnsupportedPayloadException if the content encoding is not supported
+     */
+    public static PayloadCompression fromContentEncoding(String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.isBlank()) {
+            return IDENTITY;
+        }
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if ("identity".equals(encoding)) {
+            return IDENTITY;
+        }
+        for (PayloadCompression compression : values()) {
+            if (encoding.equals(compression.contentEncoding)) {
+                return compression;
+            }
+        }
+        // RabbitMQ clients (ex: spring-amqp) put the charset of the text messages in their content encoding
+        if (isCharset(encoding)) {
+            return IDENTITY;
+        }
+        throw new UnsupportedPayloadException("Unsupported payload content encoding " + contentEncoding);
+    }
+    
+    private static boolean isCharset(String encoding) {
+        try {
+            return Charset.isSupported(encoding);
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+}
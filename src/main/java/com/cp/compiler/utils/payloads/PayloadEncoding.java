@@ -0,0 +1,163 @@
+package com.cp.compiler.utils.payloads;
+
+import com.cp.compiler.exceptions.UnsupportedPayloadException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The type Payload encoding.
+ * The format and the compression of a payload of the messaging systems, negotiated with the content type
+ * and the content encoding of the message: the response of a request is encoded like the request.
+ * The compiler works on JSON, the payloads are transcoded at the boundaries of the messaging systems.
+ * A message without content type nor content encoding is plain JSON, as before.
+ *
+ * @author Zakaria Maaraki
+ */
+@Getter
+@EqualsAndHashCode
+public class PayloadEncoding {
+    
+    /**
+     * The default encoding, uncompressed JSON.
+     */
+    public static final PayloadEncoding DEFAULT = new PayloadEncoding(PayloadFormat.JSON, PayloadCompression.IDENTITY);
+    
+    /**
+     * The default max size of a decompressed payload in bytes (64 MiB).
+     */
+    public static final long DEFAULT_MAX_DECOMPRESSED_SIZE = 64L * 1024 * 1024;
+    
+    private final PayloadFormat format;
+    
+    private final PayloadCompression compression;
+    
+    /**
+     * Instantiates a new Payload encoding.
+     *
+     * @param format      the format
+     * @param compression the compression
+     */
+    public PayloadEncoding(PayloadFormat format, PayloadCompression compression) {
+        this.format = format;
+        this.compression = compression;
+    }
+    
+    /**
+     * Gets the encoding of a message.
+     *
+     * @param contentType     the content type of the message, null for JSON
+     * @param contentEncoding the content encoding of the message, null for no compression
+     * @return the payload encoding
+     * @throws UnsupportedPayloadException if the content type or the content encoding is not supported
+     */
+    public static PayloadEncoding of(String contentType, String contentEncoding) {
+        PayloadFormat format = PayloadFormat.fromContentType(contentType);
+        PayloadCompression compression = PayloadCompression.fromContentEncoding(contentEncoding);
+        if (format == PayloadFormat.JSON && compression == PayloadCompression.IDENTITY) {
+            return DEFAULT;
+        }
+        return new PayloadEncoding(format, compression);
+    }
+    
+    /**
+     * Whether it's the default encoding, the messages are sent without content type nor content encoding.
+     *
+     * @return true if it's uncompressed JSON
+     */
+    public boolean isDefault() {
+        return format == PayloadFormat.JSON && compression == PayloadCompression.IDENTITY;
+    }
+    
+    /**
+     * Gets the content type of the messages.
+     *
+     * @return the content type
+     */
+    public String getContentType() {
+        return format.getContentType();
+    }
+    
+    /**
+     * Gets the content encoding of the messages.
+     *
+     * @return the content encoding, null if they are not compressed
+     */
+    public String getContentEncoding() {
+        return compression.getContentEncoding();
+    }
+    
+    /**
+     * Encodes a JSON payload.
+     *
+     * @param json the JSON payload
+     * @return the encoded payload
+     */
+    public byte[] encode(String json) {
+        if (json == null) {
+            return null;
+        }
+        byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+        if (format != PayloadFormat.JSON) {
+            payload = transcode(payload, PayloadFormat.JSON.getFactory(), format.getFactory());
+        }
+        return compression.compress(payload);
+    }
+    
+    /**
+     * Decodes a payload into JSON, decompressed up to the default max size.
+     *
+     * @param payload the encoded payload
+     * @return the JSON payload
+     * @throws UnsupportedPayloadException if the payload can't be decoded
+     */
+    public String decode(byte[] payload) {
+        return decode(payload, DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+    
+    /**
+     * Decodes a payload into JSON.
+     *
+     * @param payload             the encoded payload
+     * @param maxDecompressedSize the max size of the decompressed payload in bytes
+     * @return the JSON payload
+     * @throws UnsupportedPayloadException if the payload can't be decoded or is larger than the max size
+     */
+    public String decode(byte[] payload, long maxDecompressedSize) {
+        if (payload == null) {
+            return null;
+        }
+        byte[] json = compression.decompress(payload, maxDecompressedSize);
+        if (format != PayloadFormat.JSON) {
+            json = transcode(json, format.getFactory(), PayloadFormat.JSON.getFactory());
+        }
+        return new String(json, StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    public String toString() {
+        return compression == PayloadCompression.IDENTITY
+                ? format.getContentType()
+                : format.getContentType() + " (" + compression.getContentEncoding() + ")";
+    }
+    
+    // Streams the tokens from a format to another, without building the objects
+    private static byte[] transcode(byte[] payload, JsonFactory source, JsonFactory target) {
+        var output = new ByteArrayOutputStream(payload.length);
+        try (JsonParser parser = source.createParser(payload);
+             JsonGenerator generator = target.createGenerator(output)) {
+            if (parser.nextToken() != null) {
+                generator.copyCurrentStructure(parser);
+            }
+        } catch (IOException exception) {
+            throw new UnsupportedPayloadException("Could not transcode the payload", exception);
+        }
+        return output.toByteArray();
+    }
+}
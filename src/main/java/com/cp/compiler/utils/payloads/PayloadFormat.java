@@ -0,0 +1,70 @@
+package com.cp.compiler.utils.payloads;
+
+import com.cp.compiler.exceptions.UnsupportedPayloadException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * The enum Payload format.
+ * The formats of the payloads of the messaging systems, JSON is the default.
+ * The binary formats (Smile and CBOR) are transcoded from and to JSON without building the objects.
+ *
+ * @author Zakaria Maaraki
+ */
+public enum PayloadFormat {
+    
+    /**
+     * Json payload format.
+     */
+    JSON("application/json", new JsonFactory()),
+    
+    /**
+     * Smile payload format, the binary JSON of Jackson.
+     */
+    SMILE("application/x-jackson-smile", new SmileFactory()),
+    
+    /**
+     * Cbor payload format.
+     */
+    CBOR("application/cbor", new CBORFactory());
+    
+    @Getter
+    private final String contentType;
+    
+    // Thread safe, shared by all the payloads of the format
+    @Getter
+    private final JsonFactory factory;
+    
+    PayloadFormat(String contentType, JsonFactory factory) {
+        this.contentType = contentType;
+        this.factory = factory;
+    }
+    
+    /**
+     * Gets the format of a content type.
+     *
+     * @param contentType the content type, null or text for JSON
+     * @return the payload format
+     * @throws UnsupportedPayloadException if the content type is not supported
+     */
+    public static PayloadFormat fromContentType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return JSON;
+        }
+        // Ignore the parameters (ex: charset)
+        String mimeType = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        if (mimeType.startsWith("text/")) {
+            return JSON;
+        }
+        for (PayloadFormat format : values()) {
+            if (format.contentType.equals(mimeType)) {
+                return format;
+            }
+        }
+        throw new UnsupportedPayloadException("Unsupported payload content type " + contentType);
+    }
+}
@@ -0,0 +1,102 @@
+package com.cp.compiler.utils.retries;
+
+import com.cp.compiler.exceptions.FactoryNotFoundException;
+import com.cp.compiler.exceptions.MonitoredException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The type Retry tiers.
+ * The delays of the retry destinations of the messaging systems (kafka, rabbitmq), a failed message goes
+ * to the next tier, waits for its delay and is consumed again, once the tiers are exhausted it's dead lettered.
+ *
+ * @author Zakaria Maaraki
+ */
+public class RetryTiers {
+
+    // in millis, the delay of the tier n is at the index n - 1
+    private final List<Long> delays;
+
+    /**
+     * Instantiates a new Retry tiers.
+     *
+     * @param delays the delays of the tiers in millis
+     */
+    public RetryTiers(List<Long> delays) {
+        for (Long delay : delays) {
+            if (delay == null || delay < 0) {
+                throw new IllegalArgumentException("The delays of the retry tiers should be positive values");
+            }
+        }
+        this.delays = Collections.unmodifiableList(new ArrayList<>(delays));
+    }
+
+    /**
+     * Parses the retry tiers.
+     *
+     * @param delays the comma separated delays of the tiers in millis, empty for no retries
+     * @return the retry tiers
+     */
+    public static RetryTiers parse(String delays) {
+        List<Long> values = new ArrayList<>();
+        if (delays != null) {
+            for (String delay : delays.split(",")) {
+                if (!delay.isBlank()) {
+                    values.add(Long.parseLong(delay.trim()));
+                }
+            }
+        }
+        return new RetryTiers(values);
+    }
+
+    /**
+     * Gets the number of tiers.
+     *
+     * @return the number of tiers
+     */
+    public int size() {
+        return delays.size();
+    }
+
+    /**
+     * Gets the delay of a tier.
+     *
+     * @param tier the tier, starting from 1
+     * @return the delay in millis
+     */
+    public long getDelay(int tier) {
+        return delays.get(tier - 1);
+    }
+
+    /**
+     * Whether a message that failed after the given number of attempts goes to another retry tier.
+     *
+     * @param attempts the number of the failed attempts, the first consumption is 1
+     * @param exception the error of the last attempt
+     * @return true if the message should be retried, false if it should be dead lettered
+     */
+    public boolean shouldRetry(int attempts, Throwable exception) {
+        return attempts <= delays.size() && isRetryable(exception);
+    }
+
+    /**
+     * Whether an error can go away by retrying.
+     * The invalid messages (not parsable, unsupported language, missing fields) and the non retryable monitored
+     * errors (bad request, deadline exceeded...) fail the same way at each attempt.
+     *
+     * @param exception the exception
+     * @return true if the error is retryable
+     */
+    public static boolean isRetryable(Throwable exception) {
+        if (exception instanceof MonitoredException) {
+            return ((MonitoredException) exception).isRetryableError();
+        }
+        return !(exception instanceof IOException
+                || exception instanceof FactoryNotFoundException
+                || exception instanceof IllegalArgumentException
+                || exception instanceof NullPointerException);
+    }
+}
@@ -98,4 +98,14 @@ public abstract class WellKnownFiles {
      * The constant EXECUTION_DOCKERFILE_NAME.
      */
     public static final String EXECUTION_DOCKERFILE_NAME ="Dockerfile.execution";
+    
+    /**
+     * The id of the batch entrypoint, the harness running all test cases in one container.
+     */
+    public static final String BATCH_ENTRYPOINT_ID = "__batch__";
+    
+    /**
+     * The constant BATCH_TEST_CASES_FILE_NAME, the ordered list of test case ids run by the batch harness.
+     */
+    public static final String BATCH_TEST_CASES_FILE_NAME = "batch-test-cases.txt";
 }
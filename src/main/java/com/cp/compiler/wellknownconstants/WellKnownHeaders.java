@@ -13,4 +13,40 @@ public abstract class WellKnownHeaders {
      * The constant PREFER.
      */
     public static final String PREFER_PUSH = "prefer-push";
+    
+    /**
+     * The constant RETRY_ATTEMPT.
+     * The number of the retry of a broker message, absent for its first consumption.
+     */
+    public static final String RETRY_ATTEMPT = "x-compiler-retry-attempt";
+    
+    /**
+     * The constant RETRY_NOT_BEFORE.
+     * The time in epoch millis before which a retried kafka record is not executed.
+     */
+    public static final String RETRY_NOT_BEFORE = "x-compiler-retry-not-before";
+    
+    /**
+     * The constant RETRY_ERROR.
+     * The error of the last attempt of a retried or dead lettered broker message.
+     */
+    public static final String RETRY_ERROR = "x-compiler-retry-error";
+    
+    /**
+     * The constant EXECUTION_ID.
+     * The execution id of the result events published to the output queue.
+     */
+    public static final String EXECUTION_ID = "x-compiler-execution-id";
+    
+    /**
+     * The constant CONTENT_TYPE.
+     * The format of the payload of a kafka record, JSON if absent (see PayloadFormat).
+     */
+    public static final String CONTENT_TYPE = "content-type";
+    
+    /**
+     * The constant CONTENT_ENCODING.
+     * The compression of the payload of a kafka record, not compressed if absent (see PayloadCompression).
+     */
+    public static final String CONTENT_ENCODING = "content-encoding";
 }
@@ -0,0 +1,67 @@
+package com.cp.compiler.wellknownconstants;
+
+/**
+ * This class contains all constants related to the stock runtime images used to execute the programs.
+ * Note: these images should be the same as the ones used in the execution Dockerfiles.
+ *
+ * @author Zakaria Maaraki
+ */
+public abstract class WellKnownImages {
+    
+    private WellKnownImages() {}
+    
+    /**
+     * The constant JAVA_RUNTIME_IMAGE.
+     */
+    public static final String JAVA_RUNTIME_IMAGE = "openjdk:11.0.6-jre-slim";
+    
+    /**
+     * The constant PYTHON_RUNTIME_IMAGE.
+     */
+    public static final String PYTHON_RUNTIME_IMAGE = "python:3";
+    
+    /**
+     * The constant C_RUNTIME_IMAGE.
+     */
+    public static final String C_RUNTIME_IMAGE = "gcc";
+    
+    /**
+     * The constant CPP_RUNTIME_IMAGE.
+     */
+    public static final String CPP_RUNTIME_IMAGE = "gcc";
+    
+    /**
+     * The constant GO_RUNTIME_IMAGE.
+     */
+    public static final String GO_RUNTIME_IMAGE = "golang";
+    
+    /**
+     * The constant CS_RUNTIME_IMAGE.
+     */
+    public static final String CS_RUNTIME_IMAGE = "mono";
+    
+    /**
+     * The constant KOTLIN_RUNTIME_IMAGE.
+     */
+    public static final String KOTLIN_RUNTIME_IMAGE = "zenika/kotlin";
+    
+    /**
+     * The constant SCALA_RUNTIME_IMAGE.
+     */
+    public static final String SCALA_RUNTIME_IMAGE = "hseeberger/scala-sbt:11.0.14.1_1.6.2_2.13.8";
+    
+    /**
+     * The constant RUST_RUNTIME_IMAGE.
+     */
+    public static final String RUST_RUNTIME_IMAGE = "rust";
+    
+    /**
+     * The constant RUBY_RUNTIME_IMAGE.
+     */
+    public static final String RUBY_RUNTIME_IMAGE = "ruby";
+    
+    /**
+     * The constant HASKELL_RUNTIME_IMAGE.
+     */
+    public static final String HASKELL_RUNTIME_IMAGE = "haskell";
+}
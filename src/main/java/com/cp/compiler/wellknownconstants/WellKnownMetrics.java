@@ -143,4 +143,164 @@ public abstract class WellKnownMetrics {
      * The constant OUT_OF_MEMORY_VERDICT_COUNTER.
      */
     public static final String OUT_OF_MEMORY_VERDICT_COUNTER = "statusResponse.out-of-memory.counter";
+    
+    /**
+     * The constant OUTPUT_LIMIT_EXCEEDED_VERDICT_COUNTER.
+     */
+    public static final String OUTPUT_LIMIT_EXCEEDED_VERDICT_COUNTER = "statusResponse.output-limit-exceeded.counter";
+    
+    /**
+     * The constant EXECUTION_POOL_IDLE_GAUGE.
+     */
+    public static final String EXECUTION_POOL_IDLE_GAUGE = "execution-pool.idle";
+    
+    /**
+     * The constant EXECUTION_POOL_SIZE_GAUGE.
+     */
+    public static final String EXECUTION_POOL_SIZE_GAUGE = "execution-pool.size";
+    
+    /**
+     * The constant COMPILATION_CACHE_HIT_COUNTER.
+     */
+    public static final String COMPILATION_CACHE_HIT_COUNTER = "compilation-cache.hit.counter";
+    
+    /**
+     * The constant COMPILATION_CACHE_MISS_COUNTER.
+     */
+    public static final String COMPILATION_CACHE_MISS_COUNTER = "compilation-cache.miss.counter";
+    
+    /**
+     * The constant COMPILATION_CACHE_EVICTION_COUNTER.
+     */
+    public static final String COMPILATION_CACHE_EVICTION_COUNTER = "compilation-cache.eviction.counter";
+    
+    /**
+     * The constant COMPILATION_CACHE_SIZE_GAUGE.
+     */
+    public static final String COMPILATION_CACHE_SIZE_GAUGE = "compilation-cache.size";
+    
+    /**
+     * The constant ADMISSION_QUEUE_DEPTH_GAUGE.
+     */
+    public static final String ADMISSION_QUEUE_DEPTH_GAUGE = "admission-queue.depth";
+    
+    /**
+     * The constant ADMISSION_QUEUE_WAIT_TIMER.
+     */
+    public static final String ADMISSION_QUEUE_WAIT_TIMER = "admission-queue.wait";
+    
+    /**
+     * The constant ADMISSION_QUEUE_TIMEOUT_COUNTER.
+     */
+    public static final String ADMISSION_QUEUE_TIMEOUT_COUNTER = "admission-queue.timeout.counter";
+    
+    /**
+     * The constant ADMISSION_QUEUE_USERS_GAUGE.
+     */
+    public static final String ADMISSION_QUEUE_USERS_GAUGE = "admission-queue.users";
+    
+    /**
+     * The constant ADMISSION_QUEUE_USER_MAX_DEPTH_GAUGE.
+     */
+    public static final String ADMISSION_QUEUE_USER_MAX_DEPTH_GAUGE = "admission-queue.user.max-depth";
+    
+    /**
+     * The constant ADMISSION_QUEUE_USER_MAX_IN_FLIGHT_GAUGE.
+     */
+    public static final String ADMISSION_QUEUE_USER_MAX_IN_FLIGHT_GAUGE = "admission-queue.user.max-in-flight";
+    
+    /**
+     * The constant ADMISSION_QUEUE_USER_SERVICE_TIMER.
+     */
+    public static final String ADMISSION_QUEUE_USER_SERVICE_TIMER = "admission-queue.user.service";
+    
+    /**
+     * The constant BULKHEAD_RUNNING_GAUGE.
+     */
+    public static final String BULKHEAD_RUNNING_GAUGE = "bulkhead.running";
+    
+    /**
+     * The constant BULKHEAD_WAITING_GAUGE.
+     */
+    public static final String BULKHEAD_WAITING_GAUGE = "bulkhead.waiting";
+    
+    /**
+     * The constant BULKHEAD_SATURATION_GAUGE.
+     */
+    public static final String BULKHEAD_SATURATION_GAUGE = "bulkhead.saturation";
+    
+    /**
+     * The constant BULKHEAD_REJECTION_COUNTER.
+     */
+    public static final String BULKHEAD_REJECTION_COUNTER = "bulkhead.rejection.counter";
+    
+    /**
+     * The constant CONCURRENCY_LIMIT_GAUGE.
+     */
+    public static final String CONCURRENCY_LIMIT_GAUGE = "concurrency.limit";
+    
+    /**
+     * The constant HOST_PRESSURE_GAUGE.
+     */
+    public static final String HOST_PRESSURE_GAUGE = "host.pressure";
+    
+    /**
+     * The constant DEADLINE_SHED_COUNTER.
+     */
+    public static final String DEADLINE_SHED_COUNTER = "deadline.shed.counter";
+    
+    /**
+     * The constant DEADLINE_SHED_TEST_CASES_COUNTER.
+     */
+    public static final String DEADLINE_SHED_TEST_CASES_COUNTER = "deadline.shed.test-cases.counter";
+    
+    /**
+     * The constant KAFKA_THROTTLED_RECORDS_GAUGE.
+     */
+    public static final String KAFKA_THROTTLED_RECORDS_GAUGE = "kafka.throttled.records";
+    
+    /**
+     * The constant KAFKA_IN_FLIGHT_EXECUTIONS_GAUGE.
+     */
+    public static final String KAFKA_IN_FLIGHT_EXECUTIONS_GAUGE = "kafka.in-flight.executions";
+    
+    /**
+     * The constant KAFKA_WAITING_RECORDS_GAUGE.
+     */
+    public static final String KAFKA_WAITING_RECORDS_GAUGE = "kafka.waiting.records";
+    
+    /**
+     * The constant KAFKA_FAILURE_RETRIES.
+     */
+    public static final String KAFKA_FAILURE_RETRIES = "kafka.failure.retries";
+    
+    /**
+     * The constant KAFKA_DEAD_LETTERS.
+     */
+    public static final String KAFKA_DEAD_LETTERS = "kafka.dead.letters";
+    
+    /**
+     * The constant KAFKA_DELAYED_RECORDS_GAUGE.
+     */
+    public static final String KAFKA_DELAYED_RECORDS_GAUGE = "kafka.delayed.records";
+    
+    /**
+     * The constant AMQP_FAILURE_RETRIES.
+     */
+    public static final String AMQP_FAILURE_RETRIES = "amqp.failure.retries";
+    
+    /**
+     * The constant AMQP_DEAD_LETTERS.
+     */
+    public static final String AMQP_DEAD_LETTERS = "amqp.dead.letters";
+    
+    /**
+     * The constant KAFKA_DUPLICATE_REQUESTS.
+     */
+    public static final String KAFKA_DUPLICATE_REQUESTS = "kafka.duplicate.requests";
+    
+    /**
+     * The constant AMQP_DUPLICATE_REQUESTS.
+     */
+    public static final String AMQP_DUPLICATE_REQUESTS = "amqp.duplicate.requests";
 }
@@ -24,6 +24,16 @@ public abstract class WellKnownParams {
      */
     public static final String USER_ID = "userId";
     
+    /**
+     * The constant PRIORITY.
+     */
+    public static final String PRIORITY = "priority";
+    
+    /**
+     * The constant DEADLINE.
+     */
+    public static final String DEADLINE = "deadline";
+    
     /**
      * The constant INPUTS.
      */
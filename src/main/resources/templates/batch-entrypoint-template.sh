@@ -0,0 +1,56 @@
+#!/bin/sh
+
+# Runs the entrypoint of each test case listed in [(${compiler.testCasesFileName})] in order (each entrypoint enforces
+# the time limit of its test case) and prints one line per test case:
+# [(${compiler.resultPrefix})] <index> <exit status> <duration in ms> <stdout in base64> <stderr in base64>
+# The execution stops at the first test case that does not exit normally, exceeds its output limits or whose output
+# does not match its expected output (<test case id>[(${compiler.expectedOutputFileSuffix})]), or once the deadline of
+# the request ([(${compiler.deadline})] in epoch ms, 0 for none) passed. The verdicts are still given by the caller.
+# The outputs are cut one byte beyond their limits ([(${compiler.maxOutputSize})] and [(${compiler.maxErrorSize})] bytes), so
+# the limits apply to each test case and exceeding them is still detected.
+
+results=$(mktemp -d)
+
+now() {
+    t=$(date +%s%N)
+    case "$t" in
+        *N) echo $(( ${t%N} * 1000 )) ;;
+        *) echo $(( t / 1000000 )) ;;
+    esac
+}
+
+# Same normalization as the verdicts: each sequence of white spaces replaced by a single space, trimmed,
+# then each "/n" removed
+normalize() {
+    LC_ALL=C tr '\t\n\v\f\r' '     ' < "$1" \
+        | LC_ALL=C tr -s ' ' \
+        | LC_ALL=C sed -e 's/^[\x00-\x20]*//' -e 's/[\x00-\x20]*$//' -e 's|/n||g'
+}
+
+index=0
+while IFS= read -r testCaseId || [ -n "$testCaseId" ]; do
+    start=$(now)
+    if [ [(${compiler.deadline})] -gt 0 ] && [ "$start" -ge [(${compiler.deadline})] ]; then
+        break
+    fi
+    ./entrypoint-"$testCaseId".sh > "$results/out" 2> "$results/err" < /dev/null
+    status=$?
+    end=$(now)
+    stdout=$(head -c $(([(${compiler.maxOutputSize})] + 1)) < "$results/out" | base64 -w 0)
+    stderr=$(head -c $(([(${compiler.maxErrorSize})] + 1)) < "$results/err" | base64 -w 0)
+    echo "[(${compiler.resultPrefix})] $index $status $((end - start)) $stdout $stderr"
+    if [ "$status" -ne 0 ] \
+        || [ "$(wc -c < "$results/out")" -gt [(${compiler.maxOutputSize})] ] \
+        || [ "$(wc -c < "$results/err")" -gt [(${compiler.maxErrorSize})] ]; then
+        break
+    fi
+    normalize "$results/out" > "$results/actual"
+    normalize "./$testCaseId[(${compiler.expectedOutputFileSuffix})]" > "$results/expected"
+    if ! cmp -s "$results/actual" "$results/expected"; then
+        break
+    fi
+    index=$((index + 1))
+done < [(${compiler.testCasesFileName})]
+
+rm -rf "$results"
+exit 0
@@ -0,0 +1,80 @@
+package com.cp.compiler.amqp;
+
+import com.cp.compiler.services.resources.Resources;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RabbitConfigTests {
+    
+    private final Resources resources = Mockito.mock(Resources.class);
+    
+    @BeforeEach
+    void setUp() {
+        Mockito.when(resources.getCpuSlots()).thenReturn(8);
+    }
+    
+    @Test
+    void shouldFollowTheMaxRequestsByDefault() {
+        // Given
+        var rabbitConfig = new RabbitConfig();
+        Mockito.when(resources.getMaxRequests()).thenReturn(6);
+        
+        // When / Then
+        Assertions.assertEquals(6, rabbitConfig.getConsumers(resources));
+        Assertions.assertEquals(8, rabbitConfig.getMaxConsumers(resources));
+    }
+    
+    @Test
+    void shouldHaveAtLeastOneConsumer() {
+        // Given
+        var rabbitConfig = new RabbitConfig();
+        Mockito.when(resources.getMaxRequests()).thenReturn(0);
+        
+        // When / Then
+        Assertions.assertEquals(1, rabbitConfig.getConsumers(resources));
+    }
+    
+    @Test
+    void shouldCapTheDefaultConsumersByTheCpuSlots() {
+        // Given
+        var rabbitConfig = new RabbitConfig();
+        Mockito.when(resources.getMaxRequests()).thenReturn(100000);
+        
+        // When / Then
+        Assertions.assertEquals(8, rabbitConfig.getConsumers(resources));
+        Assertions.assertEquals(8, rabbitConfig.getMaxConsumers(resources));
+    }
+    
+    @Test
+    void shouldCapTheConsumersByTheChannelMax() {
+        // Given
+        var rabbitConfig = new RabbitConfig();
+        Mockito.when(resources.getMaxRequests()).thenReturn(100000);
+        Mockito.when(resources.getCpuSlots()).thenReturn(8000);
+        
+        // When / Then
+        Assertions.assertEquals(RabbitConfig.CHANNEL_MAX, rabbitConfig.getConsumers(resources));
+        Assertions.assertEquals(RabbitConfig.CHANNEL_MAX, rabbitConfig.getMaxConsumers(resources));
+        
+        // Given
+        ReflectionTestUtils.setField(rabbitConfig, "consumers", 5000);
+        
+        // When / Then
+        Assertions.assertEquals(RabbitConfig.CHANNEL_MAX, rabbitConfig.getConsumers(resources));
+    }
+    
+    @Test
+    void shouldUseTheConfiguredConsumers() {
+        // Given
+        var rabbitConfig = new RabbitConfig();
+        ReflectionTestUtils.setField(rabbitConfig, "consumers", 3);
+        
+        // When / Then
+        Assertions.assertEquals(3, rabbitConfig.getConsumers(resources));
+        Assertions.assertEquals(3, rabbitConfig.getMaxConsumers(resources));
+        Mockito.verify(resources, Mockito.never()).getMaxRequests();
+    }
+}
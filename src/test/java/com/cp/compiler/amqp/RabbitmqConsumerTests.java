@@ -1,12 +1,22 @@
 package com.cp.compiler.amqp;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.cp.compiler.exceptions.CompilerThrottlingException;
+import com.cp.compiler.executions.Execution;
 import com.cp.compiler.executions.ExecutionFactory;
 import com.cp.compiler.executions.languages.JavaExecution;
 import com.cp.compiler.models.Language;
@@ -14,10 +24,14 @@ import com.cp.compiler.models.Response;
 import com.cp.compiler.models.Verdict;
 import com.cp.compiler.models.testcases.ConvertedTestCase;
 import com.cp.compiler.models.testcases.TestCaseResult;
+import com.cp.compiler.repositories.ResultsRepository;
 import com.cp.compiler.services.businesslogic.CompilerService;
+import com.cp.compiler.wellknownconstants.WellKnownHeaders;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import com.rabbitmq.client.Channel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,10 +41,18 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -38,6 +60,13 @@ import java.util.List;
 @ExtendWith(MockitoExtension.class)
 public class RabbitmqConsumerTests {
     
+    private static final String JSON_REQUEST = "{\"testCases\":{\"test1\":{\"expectedOutput\": \"0\"}}," +
+            "\"sourcecode\": \"class Test1 {}\",\"language\": \"JAVA\",\"timeLimit\": 15,\"memoryLimit\": 500}";
+    
+    private static final String KEYED_JSON_REQUEST = "{\"idempotencyKey\": \"submission-1\"," +
+            "\"testCases\":{\"test1\":{\"expectedOutput\": \"0\"}}," +
+            "\"sourcecode\": \"class Test1 {}\",\"language\": \"JAVA\",\"timeLimit\": 15,\"memoryLimit\": 500}";
+    
     @Mock
     private CompilerService compilerService;
     
@@ -50,6 +79,21 @@ public class RabbitmqConsumerTests {
     @Mock
     private Counter counter;
     
+    @Mock
+    private Counter failureRetriesCounter;
+    
+    @Mock
+    private Counter deadLettersCounter;
+    
+    @Mock
+    private Counter duplicatesCounter;
+    
+    @Mock
+    private ResultsRepository resultsRepository;
+    
+    @Mock
+    private Channel channel;
+    
     @InjectMocks
     private RabbitConsumer rabbitConsumer;
     
@@ -64,13 +108,24 @@ public class RabbitmqConsumerTests {
     
     @BeforeEach
     public void setUp() {
+        ReflectionTestUtils.setField(rabbitConsumer, "outputQueue", "output");
+        ReflectionTestUtils.setField(rabbitConsumer, "retryQueue", "retry");
+        ReflectionTestUtils.setField(rabbitConsumer, "deadLetterQueue", "dlq");
+        ReflectionTestUtils.setField(rabbitConsumer, "retryDelays", "1000,2000");
+        when(meterRegistry.counter(WellKnownMetrics.AMQP_THROTTLING_RETRIES, "broker", "rabbitmq")).thenReturn(counter);
+        when(meterRegistry.counter(WellKnownMetrics.AMQP_FAILURE_RETRIES, "broker", "rabbitmq"))
+                .thenReturn(failureRetriesCounter);
+        when(meterRegistry.counter(WellKnownMetrics.AMQP_DEAD_LETTERS, "broker", "rabbitmq"))
+                .thenReturn(deadLettersCounter);
+        when(meterRegistry.counter(WellKnownMetrics.AMQP_DUPLICATE_REQUESTS, "broker", "rabbitmq"))
+                .thenReturn(duplicatesCounter);
         rabbitConsumer.init();
     }
     
     @Test
-    public void listen_validJsonRequest_transformAndSendCalled() {
+    public void listen_validJsonRequest_transformAndSendCalled() throws IOException {
         // Arrange
-        String jsonRequest = "{\n\"testCases\":{\"test1\":{\"expectedOutput\": \"0\\n1\\n2\\n3\\n4\\n5\\n6\\n7\\n8\\n9\\n\"}}," +
+        String jsonRequest = "{\n\"idempotencyKey\": \"submission-1\",\"testCases\":{\"test1\":{\"expectedOutput\": \"0\\n1\\n2\\n3\\n4\\n5\\n6\\n7\\n8\\n9\\n\"}}," +
                 "\n\"sourcecode\": \"public class Test1 {\\npublic static void main(String[] args) {\\nint i = 0;\\nwhile (i < 10) " +
                 "{\\nSystem.out.println(i++);\\n}}}\",\n\"language\": \"JAVA\",\"timeLimit\": 15,\"memoryLimit\": 500\n}";
     
@@ -101,15 +156,151 @@ public class RabbitmqConsumerTests {
         when(compilerService.execute(any())).thenReturn(ResponseEntity.ok(response));
         
         // Act
-        rabbitConsumer.listen(jsonRequest);
+        rabbitConsumer.listen(jsonRequest, channel, 1L, null, null, null, null);
+        
+        // Assert
+        var execution = ArgumentCaptor.forClass(Execution.class);
+        verify(compilerService, times(1)).execute(execution.capture());
+        // Throttled right away instead of holding the consumer in the admission queue
+        assertFalse(execution.getValue().isWaitForResources());
+        verify(rabbitTemplate, times(1)).convertAndSend(eq("output"), anyString());
+        verify(resultsRepository, times(1)).put(eq("submission-1"), anyString());
+        verify(channel, times(1)).basicAck(1L, false);
+    }
+    
+    @Test
+    public void listen_resultEventsEnabled_eventsSentWithTheExecutionIdAndAcked() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(rabbitConsumer, "resultEventsEnabled", true);
+        ExecutionFactory.registerExecution(
+                Language.JAVA,
+                (MultipartFile sourceCode, List<ConvertedTestCase> testCases, int timeLimit, int memoryLimit) -> new JavaExecution(
+                        sourceCode,
+                        testCases,
+                        timeLimit,
+                        memoryLimit));
+        var testCaseResult = new TestCaseResult(Verdict.ACCEPTED, "0", "", "0", 100);
+        LinkedHashMap<String, TestCaseResult> testCasesResult = new LinkedHashMap<>();
+        testCasesResult.put("test1", testCaseResult);
+        var response = new Response(
+                Verdict.ACCEPTED.getStatusResponse(),
+                Verdict.ACCEPTED.getStatusCode(),
+                "",
+                testCasesResult,
+                0,
+                15,
+                500,
+                Language.JAVA,
+                LocalDateTime.now());
+        when(compilerService.execute(any())).thenAnswer(invocation -> {
+            Execution execution = invocation.getArgument(0);
+            execution.getTestCaseResultListener().onTestCaseResult(execution, "test1", testCaseResult);
+            return ResponseEntity.ok(response);
+        });
+        
+        // Act
+        rabbitConsumer.listen(JSON_REQUEST, channel, 1L, null, null, null, null);
+        
+        // Assert
+        var events = ArgumentCaptor.forClass(Object.class);
+        var postProcessors = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate, times(2)).convertAndSend(eq("output"), events.capture(), postProcessors.capture());
+        assertTrue(((String) events.getAllValues().get(0)).contains("\"type\":\"TEST_CASE\""));
+        assertTrue(((String) events.getAllValues().get(1)).contains("\"type\":\"SUMMARY\""));
+        var message = postProcessors.getValue().postProcessMessage(new Message(new byte[0], new MessageProperties()));
+        assertNotNull(message.getMessageProperties().getCorrelationId());
+        assertEquals(
+                message.getMessageProperties().getCorrelationId(),
+                message.getMessageProperties().getHeader(WellKnownHeaders.EXECUTION_ID));
+        verify(rabbitTemplate, never()).convertAndSend(eq("output"), anyString());
+        verify(channel, times(1)).basicAck(1L, false);
+    }
+    
+    @Test
+    public void listen_resultEventsEnabled_correlationIdOfTheRequestKept() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(rabbitConsumer, "resultEventsEnabled", true);
+        registerJavaExecution();
+        when(compilerService.execute(any())).thenReturn(ResponseEntity.ok(new Response(
+                Verdict.ACCEPTED.getStatusResponse(),
+                Verdict.ACCEPTED.getStatusCode(),
+                "",
+                new LinkedHashMap<>(),
+                0,
+                15,
+                500,
+                Language.JAVA,
+                LocalDateTime.now())));
+        
+        // Act
+        rabbitConsumer.listen(JSON_REQUEST, channel, 1L, null, null, null, "request-1");
+        
+        // Assert
+        var postProcessor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate, times(1)).convertAndSend(eq("output"), any(Object.class), postProcessor.capture());
+        var message = postProcessor.getValue().postProcessMessage(new Message(new byte[0], new MessageProperties()));
+        assertEquals("request-1", message.getMessageProperties().getCorrelationId());
+        assertNotNull(message.getMessageProperties().getHeader(WellKnownHeaders.EXECUTION_ID));
+    }
+    
+    @Test
+    public void listen_duplicateRequestWithResultEvents_storedSummarySentWithTheHeadersOfTheEvents() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(rabbitConsumer, "resultEventsEnabled", true);
+        String storedSummary = "{\"type\":\"SUMMARY\",\"executionId\":\"execution-1\"}";
+        when(resultsRepository.get("submission-1")).thenReturn(storedSummary);
+        
+        // Act
+        rabbitConsumer.listen(KEYED_JSON_REQUEST, channel, 1L, null, null, null, null);
+        
+        // Assert
+        verify(compilerService, never()).execute(any());
+        var postProcessor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate, times(1))
+                .convertAndSend(eq("output"), eq((Object) storedSummary), postProcessor.capture());
+        var message = postProcessor.getValue().postProcessMessage(new Message(new byte[0], new MessageProperties()));
+        assertEquals("execution-1", message.getMessageProperties().getCorrelationId());
+        assertEquals("execution-1", message.getMessageProperties().getHeader(WellKnownHeaders.EXECUTION_ID));
+        verify(channel, times(1)).basicAck(1L, false);
+    }
+    
+    @Test
+    public void listen_duplicateRequest_storedResultSentWithoutExecution() throws Exception {
+        // Arrange
+        when(resultsRepository.get("submission-1")).thenReturn("stored result");
+        
+        // Act
+        rabbitConsumer.listen(KEYED_JSON_REQUEST, channel, 1L, null, null, null, null);
+        
+        // Assert
+        verify(compilerService, never()).execute(any());
+        verify(rabbitTemplate, times(1)).convertAndSend("output", "stored result");
+        verify(duplicatesCounter, times(1)).increment();
+        verify(channel, times(1)).basicAck(1L, false);
+    }
+    
+    @Test
+    public void listen_requestWithoutIdempotencyKey_notDeduplicated() throws Exception {
+        // Arrange
+        ExecutionFactory.registerExecution(
+                Language.JAVA,
+                (MultipartFile sourceCode, List<ConvertedTestCase> testCases, int timeLimit, int memoryLimit) -> new JavaExecution(
+                        sourceCode,
+                        testCases,
+                        timeLimit,
+                        memoryLimit));
+        when(compilerService.execute(any())).thenReturn(ResponseEntity.badRequest().body("error"));
+        
+        // Act
+        rabbitConsumer.listen(JSON_REQUEST, channel, 1L, null, null, null, null);
         
         // Assert
         verify(compilerService, times(1)).execute(any());
-        verify(rabbitTemplate, times(1)).convertAndSend(any(), anyString());
+        verifyNoInteractions(resultsRepository);
     }
     
     @Test
-    public void listen_throttlingException_retryAfterCalled() {
+    public void listen_throttlingException_parkedInRetryQueueAndAcked() throws IOException {
         // Arrange
         String jsonRequest = "{\n\"testCases\":{\"test1\":{\"expectedOutput\": \"0\\n1\\n2\\n3\\n4\\n5\\n6\\n7\\n8\\n9\\n\"}}," +
                 "\n\"sourcecode\": \"public class Test1 {\\npublic static void main(String[] args) {\\nint i = 0;\\nwhile (i < 10) " +
@@ -144,10 +335,163 @@ public class RabbitmqConsumerTests {
                 .thenReturn(ResponseEntity.ok(response));
         
         // Act
-        rabbitConsumer.listen(jsonRequest);
+        rabbitConsumer.listen(jsonRequest, channel, 1L, null, null, null, null);
+        
+        // Assert
+        verify(compilerService, times(1)).execute(any());
+        verify(rabbitTemplate, times(1)).convertAndSend(eq("retry"), (Object) eq(jsonRequest), any(MessagePostProcessor.class));
+        verify(rabbitTemplate, never()).convertAndSend(eq("output"), anyString());
+        verify(counter, times(1)).increment();
+        verify(channel, times(1)).basicAck(1L, false);
+    }
+    
+    @Test
+    public void listen_invalidJsonRequest_deadLetteredAndAcked() throws Exception {
+        // Act
+        rabbitConsumer.listen("{", channel, 1L, null, null, null, null);
+        
+        // Assert
+        var message = verifyPublished("dlq", "{");
+        verify(deadLettersCounter, times(1)).increment();
+        verify(compilerService, never()).execute(any());
+        verify(channel, times(1)).basicAck(1L, false);
+        assertNull(message.getMessageProperties().getHeader(WellKnownHeaders.RETRY_ATTEMPT));
+        assertNotNull(message.getMessageProperties().getHeader(WellKnownHeaders.RETRY_ERROR));
+    }
+    
+    @Test
+    public void listen_executionFailed_sentToTheFirstRetryQueue() throws Exception {
+        // Arrange
+        registerJavaExecution();
+        when(compilerService.execute(any())).thenThrow(new RuntimeException("docker is down"));
+        
+        // Act
+        rabbitConsumer.listen(JSON_REQUEST, channel, 1L, null, null, null, null);
+        
+        // Assert
+        var message = verifyPublished("retry-1", JSON_REQUEST);
+        verify(failureRetriesCounter, times(1)).increment();
+        verify(channel, times(1)).basicAck(1L, false);
+        assertEquals(1, (Integer) message.getMessageProperties().getHeader(WellKnownHeaders.RETRY_ATTEMPT));
+        assertTrue(message.getMessageProperties().<String>getHeader(WellKnownHeaders.RETRY_ERROR)
+                .contains("docker is down"));
+    }
+    
+    @Test
+    public void listen_retriedExecutionFailed_sentToTheNextRetryQueue() throws Exception {
+        // Arrange
+        registerJavaExecution();
+        when(compilerService.execute(any())).thenThrow(new RuntimeException("docker is down"));
+        
+        // Act
+        rabbitConsumer.listen(JSON_REQUEST, channel, 1L, 1, null, null, null);
+        
+        // Assert
+        var message = verifyPublished("retry-2", JSON_REQUEST);
+        assertEquals(2, (Integer) message.getMessageProperties().getHeader(WellKnownHeaders.RETRY_ATTEMPT));
+    }
+    
+    @Test
+    public void listen_retriesExhausted_deadLettered() throws Exception {
+        // Arrange
+        registerJavaExecution();
+        when(compilerService.execute(any())).thenThrow(new RuntimeException("docker is down"));
+        
+        // Act
+        rabbitConsumer.listen(JSON_REQUEST, channel, 1L, 2, null, null, null);
+        
+        // Assert
+        var message = verifyPublished("dlq", JSON_REQUEST);
+        verify(deadLettersCounter, times(1)).increment();
+        verify(failureRetriesCounter, never()).increment();
+        verify(channel, times(1)).basicAck(1L, false);
+        assertEquals(2, (Integer) message.getMessageProperties().getHeader(WellKnownHeaders.RETRY_ATTEMPT));
+    }
+    
+    @Test
+    public void listen_retryQueueUnavailable_requeued() throws Exception {
+        // Arrange
+        registerJavaExecution();
+        when(compilerService.execute(any())).thenThrow(new RuntimeException("docker is down"));
+        doThrow(new AmqpException("broker down"))
+                .when(rabbitTemplate).convertAndSend(eq("retry-1"), (Object) anyString(), any(MessagePostProcessor.class));
+        
+        // Act
+        rabbitConsumer.listen(JSON_REQUEST, channel, 1L, null, null, null, null);
+        
+        // Assert
+        verify(channel, times(1)).basicNack(1L, false, true);
+        verify(channel, never()).basicAck(1L, false);
+    }
+    
+    @Test
+    public void listen_compressedRequestFailed_retriedWithTheSameEncoding() throws Exception {
+        // Arrange
+        registerJavaExecution();
+        when(compilerService.execute(any())).thenThrow(new RuntimeException("docker is down"));
+        
+        // Act
+        rabbitConsumer.listen(JSON_REQUEST, channel, 1L, null, null, "gzip", null);
+        
+        // Assert
+        var captor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate, times(1)).convertAndSend(eq("retry-1"), (Object) eq(JSON_REQUEST), captor.capture());
+        var message = captor.getValue().postProcessMessage(
+                new Message(JSON_REQUEST.getBytes(StandardCharsets.UTF_8), new MessageProperties()));
+        assertEquals("gzip", message.getMessageProperties().getContentEncoding());
+        assertEquals(1, (Integer) message.getMessageProperties().getHeader(WellKnownHeaders.RETRY_ATTEMPT));
+        assertEquals(JSON_REQUEST, new PayloadMessageConverter().fromMessage(message));
+    }
+    
+    private Message verifyPublished(String queue, String jsonRequest) throws Exception {
+        var captor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate, times(1)).convertAndSend(eq(queue), (Object) eq(jsonRequest), captor.capture());
+        return captor.getValue().postProcessMessage(new Message(new byte[0], new MessageProperties()));
+    }
+    
+    private static void registerJavaExecution() {
+        ExecutionFactory.registerExecution(
+                Language.JAVA,
+                (MultipartFile sourceCode, List<ConvertedTestCase> testCases, int timeLimit, int memoryLimit) -> new JavaExecution(
+                        sourceCode,
+                        testCases,
+                        timeLimit,
+                        memoryLimit));
+    }
+    
+    @Test
+    public void listen_responseNotSent_requeued() throws IOException {
+        // Arrange
+        String jsonRequest = "{\n\"testCases\":{\"test1\":{\"expectedOutput\": \"0\"}}," +
+                "\n\"sourcecode\": \"class Test1 {}\",\n\"language\": \"JAVA\",\"timeLimit\": 15,\"memoryLimit\": 500\n}";
+        
+        ExecutionFactory.registerExecution(
+                Language.JAVA,
+                (MultipartFile sourceCode, List<ConvertedTestCase> testCases, int timeLimit, int memoryLimit) -> new JavaExecution(
+                        sourceCode,
+                        testCases,
+                        timeLimit,
+                        memoryLimit));
+        
+        var response = new Response(
+                Verdict.ACCEPTED.getStatusResponse(),
+                Verdict.ACCEPTED.getStatusCode(),
+                "",
+                new LinkedHashMap<>(),
+                0,
+                15,
+                500,
+                Language.JAVA,
+                LocalDateTime.now());
+        
+        when(compilerService.execute(any())).thenReturn(ResponseEntity.ok(response));
+        doThrow(new AmqpException("broker down")).when(rabbitTemplate).convertAndSend(eq("output"), anyString());
+        
+        // Act
+        rabbitConsumer.listen(jsonRequest, channel, 1L, null, null, null, null);
         
         // Assert
-        verify(compilerService, times(2)).execute(any());
-        verify(rabbitTemplate, times(1)).convertAndSend(any(), anyString());
+        verify(channel, times(1)).basicNack(1L, false, true);
+        verify(channel, never()).basicAck(1L, false);
     }
 }
\ No newline at end of file
@@ -59,7 +59,8 @@ class CE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -100,7 +101,8 @@ class CE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -141,7 +143,8 @@ class CE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -182,7 +185,8 @@ class CE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -223,7 +227,8 @@ class CE2ETests {
                 1,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -262,7 +267,8 @@ class CE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
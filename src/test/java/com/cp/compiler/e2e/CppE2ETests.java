@@ -57,7 +57,8 @@ class CppE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -96,7 +97,8 @@ class CppE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -136,7 +138,8 @@ class CppE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -175,7 +178,8 @@ class CppE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -214,7 +218,8 @@ class CppE2ETests {
                 1,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -253,7 +258,8 @@ class CppE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -57,7 +57,8 @@ class HaskellE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.ACCEPTED.getStatusResponse(),
@@ -95,7 +96,8 @@ class HaskellE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.TIME_LIMIT_EXCEEDED.getStatusResponse(),
@@ -133,7 +135,8 @@ class HaskellE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.COMPILATION_ERROR.getStatusResponse(),
@@ -171,7 +174,8 @@ class HaskellE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.WRONG_ANSWER.getStatusResponse(),
@@ -209,7 +213,8 @@ class HaskellE2ETests {
                 1,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.OUT_OF_MEMORY.getStatusResponse(),
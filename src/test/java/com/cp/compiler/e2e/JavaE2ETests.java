@@ -60,7 +60,8 @@ class JavaE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.ACCEPTED.getStatusResponse(),
@@ -98,7 +99,8 @@ class JavaE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.TIME_LIMIT_EXCEEDED.getStatusResponse(),
@@ -136,7 +138,8 @@ class JavaE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.TIME_LIMIT_EXCEEDED.getStatusResponse(),
@@ -174,7 +177,8 @@ class JavaE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.COMPILATION_ERROR.getStatusResponse(),
@@ -212,7 +216,8 @@ class JavaE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.WRONG_ANSWER.getStatusResponse(),
@@ -250,7 +255,8 @@ class JavaE2ETests {
                 1,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.OUT_OF_MEMORY.getStatusResponse(),
@@ -288,7 +294,8 @@ class JavaE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.RUNTIME_ERROR.getStatusResponse(),
@@ -327,7 +334,8 @@ class JavaE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.RUNTIME_ERROR.getStatusResponse(),
@@ -366,7 +374,8 @@ class JavaE2ETests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(Verdict.RUNTIME_ERROR.getStatusResponse(),
@@ -58,7 +58,8 @@ class AmShZWinsABetTests {
                 2000,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -98,7 +99,8 @@ class AmShZWinsABetTests {
                 2000,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -137,7 +139,8 @@ class AmShZWinsABetTests {
                 2000,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
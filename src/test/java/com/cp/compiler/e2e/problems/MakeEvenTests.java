@@ -58,7 +58,8 @@ public class MakeEvenTests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -59,7 +59,8 @@ public class PhysEdOnlineTests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
@@ -99,7 +100,8 @@ public class PhysEdOnlineTests {
                 500,
                 null,
                 null,
-                "");
+                "",
+                null, null);
         
         // Then
         Assertions.assertEquals(
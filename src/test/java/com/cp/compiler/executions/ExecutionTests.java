@@ -5,6 +5,7 @@ import com.cp.compiler.models.testcases.ConvertedTestCase;
 import com.cp.compiler.models.Language;
 import com.cp.compiler.wellknownconstants.WellKnownFiles;
 import com.cp.compiler.templates.EntrypointFileGenerator;
+import com.cp.compiler.utils.BatchUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +16,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
@@ -501,4 +503,161 @@ class ExecutionTests {
         // Clean up
         execution.deleteExecutionDirectory();
     }
+    
+    @Test
+    void shouldCreateABatchEntrypointFileRunningAllTestCasesInOrder() throws IOException, InterruptedException {
+        // Given
+        var firstTestCase = new ConvertedTestCase("first", file, "first");
+        var secondTestCase = new ConvertedTestCase("second", file, "second");
+        var thirdTestCase = new ConvertedTestCase("third", file, "third");
+        Execution execution = ExecutionFactory.createExecution(
+                file, List.of(firstTestCase, secondTestCase, thirdTestCase), 10, 500, Language.PYTHON);
+        
+        Files.createDirectory(Path.of(execution.getPath()));
+        writeEntrypoint(execution, "first", "echo first");
+        writeEntrypoint(execution, "second", "echo error >&2; exit 1");
+        writeEntrypoint(execution, "third", "echo third");
+        
+        // When
+        execution.createBatchEntrypointFile(1024, 1024);
+        
+        Process process = new ProcessBuilder(
+                "/bin/sh",
+                WellKnownFiles.ENTRYPOINT_FILE_NAME_PREFIX
+                        + WellKnownFiles.BATCH_ENTRYPOINT_ID
+                        + WellKnownFiles.ENTRYPOINT_FILE_EXTENSION)
+                .directory(new File(execution.getPath()))
+                .start();
+        String harnessOutput = new String(process.getInputStream().readAllBytes());
+        process.waitFor();
+        
+        var results = BatchUtils.parseResults(harnessOutput);
+        
+        // Then
+        Assertions.assertEquals(2, results.size()); // fail fast, the third test case is not run
+        Assertions.assertEquals("first\n", results.get(0).getStdOut());
+        Assertions.assertEquals(0, results.get(0).getStatus());
+        Assertions.assertEquals("error\n", results.get(1).getStdErr());
+        Assertions.assertEquals(1, results.get(1).getStatus());
+        
+        // Clean up
+        execution.deleteExecutionDirectory();
+    }
+    
+    @Test
+    void shouldNotStartTheTestCasesOfTheBatchOnceTheDeadlinePassed() throws IOException, InterruptedException {
+        // Given
+        var firstTestCase = new ConvertedTestCase("first", file, "test");
+        Execution execution = ExecutionFactory.createExecution(file, List.of(firstTestCase), 10, 500, Language.PYTHON);
+        execution.setDeadline(System.currentTimeMillis() - 1000);
+        
+        Files.createDirectory(Path.of(execution.getPath()));
+        writeEntrypoint(execution, "first", "echo first");
+        
+        // When
+        execution.createBatchEntrypointFile(1024, 1024);
+        
+        Process process = new ProcessBuilder(
+                "/bin/sh",
+                WellKnownFiles.ENTRYPOINT_FILE_NAME_PREFIX
+                        + WellKnownFiles.BATCH_ENTRYPOINT_ID
+                        + WellKnownFiles.ENTRYPOINT_FILE_EXTENSION)
+                .directory(new File(execution.getPath()))
+                .start();
+        String harnessOutput = new String(process.getInputStream().readAllBytes());
+        process.waitFor();
+        
+        // Then
+        Assertions.assertEquals(0, BatchUtils.parseResults(harnessOutput).size());
+        Assertions.assertEquals(0, process.exitValue());
+        
+        // Clean up
+        execution.deleteExecutionDirectory();
+    }
+    
+    @Test
+    void shouldApplyTheOutputLimitsToEachTestCaseOfTheBatch() throws IOException, InterruptedException {
+        // Given
+        var firstTestCase = new ConvertedTestCase("first", file, "1234");
+        var secondTestCase = new ConvertedTestCase("second", file, "1234");
+        Execution execution = ExecutionFactory.createExecution(
+                file, List.of(firstTestCase, secondTestCase), 10, 500, Language.PYTHON);
+        
+        Files.createDirectory(Path.of(execution.getPath()));
+        writeEntrypoint(execution, "first", "printf 1234");
+        writeEntrypoint(execution, "second", "printf 123456789");
+        
+        // When
+        execution.createBatchEntrypointFile(4, 4);
+        
+        Process process = new ProcessBuilder(
+                "/bin/sh",
+                WellKnownFiles.ENTRYPOINT_FILE_NAME_PREFIX
+                        + WellKnownFiles.BATCH_ENTRYPOINT_ID
+                        + WellKnownFiles.ENTRYPOINT_FILE_EXTENSION)
+                .directory(new File(execution.getPath()))
+                .start();
+        String harnessOutput = new String(process.getInputStream().readAllBytes());
+        process.waitFor();
+        
+        var results = BatchUtils.parseResults(new StringReader(harnessOutput), 4, 4);
+        
+        // Then
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals("1234", results.get(0).getStdOut());
+        Assertions.assertFalse(results.get(0).isOutputLimitExceeded());
+        Assertions.assertEquals("1234", results.get(1).getStdOut());
+        Assertions.assertTrue(results.get(1).isOutputLimitExceeded());
+        
+        // Clean up
+        execution.deleteExecutionDirectory();
+    }
+    
+    @Test
+    void shouldStopTheBatchAtTheFirstOutputThatDoesNotMatch() throws IOException, InterruptedException {
+        // Given
+        var firstTestCase = new ConvertedTestCase("first", file, "1 2/n 3\n");
+        var secondTestCase = new ConvertedTestCase("second", file, "4");
+        var thirdTestCase = new ConvertedTestCase("third", file, "6");
+        Execution execution = ExecutionFactory.createExecution(
+                file, List.of(firstTestCase, secondTestCase, thirdTestCase), 10, 500, Language.PYTHON);
+        
+        Files.createDirectory(Path.of(execution.getPath()));
+        writeEntrypoint(execution, "first", "printf '  1\\t2 \\n3\\n\\n'"); // matches once normalized
+        writeEntrypoint(execution, "second", "echo 5");
+        writeEntrypoint(execution, "third", "echo 6");
+        
+        // When
+        execution.createBatchEntrypointFile(1024, 1024);
+        
+        Process process = new ProcessBuilder(
+                "/bin/sh",
+                WellKnownFiles.ENTRYPOINT_FILE_NAME_PREFIX
+                        + WellKnownFiles.BATCH_ENTRYPOINT_ID
+                        + WellKnownFiles.ENTRYPOINT_FILE_EXTENSION)
+                .directory(new File(execution.getPath()))
+                .start();
+        String harnessOutput = new String(process.getInputStream().readAllBytes());
+        process.waitFor();
+        
+        var results = BatchUtils.parseResults(harnessOutput);
+        
+        // Then
+        Assertions.assertEquals(2, results.size()); // wrong answer, the third test case is not run
+        Assertions.assertEquals("5\n", results.get(1).getStdOut());
+        Assertions.assertEquals(0, results.get(1).getStatus());
+        
+        // Clean up
+        execution.deleteExecutionDirectory();
+    }
+    
+    private void writeEntrypoint(Execution execution, String testCaseId, String command) throws IOException {
+        Path path = Path.of(execution.getPath()
+                + "/"
+                + WellKnownFiles.ENTRYPOINT_FILE_NAME_PREFIX
+                + testCaseId
+                + WellKnownFiles.ENTRYPOINT_FILE_EXTENSION);
+        Files.writeString(path, "#!/bin/sh\n" + command + "\n");
+        path.toFile().setExecutable(true, false);
+    }
 }
@@ -5,14 +5,19 @@ import com.cp.compiler.models.Response;
 import com.cp.compiler.models.testcases.TestCaseResult;
 import com.cp.compiler.models.Verdict;
 import com.cp.compiler.services.businesslogic.CompilerService;
+import com.cp.compiler.utils.payloads.PayloadEncoding;
+import com.cp.compiler.wellknownconstants.WellKnownHeaders;
 
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.*;
+import org.apache.kafka.streams.test.TestRecord;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +28,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.test.context.EmbeddedKafka;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.Properties;
@@ -30,7 +39,7 @@ import java.util.Properties;
 @ActiveProfiles("kafka")
 @EmbeddedKafka(bootstrapServersProperty = "localhost:9092")
 @DirtiesContext
-@SpringBootTest
+@SpringBootTest(properties = "spring.kafka.retry.delays=1000,2000")
 class TopologyTests {
     
     @Autowired
@@ -42,9 +51,19 @@ class TopologyTests {
     private TopologyTestDriver streamTest;
     private TestInputTopic<String, String> inputTopic;
     private TestOutputTopic<String, String> outputTopic;
+    private TestInputTopic<String, String> retryInputTopic;
+    private TestOutputTopic<String, String> retryOutputTopic;
+    private TestOutputTopic<String, String> lastRetryOutputTopic;
+    private TestOutputTopic<String, String> deadLetterTopic;
     
     private final Serde<String> stringSerde = new Serdes.StringSerde();
     
+    private static final String JSON_REQUEST = "{\"testCases\":{\"test1\":{\"expectedOutput\": \"0\"}},"
+            + "\"sourcecode\": \"class Test1 {}\", \"language\": \"JAVA\", \"timeLimit\": 15, \"memoryLimit\": 500}";
+    
+    @TempDir
+    Path stateDir;
+    
     @BeforeEach
     public void setUp() {
         
@@ -54,6 +73,7 @@ class TopologyTests {
         props.setProperty(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
         props.setProperty(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.String().getClass().getName());
         props.setProperty(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.String().getClass().getName());
+        props.setProperty(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
         streamTest = new TopologyTestDriver(topology, props);
         
         // setup test topics
@@ -64,6 +84,22 @@ class TopologyTests {
         outputTopic = streamTest.createOutputTopic("kafka.topic.output",
                                                    stringSerde.deserializer(),
                                                    stringSerde.deserializer());
+        
+        retryInputTopic = streamTest.createInputTopic("kafka.topic.retry-1",
+                                                      stringSerde.serializer(),
+                                                      stringSerde.serializer());
+        
+        retryOutputTopic = streamTest.createOutputTopic("kafka.topic.retry-1",
+                                                        stringSerde.deserializer(),
+                                                        stringSerde.deserializer());
+        
+        lastRetryOutputTopic = streamTest.createOutputTopic("kafka.topic.retry-2",
+                                                            stringSerde.deserializer(),
+                                                            stringSerde.deserializer());
+        
+        deadLetterTopic = streamTest.createOutputTopic("kafka.topic.dlt",
+                                                       stringSerde.deserializer(),
+                                                       stringSerde.deserializer());
     }
     
     @AfterEach
@@ -75,7 +111,7 @@ class TopologyTests {
     void shouldConsumeMessageFromInputTopicAndProduceMessageToOutputTopic() {
 
         // Given
-        String jsonRequest = "{}";
+        String jsonRequest = JSON_REQUEST;
     
         var testCaseResult = new TestCaseResult(Verdict.ACCEPTED,
                 "test output",
@@ -109,7 +145,98 @@ class TopologyTests {
     }
     
     @Test
-    void ifInputMessageIsNotAValidRequestShouldPublishNullValueToOutputTopic() {
+    void shouldRetryAThrottledRequestLaterAndKeepTheOrderOfTheRecords() {
+        
+        // Given
+        Mockito.when(compilerService.execute(Mockito.any()))
+                .thenReturn(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build())
+                .thenReturn(ResponseEntity.ok(response("first")))
+                .thenReturn(ResponseEntity.ok(response("second")));
+        
+        // When
+        inputTopic.pipeInput("key", request("first"));
+        inputTopic.pipeInput("key", request("second"));
+        
+        // Then
+        // The stream thread is not blocked, the second record waits behind the throttled one
+        Assertions.assertThat(outputTopic.isEmpty()).isTrue();
+        Mockito.verify(compilerService, Mockito.times(1)).execute(Mockito.any());
+        
+        // When
+        streamTest.advanceWallClockTime(Duration.ofMillis(10000));
+        
+        // Then
+        var records = outputTopic.readKeyValuesToList();
+        Assertions.assertThat(records).hasSize(2);
+        Assertions.assertThat(records.get(0).key).isEqualTo("key");
+        Assertions.assertThat(records.get(0).value).contains("first");
+        Assertions.assertThat(records.get(1).value).contains("second");
+    }
+    
+    @Test
+    void shouldKeepThrottledRequestsWhileTheyAreStillThrottled() {
+        
+        // Given
+        Mockito.when(compilerService.execute(Mockito.any()))
+                .thenReturn(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build());
+        inputTopic.pipeInput("key", JSON_REQUEST);
+        
+        // When
+        streamTest.advanceWallClockTime(Duration.ofMillis(10000));
+        
+        // Then
+        Assertions.assertThat(outputTopic.isEmpty()).isTrue();
+        Mockito.verify(compilerService, Mockito.times(2)).execute(Mockito.any());
+        
+        // When
+        Mockito.when(compilerService.execute(Mockito.any())).thenReturn(ResponseEntity.ok(response("done")));
+        streamTest.advanceWallClockTime(Duration.ofMillis(10000));
+        
+        // Then
+        Assertions.assertThat(outputTopic.readValue()).contains("done");
+    }
+    
+    @Test
+    void shouldReturnTheStoredResultOfARedeliveredRequest() {
+        
+        // Given
+        Mockito.when(compilerService.execute(Mockito.any()))
+                .thenReturn(ResponseEntity.ok(response("first")))
+                .thenReturn(ResponseEntity.ok(response("second")));
+        
+        // When
+        inputTopic.pipeInput("key", request("submission"));
+        inputTopic.pipeInput("key", request("submission"));
+        
+        // Then
+        var records = outputTopic.readValuesToList();
+        Assertions.assertThat(records).hasSize(2);
+        Assertions.assertThat(records.get(0)).contains("first");
+        Assertions.assertThat(records.get(1)).isEqualTo(records.get(0));
+        Mockito.verify(compilerService, Mockito.times(1)).execute(Mockito.any());
+    }
+    
+    @Test
+    void shouldExecuteTheRequestsWithDifferentIdempotencyKeys() {
+        
+        // Given
+        Mockito.when(compilerService.execute(Mockito.any()))
+                .thenReturn(ResponseEntity.ok(response("first")))
+                .thenReturn(ResponseEntity.ok(response("second")));
+        
+        // When
+        inputTopic.pipeInput("key", request("submission-1"));
+        inputTopic.pipeInput("key", request("submission-2"));
+        
+        // Then
+        var records = outputTopic.readValuesToList();
+        Assertions.assertThat(records).hasSize(2);
+        Assertions.assertThat(records.get(1)).contains("second");
+        Mockito.verify(compilerService, Mockito.times(2)).execute(Mockito.any());
+    }
+    
+    @Test
+    void ifInputMessageIsNotAValidRequestShouldPublishItToTheDeadLetterTopic() {
         
         // Given
         String jsonRequest = "This is a non valid json";
@@ -118,7 +245,129 @@ class TopologyTests {
         inputTopic.pipeInput(jsonRequest);
         
         // Then
-        Assertions.assertThat(!outputTopic.isEmpty()).isTrue();
-        Assertions.assertThat(outputTopic.readValue() == null).isTrue();
+        Assertions.assertThat(outputTopic.isEmpty()).isTrue();
+        var record = deadLetterTopic.readRecord();
+        Assertions.assertThat(record.value()).isEqualTo(jsonRequest);
+        Assertions.assertThat(header(record, WellKnownHeaders.RETRY_ERROR)).isNotNull();
+    }
+    
+    @Test
+    void ifTheExecutionFailsShouldPublishTheRequestToTheFirstRetryTopic() {
+        
+        // Given
+        Mockito.when(compilerService.execute(Mockito.any())).thenThrow(new RuntimeException("docker is down"));
+        
+        // When
+        inputTopic.pipeInput("key", JSON_REQUEST);
+        
+        // Then
+        Assertions.assertThat(outputTopic.isEmpty()).isTrue();
+        Assertions.assertThat(deadLetterTopic.isEmpty()).isTrue();
+        var record = retryOutputTopic.readRecord();
+        Assertions.assertThat(record.key()).isEqualTo("key");
+        Assertions.assertThat(record.value()).isEqualTo(JSON_REQUEST);
+        Assertions.assertThat(header(record, WellKnownHeaders.RETRY_ATTEMPT)).isEqualTo("1");
+        Assertions.assertThat(Long.parseLong(header(record, WellKnownHeaders.RETRY_NOT_BEFORE)))
+                .isGreaterThan(System.currentTimeMillis());
+        Assertions.assertThat(header(record, WellKnownHeaders.RETRY_ERROR)).contains("docker is down");
+    }
+    
+    @Test
+    void shouldExecuteARetriedRequestOnceItsDelayIsOver() {
+        
+        // Given
+        Mockito.when(compilerService.execute(Mockito.any())).thenReturn(ResponseEntity.ok(response("retried")));
+        
+        // When
+        retryInputTopic.pipeInput(retry("later", 1, System.currentTimeMillis() + 3600000));
+        retryInputTopic.pipeInput(retry("now", 1, System.currentTimeMillis() - 1));
+        streamTest.advanceWallClockTime(Duration.ofMillis(10000));
+        
+        // Then
+        var records = outputTopic.readRecordsToList();
+        Assertions.assertThat(records).hasSize(1);
+        Assertions.assertThat(records.get(0).key()).isEqualTo("now");
+        Assertions.assertThat(records.get(0).value()).contains("retried");
+        // The retry headers are not published to the output topic
+        Assertions.assertThat(header(records.get(0), WellKnownHeaders.RETRY_ATTEMPT)).isNull();
+        Mockito.verify(compilerService, Mockito.times(1)).execute(Mockito.any());
+    }
+    
+    @Test
+    void ifARetriedRequestFailsShouldPublishItToTheNextRetryTopicThenToTheDeadLetterTopic() {
+        
+        // Given
+        Mockito.when(compilerService.execute(Mockito.any())).thenThrow(new RuntimeException("docker is down"));
+        
+        // When
+        retryInputTopic.pipeInput(retry("key", 1, 0));
+        
+        // Then
+        Assertions.assertThat(header(lastRetryOutputTopic.readRecord(), WellKnownHeaders.RETRY_ATTEMPT))
+                .isEqualTo("2");
+        
+        // When
+        retryInputTopic.pipeInput(retry("key", 2, 0));
+        
+        // Then
+        var record = deadLetterTopic.readRecord();
+        Assertions.assertThat(record.key()).isEqualTo("key");
+        Assertions.assertThat(header(record, WellKnownHeaders.RETRY_ATTEMPT)).isEqualTo("2");
+        Assertions.assertThat(outputTopic.isEmpty()).isTrue();
+    }
+    
+    @Test
+    void shouldEncodeTheResultOfACompressedRequestLikeTheRequest() {
+        
+        // Given
+        Mockito.when(compilerService.execute(Mockito.any())).thenReturn(ResponseEntity.ok(response("compressed")));
+        var encoding = PayloadEncoding.of(null, "zstd");
+        var compressedInputTopic = streamTest.createInputTopic("kafka.topic.input",
+                                                               stringSerde.serializer(),
+                                                               Serdes.ByteArray().serializer());
+        var compressedOutputTopic = streamTest.createOutputTopic("kafka.topic.output",
+                                                                 stringSerde.deserializer(),
+                                                                 Serdes.ByteArray().deserializer());
+        var headers = new RecordHeaders();
+        headers.add(WellKnownHeaders.CONTENT_ENCODING, "zstd".getBytes(StandardCharsets.UTF_8));
+        
+        // When
+        compressedInputTopic.pipeInput(new TestRecord<>("key", encoding.encode(JSON_REQUEST), headers, Instant.now()));
+        
+        // Then
+        var record = compressedOutputTopic.readRecord();
+        Assertions.assertThat(header(record, WellKnownHeaders.CONTENT_ENCODING)).isEqualTo("zstd");
+        Assertions.assertThat(encoding.decode(record.value())).contains("compressed");
+        Mockito.verify(compilerService, Mockito.times(1)).execute(Mockito.any());
+    }
+    
+    private static TestRecord<String, String> retry(String key, int attempt, long notBefore) {
+        var headers = new RecordHeaders();
+        headers.add(WellKnownHeaders.RETRY_ATTEMPT, String.valueOf(attempt).getBytes(StandardCharsets.UTF_8));
+        headers.add(WellKnownHeaders.RETRY_NOT_BEFORE, String.valueOf(notBefore).getBytes(StandardCharsets.UTF_8));
+        return new TestRecord<>(key, JSON_REQUEST, headers, Instant.now());
+    }
+    
+    private static String request(String idempotencyKey) {
+        return JSON_REQUEST.substring(0, JSON_REQUEST.length() - 1)
+                + ", \"idempotencyKey\": \"" + idempotencyKey + "\"}";
+    }
+    
+    private static String header(TestRecord<String, ?> record, String key) {
+        var header = record.headers().lastHeader(key);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+    
+    private static Response response(String error) {
+        return new Response(
+                Verdict.ACCEPTED.getStatusResponse(),
+                Verdict.ACCEPTED.getStatusCode(),
+                error,
+                new LinkedHashMap<>(),
+                0,
+                15,
+                500,
+                Language.JAVA,
+                LocalDateTime.now());
     }
 }
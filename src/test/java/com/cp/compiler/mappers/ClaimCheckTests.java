@@ -0,0 +1,88 @@
+package com.cp.compiler.mappers;
+
+import com.cp.compiler.repositories.FileSystemBlobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+class ClaimCheckTests {
+    
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @TempDir
+    Path path;
+    
+    private FileSystemBlobRepository blobRepository;
+    
+    @BeforeEach
+    void setUp() {
+        blobRepository = new FileSystemBlobRepository(path.toString());
+    }
+    
+    @Test
+    void shouldReplaceTheReferencesOfTheTestCasesByTheirContent() throws Exception {
+        // Given
+        String input = blobRepository.put("1 2 3");
+        String expectedOutput = blobRepository.put("6");
+        var request = objectMapper.readTree("{\"testCases\":{"
+                + "\"test1\":{\"inputReference\":\"" + input + "\",\"expectedOutputReference\":\"" + expectedOutput + "\"},"
+                + "\"test2\":{\"input\":\"1\",\"expectedOutput\":\"1\"}}}");
+        
+        // When
+        new ClaimCheck(blobRepository, 0).checkOut(request);
+        
+        // Then
+        var testCase = request.get("testCases").get("test1");
+        Assertions.assertEquals("1 2 3", testCase.get("input").asText());
+        Assertions.assertEquals("6", testCase.get("expectedOutput").asText());
+        Assertions.assertNull(testCase.get("inputReference"));
+        Assertions.assertEquals("1", request.get("testCases").get("test2").get("input").asText());
+    }
+    
+    @Test
+    void shouldNotAcceptAMissingBlob() throws Exception {
+        // Given
+        var request = objectMapper.readTree("{\"testCases\":{\"test1\":{\"expectedOutputReference\":\"sha256:"
+                + "0".repeat(64) + "\"}}}");
+        var claimCheck = new ClaimCheck(blobRepository, 0);
+        
+        // Then
+        Assertions.assertThrows(IllegalArgumentException.class, () -> claimCheck.checkOut(request));
+    }
+    
+    @Test
+    void shouldReplaceTheLargeOutputsByReferences() throws Exception {
+        // Given
+        String output = "0123456789".repeat(10);
+        var response = objectMapper.readTree("{\"testCasesResult\":{\"test1\":{\"output\":\"" + output
+                + "\",\"error\":\"\",\"expectedOutput\":\"" + output + "\"}}}");
+        
+        // When
+        new ClaimCheck(blobRepository, 100).checkIn(response);
+        
+        // Then
+        var testCaseResult = response.get("testCasesResult").get("test1");
+        Assertions.assertNull(testCaseResult.get("output"));
+        Assertions.assertEquals(output, blobRepository.get(testCaseResult.get("outputReference").asText()));
+        Assertions.assertEquals(testCaseResult.get("outputReference"), testCaseResult.get("expectedOutputReference"));
+        Assertions.assertEquals("", testCaseResult.get("error").asText());
+        Assertions.assertNull(testCaseResult.get("errorReference"));
+    }
+    
+    @Test
+    void shouldKeepTheOutputsInlineWithoutThreshold() throws Exception {
+        // Given
+        String jsonResponse = "{\"testCasesResult\":{\"test1\":{\"output\":\"" + "0".repeat(1000) + "\"}}}";
+        var response = objectMapper.readTree(jsonResponse);
+        
+        // When
+        new ClaimCheck(blobRepository, 0).checkIn(response);
+        
+        // Then
+        Assertions.assertEquals(objectMapper.readTree(jsonResponse), response);
+    }
+}
@@ -0,0 +1,92 @@
+package com.cp.compiler.mappers;
+
+import com.cp.compiler.models.Language;
+import com.cp.compiler.models.Response;
+import com.cp.compiler.models.Verdict;
+import com.cp.compiler.models.events.EventType;
+import com.cp.compiler.models.testcases.TestCaseResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+
+class ExecutionEventMapperTests {
+    
+    @Test
+    void shouldConvertATestCaseResultToATestCaseEvent() {
+        // Given
+        var testCaseResult = new TestCaseResult(Verdict.WRONG_ANSWER, "1", "", "2", 120);
+        
+        // When
+        var event = ExecutionEventMapper.toTestCaseEvent("execution", "key", "test1", testCaseResult);
+        
+        // Then
+        Assertions.assertEquals(EventType.TEST_CASE, event.getType());
+        Assertions.assertEquals("execution", event.getExecutionId());
+        Assertions.assertEquals("key", event.getIdempotencyKey());
+        Assertions.assertEquals("test1", event.getTestCaseId());
+        Assertions.assertEquals(Verdict.WRONG_ANSWER.getStatusResponse(), event.getVerdict());
+        Assertions.assertEquals(Verdict.WRONG_ANSWER.getStatusCode(), event.getStatusCode());
+        Assertions.assertEquals(120, event.getExecutionDuration());
+        Assertions.assertEquals("1", event.getOutput());
+        Assertions.assertFalse(event.getTruncated());
+    }
+    
+    @Test
+    void shouldTruncateTheOutputOfATestCaseEvent() {
+        // Given
+        String output = "0".repeat(ExecutionEventMapper.MAX_OUTPUT_LENGTH + 1);
+        var testCaseResult = new TestCaseResult(Verdict.ACCEPTED, output, "", output, 120);
+        
+        // When
+        var event = ExecutionEventMapper.toTestCaseEvent("execution", "key", "test1", testCaseResult);
+        
+        // Then
+        Assertions.assertEquals(ExecutionEventMapper.MAX_OUTPUT_LENGTH, event.getOutput().length());
+        Assertions.assertTrue(event.getTruncated());
+    }
+    
+    @Test
+    void shouldConvertAResponseToASummaryEvent() {
+        // Given
+        var testCasesResult = new LinkedHashMap<String, TestCaseResult>();
+        testCasesResult.put("test1", new TestCaseResult(Verdict.ACCEPTED, "1", "", "1", 100));
+        testCasesResult.put("test2", new TestCaseResult(Verdict.ACCEPTED, "2", "", "2", 200));
+        var response = new Response(
+                Verdict.ACCEPTED.getStatusResponse(),
+                Verdict.ACCEPTED.getStatusCode(),
+                "",
+                testCasesResult,
+                500,
+                15,
+                500,
+                Language.JAVA,
+                LocalDateTime.now());
+        
+        // When
+        var event = ExecutionEventMapper.toSummaryEvent("execution", "key", response);
+        
+        // Then
+        Assertions.assertEquals(EventType.SUMMARY, event.getType());
+        Assertions.assertEquals("execution", event.getExecutionId());
+        Assertions.assertNull(event.getTestCaseId());
+        Assertions.assertEquals(Verdict.ACCEPTED.getStatusResponse(), event.getVerdict());
+        Assertions.assertEquals(500, event.getCompilationDuration());
+        Assertions.assertEquals(150, event.getAverageExecutionDuration());
+        Assertions.assertEquals(2, event.getTestCases());
+        Assertions.assertEquals("key", event.getIdempotencyKey());
+    }
+    
+    @Test
+    void shouldConvertAFailureToAnAbortedEvent() {
+        // When
+        var event = ExecutionEventMapper.toAbortedEvent("execution", "key", new IllegalStateException("failed"));
+        
+        // Then
+        Assertions.assertEquals(EventType.ABORTED, event.getType());
+        Assertions.assertEquals("execution", event.getExecutionId());
+        Assertions.assertEquals("key", event.getIdempotencyKey());
+        Assertions.assertEquals("IllegalStateException: failed", event.getError());
+    }
+}
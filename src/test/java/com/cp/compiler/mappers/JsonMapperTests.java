@@ -1,14 +1,19 @@
 package com.cp.compiler.mappers;
 
 import com.cp.compiler.exceptions.CompilerThrottlingException;
+import com.cp.compiler.executions.Execution;
 import com.cp.compiler.models.*;
+import com.cp.compiler.models.events.EventType;
+import com.cp.compiler.models.events.ExecutionEvent;
 import com.cp.compiler.models.testcases.TestCase;
 import com.cp.compiler.models.testcases.TestCaseResult;
+import com.cp.compiler.repositories.FileSystemBlobRepository;
 import com.cp.compiler.services.businesslogic.CompilerService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -18,7 +23,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 
 @DirtiesContext
@@ -91,6 +98,43 @@ class JsonMapperTests {
         Assertions.assertNotNull(responseOutput);
     }
     
+    @Test
+    void givenTestCasesByReferenceShouldExchangeTheLargeTestDataThroughTheClaimCheck(@TempDir Path path)
+            throws Exception {
+        // Given
+        var blobRepository = new FileSystemBlobRepository(path.toString());
+        var claimCheck = new ClaimCheck(blobRepository, 100);
+        String input = "1 ".repeat(100);
+        String jsonRequestByReference = jsonRequest.replace("\"expectedOutput\"",
+                "\"inputReference\": \"" + blobRepository.put(input) + "\", \"expectedOutput\"");
+        
+        var result = new TestCaseResult(Verdict.ACCEPTED, input, "", "aaa", 100);
+        LinkedHashMap<String, TestCaseResult> testCasesResult = new LinkedHashMap<>();
+        testCasesResult.put("test1", result);
+        var response = new Response(
+                result.getVerdict().getStatusResponse(),
+                result.getVerdict().getStatusCode(),
+                "",
+                testCasesResult,
+                0,
+                15,
+                500,
+                Language.JAVA,
+                LocalDateTime.now());
+        Mockito.when(compilerService.execute(ArgumentMatchers.any())).thenReturn(ResponseEntity.ok(response));
+        
+        // When
+        Request requestInput = JsonMapper.toRequest(jsonRequestByReference, claimCheck);
+        String jsonResponse = JsonMapper.transform(jsonRequestByReference, compilerService, null, claimCheck);
+        
+        // Then
+        Assertions.assertEquals(input, requestInput.getTestCases().get("test1").getInput());
+        var testCaseResult = objectMapper.readTree(jsonResponse).get("testCasesResult").get("test1");
+        Assertions.assertNull(testCaseResult.get("output"));
+        Assertions.assertEquals(input, blobRepository.get(testCaseResult.get("outputReference").asText()));
+        Assertions.assertEquals("aaa", testCaseResult.get("expectedOutput").asText());
+    }
+    
     @Test
     void givenJsonRequestShouldCompileTheRequestAndReturnJsonResponse() throws Exception {
         // Given
@@ -172,6 +216,119 @@ class JsonMapperTests {
         Assertions.assertEquals(null, jsonResponse);
     }
     
+    @Test
+    void shouldPublishAnEventPerTestCaseThenASummaryEvent() throws Exception {
+        // Given
+        var testCaseResult = new TestCaseResult(Verdict.ACCEPTED, "0", "", "0", 10);
+        LinkedHashMap<String, TestCaseResult> testCasesResult = new LinkedHashMap<>();
+        testCasesResult.put("test1", testCaseResult);
+        var response = new Response(
+                Verdict.ACCEPTED.getStatusResponse(),
+                Verdict.ACCEPTED.getStatusCode(),
+                "",
+                testCasesResult,
+                0,
+                15,
+                500,
+                Language.JAVA,
+                LocalDateTime.now());
+        Mockito.when(compilerService.execute(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            Execution execution = invocation.getArgument(0);
+            execution.getTestCaseResultListener().onTestCaseResult(execution, "test1", testCaseResult);
+            return ResponseEntity.ok(response);
+        });
+        var events = new ArrayList<String[]>();
+        
+        // When
+        var summary = JsonMapper.transform(
+                jsonRequest, compilerService, (executionId, event) -> events.add(new String[] {executionId, event}));
+        
+        // Then
+        Assertions.assertEquals(2, events.size());
+        var testCaseEvent = objectMapper.readValue(events.get(0)[1], ExecutionEvent.class);
+        Assertions.assertEquals(EventType.TEST_CASE, testCaseEvent.getType());
+        Assertions.assertEquals("test1", testCaseEvent.getTestCaseId());
+        Assertions.assertEquals(events.get(0)[0], testCaseEvent.getExecutionId());
+        Assertions.assertEquals(JsonMapper.getIdempotencyKey(jsonRequest), testCaseEvent.getIdempotencyKey());
+        var summaryEvent = objectMapper.readValue(summary, ExecutionEvent.class);
+        Assertions.assertEquals(EventType.SUMMARY, summaryEvent.getType());
+        Assertions.assertEquals(events.get(0)[0], summaryEvent.getExecutionId());
+        Assertions.assertEquals(JsonMapper.getIdempotencyKey(jsonRequest), summaryEvent.getIdempotencyKey());
+        Assertions.assertEquals(summary, events.get(1)[1]);
+        Assertions.assertEquals(events.get(0)[0], JsonMapper.getExecutionId(summary));
+    }
+    
+    @Test
+    void ifTheExecutionFailsAfterSomeTestCaseEventsShouldPublishAnAbortedEvent() throws Exception {
+        // Given
+        var testCaseResult = new TestCaseResult(Verdict.ACCEPTED, "0", "", "0", 10);
+        Mockito.when(compilerService.execute(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            Execution execution = invocation.getArgument(0);
+            execution.getTestCaseResultListener().onTestCaseResult(execution, "test1", testCaseResult);
+            throw new IllegalStateException("failed");
+        });
+        var events = new ArrayList<String[]>();
+        
+        // When
+        Assertions.assertThrows(IllegalStateException.class, () -> JsonMapper.transform(
+                jsonRequest, compilerService, (executionId, event) -> events.add(new String[] {executionId, event})));
+        
+        // Then
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertEquals(events.get(0)[0], events.get(1)[0]);
+        var abortedEvent = objectMapper.readValue(events.get(1)[1], ExecutionEvent.class);
+        Assertions.assertEquals(EventType.ABORTED, abortedEvent.getType());
+        Assertions.assertEquals(JsonMapper.getIdempotencyKey(jsonRequest), abortedEvent.getIdempotencyKey());
+    }
+    
+    @Test
+    void shouldUseTheIdempotencyKeyOfTheRequest() {
+        // Given
+        String jsonRequestWithKey = "{\"idempotencyKey\": \"submission-1\", \"language\": \"JAVA\"}";
+        
+        // When
+        var idempotencyKey = JsonMapper.getIdempotencyKey(jsonRequestWithKey);
+        
+        // Then
+        Assertions.assertEquals("submission-1", idempotencyKey);
+    }
+    
+    @Test
+    void ifTheRequestHasNoIdempotencyKeyShouldNotDeduplicateIt() {
+        // When / Then
+        Assertions.assertNull(JsonMapper.getIdempotencyKey(jsonRequest));
+        Assertions.assertNull(JsonMapper.getIdempotencyKey("{\"idempotencyKey\": \" \"}"));
+        Assertions.assertNull(JsonMapper.getIdempotencyKey("not a json"));
+    }
+    
+    @Test
+    void shouldParseTheRequestOnceForTheIdempotencyKeyAndTheExecution() throws Exception {
+        // Given
+        var parsedRequest = JsonMapper.parse(jsonRequest);
+        Mockito.when(compilerService.execute(ArgumentMatchers.any()))
+                .thenReturn(ResponseEntity.badRequest().body("error"));
+        
+        // When
+        var idempotencyKey = JsonMapper.getIdempotencyKey(parsedRequest);
+        JsonMapper.transform(parsedRequest, compilerService, null, null);
+        
+        // Then
+        Assertions.assertEquals(JsonMapper.getIdempotencyKey(jsonRequest), idempotencyKey);
+        Mockito.verify(compilerService).execute(ArgumentMatchers.any());
+    }
+    
+    @Test
+    void ifTheRequestIsNotAValidJsonShouldThrowWhenItIsExecuted() {
+        // Given
+        var parsedRequest = JsonMapper.parse("not a json");
+        
+        // When / Then
+        Assertions.assertNull(JsonMapper.getIdempotencyKey(parsedRequest));
+        Assertions.assertThrows(IOException.class,
+                () -> JsonMapper.transform(parsedRequest, compilerService, null, null));
+        Mockito.verifyNoInteractions(compilerService);
+    }
+    
     private Response toResponse(String jsonResponse) throws JsonProcessingException {
         return objectMapper.readValue(jsonResponse, Response.class);
     }
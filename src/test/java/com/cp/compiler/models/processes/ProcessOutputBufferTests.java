@@ -0,0 +1,62 @@
+package com.cp.compiler.models.processes;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+class ProcessOutputBufferTests {
+    
+    @Test
+    void shouldKeepTheOutputInMemoryBelowTheSpillThreshold() throws IOException {
+        // Given
+        try (var buffer = new ProcessOutputBuffer(100, 10)) {
+            
+            // When
+            buffer.write("hello".getBytes(StandardCharsets.UTF_8));
+            
+            // Then
+            Assertions.assertEquals("hello", buffer.toString());
+            Assertions.assertFalse(buffer.isLimitExceeded());
+        }
+    }
+    
+    @Test
+    void shouldSpillTheOutputToDiskBeyondTheSpillThreshold() throws IOException {
+        // Given
+        String output = "0123456789".repeat(10);
+        try (var buffer = new ProcessOutputBuffer(1000, 10)) {
+            
+            // When
+            buffer.write("01234".getBytes(StandardCharsets.UTF_8));
+            buffer.write(output.substring(5).getBytes(StandardCharsets.UTF_8));
+            
+            // Then
+            Assertions.assertEquals(output.substring(0, 10), buffer.toString());
+            try (var reader = new BufferedReader(buffer.openReader())) {
+                Assertions.assertEquals(output, reader.readLine());
+            }
+            Assertions.assertEquals(100, buffer.size());
+            Assertions.assertFalse(buffer.isLimitExceeded());
+        }
+    }
+    
+    @Test
+    void shouldStopDrainingOnceTheLimitIsExceeded() throws IOException {
+        // Given
+        var inputStream = new ByteArrayInputStream("a".repeat(100_000).getBytes(StandardCharsets.UTF_8));
+        try (var buffer = new ProcessOutputBuffer(50_000, 1024)) {
+            
+            // When
+            buffer.drain(inputStream);
+            
+            // Then
+            Assertions.assertTrue(buffer.isLimitExceeded());
+            Assertions.assertEquals(50_000, buffer.size());
+            Assertions.assertEquals("a".repeat(1024), buffer.toString());
+        }
+    }
+}
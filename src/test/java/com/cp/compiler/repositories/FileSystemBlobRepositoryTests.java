@@ -0,0 +1,57 @@
+package com.cp.compiler.repositories;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class FileSystemBlobRepositoryTests {
+    
+    @TempDir
+    Path path;
+    
+    @Test
+    void shouldReturnTheContentOfAStoredBlob() {
+        // Given
+        var repository = new FileSystemBlobRepository(path.toString());
+        
+        // When
+        String reference = repository.put("1 2 3\n");
+        
+        // Then
+        Assertions.assertTrue(reference.matches("sha256:[0-9a-f]{64}"));
+        Assertions.assertEquals("1 2 3\n", repository.get(reference));
+        Assertions.assertTrue(Files.exists(path.resolve(reference.substring(7, 9)).resolve(reference.substring(7))));
+    }
+    
+    @Test
+    void shouldStoreTheSameContentOnce() {
+        // Given
+        var repository = new FileSystemBlobRepository(path.toString());
+        
+        // When
+        String reference = repository.put("content");
+        
+        // Then
+        Assertions.assertEquals(reference, repository.put("content"));
+        Assertions.assertNotEquals(reference, repository.put("another content"));
+        // The blobs are shared between the instances using the same directory
+        Assertions.assertEquals("content", new FileSystemBlobRepository(path.toString()).get(reference));
+    }
+    
+    @Test
+    void shouldReturnNullForAMissingBlob() {
+        var repository = new FileSystemBlobRepository(path.toString());
+        Assertions.assertNull(repository.get("sha256:" + "0".repeat(64)));
+    }
+    
+    @Test
+    void shouldNotAcceptInvalidReferences() {
+        var repository = new FileSystemBlobRepository(path.toString());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> repository.get("sha256:../../etc/passwd"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> repository.get("md5:abc"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> repository.get(null));
+    }
+}
@@ -0,0 +1,84 @@
+package com.cp.compiler.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+class RocksDbResultsRepositoryTests {
+    
+    @TempDir
+    Path path;
+    
+    private RocksDbResultsRepository repository;
+    
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.stop();
+        }
+    }
+    
+    @Test
+    void shouldReturnTheStoredResult() throws Exception {
+        // Given
+        repository = open(60000);
+        
+        // When
+        repository.put("key", "result");
+        
+        // Then
+        Assertions.assertEquals("result", repository.get("key"));
+        Assertions.assertNull(repository.get("unknown"));
+    }
+    
+    @Test
+    void shouldKeepTheResultsAfterARestart() throws Exception {
+        // Given
+        repository = open(60000);
+        repository.put("key", "result");
+        repository.stop();
+        
+        // When
+        repository = open(60000);
+        
+        // Then
+        Assertions.assertEquals("result", repository.get("key"));
+    }
+    
+    @Test
+    void shouldEvictTheExpiredResultsPeriodically() throws Exception {
+        // Given
+        repository = open(1);
+        repository.put("key", "result");
+        
+        // When
+        Thread.sleep(200);
+        
+        // Then
+        Assertions.assertNull(repository.get("key"));
+        // Already evicted by the scheduled eviction
+        Assertions.assertEquals(0, repository.evictExpired());
+    }
+    
+    @Test
+    void ifTheTimeToLiveIsZeroShouldNotStoreTheResults() throws Exception {
+        // Given
+        repository = open(0);
+        
+        // When
+        repository.put("key", "result");
+        
+        // Then
+        Assertions.assertNull(repository.get("key"));
+        Assertions.assertEquals(0, repository.evictExpired());
+    }
+    
+    private RocksDbResultsRepository open(long timeToLive) throws Exception {
+        var resultsRepository = new RocksDbResultsRepository(path.toString(), timeToLive);
+        resultsRepository.init();
+        return resultsRepository;
+    }
+}
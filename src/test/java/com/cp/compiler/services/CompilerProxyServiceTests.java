@@ -1,6 +1,7 @@
 package com.cp.compiler.services;
 
 import com.cp.compiler.exceptions.CompilerBadRequestException;
+import com.cp.compiler.exceptions.CompilerThrottlingException;
 import com.cp.compiler.executions.Execution;
 import com.cp.compiler.executions.ExecutionFactory;
 import com.cp.compiler.models.testcases.ConvertedTestCase;
@@ -9,12 +10,14 @@ import com.cp.compiler.repositories.HooksRepository;
 import com.cp.compiler.services.businesslogic.CompilerProxy;
 import com.cp.compiler.services.businesslogic.CompilerServiceDefault;
 import com.cp.compiler.services.businesslogic.LongRunningCompilerService;
+import com.cp.compiler.services.resources.AdmissionQueue;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.annotation.DirtiesContext;
@@ -39,6 +42,9 @@ class CompilerProxyServiceTests {
     @MockBean
     private LongRunningCompilerService longRunningCompilerService;
     
+    @SpyBean
+    private AdmissionQueue admissionQueue;
+    
     @Autowired
     private HooksRepository hooksRepository;
     
@@ -127,6 +133,24 @@ class CompilerProxyServiceTests {
     
         // Then
         Mockito.verify(longRunningCompilerService, Mockito.times(1)).execute(execution);
+        // Released by the long running execution once it's done
+        Mockito.verify(admissionQueue, Mockito.never()).release(execution);
+    }
+    
+    @Test
+    void ifTheLongRunningExecutionIsThrottledShouldReleaseItsAdmission() {
+        // Given
+        var testCase = new ConvertedTestCase("id", null, "test");
+        Execution execution =
+                ExecutionFactory.createExecution(validFileName, List.of(testCase), 10, 500, Language.JAVA);
+        
+        hooksRepository.addUrl(execution.getId(), "http://localhost");
+        Mockito.when(longRunningCompilerService.execute(execution))
+                .thenThrow(new CompilerThrottlingException("Too many long running executions"));
+        
+        // When / Then
+        Assertions.assertThrows(CompilerThrottlingException.class, () -> compilerProxy.execute(execution));
+        Mockito.verify(admissionQueue).release(execution);
     }
     
     @Test
@@ -141,5 +165,6 @@ class CompilerProxyServiceTests {
         
         // Then
         Mockito.verify(compilerServiceDefault, Mockito.times(1)).execute(execution);
+        Mockito.verify(admissionQueue).release(execution);
     }
 }
@@ -7,6 +7,7 @@ import com.cp.compiler.models.Language;
 import com.cp.compiler.repositories.HooksRepository;
 import com.cp.compiler.services.businesslogic.LongRunningCompilerService;
 import com.cp.compiler.services.containers.ContainerService;
+import com.cp.compiler.services.resources.AdmissionQueue;
 import com.cp.compiler.utils.StatusUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -15,6 +16,7 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.annotation.DirtiesContext;
@@ -39,6 +41,9 @@ class LongRunningCompilerServiceTests {
     @MockBean
     private HooksRepository hooksRepository;
     
+    @SpyBean
+    private AdmissionQueue admissionQueue;
+    
     @Test
     void registrationTest() {
         Assertions.assertNotNull(compilerService.getCompilerService());
@@ -174,5 +179,6 @@ class LongRunningCompilerServiceTests {
         // Then
         Mockito.verify(restTemplate)
                 .postForEntity(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+        Mockito.verify(admissionQueue).release(execution);
     }
 }
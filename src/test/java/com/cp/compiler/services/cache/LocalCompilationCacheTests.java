@@ -0,0 +1,184 @@
+package com.cp.compiler.services.cache;
+
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.CompilationResponse;
+import com.cp.compiler.models.Language;
+import com.cp.compiler.models.Verdict;
+import com.cp.compiler.services.containers.ContainerService;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class LocalCompilationCacheTests {
+
+    private static final String IMAGE_NAME = "compiler.cpp";
+
+    private static final String SOURCE_CODE_FILE_NAME = "main.cpp";
+
+    @TempDir
+    Path temporaryDirectory;
+
+    private ContainerService containerService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LocalCompilationCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        containerService = Mockito.mock(ContainerService.class);
+        Mockito.when(containerService.getImageId(IMAGE_NAME)).thenReturn("sha256:1");
+        meterRegistry = new SimpleMeterRegistry();
+        cache = newCache(1024 * 1024);
+    }
+
+    @Test
+    void shouldRestoreTheArtifactsWithoutCompilingOnHit() throws IOException {
+        // Given
+        var compilations = new AtomicInteger();
+        Execution firstExecution = execution("first", "int main() {}");
+        Execution secondExecution = execution("second", "int main() {}");
+
+        // When
+        var firstResponse = cache.compile(firstExecution, IMAGE_NAME, compilation(firstExecution, compilations, Verdict.ACCEPTED));
+        var secondResponse = cache.compile(secondExecution, IMAGE_NAME, compilation(secondExecution, compilations, Verdict.ACCEPTED));
+
+        // Then
+        Assertions.assertEquals(1, compilations.get());
+        Assertions.assertEquals(Verdict.ACCEPTED, firstResponse.getVerdict());
+        Assertions.assertEquals(Verdict.ACCEPTED, secondResponse.getVerdict());
+        Path secondExecutionPath = Path.of(secondExecution.getPath());
+        Assertions.assertEquals("binary", Files.readString(secondExecutionPath.resolve("exec")));
+        // The compilation deletes the source code file
+        Assertions.assertFalse(Files.exists(secondExecutionPath.resolve(SOURCE_CODE_FILE_NAME)));
+        Assertions.assertEquals(1, meterRegistry.counter(WellKnownMetrics.COMPILATION_CACHE_HIT_COUNTER).count());
+        Assertions.assertEquals(1, meterRegistry.counter(WellKnownMetrics.COMPILATION_CACHE_MISS_COUNTER).count());
+    }
+
+    @Test
+    void shouldCacheCompilationErrors() throws IOException {
+        // Given
+        var compilations = new AtomicInteger();
+        Execution firstExecution = execution("first", "int main() {");
+        Execution secondExecution = execution("second", "int main() {");
+
+        // When
+        cache.compile(firstExecution, IMAGE_NAME, compilation(firstExecution, compilations, Verdict.COMPILATION_ERROR));
+        var response = cache.compile(secondExecution, IMAGE_NAME, compilation(secondExecution, compilations, Verdict.COMPILATION_ERROR));
+
+        // Then
+        Assertions.assertEquals(1, compilations.get());
+        Assertions.assertEquals(Verdict.COMPILATION_ERROR, response.getVerdict());
+        Assertions.assertEquals("error", response.getError());
+    }
+
+    @Test
+    void shouldMissWhenTheSourceCodeOrTheImageChanges() throws IOException {
+        // Given
+        var compilations = new AtomicInteger();
+        Execution firstExecution = execution("first", "int main() {}");
+        Execution secondExecution = execution("second", "int main() { return 0; }");
+
+        // When
+        cache.compile(firstExecution, IMAGE_NAME, compilation(firstExecution, compilations, Verdict.ACCEPTED));
+        cache.compile(secondExecution, IMAGE_NAME, compilation(secondExecution, compilations, Verdict.ACCEPTED));
+
+        // The image has been rebuilt
+        Mockito.when(containerService.getImageId(IMAGE_NAME)).thenReturn("sha256:2");
+        cache = newCache(1024 * 1024);
+        Execution thirdExecution = execution("third", "int main() {}");
+        cache.compile(thirdExecution, IMAGE_NAME, compilation(thirdExecution, compilations, Verdict.ACCEPTED));
+
+        // Then
+        Assertions.assertEquals(3, compilations.get());
+    }
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedEntries() throws IOException {
+        // Given, each entry takes a bit more than 6 bytes (the binary) and its metadata
+        var compilations = new AtomicInteger();
+        long entrySize;
+        Execution firstExecution = execution("first", "a");
+        cache.compile(firstExecution, IMAGE_NAME, compilation(firstExecution, compilations, Verdict.ACCEPTED));
+        entrySize = cache.getSize();
+        cache = newCache(entrySize * 2);
+
+        Execution secondExecution = execution("second", "b");
+        cache.compile(secondExecution, IMAGE_NAME, compilation(secondExecution, compilations, Verdict.ACCEPTED));
+
+        // When, the first entry is used again, so the second one is the least recently used
+        Execution thirdExecution = execution("third", "a");
+        cache.compile(thirdExecution, IMAGE_NAME, compilation(thirdExecution, compilations, Verdict.ACCEPTED));
+        Execution fourthExecution = execution("fourth", "c");
+        cache.compile(fourthExecution, IMAGE_NAME, compilation(fourthExecution, compilations, Verdict.ACCEPTED));
+
+        // Then
+        Assertions.assertEquals(3, compilations.get());
+        Assertions.assertEquals(2, cache.getNumberOfEntries());
+        Assertions.assertTrue(cache.getSize() <= entrySize * 2);
+        Assertions.assertEquals(1, meterRegistry.counter(WellKnownMetrics.COMPILATION_CACHE_EVICTION_COUNTER).count());
+
+        Execution fifthExecution = execution("fifth", "a");
+        cache.compile(fifthExecution, IMAGE_NAME, compilation(fifthExecution, compilations, Verdict.ACCEPTED));
+        Assertions.assertEquals(3, compilations.get());
+    }
+
+    private LocalCompilationCache newCache(long maxSize) throws IOException {
+        var localCompilationCache = new LocalCompilationCache(
+                containerService,
+                meterRegistry,
+                temporaryDirectory.resolve("cache").toString(),
+                maxSize);
+        localCompilationCache.init();
+        return localCompilationCache;
+    }
+
+    private Execution execution(String name, String sourceCode) throws IOException {
+        Path executionPath = temporaryDirectory.resolve(name);
+        Files.createDirectories(executionPath);
+        Files.writeString(executionPath.resolve(SOURCE_CODE_FILE_NAME), sourceCode);
+
+        Execution execution = Mockito.mock(Execution.class);
+        Mockito.when(execution.getId()).thenReturn(name);
+        Mockito.when(execution.getPath()).thenReturn(executionPath.toString());
+        Mockito.when(execution.getLanguage()).thenReturn(Language.CPP);
+        Mockito.when(execution.getSourceCodeFile())
+                .thenReturn(new MockMultipartFile(SOURCE_CODE_FILE_NAME, SOURCE_CODE_FILE_NAME, null, sourceCode.getBytes()));
+        return execution;
+    }
+
+    // Mimics the compilation container: produces a binary and deletes the source code file
+    private static Supplier<CompilationResponse> compilation(Execution execution,
+                                                             AtomicInteger compilations,
+                                                             Verdict verdict) {
+        return () -> {
+            compilations.incrementAndGet();
+            try {
+                Path executionPath = Path.of(execution.getPath());
+                if (verdict == Verdict.ACCEPTED) {
+                    Files.writeString(executionPath.resolve("exec"), "binary");
+                }
+                Files.delete(executionPath.resolve(SOURCE_CODE_FILE_NAME));
+            } catch (IOException exception) {
+                throw new IllegalStateException(exception);
+            }
+            return CompilationResponse
+                    .builder()
+                    .verdict(verdict)
+                    .error(verdict == Verdict.ACCEPTED ? "" : "error")
+                    .compilationDuration(100)
+                    .build();
+        };
+    }
+}
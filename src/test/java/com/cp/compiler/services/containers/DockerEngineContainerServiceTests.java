@@ -0,0 +1,70 @@
+package com.cp.compiler.services.containers;
+
+import com.cp.compiler.exceptions.ContainerFailedDependencyException;
+import com.cp.compiler.exceptions.ProcessExecutionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+class DockerEngineContainerServiceTests {
+
+    private static final String UNREACHABLE_DOCKER_HOST = "unix:///tmp/this-socket-does-not-exist.sock";
+
+    private DockerEngineContainerService containerService;
+
+    @BeforeEach
+    void setUp() {
+        containerService = new DockerEngineContainerService(new SimpleMeterRegistry(), UNREACHABLE_DOCKER_HOST, 10);
+        containerService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        containerService.close();
+    }
+
+    @Test
+    void isUpShouldReturnFalseIfTheDaemonIsNotReachable() {
+        // When / Then
+        Assertions.assertFalse(containerService.isUp());
+    }
+
+    @Test
+    void inspectShouldThrowContainerFailedDependencyException() {
+        // When / Then
+        Assertions.assertThrows(
+                ContainerFailedDependencyException.class,
+                () -> containerService.inspect("does not exists"));
+    }
+
+    @Test
+    void deleteImageShouldThrowContainerFailedDependencyException() {
+        // When / Then
+        Assertions.assertThrows(
+                ContainerFailedDependencyException.class,
+                () -> containerService.deleteImage("does not exists"));
+    }
+
+    @Test
+    void runContainerShouldThrowProcessExecutionException() {
+        // When / Then
+        Assertions.assertThrows(
+                ProcessExecutionException.class,
+                () -> containerService.runContainer(
+                        "does not exists",
+                        "does not exists",
+                        1000,
+                        0.2f,
+                        new HashMap<>()));
+    }
+
+    @Test
+    void shouldReturnDockerAsContainerizationName() {
+        // When / Then
+        Assertions.assertEquals("Docker", containerService.getContainerizationName());
+    }
+}
@@ -0,0 +1,147 @@
+package com.cp.compiler.services.containers;
+
+import com.cp.compiler.exceptions.CompilerThrottlingException;
+import com.cp.compiler.exceptions.ContainerFailedDependencyException;
+import com.cp.compiler.models.Language;
+import com.cp.compiler.services.resources.Resources;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+class ExecutionContainerPoolTests {
+
+    private ContainerService containerService;
+
+    private Resources resources;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void setUp() {
+        containerService = Mockito.mock(ContainerService.class);
+        resources = Mockito.mock(Resources.class);
+        Mockito.when(resources.getMaxCpus()).thenReturn(0.5f);
+    }
+
+    @Test
+    void replenishShouldStartMinIdleContainers() {
+        // Given
+        var pool = new ExecutionContainerPool(
+                containerService, new SimpleMeterRegistry(), resources, executor, 2, 5, 100);
+
+        // When
+        pool.replenish(Language.PYTHON);
+
+        // Then
+        Assertions.assertEquals(2, pool.getIdleContainers(Language.PYTHON));
+        Assertions.assertEquals(2, pool.getSize(Language.PYTHON));
+        Mockito.verify(containerService, Mockito.times(2)).runDetachedContainer(
+                ArgumentMatchers.eq(Language.PYTHON.getRuntimeImage()),
+                ArgumentMatchers.startsWith("pooled-python-"),
+                ArgumentMatchers.eq(0.5f));
+    }
+
+    @Test
+    void acquireShouldReturnAnIdleContainer() {
+        // Given
+        var pool = new ExecutionContainerPool(
+                containerService, new SimpleMeterRegistry(), resources, executor, 1, 1, 100);
+        pool.replenish(Language.JAVA);
+
+        // When
+        String containerName = pool.acquire(Language.JAVA);
+
+        // Then
+        Assertions.assertTrue(containerName.startsWith("pooled-java-"));
+        Assertions.assertEquals(0, pool.getIdleContainers(Language.JAVA));
+        Assertions.assertEquals(1, pool.getSize(Language.JAVA));
+    }
+
+    @Test
+    void acquireShouldStartANewContainerIfNoneIsIdle() {
+        // Given
+        var pool = new ExecutionContainerPool(
+                containerService, new SimpleMeterRegistry(), resources, executor, 0, 1, 100);
+
+        // When
+        String containerName = pool.acquire(Language.C);
+
+        // Then
+        Assertions.assertTrue(containerName.startsWith("pooled-c-"));
+        Assertions.assertEquals(1, pool.getSize(Language.C));
+    }
+
+    @Test
+    void acquireShouldThrowThrottlingExceptionIfThePoolIsExhausted() {
+        // Given
+        var pool = new ExecutionContainerPool(
+                containerService, new SimpleMeterRegistry(), resources, executor, 0, 1, 100);
+        pool.acquire(Language.RUBY);
+
+        // When / Then
+        Assertions.assertThrows(CompilerThrottlingException.class, () -> pool.acquire(Language.RUBY));
+    }
+
+    @Test
+    void acquireShouldNotLeakPoolSlotsIfTheContainerCannotBeStarted() {
+        // Given
+        Mockito.doThrow(new ContainerFailedDependencyException("Error"))
+                .when(containerService)
+                .runDetachedContainer(ArgumentMatchers.anyString(), ArgumentMatchers.anyString(), ArgumentMatchers.anyFloat());
+        var pool = new ExecutionContainerPool(
+                containerService, new SimpleMeterRegistry(), resources, executor, 0, 1, 100);
+
+        // When / Then
+        Assertions.assertThrows(ContainerFailedDependencyException.class, () -> pool.acquire(Language.GO));
+        Assertions.assertEquals(0, pool.getSize(Language.GO));
+    }
+
+    @Test
+    void releaseShouldDeleteTheContainerAndReplenishThePool() throws InterruptedException {
+        // Given
+        var pool = new ExecutionContainerPool(
+                containerService, new SimpleMeterRegistry(), resources, executor, 1, 1, 100);
+        pool.replenish(Language.RUST);
+        String containerName = pool.acquire(Language.RUST);
+
+        // When
+        pool.release(Language.RUST, containerName);
+
+        // Then
+        Mockito.verify(containerService, Mockito.timeout(1000)).deleteContainer(containerName);
+        Mockito.verify(containerService, Mockito.timeout(1000).times(2)).runDetachedContainer(
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyFloat());
+    }
+
+    @Test
+    void discardShouldDeleteTheContainerRightAway() {
+        // Given
+        var pool = new ExecutionContainerPool(
+                containerService, new SimpleMeterRegistry(), resources, executor, 0, 1, 100);
+        String containerName = pool.acquire(Language.RUST);
+
+        // When
+        pool.discard(Language.RUST, containerName);
+
+        // Then
+        Mockito.verify(containerService).deleteContainer(containerName);
+        Assertions.assertEquals(0, pool.getSize(Language.RUST));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionIfMinIdleIsGreaterThanMaxSize() {
+        // When / Then
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> new ExecutionContainerPool(
+                        containerService, new SimpleMeterRegistry(), resources, executor, 3, 2, 100));
+    }
+}
@@ -0,0 +1,120 @@
+package com.cp.compiler.services.resources;
+
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class AdaptiveConcurrencyLimitTests {
+
+    private MeterRegistry meterRegistry;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        Gauge.builder(WellKnownMetrics.EXECUTIONS_GAUGE, executions::get).register(meterRegistry);
+    }
+
+    @Test
+    void shouldGrowTheLimitWhileTheLatencyIsStable() {
+        // Given
+        var limit = new AdaptiveConcurrencyLimit(meterRegistry, 10, 1, 100, 1000);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            executions.set(limit.getLimit());
+            recordLatencies(100);
+            limit.update();
+        }
+
+        // Then
+        Assertions.assertTrue(limit.getLimit() > 10);
+    }
+
+    @Test
+    void shouldShrinkTheLimitWhenTheLatencyIncreases() {
+        // Given
+        var limit = new AdaptiveConcurrencyLimit(meterRegistry, 50, 1, 100, 1000);
+        executions.set(50);
+        recordLatencies(100);
+        limit.update();
+        int limitBeforeCongestion = limit.getLimit();
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            recordLatencies(1000);
+            limit.update();
+        }
+
+        // Then
+        Assertions.assertTrue(limit.getLimit() < limitBeforeCongestion);
+    }
+
+    @Test
+    void shouldNotGrowTheLimitIfItIsNotUsed() {
+        // Given
+        var limit = new AdaptiveConcurrencyLimit(meterRegistry, 10, 1, 100, 1000);
+        executions.set(2);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            recordLatencies(100);
+            limit.update();
+        }
+
+        // Then
+        Assertions.assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void shouldKeepTheLimitWithinTheBounds() {
+        // Given
+        var limit = new AdaptiveConcurrencyLimit(meterRegistry, 10, 8, 12, 1000);
+        executions.set(12);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            recordLatencies(100);
+            limit.update();
+        }
+        int maxLimit = limit.getLimit();
+        for (int i = 0; i < 15; i++) {
+            recordLatencies(100_000);
+            limit.update();
+        }
+
+        // Then
+        Assertions.assertEquals(12, maxLimit);
+        Assertions.assertEquals(8, limit.getLimit());
+    }
+
+    @Test
+    void shouldKeepTheLimitIfNothingRan() {
+        // Given
+        var limit = new AdaptiveConcurrencyLimit(meterRegistry, 10, 1, 100, 1000);
+        executions.set(10);
+
+        // When
+        limit.update();
+
+        // Then
+        Assertions.assertEquals(10, limit.getLimit());
+    }
+
+    private void recordLatencies(long latency) {
+        for (int i = 0; i < 10; i++) {
+            meterRegistry.timer(WellKnownMetrics.CONTAINER_RUN_TIMER, "container", "docker")
+                    .record(latency, TimeUnit.MILLISECONDS);
+            meterRegistry.timer(WellKnownMetrics.EXECUTION_TIMER, "compiler", "execution")
+                    .record(latency, TimeUnit.MILLISECONDS);
+        }
+    }
+}
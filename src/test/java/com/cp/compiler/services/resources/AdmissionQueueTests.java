@@ -0,0 +1,318 @@
+package com.cp.compiler.services.resources;
+
+import com.cp.compiler.exceptions.AdmissionTimeoutException;
+import com.cp.compiler.exceptions.CompilerThrottlingException;
+import com.cp.compiler.exceptions.DeadlineExceededException;
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.Language;
+import com.cp.compiler.models.Priority;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class AdmissionQueueTests {
+    
+    private Resources resources;
+    
+    // One execution at a time
+    private final AtomicBoolean available = new AtomicBoolean(true);
+    
+    @BeforeEach
+    void setUp() {
+        resources = Mockito.mock(Resources.class);
+        Mockito.when(resources.allowNewExecution(ArgumentMatchers.any())).thenAnswer(invocation -> available.get());
+        Mockito.when(resources.reserveResources(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            available.set(false);
+            return 1;
+        });
+        Mockito.when(resources.cleanup(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            available.set(true);
+            return 0;
+        });
+    }
+    
+    @Test
+    void shouldAdmitRightAwayWhenResourcesAreAvailable() {
+        // Given
+        var admissionQueue = newAdmissionQueue(10, 1000);
+        
+        // When
+        admissionQueue.acquire(execution(Priority.INTERACTIVE));
+        
+        // Then
+        Mockito.verify(resources).reserveResources(ArgumentMatchers.any());
+        Assertions.assertEquals(0, admissionQueue.getDepth());
+    }
+    
+    @Test
+    void shouldFailWhenNoResourcesBecomeAvailableBeforeTheMaxWait() {
+        // Given
+        var admissionQueue = newAdmissionQueue(10, 200);
+        admissionQueue.acquire(execution(Priority.INTERACTIVE));
+        
+        // When / Then
+        Assertions.assertThrows(AdmissionTimeoutException.class,
+                () -> admissionQueue.acquire(execution(Priority.INTERACTIVE)));
+        Assertions.assertEquals(0, admissionQueue.getDepth());
+    }
+    
+    @Test
+    void shouldThrottleOnlyWhenTheQueueIsFull() throws InterruptedException {
+        // Given
+        var admissionQueue = newAdmissionQueue(1, 5000);
+        admissionQueue.acquire(execution(Priority.INTERACTIVE));
+        var waiting = new Thread(() -> admissionQueue.acquire(execution(Priority.INTERACTIVE)));
+        waiting.start();
+        awaitDepth(admissionQueue, 1);
+        
+        // When / Then
+        var exception = Assertions.assertThrows(CompilerThrottlingException.class,
+                () -> admissionQueue.acquire(execution(Priority.INTERACTIVE)));
+        Assertions.assertFalse(exception instanceof AdmissionTimeoutException);
+        
+        admissionQueue.release(execution(Priority.INTERACTIVE));
+        waiting.join(5000);
+        Assertions.assertEquals(0, admissionQueue.getDepth());
+    }
+    
+    @Test
+    void shouldThrottleRightAwayTheExecutionsThatDoNotWaitForResources() {
+        // Given
+        var admissionQueue = newAdmissionQueue(10, 5000);
+        admissionQueue.acquire(execution(Priority.INTERACTIVE));
+        var execution = execution(Priority.BATCH);
+        Mockito.when(execution.isWaitForResources()).thenReturn(false);
+        
+        // When
+        long start = System.currentTimeMillis();
+        var exception = Assertions.assertThrows(CompilerThrottlingException.class,
+                () -> admissionQueue.acquire(execution));
+        
+        // Then
+        Assertions.assertFalse(exception instanceof AdmissionTimeoutException);
+        Assertions.assertTrue(System.currentTimeMillis() - start < 1000);
+        Assertions.assertEquals(0, admissionQueue.getDepth());
+    }
+    
+    @Test
+    void shouldAdmitInteractiveExecutionsBeforeBatchExecutions() throws InterruptedException {
+        // Given
+        var admissionQueue = newAdmissionQueue(10, 5000);
+        admissionQueue.acquire(execution(Priority.INTERACTIVE));
+        
+        List<Priority> admissionOrder = new CopyOnWriteArrayList<>();
+        var batch = new Thread(() -> {
+            admissionQueue.acquire(execution(Priority.BATCH));
+            admissionOrder.add(Priority.BATCH);
+            admissionQueue.release(execution(Priority.BATCH));
+        });
+        var interactive = new Thread(() -> {
+            admissionQueue.acquire(execution(Priority.INTERACTIVE));
+            admissionOrder.add(Priority.INTERACTIVE);
+            admissionQueue.release(execution(Priority.INTERACTIVE));
+        });
+        batch.start();
+        awaitDepth(admissionQueue, 1);
+        interactive.start();
+        awaitDepth(admissionQueue, 2);
+        
+        // When
+        admissionQueue.release(execution(Priority.INTERACTIVE));
+        batch.join(5000);
+        interactive.join(5000);
+        
+        // Then
+        Assertions.assertEquals(List.of(Priority.INTERACTIVE, Priority.BATCH), admissionOrder);
+    }
+    
+    @Test
+    void shouldAdmitTheUserHoldingTheFewestContainersFirst() throws InterruptedException {
+        // Given two executions at a time
+        var freeSlots = new AtomicInteger(2);
+        Mockito.when(resources.allowNewExecution(ArgumentMatchers.any())).thenAnswer(invocation -> freeSlots.get() > 0);
+        Mockito.when(resources.reserveResources(ArgumentMatchers.any()))
+                .thenAnswer(invocation -> 2 - freeSlots.decrementAndGet());
+        Mockito.when(resources.cleanup(ArgumentMatchers.any())).thenAnswer(invocation -> 2 - freeSlots.incrementAndGet());
+        var admissionQueue = newAdmissionQueue(10, 5000);
+        var firstExecution = execution("a1", "user-a", Priority.INTERACTIVE);
+        admissionQueue.acquire(firstExecution);
+        admissionQueue.acquire(execution("a2", "user-a", Priority.INTERACTIVE));
+        
+        List<String> admissionOrder = new CopyOnWriteArrayList<>();
+        var userA = new Thread(() -> {
+            admissionQueue.acquire(execution("a3", "user-a", Priority.INTERACTIVE));
+            admissionOrder.add("user-a");
+        });
+        var userB = new Thread(() -> {
+            admissionQueue.acquire(execution("b1", "user-b", Priority.INTERACTIVE));
+            admissionOrder.add("user-b");
+        });
+        userA.start();
+        awaitDepth(admissionQueue, 1);
+        userB.start();
+        awaitDepth(admissionQueue, 2);
+        
+        // When
+        admissionQueue.release(firstExecution);
+        userB.join(5000);
+        
+        // Then
+        Assertions.assertEquals(List.of("user-b"), admissionOrder);
+        Assertions.assertEquals(1, admissionQueue.getDepth("user-a"));
+        Assertions.assertEquals(1, admissionQueue.getContainers("user-b"));
+        
+        admissionQueue.release(execution("a2", "user-a", Priority.INTERACTIVE));
+        userA.join(5000);
+        Assertions.assertEquals(List.of("user-b", "user-a"), admissionOrder);
+    }
+    
+    @Test
+    void shouldLimitTheContainersOfAUser() throws InterruptedException {
+        // Given
+        Mockito.when(resources.allowNewExecution(ArgumentMatchers.any())).thenReturn(true);
+        var admissionQueue = newAdmissionQueue(new SimpleMeterRegistry(), 1, new Bulkheads(List.of()));
+        var firstExecution = execution("a1", "user-a", Priority.INTERACTIVE);
+        admissionQueue.acquire(firstExecution);
+        var waiting = new Thread(() -> admissionQueue.acquire(execution("a2", "user-a", Priority.INTERACTIVE)));
+        waiting.start();
+        awaitDepth(admissionQueue, 1);
+        
+        // When
+        admissionQueue.acquire(execution("b1", "user-b", Priority.INTERACTIVE));
+        
+        // Then
+        Assertions.assertEquals(1, admissionQueue.getDepth("user-a"));
+        Assertions.assertEquals(1, admissionQueue.getContainers("user-b"));
+        
+        admissionQueue.release(firstExecution);
+        waiting.join(5000);
+        Assertions.assertEquals(0, admissionQueue.getDepth());
+        Assertions.assertEquals(1, admissionQueue.getContainers("user-a"));
+    }
+    
+    @Test
+    void shouldNotLetALanguageTakeAllTheResources() throws InterruptedException {
+        // Given one scala execution at a time, with one waiting
+        Mockito.when(resources.allowNewExecution(ArgumentMatchers.any())).thenReturn(true);
+        var bulkheads = new Bulkheads(List.of(new Bulkhead(Language.SCALA, 1, 1)));
+        var meterRegistry = new SimpleMeterRegistry();
+        var admissionQueue = newAdmissionQueue(meterRegistry, 0, bulkheads);
+        var firstExecution = execution("s1", "user", Priority.INTERACTIVE, Language.SCALA);
+        admissionQueue.acquire(firstExecution);
+        var waiting = new Thread(() -> admissionQueue.acquire(execution("s2", "user", Priority.INTERACTIVE, Language.SCALA)));
+        waiting.start();
+        awaitDepth(admissionQueue, 1);
+        
+        // When / Then
+        admissionQueue.acquire(execution("c1", "user", Priority.INTERACTIVE, Language.C));
+        Assertions.assertThrows(CompilerThrottlingException.class,
+                () -> admissionQueue.acquire(execution("s3", "user", Priority.INTERACTIVE, Language.SCALA)));
+        Assertions.assertEquals(1, meterRegistry.get(WellKnownMetrics.BULKHEAD_REJECTION_COUNTER)
+                .tag("language", "scala").counter().count());
+        Assertions.assertEquals(100, meterRegistry.get(WellKnownMetrics.BULKHEAD_SATURATION_GAUGE)
+                .tag("language", "scala").gauge().value());
+        
+        admissionQueue.release(firstExecution);
+        waiting.join(5000);
+        Assertions.assertEquals(0, admissionQueue.getDepth());
+        Assertions.assertEquals(1, bulkheads.get(Language.SCALA).getRunning());
+    }
+    
+    @Test
+    void shouldShedAWaitingExecutionOnceItsDeadlinePassed() {
+        // Given
+        var meterRegistry = new SimpleMeterRegistry();
+        var admissionQueue = newAdmissionQueue(meterRegistry, 0, new Bulkheads(List.of()));
+        admissionQueue.acquire(execution(Priority.INTERACTIVE));
+        Execution expiring = execution(Priority.INTERACTIVE);
+        Mockito.when(expiring.getTestCases()).thenReturn(List.of());
+        long deadline = System.currentTimeMillis() + 200;
+        Mockito.when(expiring.isExpired()).thenAnswer(invocation -> System.currentTimeMillis() >= deadline);
+        
+        // When
+        long start = System.currentTimeMillis();
+        Assertions.assertThrows(DeadlineExceededException.class, () -> admissionQueue.acquire(expiring));
+        
+        // Then
+        Assertions.assertTrue(System.currentTimeMillis() - start < 5000);
+        Assertions.assertEquals(0, admissionQueue.getDepth());
+        Assertions.assertEquals(1, meterRegistry.get(WellKnownMetrics.DEADLINE_SHED_COUNTER)
+                .tag("stage", DeadlineShedder.QUEUE_STAGE).counter().count());
+    }
+    
+    @Test
+    void shouldNotKeepTheIdleUsersNorTagTheMetersByUser() {
+        // Given
+        var meterRegistry = new SimpleMeterRegistry();
+        var admissionQueue = newAdmissionQueue(meterRegistry, 0, new Bulkheads(List.of()));
+        
+        // When
+        for (String userId : Arrays.asList("user-a", "user-b", null)) {
+            var execution = execution(userId + "-1", userId, Priority.INTERACTIVE);
+            admissionQueue.acquire(execution);
+            Assertions.assertEquals(1, admissionQueue.getContainers(userId));
+            Assertions.assertEquals(1, meterRegistry.get(WellKnownMetrics.ADMISSION_QUEUE_USERS_GAUGE).gauge().value());
+            admissionQueue.release(execution);
+        }
+        
+        // Then
+        Assertions.assertEquals(0, meterRegistry.get(WellKnownMetrics.ADMISSION_QUEUE_USERS_GAUGE).gauge().value());
+        Assertions.assertEquals(3, meterRegistry.get(WellKnownMetrics.ADMISSION_QUEUE_USER_SERVICE_TIMER).timer().count());
+        Assertions.assertTrue(meterRegistry.getMeters().stream().noneMatch(meter -> meter.getId().getTag("user") != null));
+    }
+    
+    private AdmissionQueue newAdmissionQueue(int capacity, long maxWait) {
+        var meterRegistry = new SimpleMeterRegistry();
+        var admissionQueue = new AdmissionQueue(
+                resources, meterRegistry, capacity, maxWait, 0, new Bulkheads(List.of()), new DeadlineShedder(meterRegistry));
+        admissionQueue.init();
+        return admissionQueue;
+    }
+    
+    private AdmissionQueue newAdmissionQueue(MeterRegistry meterRegistry, int maxContainersPerUser, Bulkheads bulkheads) {
+        var admissionQueue = new AdmissionQueue(
+                resources, meterRegistry, 10, 5000, maxContainersPerUser, bulkheads, new DeadlineShedder(meterRegistry));
+        admissionQueue.init();
+        return admissionQueue;
+    }
+    
+    private static Execution execution(Priority priority) {
+        Execution execution = Mockito.mock(Execution.class);
+        Mockito.when(execution.getPriority()).thenReturn(priority);
+        Mockito.when(execution.isWaitForResources()).thenReturn(true);
+        return execution;
+    }
+    
+    private static Execution execution(String id, String userId, Priority priority) {
+        Execution execution = execution(priority);
+        Mockito.when(execution.getId()).thenReturn(id);
+        Mockito.when(execution.getUserId()).thenReturn(userId);
+        return execution;
+    }
+    
+    private static Execution execution(String id, String userId, Priority priority, Language language) {
+        Execution execution = execution(id, userId, priority);
+        Mockito.when(execution.getLanguage()).thenReturn(language);
+        return execution;
+    }
+    
+    private static void awaitDepth(AdmissionQueue admissionQueue, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admissionQueue.getDepth() != depth && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(depth, admissionQueue.getDepth());
+    }
+}
@@ -0,0 +1,57 @@
+package com.cp.compiler.services.resources;
+
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HostPressureMonitorTests {
+
+    @Test
+    void shouldBeUnderPressureWhenAPressureCrossesItsThreshold() {
+        // Given
+        var monitor = new HostPressureMonitor(new SimpleMeterRegistry(), true, 1000, 50, 0, 20, 0);
+        monitor.record(HostPressureMonitor.Pressure.CPU, 10);
+        monitor.record(HostPressureMonitor.Pressure.MEMORY, 90);
+
+        // When
+        monitor.record(HostPressureMonitor.Pressure.IO, 25);
+        monitor.updateUnderPressure();
+
+        // Then
+        Assertions.assertTrue(monitor.isUnderPressure());
+    }
+
+    @Test
+    void shouldNotBeUnderPressureWhenNoThresholdIsCrossed() {
+        // Given
+        var monitor = new HostPressureMonitor(new SimpleMeterRegistry(), true, 1000, 50, 0, 20, 0);
+        monitor.record(HostPressureMonitor.Pressure.IO, 25);
+        monitor.updateUnderPressure();
+
+        // When
+        monitor.record(HostPressureMonitor.Pressure.IO, 5);
+        monitor.record(HostPressureMonitor.Pressure.MEMORY, 90); // no memory threshold
+        monitor.record(HostPressureMonitor.Pressure.CPU, Double.NaN); // not available
+        monitor.updateUnderPressure();
+
+        // Then
+        Assertions.assertFalse(monitor.isUnderPressure());
+    }
+
+    @Test
+    void shouldExportTheSampledValues() {
+        // Given
+        var meterRegistry = new SimpleMeterRegistry();
+        var monitor = new HostPressureMonitor(meterRegistry, true, 60_000, 0, 0, 0, 0);
+        monitor.init();
+
+        // When
+        monitor.record(HostPressureMonitor.Pressure.CGROUP_MEMORY, 42);
+
+        // Then
+        Assertions.assertEquals(42, meterRegistry.get(WellKnownMetrics.HOST_PRESSURE_GAUGE)
+                .tag("resource", "cgroup-memory").gauge().value());
+        monitor.stop();
+    }
+}
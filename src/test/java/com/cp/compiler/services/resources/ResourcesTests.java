@@ -1,8 +1,14 @@
 package com.cp.compiler.services.resources;
 
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.Language;
 import com.cp.compiler.models.resources.AvailableResources;
+import com.cp.compiler.models.testcases.ConvertedTestCase;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
 
 
 public class ResourcesTests {
@@ -10,6 +16,8 @@ public class ResourcesTests {
     private final float MAX_CPUS = 0.2f;
     private final int MAX_REQUESTS = 1000;
     
+    private final Execution execution = execution("1", 100, Language.CPP, 1);
+    
     @Test
     void shouldReturnMaxCpus() {
         // Given
@@ -28,7 +36,7 @@ public class ResourcesTests {
         var resources = new ResourcesDefault(MAX_CPUS, MAX_REQUESTS);
         
         // When
-        boolean allowNewExecution = resources.allowNewExecution();
+        boolean allowNewExecution = resources.allowNewExecution(execution);
     
         // Then
         Assertions.assertTrue(allowNewExecution);
@@ -40,7 +48,7 @@ public class ResourcesTests {
         var resources = new ResourcesDefault(MAX_CPUS, MAX_REQUESTS);
         
         // When
-        int counter = resources.reserveResources();
+        int counter = resources.reserveResources(execution);
         
         // Then
         Assertions.assertEquals(counter, 1);
@@ -50,10 +58,10 @@ public class ResourcesTests {
     void cleanupShouldDecrementTheCounter() {
         // Given
         var resources = new ResourcesDefault(MAX_CPUS, MAX_REQUESTS);
-        resources.reserveResources();
+        resources.reserveResources(execution);
         
         // When
-        int counter = resources.cleanup();
+        int counter = resources.cleanup(execution);
         
         // Then
         Assertions.assertEquals(counter, 0);
@@ -65,7 +73,7 @@ public class ResourcesTests {
         var resources = new ResourcesDefault(MAX_CPUS, MAX_REQUESTS);
         
         // When
-        int counter = resources.cleanup();
+        int counter = resources.cleanup(execution);
         
         // Then
         Assertions.assertEquals(counter, 0);
@@ -77,8 +85,8 @@ public class ResourcesTests {
         var resources = new ResourcesDefault(MAX_CPUS, MAX_REQUESTS);
         
         // When
-        boolean allow = resources.allowNewExecution();
-        resources.reserveResources();
+        boolean allow = resources.allowNewExecution(execution);
+        resources.reserveResources(execution);
         
         // Then
         Assertions.assertTrue(allow);
@@ -112,4 +120,123 @@ public class ResourcesTests {
         Assertions.assertEquals(resources.getNumberOfExecutions(), availableResources.getCurrentExecutions());
         Assertions.assertEquals(resources.getMaxRequests(), availableResources.getMaxNumberOfExecutions());
     }
+    
+    @Test
+    void reserveResourcesShouldReserveTheTestCaseSlotsBoundedByTheAvailableCpus() {
+        // Given
+        int systemCpus = Runtime.getRuntime().availableProcessors();
+        var resources = new ResourcesDefault(1f, new StaticConcurrencyLimit(MAX_REQUESTS), systemCpus + 10, false, 1_000_000, 0, HostPressureMonitor.disabled());
+        var parallelExecution = execution("1", 100, Language.CPP, systemCpus + 10);
+        
+        // When
+        resources.reserveResources(parallelExecution);
+        
+        // Then
+        Assertions.assertEquals(systemCpus, resources.getTestCaseSlots(parallelExecution));
+        Assertions.assertEquals(0, resources.getAvailableResources().getAvailableCpus());
+        Assertions.assertFalse(resources.allowNewExecution(execution("2", 100, Language.CPP, 1)));
+    }
+    
+    @Test
+    void reserveResourcesShouldWeightTheMemoryByTheLimitTheLanguageAndTheTestCaseSlots() {
+        // Given
+        var resources = new ResourcesDefault(0.1f, new StaticConcurrencyLimit(MAX_REQUESTS), 2, false, 10_000, 0, HostPressureMonitor.disabled());
+        var javaExecution = execution("1", 500, Language.JAVA, 3);
+        
+        // When
+        resources.reserveResources(javaExecution);
+        
+        // Then
+        long expectedMemory = 2 * (500 + Language.JAVA.getRuntimeMemoryOverhead());
+        Assertions.assertEquals(2, resources.getTestCaseSlots(javaExecution));
+        Assertions.assertEquals(expectedMemory, resources.getAvailableResources().getReservedMemory());
+        Assertions.assertEquals(10_000 - expectedMemory, resources.getAvailableResources().getAvailableMemory());
+    }
+    
+    @Test
+    void allowNewExecutionShouldReturnFalseWhenTheMemoryIsNotAvailable() {
+        // Given
+        var resources = new ResourcesDefault(0.1f, new StaticConcurrencyLimit(MAX_REQUESTS), 1, false, 1000, 200, HostPressureMonitor.disabled());
+        resources.reserveResources(execution("1", 500, Language.C, 1));
+        
+        // When / Then
+        Assertions.assertFalse(resources.allowNewExecution(execution("2", 500, Language.C, 1)));
+        Assertions.assertTrue(resources.allowNewExecution(execution("3", 100, Language.C, 1)));
+    }
+    
+    @Test
+    void allowNewExecutionShouldAdmitAnExecutionLargerThanTheMemoryOnAnIdleHost() {
+        // Given
+        var resources = new ResourcesDefault(0.1f, new StaticConcurrencyLimit(MAX_REQUESTS), 1, false, 1000, 0, HostPressureMonitor.disabled());
+        
+        // When / Then
+        Assertions.assertTrue(resources.allowNewExecution(execution("1", 5000, Language.C, 1)));
+    }
+    
+    @Test
+    void shouldDivideTheCpusOfTheHostByTheMaxCpusOfAContainer() {
+        // Given
+        var resources = new ResourcesDefault(0.5f, new StaticConcurrencyLimit(MAX_REQUESTS), 1, false, 10_000, 0, HostPressureMonitor.disabled());
+        resources.reserveResources(execution);
+        
+        // When / Then
+        Assertions.assertEquals(Runtime.getRuntime().availableProcessors() * 2, resources.getCpuSlots());
+    }
+    
+    @Test
+    void cleanupShouldReleaseTheReservedResources() {
+        // Given
+        var resources = new ResourcesDefault(1f, new StaticConcurrencyLimit(MAX_REQUESTS), 2, false, 10_000, 0, HostPressureMonitor.disabled());
+        var parallelExecution = execution("1", 100, Language.CPP, 2);
+        resources.reserveResources(parallelExecution);
+        
+        // When
+        resources.cleanup(parallelExecution);
+        
+        // Then
+        Assertions.assertEquals(
+                Runtime.getRuntime().availableProcessors(),
+                resources.getAvailableResources().getAvailableCpus());
+        Assertions.assertEquals(0, resources.getAvailableResources().getReservedMemory());
+        Assertions.assertEquals(1, resources.getTestCaseSlots(parallelExecution));
+    }
+    
+    @Test
+    void reserveResourcesShouldReserveASingleSlotInBatchMode() {
+        // Given
+        var resources = new ResourcesDefault(0.1f, new StaticConcurrencyLimit(MAX_REQUESTS), 4, true, 10_000, 0, HostPressureMonitor.disabled());
+        var batchExecution = execution("1", 100, Language.CPP, 4);
+        
+        // When
+        resources.reserveResources(batchExecution);
+        
+        // Then
+        Assertions.assertEquals(1, resources.getTestCaseSlots(batchExecution));
+    }
+    
+    @Test
+    void allowNewExecutionShouldReturnFalseWhenTheHostIsUnderPressure() {
+        // Given
+        var hostPressureMonitor = new HostPressureMonitor(null, true, 1000, 50, 0, 0, 0);
+        var resources = new ResourcesDefault(
+                MAX_CPUS, new StaticConcurrencyLimit(MAX_REQUESTS), 1, false, 0, 0, hostPressureMonitor);
+        hostPressureMonitor.record(HostPressureMonitor.Pressure.CPU, 80);
+        hostPressureMonitor.updateUnderPressure();
+        
+        // When / Then
+        // The pressure only limits the additional executions
+        Assertions.assertTrue(resources.allowNewExecution(execution));
+        resources.reserveResources(execution);
+        Assertions.assertFalse(resources.allowNewExecution(execution("2", 100, Language.CPP, 1)));
+    }
+    
+    private static Execution execution(String id, int memoryLimit, Language language, int testCases) {
+        Execution execution = Mockito.mock(Execution.class);
+        Mockito.when(execution.getId()).thenReturn(id);
+        Mockito.when(execution.getMemoryLimit()).thenReturn(memoryLimit);
+        Mockito.when(execution.getLanguage()).thenReturn(language);
+        Mockito.when(execution.getTestCases())
+                .thenReturn(Collections.nCopies(testCases, Mockito.mock(ConvertedTestCase.class)));
+        return execution;
+    }
 }
@@ -0,0 +1,133 @@
+package com.cp.compiler.services.runners;
+
+import com.cp.compiler.exceptions.ContainerOperationTimeoutException;
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.Language;
+import com.cp.compiler.models.processes.ProcessOutput;
+import com.cp.compiler.services.containers.ContainerService;
+import com.cp.compiler.services.containers.DockerContainerService;
+import com.cp.compiler.services.containers.ExecutionContainerPool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.stubbing.OngoingStubbing;
+
+import java.util.Map;
+
+class PooledTestCaseRunnerTests {
+
+    private ContainerService containerService;
+
+    private ExecutionContainerPool executionContainerPool;
+
+    private Execution execution;
+
+    private PooledTestCaseRunner testCaseRunner;
+
+    @BeforeEach
+    void setUp() {
+        containerService = Mockito.mock(ContainerService.class);
+        executionContainerPool = Mockito.mock(ExecutionContainerPool.class);
+        Mockito.when(executionContainerPool.acquire(Language.PYTHON)).thenReturn("pooled-1", "pooled-2");
+
+        execution = Mockito.mock(Execution.class);
+        Mockito.when(execution.getId()).thenReturn("execution-id");
+        Mockito.when(execution.getLanguage()).thenReturn(Language.PYTHON);
+        Mockito.when(execution.getPath()).thenReturn("executions/utility_py/execution-id");
+
+        testCaseRunner = new PooledTestCaseRunner(containerService, executionContainerPool);
+    }
+
+    @Test
+    void runShouldExecTheTestCaseInTheAcquiredContainer() {
+        // Given
+        mockExec("pooled-1").thenReturn(output());
+        testCaseRunner.prepare(execution);
+
+        // When
+        ProcessOutput output = testCaseRunner.run(execution, "1", 1000);
+
+        // Then
+        Assertions.assertEquals("test", output.getStdOut());
+        Mockito.verify(containerService).copyToContainer(
+                "executions/utility_py/execution-id", "pooled-1", DockerContainerService.SANDBOX_WORKING_DIRECTORY);
+        Mockito.verify(executionContainerPool, Mockito.never())
+                .discard(ArgumentMatchers.any(), ArgumentMatchers.anyString());
+    }
+
+    @Test
+    void runShouldDiscardTheContainerOnTimeoutAndRunTheNextTestCasesInANewOne() {
+        // Given
+        mockExec("pooled-1").thenThrow(new ContainerOperationTimeoutException("timeout"));
+        mockExec("pooled-2").thenReturn(output());
+        testCaseRunner.prepare(execution);
+
+        // When
+        Assertions.assertThrows(
+                ContainerOperationTimeoutException.class,
+                () -> testCaseRunner.run(execution, "1", 1000));
+        ProcessOutput output = testCaseRunner.run(execution, "2", 1000);
+
+        // Then
+        Assertions.assertEquals("test", output.getStdOut());
+        Mockito.verify(executionContainerPool).discard(Language.PYTHON, "pooled-1");
+        Mockito.verify(containerService).copyToContainer(
+                "executions/utility_py/execution-id", "pooled-2", DockerContainerService.SANDBOX_WORKING_DIRECTORY);
+
+        // When
+        testCaseRunner.release(execution, false);
+
+        // Then
+        Mockito.verify(executionContainerPool).release(Language.PYTHON, "pooled-2");
+        Mockito.verify(executionContainerPool, Mockito.never()).release(Language.PYTHON, "pooled-1");
+    }
+
+    @Test
+    void cancelShouldKillOnlyTheProcessesOfTheTestCaseInTheAcquiredContainer() {
+        // Given
+        testCaseRunner.prepare(execution);
+
+        // When
+        testCaseRunner.cancel(execution, "1");
+
+        // Then
+        Mockito.verify(containerService).execInContainer(
+                ArgumentMatchers.eq("pooled-1"),
+                ArgumentMatchers.anyLong(),
+                ArgumentMatchers.eq(Map.of("CANCELLED_TEST_CASE_ID", "1")),
+                ArgumentMatchers.eq("/bin/sh"),
+                ArgumentMatchers.eq("-c"),
+                ArgumentMatchers.contains("TEST_CASE_ID=$CANCELLED_TEST_CASE_ID"));
+        Mockito.verify(executionContainerPool, Mockito.never())
+                .discard(ArgumentMatchers.any(), ArgumentMatchers.anyString());
+    }
+
+    @Test
+    void ifTheTestCaseCannotBeKilledCancelShouldNotThrow() {
+        // Given
+        Mockito.when(containerService.execInContainer(
+                        ArgumentMatchers.anyString(),
+                        ArgumentMatchers.anyLong(),
+                        ArgumentMatchers.anyMap(),
+                        ArgumentMatchers.<String>any()))
+                .thenThrow(new ContainerOperationTimeoutException("timeout"));
+        testCaseRunner.prepare(execution);
+
+        // When / Then
+        Assertions.assertDoesNotThrow(() -> testCaseRunner.cancel(execution, "1"));
+    }
+
+    private OngoingStubbing<ProcessOutput> mockExec(String containerName) {
+        return Mockito.when(containerService.execInContainer(
+                ArgumentMatchers.eq(containerName),
+                ArgumentMatchers.anyLong(),
+                ArgumentMatchers.anyMap(),
+                ArgumentMatchers.any()));
+    }
+
+    private static ProcessOutput output() {
+        return ProcessOutput.builder().stdOut("test").stdErr("").status(0).executionDuration(10).build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.cp.compiler.services.runners;
+
+import com.cp.compiler.exceptions.ContainerOperationTimeoutException;
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.models.Language;
+import com.cp.compiler.models.processes.ProcessOutput;
+import com.cp.compiler.services.containers.ContainerService;
+import com.cp.compiler.services.resources.Resources;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+class VolumeTestCaseRunnerTests {
+
+    private ContainerService containerService;
+
+    private Execution execution;
+
+    private VolumeTestCaseRunner testCaseRunner;
+
+    @BeforeEach
+    void setUp() {
+        containerService = Mockito.mock(ContainerService.class);
+        var resources = Mockito.mock(Resources.class);
+        Mockito.when(resources.getMaxCpus()).thenReturn(0.5f);
+
+        execution = Mockito.mock(Execution.class);
+        Mockito.when(execution.getLanguage()).thenReturn(Language.PYTHON);
+        Mockito.when(execution.getPath()).thenReturn("executions/utility_py/execution-id");
+        Mockito.when(execution.getExecutionFolderName()).thenReturn("execution-id");
+
+        testCaseRunner = new VolumeTestCaseRunner(containerService, resources, Executors.newCachedThreadPool());
+        ReflectionTestUtils.setField(testCaseRunner, "executionContainerVolume", "/var/compiler");
+    }
+
+    @Test
+    void prepareShouldNotBuildAnImage() {
+        // When
+        testCaseRunner.prepare(execution);
+
+        // Then
+        Mockito.verify(execution).createEntrypointFiles();
+        Mockito.verify(containerService, Mockito.never()).buildImage(
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyString());
+    }
+
+    @Test
+    void runShouldMountOnlyTheExecutionDirectoryInTheStockRuntimeImage() {
+        // Given
+        Mockito.when(containerService.runSandboxedContainer(
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyLong(),
+                ArgumentMatchers.anyFloat(),
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyMap(),
+                ArgumentMatchers.any()))
+                .thenReturn(ProcessOutput.builder().stdOut("test").stdErr("").status(0).executionDuration(10).build());
+
+        // When
+        ProcessOutput output = testCaseRunner.run(execution, "1", 1000);
+
+        // Then
+        Assertions.assertEquals("test", output.getStdOut());
+        Assertions.assertEquals(10, output.getExecutionDuration());
+        Mockito.verify(containerService).runSandboxedContainer(
+                "python:3",
+                "execution-1-execution-id",
+                1000,
+                0.5f,
+                "/var/compiler/executions/utility_py/execution-id:/app",
+                "/app",
+                Map.of(TestCaseRunner.TEST_CASE_ID_ENV_VARIABLE, "1"),
+                "/bin/sh",
+                "-c",
+                "./entrypoint-1.sh");
+        Mockito.verify(containerService, Mockito.timeout(1000)).deleteContainer("execution-1-execution-id");
+    }
+
+    @Test
+    void runShouldDeleteTheContainerOnTimeout() {
+        // Given
+        Mockito.when(containerService.runSandboxedContainer(
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyLong(),
+                ArgumentMatchers.anyFloat(),
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyMap(),
+                ArgumentMatchers.any()))
+                .thenThrow(new ContainerOperationTimeoutException("timeout"));
+
+        // When / Then
+        Assertions.assertThrows(
+                ContainerOperationTimeoutException.class,
+                () -> testCaseRunner.run(execution, "1", 1000));
+        Mockito.verify(containerService, Mockito.timeout(1000)).deleteContainer("execution-1-execution-id");
+    }
+
+    @Test
+    void releaseShouldNotDeleteAnyImage() {
+        // When
+        testCaseRunner.release(execution, true);
+
+        // Then
+        Mockito.verify(containerService, Mockito.never()).deleteImage(ArgumentMatchers.anyString());
+    }
+}
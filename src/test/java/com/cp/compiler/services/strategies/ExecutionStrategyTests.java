@@ -0,0 +1,437 @@
+package com.cp.compiler.services.strategies;
+
+import com.cp.compiler.exceptions.ContainerFailedDependencyException;
+import com.cp.compiler.exceptions.ContainerOperationTimeoutException;
+import com.cp.compiler.exceptions.DeadlineExceededException;
+import com.cp.compiler.exceptions.ProcessExecutionTimeoutException;
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.executions.TestCaseResultListener;
+import com.cp.compiler.models.Verdict;
+import com.cp.compiler.models.processes.ProcessOutput;
+import com.cp.compiler.models.testcases.ConvertedTestCase;
+import com.cp.compiler.services.resources.DeadlineShedder;
+import com.cp.compiler.services.resources.Resources;
+import com.cp.compiler.services.runners.TestCaseRunner;
+import com.cp.compiler.utils.BatchUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+class ExecutionStrategyTests {
+
+    private TestCaseRunner testCaseRunner;
+
+    private Resources resources;
+
+    private Execution execution;
+
+    private InterpretedLanguagesExecutionStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        testCaseRunner = Mockito.mock(TestCaseRunner.class);
+        resources = Mockito.mock(Resources.class);
+
+        execution = Mockito.mock(Execution.class);
+        Mockito.when(execution.getPath()).thenReturn("path");
+        Mockito.when(execution.getTestCases()).thenReturn(List.of(
+                new ConvertedTestCase("1", null, "1"),
+                new ConvertedTestCase("2", null, "2"),
+                new ConvertedTestCase("3", null, "3"),
+                new ConvertedTestCase("4", null, "4")));
+
+        var meterRegistry = new SimpleMeterRegistry();
+        strategy = new InterpretedLanguagesExecutionStrategy(
+                meterRegistry,
+                testCaseRunner,
+                resources,
+                new DeadlineShedder(meterRegistry),
+                Executors.newCachedThreadPool(),
+                Executors.newCachedThreadPool());
+        strategy.init();
+    }
+
+    @Test
+    void shouldRunTestCasesSequentiallyByDefault() {
+        // Given
+        Mockito.when(testCaseRunner.run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+                .thenAnswer(invocation -> output(invocation.getArgument(1), 0));
+
+        // When
+        var response = strategy.run(execution, true);
+
+        // Then
+        Assertions.assertEquals(Verdict.ACCEPTED, response.getVerdict());
+        Assertions.assertEquals(List.of("1", "2", "3", "4"), List.copyOf(response.getTestCasesResult().keySet()));
+        Mockito.verify(resources, Mockito.never()).getTestCaseSlots(ArgumentMatchers.any());
+        Mockito.verify(testCaseRunner).release(execution, true);
+    }
+
+    @Test
+    void shouldKeepTheTestCasesOrderWhenRunningInParallel() {
+        // Given
+        ReflectionTestUtils.setField(strategy, "maxParallelTestCases", 4);
+        Mockito.when(resources.getTestCaseSlots(execution)).thenReturn(4);
+        // The first test cases are the slowest ones
+        Mockito.when(testCaseRunner.run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+                .thenAnswer(invocation -> {
+                    String testCaseId = invocation.getArgument(1);
+                    Thread.sleep(200 - Integer.parseInt(testCaseId) * 50L);
+                    return output(testCaseId, 0);
+                });
+
+        // When
+        var response = strategy.run(execution, true);
+
+        // Then
+        Assertions.assertEquals(Verdict.ACCEPTED, response.getVerdict());
+        Assertions.assertEquals(List.of("1", "2", "3", "4"), List.copyOf(response.getTestCasesResult().keySet()));
+    }
+
+    @Test
+    void whenTheTestCasesExecutorIsSaturatedShouldRunFewerTestCasesInParallel() {
+        // Given
+        ReflectionTestUtils.setField(strategy, "maxParallelTestCases", 4);
+        ReflectionTestUtils.setField(strategy, "testCasesExecutor", new ThreadPoolExecutor(
+                1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy()));
+        Mockito.when(resources.getTestCaseSlots(execution)).thenReturn(4);
+        Mockito.when(testCaseRunner.run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+                .thenAnswer(invocation -> output(invocation.getArgument(1), 0));
+
+        // When
+        var response = strategy.run(execution, true);
+
+        // Then
+        Assertions.assertEquals(Verdict.ACCEPTED, response.getVerdict());
+        Assertions.assertEquals(List.of("1", "2", "3", "4"), List.copyOf(response.getTestCasesResult().keySet()));
+    }
+
+    @Test
+    void whenNoThreadOfTheTestCasesExecutorIsFreeShouldRunTheTestCasesOnTheCallerThread() {
+        // Given
+        ReflectionTestUtils.setField(strategy, "maxParallelTestCases", 4);
+        var testCasesExecutor = new ThreadPoolExecutor(
+                1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+        var busy = new CountDownLatch(1);
+        testCasesExecutor.submit(() -> busy.await(5, TimeUnit.SECONDS));
+        ReflectionTestUtils.setField(strategy, "testCasesExecutor", testCasesExecutor);
+        Mockito.when(resources.getTestCaseSlots(execution)).thenReturn(4);
+        var caller = Thread.currentThread();
+        Mockito.when(testCaseRunner.run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+                .thenAnswer(invocation -> {
+                    Assertions.assertSame(caller, Thread.currentThread());
+                    return output(invocation.getArgument(1), 0);
+                });
+
+        // When
+        var response = strategy.run(execution, true);
+        busy.countDown();
+
+        // Then
+        Assertions.assertEquals(Verdict.ACCEPTED, response.getVerdict());
+        Assertions.assertEquals(List.of("1", "2", "3", "4"), List.copyOf(response.getTestCasesResult().keySet()));
+        testCasesExecutor.shutdown();
+    }
+
+    @Test
+    void shouldNotifyTheResultOfEachTestCaseInOrderWhenRunningInParallel() {
+        // Given
+        ReflectionTestUtils.setField(strategy, "maxParallelTestCases", 4);
+        Mockito.when(resources.getTestCaseSlots(execution)).thenReturn(4);
+        List<String> notifiedTestCases = Collections.synchronizedList(new ArrayList<>());
+        TestCaseResultListener listener = (currentExecution, testCaseId, testCaseResult) -> {
+            Assertions.assertSame(execution, currentExecution);
+            notifiedTestCases.add(testCaseId);
+        };
+        Mockito.when(execution.getTestCaseResultListener()).thenReturn(listener);
+        Mockito.when(testCaseRunner.run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+                .thenAnswer(invocation -> {
+                    String testCaseId = invocation.getArgument(1);
+                    Thread.sleep(200 - Integer.parseInt(testCaseId) * 50L);
+                    return output(testCaseId, 0);
+                });
+
+        // When
+        var response = strategy.run(execution, true);
+
+        // Then
+        Assertions.assertEquals(Verdict.ACCEPTED, response.getVerdict());
+        Assertions.assertEquals(List.of("1", "2", "3", "4"), notifiedTestCases);
+    }
+
+    @Test
+    void ifTheListenerFailsShouldStillReturnTheResults() {
+        // Given
+        Mockito.when(execution.getTestCaseResultListener()).thenReturn((currentExecution, testCaseId, testCaseResult) -> {
+            throw new IllegalStateException("broker is down");
+        });
+        Mockito.when(testCaseRunner.run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+                .thenAnswer(invocation -> output(invocation.getArgument(1), 0));
+
+        // When
+        var response = strategy.run(execution, true);
+
+        // Then
+        Assertions.assertEquals(Verdict.ACCEPTED, response.getVerdict());
+        Assertions.assertEquals(4, response.getTestCasesResult().size());
+    }
+
+    @Test
+    void shouldCancelTheRunningTestCasesAfterTheFirstFailure() {
+        // Given
+        ReflectionTestUtils.setField(strategy, "maxParallelTestCases", 4);
+        Mockito.when(resources.getTestCaseSlots(execution)).thenReturn(4);
+
+        Map<String, CountDownLatch> killed = new ConcurrentHashMap<>();
+        List.of("1", "2", "3", "4").forEach(testCaseId -> killed.put(testCaseId, new CountDownLatch(1)));
+
+        Mockito.when(testCaseRunner.run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+                .thenAnswer(invocation -> {
+                    String testCaseId = invocation.getArgument(1);
+                    switch (testCaseId) {
+                        case "1":
+                            Thread.sleep(100);
+                            return output(testCaseId, 0);
+                        case "2":
+                            return output("wrong answer", 0);
+                        default:
+                            // Runs until killed
+                            killed.get(testCaseId).await(5, TimeUnit.SECONDS);
+                            return output(testCaseId, 137);
+                    }
+                });
+        Mockito.doAnswer(invocation -> {
+            killed.get(invocation.<String>getArgument(1)).countDown();
+            return null;
+        }).when(testCaseRunner).cancel(ArgumentMatchers.any(), ArgumentMatchers.anyString());
+
+        // When
+        var response = strategy.run(execution, true);
+
+        // Then
+        Assertions.assertEquals(Verdict.WRONG_ANSWER, response.getVerdict());
+        Assertions.assertEquals(List.of("1", "2"), List.copyOf(response.getTestCasesResult().keySet()));
+        Assertions.assertEquals(Verdict.ACCEPTED, response.getTestCasesResult().get("1").getVerdict());
+        Mockito.verify(testCaseRunner).cancel(execution, "3");
+        Mockito.verify(testCaseRunner).cancel(execution, "4");
+        Mockito.verify(testCaseRunner, Mockito.never()).cancel(execution, "1");
+    }
+
+    @Test
+    void shouldIgnoreTheFailuresOfTheCancelledTestCases() {
+        // Given
+        ReflectionTestUtils.setField(strategy, "maxParallelTestCases", 4);
+        Mockito.when(resources.getTestCaseSlots(execution)).thenReturn(4);
+        
+        CountDownLatch killed = new CountDownLatch(1);
+        Mockito.when(testCaseRunner.run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+                .thenAnswer(invocation -> {
+                    String testCaseId = invocation.getArgument(1);
+                    if ("1".equals(testCaseId)) {
+                        return output("wrong answer", 0);
+                    }
+                    // Removing the container makes the run fail
+                    killed.await(5, TimeUnit.SECONDS);
+                    throw new ContainerFailedDependencyException("No such container");
+                });
+        Mockito.doAnswer(invocation -> {
+            killed.countDown();
+            return null;
+        }).when(testCaseRunner).cancel(ArgumentMatchers.any(), ArgumentMatchers.anyString());
+        
+        // When
+        var response = strategy.run(execution, true);
+        
+        // Then
+        Assertions.assertEquals(Verdict.WRONG_ANSWER, response.getVerdict());
+        Assertions.assertEquals(List.of("1"), List.copyOf(response.getTestCasesResult().keySet()));
+    }
+    
+    @Test
+    void shouldThrowTheFailureOfARunningTestCase() {
+        // Given
+        ReflectionTestUtils.setField(strategy, "maxParallelTestCases", 4);
+        Mockito.when(resources.getTestCaseSlots(execution)).thenReturn(4);
+        Mockito.when(testCaseRunner.run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+                .thenAnswer(invocation -> {
+                    String testCaseId = invocation.getArgument(1);
+                    if ("2".equals(testCaseId)) {
+                        throw new ContainerFailedDependencyException("docker is down");
+                    }
+                    return output(testCaseId, 0);
+                });
+        
+        // When / Then
+        Assertions.assertThrows(ContainerFailedDependencyException.class, () -> strategy.run(execution, true));
+    }
+    
+    @Test
+    void shouldReturnOutputLimitExceededWhenTheOutputIsTooLarge() {
+        // Given
+        Mockito.when(testCaseRunner.run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+                .thenReturn(ProcessOutput
+                        .builder()
+                        .stdOut("1")
+                        .stdErr("")
+                        .status(137)
+                        .outputLimitExceeded(true)
+                        .build());
+        
+        // When
+        var response = strategy.run(execution, true);
+        
+        // Then
+        Assertions.assertEquals(Verdict.OUTPUT_LIMIT_EXCEEDED, response.getVerdict());
+        Assertions.assertEquals(List.of("1"), List.copyOf(response.getTestCasesResult().keySet()));
+    }
+    
+    @Test
+    void shouldNotRunTheRemainingTestCasesOnceTheDeadlinePassed() {
+        // Given
+        Mockito.when(execution.isExpired()).thenReturn(false, false, false, true);
+        Mockito.when(testCaseRunner.run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+                .thenAnswer(invocation -> output(invocation.getArgument(1), 0));
+        
+        // When / Then
+        Assertions.assertThrows(DeadlineExceededException.class, () -> strategy.run(execution, true));
+        Mockito.verify(testCaseRunner, Mockito.times(2))
+                .run(ArgumentMatchers.any(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong());
+    }
+    
+    @Test
+    void shouldNotRunAnExecutionWhoseDeadlinePassed() {
+        // Given
+        Mockito.when(execution.isExpired()).thenReturn(true);
+        
+        // When / Then
+        Assertions.assertThrows(DeadlineExceededException.class, () -> strategy.run(execution, true));
+        Mockito.verifyNoInteractions(testCaseRunner);
+    }
+    
+    @Test
+    void whenTheBatchTimesOutShouldReportTheTestCaseThatWasRunning() {
+        // Given
+        enableBatchExecution();
+        var partialOutput = ProcessOutput
+                .builder()
+                .stdOut(batchResult(0, "1") + batchResult(1, "2") + BatchUtils.RESULT_PREFIX + " 2 0")
+                .build();
+        Mockito.when(testCaseRunner.runBatch(ArgumentMatchers.any(), ArgumentMatchers.anyLong(), ArgumentMatchers.anyLong()))
+                .thenThrow(new ContainerOperationTimeoutException(
+                        new ProcessExecutionTimeoutException(1000, partialOutput)));
+        
+        // When
+        var response = strategy.run(execution, true);
+        
+        // Then
+        Assertions.assertEquals(Verdict.TIME_LIMIT_EXCEEDED, response.getVerdict());
+        Assertions.assertEquals(List.of("1", "2", "3"), List.copyOf(response.getTestCasesResult().keySet()));
+        Assertions.assertEquals(Verdict.ACCEPTED, response.getTestCasesResult().get("2").getVerdict());
+        Assertions.assertEquals(Verdict.TIME_LIMIT_EXCEEDED, response.getTestCasesResult().get("3").getVerdict());
+    }
+    
+    @Test
+    void whenTheOutputOfTheBatchIsLostShouldReportTheTimeoutForTheWholeBatch() {
+        // Given
+        enableBatchExecution();
+        Mockito.when(testCaseRunner.runBatch(ArgumentMatchers.any(), ArgumentMatchers.anyLong(), ArgumentMatchers.anyLong()))
+                .thenThrow(new ContainerOperationTimeoutException("timeout"));
+        
+        // When
+        var response = strategy.run(execution, true);
+        
+        // Then
+        Assertions.assertEquals(Verdict.TIME_LIMIT_EXCEEDED, response.getVerdict());
+        Assertions.assertEquals(List.of("1"), List.copyOf(response.getTestCasesResult().keySet()));
+        Assertions.assertEquals("The batch of test cases exceeded its time limit", response.getError());
+    }
+    
+    @Test
+    void shouldApplyTheOutputLimitToEachTestCaseOfTheBatch() {
+        // Given
+        enableBatchExecution();
+        ReflectionTestUtils.setField(strategy, "maxOutputSize", 4L);
+        String harnessOutput = batchResult(0, "1") + batchResult(1, "12345");
+        Mockito.when(testCaseRunner.runBatch(ArgumentMatchers.any(), ArgumentMatchers.anyLong(), ArgumentMatchers.anyLong()))
+                .thenReturn(output(harnessOutput, 0));
+        
+        // When
+        var response = strategy.run(execution, true);
+        
+        // Then
+        Assertions.assertEquals(Verdict.OUTPUT_LIMIT_EXCEEDED, response.getVerdict());
+        Assertions.assertEquals(List.of("1", "2"), List.copyOf(response.getTestCasesResult().keySet()));
+        // The harness may write the outputs of all test cases, beyond the limit of one of them
+        Mockito.verify(testCaseRunner).runBatch(
+                ArgumentMatchers.eq(execution),
+                ArgumentMatchers.anyLong(),
+                ArgumentMatchers.longThat(size -> size > 4 * 4));
+    }
+    
+    @Test
+    void whenTheDeadlinePassesDuringTheBatchShouldShedTheTestCasesThatDidNotRun() {
+        // Given, the harness stops once the deadline passed
+        enableBatchExecution();
+        Mockito.when(execution.isExpired()).thenReturn(false, true);
+        Mockito.when(testCaseRunner.runBatch(ArgumentMatchers.any(), ArgumentMatchers.anyLong(), ArgumentMatchers.anyLong()))
+                .thenReturn(output(batchResult(0, "1") + batchResult(1, "2"), 0));
+        
+        // When / Then
+        var exception = Assertions.assertThrows(DeadlineExceededException.class, () -> strategy.run(execution, true));
+        Assertions.assertTrue(exception.getMessage().contains("2 test cases skipped"));
+    }
+    
+    @Test
+    void shouldStopReadingTheResultsOfTheBatchAtTheFirstWrongAnswer() {
+        // Given
+        enableBatchExecution();
+        String harnessOutput = batchResult(0, "wrong") + batchResult(1, "2");
+        Mockito.when(testCaseRunner.runBatch(ArgumentMatchers.any(), ArgumentMatchers.anyLong(), ArgumentMatchers.anyLong()))
+                .thenReturn(output(harnessOutput, 0));
+        
+        // When
+        var response = strategy.run(execution, true);
+        
+        // Then
+        Assertions.assertEquals(Verdict.WRONG_ANSWER, response.getVerdict());
+        Assertions.assertEquals(List.of("1"), List.copyOf(response.getTestCasesResult().keySet()));
+    }
+    
+    private void enableBatchExecution() {
+        ReflectionTestUtils.setField(strategy, "batchExecutionEnabled", true);
+        ReflectionTestUtils.setField(strategy, "maxOutputSize", 1024L);
+        ReflectionTestUtils.setField(strategy, "maxErrorSize", 1024L);
+    }
+    
+    private static String batchResult(int index, String stdOut) {
+        return BatchUtils.RESULT_PREFIX + " " + index + " 0 10 "
+                + Base64.getEncoder().encodeToString(stdOut.getBytes(StandardCharsets.UTF_8)) + " \n";
+    }
+    
+    private static ProcessOutput output(String stdOut, int status) {
+        return ProcessOutput
+                .builder()
+                .stdOut(stdOut)
+                .stdErr("")
+                .status(status)
+                .executionDuration(10)
+                .build();
+    }
+}
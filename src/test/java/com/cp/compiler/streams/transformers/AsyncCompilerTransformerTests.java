@@ -0,0 +1,407 @@
+package com.cp.compiler.streams.transformers;
+
+import com.cp.compiler.executions.Execution;
+import com.cp.compiler.executions.ExecutionFactory;
+import com.cp.compiler.executions.languages.JavaExecution;
+import com.cp.compiler.models.Language;
+import com.cp.compiler.models.Response;
+import com.cp.compiler.models.Verdict;
+import com.cp.compiler.models.testcases.ConvertedTestCase;
+import com.cp.compiler.models.testcases.TestCaseResult;
+import com.cp.compiler.services.businesslogic.CompilerService;
+import com.cp.compiler.services.resources.Resources;
+import com.cp.compiler.utils.retries.RetryTiers;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.state.Stores;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class AsyncCompilerTransformerTests {
+
+    private static final String INPUT_TOPIC = "input";
+
+    private static final String OUTPUT_TOPIC = "output";
+
+    private static final long THROTTLING_DURATION = 200;
+
+    private static final long RESULTS_TIME_TO_LIVE = 60000;
+
+    private static final long CLOSE_TIMEOUT = 5000;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CompilerService compilerService;
+
+    private Resources resources;
+
+    private TopologyTestDriver driver;
+
+    private TestInputTopic<String, String> inputTopic;
+
+    private TestOutputTopic<String, String> outputTopic;
+
+    private final List<KeyValue<String, String>> outputs = new ArrayList<>();
+
+    private boolean resultEventsEnabled;
+
+    private int maxWaitingRecords = 1000;
+
+    @TempDir
+    Path stateDir;
+
+    @BeforeEach
+    void setUp() {
+        ExecutionFactory.registerExecution(
+                Language.JAVA,
+                (MultipartFile sourceCode, List<ConvertedTestCase> testCases, int timeLimit, int memoryLimit) ->
+                        new JavaExecution(sourceCode, testCases, timeLimit, memoryLimit));
+        compilerService = Mockito.mock(CompilerService.class);
+        resources = Mockito.mock(Resources.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (driver != null) {
+            driver.close();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldExecuteSeveralRecordsAtOnceAndForwardTheResultsAsTheyComplete() throws InterruptedException {
+        // Given
+        startTopology(2);
+        var slowExecution = new CountDownLatch(1);
+        Mockito.when(compilerService.execute(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            int id = invocation.getArgument(0, Execution.class).getTimeLimit();
+            if (id == 1) {
+                slowExecution.await(5, TimeUnit.SECONDS);
+            }
+            return ResponseEntity.ok(response(id));
+        });
+
+        // When
+        inputTopic.pipeInput("a", request(1));
+        inputTopic.pipeInput("b", request(2));
+        inputTopic.pipeInput("c", request(3));
+
+        // Then
+        Mockito.verify(compilerService, Mockito.timeout(1000).times(2)).execute(ArgumentMatchers.any());
+        awaitOutputs(1);
+        Assertions.assertEquals("b", outputs.get(0).key);
+        // The third record takes the slot of the completed execution
+        Mockito.verify(compilerService, Mockito.timeout(1000).times(3)).execute(ArgumentMatchers.any());
+
+        // When
+        slowExecution.countDown();
+
+        // Then
+        awaitOutputs(3);
+        Assertions.assertEquals(
+                Set.of("a", "c"),
+                Set.of(outputs.get(1).key, outputs.get(2).key));
+    }
+
+    @Test
+    void shouldExecuteTheRecordsOfAKeyInOrder() throws InterruptedException {
+        // Given
+        startTopology(4);
+        var firstExecution = new CountDownLatch(1);
+        Mockito.when(compilerService.execute(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            int id = invocation.getArgument(0, Execution.class).getTimeLimit();
+            if (id == 1) {
+                firstExecution.await(5, TimeUnit.SECONDS);
+            }
+            return ResponseEntity.ok(response(id));
+        });
+
+        // When
+        inputTopic.pipeInput("key", request(1));
+        inputTopic.pipeInput("key", request(2));
+        poll();
+
+        // Then
+        Mockito.verify(compilerService, Mockito.after(200).times(1)).execute(ArgumentMatchers.any());
+
+        // When
+        firstExecution.countDown();
+
+        // Then
+        awaitOutputs(2);
+        Assertions.assertTrue(outputs.get(0).value.contains("record-1"));
+        Assertions.assertTrue(outputs.get(1).value.contains("record-2"));
+    }
+
+    @Test
+    void shouldRetryAThrottledRecordAfterTheThrottlingDuration() throws InterruptedException {
+        // Given
+        startTopology(2);
+        Mockito.when(compilerService.execute(ArgumentMatchers.any()))
+                .thenReturn(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build())
+                .thenReturn(ResponseEntity.ok(response(1)));
+
+        // When
+        inputTopic.pipeInput("key", request(1));
+
+        // Then
+        awaitOutputs(1);
+        Assertions.assertTrue(outputs.get(0).value.contains("record-1"));
+        Mockito.verify(compilerService, Mockito.times(2)).execute(ArgumentMatchers.any());
+    }
+
+    @Test
+    void shouldReturnTheStoredResultOfADuplicateRecord() throws InterruptedException {
+        // Given
+        startTopology(2);
+        Mockito.when(compilerService.execute(ArgumentMatchers.any())).thenReturn(ResponseEntity.ok(response(1)));
+
+        // When
+        inputTopic.pipeInput("key", keyedRequest(1));
+        awaitOutputs(1);
+        inputTopic.pipeInput("key", keyedRequest(1));
+
+        // Then
+        awaitOutputs(2);
+        Assertions.assertEquals(outputs.get(0).value, outputs.get(1).value);
+        Mockito.verify(compilerService, Mockito.times(1)).execute(ArgumentMatchers.any());
+    }
+
+    @Test
+    void shouldExecuteTheIdenticalRecordsWithoutIdempotencyKey() throws InterruptedException {
+        // Given
+        startTopology(2);
+        Mockito.when(compilerService.execute(ArgumentMatchers.any())).thenReturn(ResponseEntity.ok(response(1)));
+
+        // When
+        inputTopic.pipeInput("key", request(1));
+        awaitOutputs(1);
+        inputTopic.pipeInput("key", request(1));
+
+        // Then
+        awaitOutputs(2);
+        Mockito.verify(compilerService, Mockito.times(2)).execute(ArgumentMatchers.any());
+    }
+
+    @Test
+    void shouldForwardAnEventPerTestCaseThenASummaryEventKeyedByTheExecutionId() throws InterruptedException {
+        // Given
+        resultEventsEnabled = true;
+        startTopology(2);
+        var testCaseResult = new TestCaseResult(Verdict.ACCEPTED, "0", "", "0", 10);
+        Mockito.when(compilerService.execute(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            Execution execution = invocation.getArgument(0);
+            execution.getTestCaseResultListener().onTestCaseResult(execution, "test1", testCaseResult);
+            return ResponseEntity.ok(response(1));
+        });
+
+        // When
+        inputTopic.pipeInput("key", request(1));
+
+        // Then
+        awaitOutputs(2);
+        String executionId = outputs.get(0).key;
+        Assertions.assertNotEquals("key", executionId);
+        Assertions.assertTrue(outputs.get(0).value.contains("\"type\":\"TEST_CASE\""));
+        Assertions.assertEquals(executionId, outputs.get(1).key);
+        Assertions.assertTrue(outputs.get(1).value.contains("\"type\":\"SUMMARY\""));
+    }
+
+    @Test
+    void shouldWaitForTheExecutionsInFlightWithoutInterruptingThemWhenTheTaskIsClosed() throws InterruptedException {
+        // Given
+        startTopology(1);
+        var interrupted = new AtomicBoolean();
+        var execution = new CountDownLatch(1);
+        Mockito.when(compilerService.execute(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            try {
+                execution.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                interrupted.set(true);
+                throw exception;
+            }
+            return ResponseEntity.ok(response(1));
+        });
+        // Its result is stored for the next owner of the task
+        inputTopic.pipeInput("a", keyedRequest(1));
+        Mockito.verify(compilerService, Mockito.timeout(1000)).execute(ArgumentMatchers.any());
+
+        // When
+        CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS).execute(execution::countDown);
+        driver.close();
+        driver = null;
+
+        // Then
+        Assertions.assertEquals(0, execution.getCount());
+        Assertions.assertFalse(interrupted.get());
+        Assertions.assertTrue(meterRegistry.find(WellKnownMetrics.KAFKA_IN_FLIGHT_EXECUTIONS_GAUGE).gauges().isEmpty());
+    }
+
+    @Test
+    void shouldStopConsumingWhileTheWaitingRecordsAreAtTheCap() throws InterruptedException {
+        // Given
+        maxWaitingRecords = 1;
+        startTopology(1);
+        var execution = new CountDownLatch(1);
+        Mockito.when(compilerService.execute(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            execution.await(5, TimeUnit.SECONDS);
+            return ResponseEntity.ok(response(1));
+        }).thenReturn(ResponseEntity.ok(response(2)), ResponseEntity.ok(response(3)));
+        inputTopic.pipeInput("a", request(1));
+        Mockito.verify(compilerService, Mockito.timeout(1000)).execute(ArgumentMatchers.any());
+        inputTopic.pipeInput("b", request(2)); // waiting
+
+        // When
+        var consumer = new Thread(() -> inputTopic.pipeInput("c", request(3)));
+        consumer.start();
+
+        // Then
+        consumer.join(200);
+        Assertions.assertTrue(consumer.isAlive());
+        execution.countDown();
+        consumer.join(5000);
+        Assertions.assertFalse(consumer.isAlive());
+        awaitOutputs(3);
+        Mockito.verify(compilerService, Mockito.times(3)).execute(ArgumentMatchers.any());
+    }
+
+    @Test
+    void shouldSizeTheExecutionsInFlightFromTheResources() {
+        // Given
+        Mockito.when(resources.getMaxRequests()).thenReturn(3);
+        Mockito.when(resources.getCpuSlots()).thenReturn(4);
+
+        // When
+        var transformer = newTransformer(0);
+
+        // Then
+        Assertions.assertEquals(3, transformer.getMaxInFlight());
+
+        // When
+        Mockito.when(resources.getMaxRequests()).thenReturn(100);
+
+        // Then
+        Assertions.assertEquals(4, transformer.getMaxInFlight());
+        Assertions.assertEquals(2, newTransformer(2).getMaxInFlight());
+    }
+
+    private AsyncCompilerTransformer newTransformer(int maxInFlight) {
+        return new AsyncCompilerTransformer(
+                compilerService,
+                resources,
+                maxInFlight,
+                THROTTLING_DURATION,
+                10,
+                new SimpleMeterRegistry().counter("retries"),
+                meterRegistry,
+                new RecordRouter(RetryTiers.parse(""), new SimpleMeterRegistry()),
+                RESULTS_TIME_TO_LIVE,
+                resultEventsEnabled,
+                null,
+                executor,
+                CLOSE_TIMEOUT,
+                maxWaitingRecords);
+    }
+
+    private void startTopology(int maxInFlight) {
+        var builder = new StreamsBuilder();
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(CompilerTransformer.THROTTLED_RECORDS_STORE),
+                Serdes.Long(),
+                new JsonSerde<>(ThrottledRecord.class)));
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(StateStoreResultsRepository.EXECUTION_RESULTS_STORE),
+                Serdes.String(),
+                new JsonSerde<>(StoredResult.class)));
+        var results = builder.stream(INPUT_TOPIC, Consumed.with(Serdes.String(), Serdes.String()))
+                .transform(
+                        () -> newTransformer(maxInFlight),
+                        CompilerTransformer.THROTTLED_RECORDS_STORE,
+                        StateStoreResultsRepository.EXECUTION_RESULTS_STORE);
+        results.to(OUTPUT_TOPIC, Produced.with(Serdes.String(), Serdes.String()).withName(RecordRouter.OUTPUT_SINK));
+        results.to("retry", Produced.with(Serdes.String(), Serdes.String()).withName(RecordRouter.RETRY_SINK));
+        results.to("dlt", Produced.with(Serdes.String(), Serdes.String()).withName(RecordRouter.DEAD_LETTER_SINK));
+
+        var props = new Properties();
+        props.setProperty(StreamsConfig.APPLICATION_ID_CONFIG, "asyncCompilerTest");
+        props.setProperty(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        props.setProperty(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        driver = new TopologyTestDriver(builder.build(), props);
+        inputTopic = driver.createInputTopic(
+                INPUT_TOPIC, Serdes.String().serializer(), Serdes.String().serializer());
+        outputTopic = driver.createOutputTopic(
+                OUTPUT_TOPIC, Serdes.String().deserializer(), Serdes.String().deserializer());
+    }
+
+    private void poll() {
+        driver.advanceWallClockTime(Duration.ofMillis(10));
+        outputs.addAll(outputTopic.readKeyValuesToList());
+    }
+
+    private void awaitOutputs(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (outputs.size() < count && System.nanoTime() < deadline) {
+            poll();
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(count, outputs.size());
+    }
+
+    // The time limit identifies the record
+    private static String request(int id) {
+        return "{\"testCases\":{\"test1\":{\"expectedOutput\": \"0\"}}, \"sourcecode\": \"class Test1 {}\", "
+                + "\"language\": \"JAVA\", \"timeLimit\": " + id + ", \"memoryLimit\": 500}";
+    }
+
+    private static String keyedRequest(int id) {
+        return request(id).replace("{\"testCases\"", "{\"idempotencyKey\": \"submission-" + id + "\", \"testCases\"");
+    }
+
+    private static Response response(int id) {
+        return new Response(
+                Verdict.ACCEPTED.getStatusResponse(),
+                Verdict.ACCEPTED.getStatusCode(),
+                "record-" + id,
+                new LinkedHashMap<>(),
+                0,
+                id,
+                500,
+                Language.JAVA,
+                LocalDateTime.now());
+    }
+}
@@ -0,0 +1,85 @@
+package com.cp.compiler.streams.transformers;
+
+import com.cp.compiler.wellknownconstants.WellKnownHeaders;
+import com.cp.compiler.wellknownconstants.WellKnownMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+class PayloadDecoderTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TopologyTestDriver driver;
+
+    private TestInputTopic<String, byte[]> inputTopic;
+
+    private TestOutputTopic<String, byte[]> outputTopic;
+
+    @BeforeEach
+    void setUp() {
+        var builder = new StreamsBuilder();
+        builder.stream("input", Consumed.with(Serdes.String(), Serdes.ByteArray()))
+                .transformValues(() -> new PayloadDecoder(1024, meterRegistry))
+                .mapValues(payload -> payload.isDecoded()
+                        ? payload.getPayload().getBytes(StandardCharsets.UTF_8)
+                        : payload.getRawPayload())
+                .to("output", Produced.with(Serdes.String(), Serdes.ByteArray()));
+
+        var properties = new Properties();
+        properties.put(StreamsConfig.APPLICATION_ID_CONFIG, "payload-decoder-tests");
+        properties.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        driver = new TopologyTestDriver(builder.build(), properties);
+        inputTopic = driver.createInputTopic("input", Serdes.String().serializer(), Serdes.ByteArray().serializer());
+        outputTopic = driver.createOutputTopic(
+                "output", Serdes.String().deserializer(), Serdes.ByteArray().deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void shouldDecodeTheJsonPayloads() {
+        // When
+        inputTopic.pipeInput("key", "{}".getBytes(StandardCharsets.UTF_8));
+
+        // Then
+        var record = outputTopic.readRecord();
+        Assertions.assertEquals("{}", new String(record.getValue(), StandardCharsets.UTF_8));
+        Assertions.assertNull(record.getHeaders().lastHeader(WellKnownHeaders.RETRY_ERROR));
+    }
+
+    @Test
+    void shouldKeepTheRawPayloadAndTheErrorOfTheRecordsThatCanNotBeDecoded() {
+        // Given
+        byte[] payload = "<request/>".getBytes(StandardCharsets.UTF_8);
+        var headers = new RecordHeaders();
+        headers.add(WellKnownHeaders.CONTENT_TYPE, "application/xml".getBytes(StandardCharsets.UTF_8));
+
+        // When
+        inputTopic.pipeInput(new TestRecord<>("key", payload, headers));
+
+        // Then
+        var record = outputTopic.readRecord();
+        Assertions.assertArrayEquals(payload, record.getValue());
+        Assertions.assertNotNull(record.getHeaders().lastHeader(WellKnownHeaders.RETRY_ERROR));
+        Assertions.assertEquals(1, meterRegistry.counter(WellKnownMetrics.KAFKA_DEAD_LETTERS, "broker", "kafka").count());
+    }
+}
@@ -0,0 +1,57 @@
+package com.cp.compiler.streams.transformers;
+
+import com.cp.compiler.wellknownconstants.WellKnownHeaders;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.streams.processor.internals.InternalProcessorContext;
+import org.apache.kafka.streams.processor.internals.ProcessorRecordContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+
+class RecordRouterTests {
+
+    @Test
+    void shouldForwardAPunctuatedRecordWithItsOwnHeadersWithoutMutatingTheSharedOnes() {
+        // Given
+        var sharedHeaders = new RecordHeaders();
+        var punctuationContext = new ProcessorRecordContext(10, -1, -1, "", sharedHeaders);
+        var context = Mockito.mock(InternalProcessorContext.class);
+        Mockito.when(context.recordContext()).thenReturn(punctuationContext);
+        var headers = RecordRouter.newHeaders(2, null, "zstd");
+
+        // When
+        try (RecordRouter.HeadersScope ignored = RecordRouter.withHeaders(context, headers)) {
+            // Then
+            var recordContext = ArgumentCaptor.forClass(ProcessorRecordContext.class);
+            Mockito.verify(context).setRecordContext(recordContext.capture());
+            Assertions.assertSame(headers, recordContext.getValue().headers());
+            Assertions.assertEquals(10, recordContext.getValue().timestamp());
+        }
+        Assertions.assertEquals(0, sharedHeaders.toArray().length);
+        Mockito.verify(context).setRecordContext(punctuationContext);
+    }
+
+    @Test
+    void shouldBuildTheHeadersOfAPunctuatedRecord() {
+        // When
+        var headers = RecordRouter.newHeaders(2, null, "zstd");
+
+        // Then
+        Assertions.assertEquals(2, RecordRouter.getAttempt(headers));
+        Assertions.assertEquals("zstd",
+                new String(headers.lastHeader(WellKnownHeaders.CONTENT_ENCODING).value(), StandardCharsets.UTF_8));
+        Assertions.assertNull(headers.lastHeader(WellKnownHeaders.CONTENT_TYPE));
+    }
+
+    @Test
+    void ifTheRecordIsNotARetryShouldNotAddTheAttemptHeader() {
+        // When
+        var headers = RecordRouter.newHeaders(0, null, null);
+
+        // Then
+        Assertions.assertEquals(0, headers.toArray().length);
+    }
+}
@@ -0,0 +1,109 @@
+package com.cp.compiler.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+class BatchUtilTests {
+    
+    @Test
+    void shouldParseTheResultsInOrder() {
+        // Given
+        String harnessOutput = BatchUtils.RESULT_PREFIX + " 0 0 12 " + encode("1 2\n") + " \n"
+                + BatchUtils.RESULT_PREFIX + " 1 124 1000  " + encode("timeout") + "\n";
+        
+        // When
+        var results = BatchUtils.parseResults(harnessOutput);
+        
+        // Then
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals("1 2\n", results.get(0).getStdOut());
+        Assertions.assertEquals("", results.get(0).getStdErr());
+        Assertions.assertEquals(0, results.get(0).getStatus());
+        Assertions.assertEquals(12, results.get(0).getExecutionDuration());
+        Assertions.assertEquals("", results.get(1).getStdOut());
+        Assertions.assertEquals("timeout", results.get(1).getStdErr());
+        Assertions.assertEquals(124, results.get(1).getStatus());
+    }
+    
+    @Test
+    void shouldIgnoreLinesThatAreNotResults() {
+        // Given
+        String harnessOutput = "some noise\n" + BatchUtils.RESULT_PREFIX + " 0 0 1 " + encode("ok") + " \n";
+        
+        // When
+        var results = BatchUtils.parseResults(harnessOutput);
+        
+        // Then
+        Assertions.assertEquals(1, results.size());
+        Assertions.assertEquals("ok", results.get(0).getStdOut());
+    }
+    
+    @Test
+    void shouldStopParsingAtTheFirstMalformedResult() {
+        // Given
+        String harnessOutput = BatchUtils.RESULT_PREFIX + " 0 0 1 " + encode("ok") + " \n"
+                + BatchUtils.RESULT_PREFIX + " 1 0 not-a-number  \n"
+                + BatchUtils.RESULT_PREFIX + " 2 0 1 " + encode("ok") + " \n";
+        
+        // When
+        var results = BatchUtils.parseResults(harnessOutput);
+        
+        // Then
+        Assertions.assertEquals(1, results.size());
+    }
+    
+    @Test
+    void shouldStopParsingIfAResultIsMissing() {
+        // Given
+        String harnessOutput = BatchUtils.RESULT_PREFIX + " 0 0 1 " + encode("ok") + " \n"
+                + BatchUtils.RESULT_PREFIX + " 2 0 1 " + encode("ok") + " \n";
+        
+        // When
+        var results = BatchUtils.parseResults(harnessOutput);
+        
+        // Then
+        Assertions.assertEquals(1, results.size());
+    }
+    
+    @Test
+    void shouldIgnoreALastLineWithoutLineBreak() {
+        // Given, the output has been cut while writing the second result
+        String harnessOutput = BatchUtils.RESULT_PREFIX + " 0 0 1 " + encode("ok") + " \n"
+                + BatchUtils.RESULT_PREFIX + " 1 0 1 " + encode("cut").substring(0, 2) + " ";
+        
+        // When
+        var results = BatchUtils.parseResults(harnessOutput);
+        
+        // Then
+        Assertions.assertEquals(1, results.size());
+    }
+    
+    @Test
+    void shouldStopParsingWhenTheConsumerRejectsAResult() {
+        // Given
+        String harnessOutput = BatchUtils.RESULT_PREFIX + " 0 0 1 " + encode("ok") + " \n"
+                + BatchUtils.RESULT_PREFIX + " 1 1 1 " + encode("ko") + " \n"
+                + BatchUtils.RESULT_PREFIX + " 2 0 1 " + encode("ok") + " \n";
+        var statuses = new ArrayList<Integer>();
+        
+        // When
+        int count = BatchUtils.parseResults(new StringReader(harnessOutput), 1024, 1024, result -> {
+            statuses.add(result.getStatus());
+            return result.getStatus() == 0;
+        });
+        
+        // Then
+        Assertions.assertEquals(2, count);
+        Assertions.assertEquals(List.of(0, 1), statuses);
+    }
+    
+    private static String encode(String text) {
+        return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -3,12 +3,15 @@ package com.cp.compiler.utils;
 import com.cp.compiler.exceptions.ProcessExecutionException;
 import com.cp.compiler.exceptions.ProcessExecutionTimeoutException;
 import com.cp.compiler.models.processes.ProcessOutput;
+import com.cp.compiler.models.processes.ProcessOutputLimits;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 
 class CmdUtilTests {
     
@@ -151,4 +154,50 @@ class CmdUtilTests {
             CmdUtils.executeProcess(cmd, 100);
         });
     }
+    
+    @Test
+    void executeProcessShouldNotBlockWhenTheOutputExceedsThePipeBuffer() {
+        // Given, 1 MB on stdout and stderr
+        String[] cmd = new String[] {"sh", "-c", "head -c 1048576 /dev/zero | tr '\\0' 'a'; head -c 1048576 /dev/zero >&2"};
+        
+        // When
+        ProcessOutput processOutput = CmdUtils.executeProcess(cmd, 10000);
+        
+        // Then
+        Assertions.assertEquals(0, processOutput.getStatus());
+        Assertions.assertEquals(1048576, processOutput.getStdOut().length());
+        Assertions.assertFalse(processOutput.isOutputLimitExceeded());
+    }
+    
+    @Test
+    void executeProcessShouldStopTheProcessWhenTheOutputLimitIsExceeded() throws IOException {
+        // Given, an endless output
+        String[] cmd = new String[] {"yes"};
+        var outputLimits = new ProcessOutputLimits(100_000, 1000, 10_000);
+        
+        // When
+        try (ProcessOutput processOutput = CmdUtils.executeProcess(cmd, 10000, outputLimits);
+             Reader stdOut = processOutput.openStdOut()) {
+            
+            // Then, the string is cut to the spill threshold, the whole output is read from the reader
+            Assertions.assertTrue(processOutput.isOutputLimitExceeded());
+            Assertions.assertEquals(10_000, processOutput.getStdOut().length());
+            Assertions.assertEquals(100_000, stdOut.transferTo(Writer.nullWriter()));
+            Assertions.assertTrue(processOutput.getExecutionDuration() < 10000);
+        }
+    }
+    
+    @Test
+    void executeProcessShouldKeepTheOutputWrittenBeforeTheTimeout() {
+        // Given
+        String[] cmd = new String[] {"sh", "-c", "echo partial; exec sleep 10"};
+        
+        // When
+        var exception = Assertions.assertThrows(
+                ProcessExecutionTimeoutException.class,
+                () -> CmdUtils.executeProcess(cmd, 500));
+        
+        // Then
+        Assertions.assertEquals("partial\n", exception.getPartialOutput().getStdOut());
+    }
 }
@@ -0,0 +1,109 @@
+package com.cp.compiler.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.Image;
+import com.github.dockerjava.api.model.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class DockerTableUtilsTests {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final Instant NOW = Instant.ofEpochSecond(1_700_000_000L);
+
+    @Test
+    void shouldRenderTheContainersAsTheDockerPsCommand() throws Exception {
+        // Given
+        Container container = objectMapper.readValue("{"
+                + "\"Id\": \"8dfafdbc3a40a1b2c3d4e5f6\","
+                + "\"Image\": \"compiler\","
+                + "\"Command\": \"java -jar /app/compiler.jar\","
+                + "\"Created\": " + (NOW.getEpochSecond() - 2 * 3600) + ","
+                + "\"Status\": \"Up 2 hours\","
+                + "\"Ports\": [{\"IP\": \"0.0.0.0\", \"PrivatePort\": 8082, \"PublicPort\": 8080, \"Type\": \"tcp\"}],"
+                + "\"Names\": [\"/compiler\"]}", Container.class);
+
+        // When
+        String table = DockerTableUtils.formatContainers(List.of(container), NOW);
+
+        // Then
+        Assertions.assertEquals(
+                "CONTAINER ID   IMAGE      COMMAND                  CREATED       STATUS       "
+                        + "PORTS                    NAMES\n"
+                        + "8dfafdbc3a40   compiler   \"java -jar /app/comp…\"   2 hours ago   Up 2 hours   "
+                        + "0.0.0.0:8080->8082/tcp   compiler\n",
+                table);
+    }
+
+    @Test
+    void shouldRenderOneRowPerTagAsTheDockerImagesCommand() throws Exception {
+        // Given
+        Image image = objectMapper.readValue("{"
+                + "\"Id\": \"sha256:0123456789abcdef0123\","
+                + "\"RepoTags\": [\"python:3.9\", \"localhost:5000/python:latest\"],"
+                + "\"Created\": " + (NOW.getEpochSecond() - 3 * 24 * 3600) + ","
+                + "\"Size\": 123456789}", Image.class);
+        Image untagged = objectMapper.readValue("{"
+                + "\"Id\": \"sha256:fedcba9876543210fedc\","
+                + "\"Created\": " + (NOW.getEpochSecond() - 30) + ","
+                + "\"Size\": 999}", Image.class);
+
+        // When
+        String table = DockerTableUtils.formatImages(List.of(image, untagged), NOW);
+
+        // Then
+        Assertions.assertEquals(
+                "REPOSITORY              TAG       IMAGE ID       CREATED          SIZE\n"
+                        + "python                  3.9       0123456789ab   3 days ago       123MB\n"
+                        + "localhost:5000/python   latest    0123456789ab   3 days ago       123MB\n"
+                        + "<none>                  <none>    fedcba987654   30 seconds ago   999B\n",
+                table);
+    }
+
+    @Test
+    void shouldRenderTheStatsAsTheDockerStatsCommand() throws Exception {
+        // Given
+        Container container = objectMapper.readValue(
+                "{\"Id\": \"8dfafdbc3a40a1b2c3d4e5f6\", \"Names\": [\"/compiler\"]}", Container.class);
+        Statistics statistics = objectMapper.readValue("{"
+                + "\"cpu_stats\": {\"cpu_usage\": {\"total_usage\": 300}, "
+                + "\"system_cpu_usage\": 2000, \"online_cpus\": 2},"
+                + "\"precpu_stats\": {\"cpu_usage\": {\"total_usage\": 100}, \"system_cpu_usage\": 1000},"
+                + "\"memory_stats\": {\"usage\": 110100480, \"limit\": 1073741824, "
+                + "\"stats\": {\"total_inactive_file\": 5242880}},"
+                + "\"networks\": {\"eth0\": {\"rx_bytes\": 1500, \"tx_bytes\": 2500000}},"
+                + "\"blkio_stats\": {\"io_service_bytes_recursive\": ["
+                + "{\"op\": \"Read\", \"value\": 4096}, {\"op\": \"Write\", \"value\": 0}]},"
+                + "\"pids_stats\": {\"current\": 12}}", Statistics.class);
+        Map<Container, Statistics> stats = new LinkedHashMap<>();
+        stats.put(container, statistics);
+
+        // When
+        String table = DockerTableUtils.formatStats(stats);
+
+        // Then
+        Assertions.assertEquals(
+                "CONTAINER ID   NAME       CPU %     MEM USAGE / LIMIT   MEM %     "
+                        + "NET I/O         BLOCK I/O    PIDS\n"
+                        + "8dfafdbc3a40   compiler   40.00%    100MiB / 1GiB       9.77%     "
+                        + "1.5kB / 2.5MB   4.1kB / 0B   12\n",
+                table);
+    }
+
+    @Test
+    void shouldRenderOnlyTheHeaderWhenThereIsNoContainer() {
+        // When
+        String table = DockerTableUtils.formatStats(Map.of());
+
+        // Then
+        Assertions.assertEquals(
+                "CONTAINER ID   NAME      CPU %     MEM USAGE / LIMIT   MEM %     NET I/O   BLOCK I/O   PIDS\n", table);
+    }
+}
@@ -0,0 +1,132 @@
+package com.cp.compiler.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+class ExecutorUtilsTests {
+
+    @Test
+    void shouldNameTheThreadsAfterTheExecutor() throws InterruptedException {
+        // Given
+        var executor = ExecutorUtils.newBoundedExecutor(
+                "cleanup", 1, 1, new ThreadPoolExecutor.AbortPolicy(), new SimpleMeterRegistry());
+        var threadName = new AtomicReference<String>();
+        var done = new CountDownLatch(1);
+
+        // When
+        executor.execute(() -> {
+            threadName.set(Thread.currentThread().getName());
+            done.countDown();
+        });
+
+        // Then
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("cleanup-1", threadName.get());
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldRegisterTheMetricsOfTheExecutor() {
+        // Given
+        var meterRegistry = new SimpleMeterRegistry();
+
+        // When
+        var executor = ExecutorUtils.newBoundedExecutor(
+                "webhook", 2, 10, new ThreadPoolExecutor.AbortPolicy(), meterRegistry);
+
+        // Then
+        Assertions.assertEquals(2, meterRegistry.get("executor.pool.max").tag("name", "webhook").gauge().value());
+        Assertions.assertNotNull(meterRegistry.get("executor.queued").tag("name", "webhook").gauge());
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldRejectTheTasksOnceTheQueueIsFull() throws InterruptedException {
+        // Given
+        var executor = ExecutorUtils.newBoundedExecutor(
+                "long-running", 1, 1, new ThreadPoolExecutor.AbortPolicy(), new SimpleMeterRegistry());
+        var blocked = new CountDownLatch(1);
+        executor.execute(() -> await(blocked));
+        executor.execute(() -> await(blocked));
+
+        // When / Then
+        Assertions.assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+        blocked.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldRunTheTaskInTheCallerThreadOnceSaturated() {
+        // Given
+        var executor = ExecutorUtils.newBoundedExecutor(
+                "test-cases", 1, 0, new ThreadPoolExecutor.CallerRunsPolicy(), new SimpleMeterRegistry());
+        var blocked = new CountDownLatch(1);
+        executor.execute(() -> await(blocked));
+        var threadName = new AtomicReference<String>();
+
+        // When
+        executor.execute(() -> threadName.set(Thread.currentThread().getName()));
+
+        // Then
+        Assertions.assertEquals(Thread.currentThread().getName(), threadName.get());
+        blocked.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldNotAcceptAnEmptyPool() {
+        // When / Then
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ExecutorUtils.newBoundedExecutor(
+                "cleanup", 0, 1, new ThreadPoolExecutor.AbortPolicy(), new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void shouldRunOnVirtualThreadsWhenSupported() throws Exception {
+        // Given
+        Assumptions.assumeTrue(ExecutorUtils.isVirtualThreadsSupported());
+        var executor = ExecutorUtils.newBoundedExecutor(
+                "test-cases", 1, 0, new ThreadPoolExecutor.AbortPolicy(), new SimpleMeterRegistry(), true);
+
+        // When
+        Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertEquals(true, Thread.class.getMethod("isVirtual").invoke(thread));
+        Assertions.assertEquals("test-cases-1", thread.getName());
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldFallBackToPlatformThreadsWhenVirtualThreadsAreNotSupported() throws Exception {
+        // Given
+        Assumptions.assumeFalse(ExecutorUtils.isVirtualThreadsSupported());
+        var executor = ExecutorUtils.newBoundedExecutor(
+                "test-cases", 1, 0, new ThreadPoolExecutor.AbortPolicy(), new SimpleMeterRegistry(), true);
+
+        // When
+        Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertEquals("test-cases-1", thread.getName());
+        Assertions.assertTrue(thread.isDaemon());
+        Assertions.assertTrue(ExecutorUtils.newVirtualThreadPerTaskExecutor("http", new SimpleMeterRegistry()).isEmpty());
+        executor.shutdownNow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
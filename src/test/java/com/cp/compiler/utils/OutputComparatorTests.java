@@ -0,0 +1,87 @@
+package com.cp.compiler.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.util.Random;
+
+class OutputComparatorTests {
+    
+    @Test
+    void shouldIgnoreTheLeadingAndTrailingWhiteSpaces() {
+        Assertions.assertEquals(OutputComparator.NO_MISMATCH, OutputComparator.findMismatch(" \n1 2\t\n", "1 2"));
+    }
+    
+    @Test
+    void shouldReturnTheOffsetOfTheFirstMismatch() {
+        Assertions.assertEquals(5, OutputComparator.findMismatch("1  2 4", "1 2 3"));
+    }
+    
+    @Test
+    void shouldReturnTheLengthOfTheOutputWhenTheOutputIsAPrefixOfTheExpectedOutput() {
+        Assertions.assertEquals(4, OutputComparator.findMismatch("1 2 ", "1 2 3"));
+    }
+    
+    @Test
+    void shouldStopReadingTheOutputAtTheFirstMismatch() {
+        // Given, an endless output
+        Reader endlessOutput = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                for (int i = 0; i < length; i++) {
+                    buffer[offset + i] = 'a';
+                }
+                return length;
+            }
+            
+            @Override
+            public void close() {
+            }
+        };
+        
+        // When
+        long mismatchOffset = OutputComparator.findMismatch(endlessOutput, "aab");
+        
+        // Then
+        Assertions.assertEquals(2, mismatchOffset);
+    }
+    
+    @Test
+    void shouldHaveTheSameResultsAsTheRegexNormalization() {
+        // Given, random texts mixing white spaces, other control chars and "/n"
+        char[] alphabet = {' ', '\t', '\n', '\r', '\u000B', '\u0001', '/', 'n', 'a'};
+        var random = new Random(42);
+        
+        for (int i = 0; i < 100_000; i++) {
+            String output = randomText(random, alphabet);
+            String expectedOutput = random.nextInt(4) == 0 ? output.trim() + " " : randomText(random, alphabet);
+            
+            // When
+            boolean matches = OutputComparator.findMismatch(output, expectedOutput) == OutputComparator.NO_MISMATCH;
+            
+            // Then
+            Assertions.assertEquals(
+                    normalize(output).equals(normalize(expectedOutput)),
+                    matches,
+                    "output: [" + output + "], expected output: [" + expectedOutput + "]");
+        }
+    }
+    
+    private static String randomText(Random random, char[] alphabet) {
+        var text = new StringBuilder();
+        int length = random.nextInt(10);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return text.toString();
+    }
+    
+    // The previous implementation
+    private static String normalize(String text) {
+        return text
+                .trim()
+                .replaceAll("\\s+", " ")
+                .replace("/n","");
+    }
+}
@@ -0,0 +1,85 @@
+package com.cp.compiler.utils;
+
+import com.cp.compiler.exceptions.UnsupportedPayloadException;
+import com.cp.compiler.utils.payloads.PayloadCompression;
+import com.cp.compiler.utils.payloads.PayloadEncoding;
+import com.cp.compiler.utils.payloads.PayloadFormat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+class PayloadEncodingTests {
+
+    private static final String JSON = "{\"sourcecode\":\"class Test1 {}\",\"language\":\"JAVA\","
+            + "\"testCases\":{\"test1\":{\"input\":\"" + "1 2 3 ".repeat(200) + "\",\"expectedOutput\":\"6\"}}}";
+
+    @Test
+    void shouldBeTheDefaultEncodingWithoutContentTypeNorContentEncoding() {
+        Assertions.assertSame(PayloadEncoding.DEFAULT, PayloadEncoding.of(null, null));
+        Assertions.assertSame(PayloadEncoding.DEFAULT, PayloadEncoding.of("application/json; charset=UTF-8", "identity"));
+        // spring-amqp sends the text messages as text/plain with their charset as content encoding
+        Assertions.assertSame(PayloadEncoding.DEFAULT, PayloadEncoding.of("text/plain", "UTF-8"));
+        Assertions.assertTrue(PayloadEncoding.DEFAULT.isDefault());
+        Assertions.assertArrayEquals(JSON.getBytes(StandardCharsets.UTF_8), PayloadEncoding.DEFAULT.encode(JSON));
+    }
+
+    @Test
+    void shouldCompressAndDecompressThePayloads() {
+        for (String contentEncoding : new String[] {"gzip", "lz4", "zstd"}) {
+            // Given
+            var encoding = PayloadEncoding.of(null, contentEncoding);
+
+            // When
+            byte[] payload = encoding.encode(JSON);
+
+            // Then
+            Assertions.assertFalse(encoding.isDefault());
+            Assertions.assertEquals(contentEncoding, encoding.getContentEncoding());
+            Assertions.assertTrue(payload.length < JSON.length());
+            Assertions.assertEquals(JSON, encoding.decode(payload));
+        }
+    }
+
+    @Test
+    void shouldNotAcceptUnknownContentTypesNorContentEncodings() {
+        Assertions.assertThrows(UnsupportedPayloadException.class, () -> PayloadEncoding.of("application/xml", null));
+        Assertions.assertThrows(UnsupportedPayloadException.class, () -> PayloadEncoding.of(null, "brotli"));
+    }
+
+    @Test
+    void shouldTranscodeTheBinaryFormats() {
+        for (var format : new PayloadFormat[] {PayloadFormat.SMILE, PayloadFormat.CBOR}) {
+            for (String contentEncoding : new String[] {null, "zstd"}) {
+                // Given
+                var encoding = PayloadEncoding.of(format.getContentType(), contentEncoding);
+                
+                // When
+                byte[] payload = encoding.encode(JSON);
+                
+                // Then
+                Assertions.assertEquals(format, encoding.getFormat());
+                Assertions.assertFalse(new String(payload, StandardCharsets.UTF_8).startsWith("{"));
+                Assertions.assertEquals(JSON, encoding.decode(payload));
+            }
+        }
+    }
+    
+    @Test
+    void shouldNotDecompressAPayloadLargerThanTheMaxSize() {
+        // Given
+        var encoding = PayloadEncoding.of(null, "gzip");
+        byte[] payload = encoding.encode(JSON);
+        
+        // When / Then
+        Assertions.assertEquals(JSON, encoding.decode(payload, JSON.length()));
+        Assertions.assertThrows(UnsupportedPayloadException.class, () -> encoding.decode(payload, JSON.length() - 1));
+    }
+
+    @Test
+    void shouldNotDecodeACorruptedPayload() {
+        var encoding = new PayloadEncoding(PayloadFormat.JSON, PayloadCompression.GZIP);
+        Assertions.assertThrows(UnsupportedPayloadException.class,
+                () -> encoding.decode("not gzip".getBytes(StandardCharsets.UTF_8)));
+    }
+}
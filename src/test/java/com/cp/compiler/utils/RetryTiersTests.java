@@ -0,0 +1,58 @@
+package com.cp.compiler.utils;
+
+import com.cp.compiler.exceptions.CompilerBadRequestException;
+import com.cp.compiler.exceptions.CompilerServerInternalException;
+import com.cp.compiler.exceptions.CompilerThrottlingException;
+import com.cp.compiler.utils.retries.RetryTiers;
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class RetryTiersTests {
+
+    @Test
+    void shouldParseTheDelaysOfTheTiers() {
+        // When
+        var retryTiers = RetryTiers.parse("1000, 5000,60000");
+
+        // Then
+        Assertions.assertEquals(3, retryTiers.size());
+        Assertions.assertEquals(1000, retryTiers.getDelay(1));
+        Assertions.assertEquals(60000, retryTiers.getDelay(3));
+    }
+
+    @Test
+    void shouldHaveNoTiersWhenTheDelaysAreEmpty() {
+        Assertions.assertEquals(0, RetryTiers.parse("").size());
+        Assertions.assertEquals(0, RetryTiers.parse(null).size());
+        Assertions.assertFalse(RetryTiers.parse("").shouldRetry(1, new RuntimeException()));
+    }
+
+    @Test
+    void shouldNotAcceptNegativeDelays() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RetryTiers(List.of(1000L, -1L)));
+    }
+
+    @Test
+    void shouldRetryUntilTheTiersAreExhausted() {
+        // Given
+        var retryTiers = RetryTiers.parse("1000,2000");
+        var exception = new CompilerServerInternalException("docker is down");
+
+        // Then
+        Assertions.assertTrue(retryTiers.shouldRetry(1, exception));
+        Assertions.assertTrue(retryTiers.shouldRetry(2, exception));
+        Assertions.assertFalse(retryTiers.shouldRetry(3, exception));
+    }
+
+    @Test
+    void shouldNotRetryTheErrorsThatFailTheSameWayAtEachAttempt() {
+        Assertions.assertFalse(RetryTiers.isRetryable(new CompilerBadRequestException("bad request")));
+        Assertions.assertFalse(RetryTiers.isRetryable(new JsonParseException(null, "not a json")));
+        Assertions.assertFalse(RetryTiers.isRetryable(new NullPointerException()));
+        Assertions.assertTrue(RetryTiers.isRetryable(new CompilerThrottlingException("throttled")));
+        Assertions.assertTrue(RetryTiers.isRetryable(new RuntimeException("docker is down")));
+    }
+}
@@ -0,0 +1,61 @@
+package com.cp.compiler.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+class SystemUtilTests {
+
+    @Test
+    void shouldParseTheTotalMemoryOfMeminfo() {
+        // Given
+        var lines = List.of("MemTotal:       16318216 kB", "MemFree:         1234567 kB");
+
+        // When
+        Optional<Long> memTotal = SystemUtils.parseMemTotal(lines);
+
+        // Then
+        Assertions.assertEquals(Optional.of(16318216L * 1024), memTotal);
+    }
+
+    @Test
+    void shouldReturnEmptyIfMeminfoHasNoTotalMemory() {
+        // When / Then
+        Assertions.assertTrue(SystemUtils.parseMemTotal(List.of("MemFree: 1234567 kB")).isEmpty());
+    }
+
+    @Test
+    void shouldParseACgroupMemoryLimit() {
+        // When / Then
+        Assertions.assertEquals(Optional.of(536870912L), SystemUtils.parseCgroupMemoryLimit("536870912\n"));
+    }
+
+    @Test
+    void shouldReturnEmptyIfTheCgroupMemoryIsNotLimited() {
+        // When / Then
+        Assertions.assertTrue(SystemUtils.parseCgroupMemoryLimit("max\n").isEmpty());
+        Assertions.assertTrue(SystemUtils.parseCgroupMemoryLimit("9223372036854771712").isEmpty());
+    }
+
+    @Test
+    void totalMemoryShouldBePositive() {
+        // When / Then
+        Assertions.assertTrue(SystemUtils.getTotalMemory() > 0);
+    }
+
+    @Test
+    void shouldParseThePressureOfTheLast10Seconds() {
+        // Given
+        var lines = List.of(
+                "some avg10=3.35 avg60=12.85 avg300=33.44 total=3005812545",
+                "full avg10=1.00 avg60=0.00 avg300=0.00 total=0");
+
+        // When
+        Optional<Double> pressure = SystemUtils.parsePressure(lines);
+
+        // Then
+        Assertions.assertEquals(Optional.of(3.35), pressure);
+    }
+}